@@ -186,7 +186,9 @@ public class Main
 		Runner runner = new Runner();
 		runner.setProgressListener( progress );
 		runner.setConnectionAttributes( "default", def.getDriver(), def.getUrl(), def.getUserName(), def.getPassword() );
+		runner.setFetchSize( "default", def.getFetchSize() );
 		for( solidbase.config.Database connection : configuration.getSecondaryDatabases() )
+		{
 			runner.setConnectionAttributes(
 					connection.getName(),
 					connection.getDriver(),
@@ -194,6 +196,8 @@ public class Main
 					connection.getUserName(),
 					connection.getPassword()
 					);
+			runner.setFetchSize( connection.getName(), connection.getFetchSize() );
+		}
 
 		for( Entry<Object, Object> entry : configuration.getParameters().entrySet() )
 			runner.addParameter( (String)entry.getKey(), (String)entry.getValue() );
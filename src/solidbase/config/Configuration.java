@@ -49,7 +49,7 @@ public class Configuration
 	static private final String SOLIDBASE_PROPERTIES = "solidbase.properties";
 	static private final String SOLIDBASE_DEFAULT_PROPERTIES = "solidbase-default.properties";
 
-	static private final Pattern propertyPattern = Pattern.compile( "^connection\\.([^\\s\\.]+)\\.(driver|url|username|password)$" );
+	static private final Pattern propertyPattern = Pattern.compile( "^connection\\.([^\\s\\.]+)\\.(driver|url|username|password|fetchsize)$" );
 
 	/**
 	 * The contents of the properties file. Default this is solidbase.properties in the current folder, with missing
@@ -207,6 +207,9 @@ public class Configuration
 
 				if( driver != null || dbUrl != null || userName != null || password != null )
 					this.defaultDatabase = new Database( "default", driver, dbUrl, userName, password );
+				String fetchSize = this.properties.getProperty( "connection.fetchsize" );
+				if( fetchSize != null && this.defaultDatabase != null )
+					this.defaultDatabase.setFetchSize( parseFetchSize( "connection.fetchsize", fetchSize ) );
 				this.upgradeFile = upgradeFile;
 				this.target = target;
 				this.sqlFile = sqlFile;
@@ -234,6 +237,8 @@ public class Configuration
 							database.setUserName( value );
 						else if( prop.equals( "password" ) )
 							database.setPassword( value );
+						else if( prop.equals( "fetchsize" ) )
+							database.setFetchSize( parseFetchSize( key, value ) );
 						else
 							Assert.fail();
 					}
@@ -262,6 +267,18 @@ public class Configuration
 		}
 	}
 
+	static private int parseFetchSize( String key, String value )
+	{
+		try
+		{
+			return Integer.parseInt( value.trim() );
+		}
+		catch( NumberFormatException e )
+		{
+			throw new FatalException( "Property '" + key + "' must be a number in " + SOLIDBASE_PROPERTIES );
+		}
+	}
+
 	/**
 	 * Returns all the driver jar file names.
 	 *
@@ -49,6 +49,11 @@ public class Database
 	 */
 	protected String password;
 
+	/**
+	 * The default fetch size for the connection to the database.
+	 */
+	protected int fetchSize;
+
 
 	/**
 	 * Constructor.
@@ -118,6 +123,16 @@ public class Database
 		this.password = password;
 	}
 
+	/**
+	 * Sets the default fetch size for the connection to the database.
+	 * 
+	 * @param fetchSize The default fetch size for the connection to the database, 0 for the default of the driver.
+	 */
+	public void setFetchSize( int fetchSize )
+	{
+		this.fetchSize = fetchSize;
+	}
+
 	/**
 	 * Returns the name of the database.
 	 * 
@@ -167,4 +182,14 @@ public class Database
 	{
 		return this.password;
 	}
+
+	/**
+	 * Returns the default fetch size for the connection to the database.
+	 * 
+	 * @return The default fetch size for the connection to the database, 0 for the default of the driver.
+	 */
+	public int getFetchSize()
+	{
+		return this.fetchSize;
+	}
 }
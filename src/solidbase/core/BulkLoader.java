@@ -0,0 +1,54 @@
+/*--
+ * Copyright 2012 Ren M. de Bloois
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package solidbase.core;
+
+import java.io.Reader;
+import java.sql.Connection;
+import java.sql.SQLException;
+
+
+/**
+ * A BulkLoader loads CSV data into a table with a database specific bulk load facility. Bulk loaders are used by
+ * IMPORT CSV ... USING BULK. They are registered in META-INF/solidbase.plugins, just like the {@link CommandListener}s.
+ * When none of the bulk loaders supports the database, the data is imported with JDBC batches.
+ *
+ * @author Ren M. de Bloois
+ */
+public interface BulkLoader
+{
+	/**
+	 * Returns true if this bulk loader can load data into the database of the given connection.
+	 *
+	 * @param connection The connection.
+	 * @return True if this bulk loader can load data into the database of the given connection.
+	 * @throws SQLException Whenever JDBC throws it.
+	 */
+	boolean supports( Connection connection ) throws SQLException;
+
+	/**
+	 * Loads the CSV data into the given table. The values are separated by commas and enclosed in double quotes, double
+	 * quotes in the values are doubled. Empty values that are not enclosed in double quotes are null. The records are
+	 * separated by newlines. The connection is committed or rolled back by the caller.
+	 *
+	 * @param connection The connection.
+	 * @param tableName The name of the table, optionally prefixed with the schema.
+	 * @param columns The names of the columns, null for all columns.
+	 * @param data The CSV data.
+	 * @throws SQLException Whenever JDBC throws it.
+	 */
+	void load( Connection connection, String tableName, String[] columns, Reader data ) throws SQLException;
+}
@@ -18,6 +18,7 @@ package solidbase.core;
 
 import java.sql.Connection;
 import java.sql.PreparedStatement;
+import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.sql.Statement;
 import java.util.regex.Matcher;
@@ -345,6 +346,41 @@ abstract public class CommandProcessor
 		return statement;
 	}
 
+	/**
+	 * Creates a new statement from the current connection to read query results with. The result sets of the statement
+	 * are forward only and read only, which lets the driver stream the results instead of reading them in memory.
+	 *
+	 * @param fetchSize The number of rows to fetch at a time, 0 for the default of the current database.
+	 * @return The statement.
+	 * @throws SQLException Whenever JDBC throws an SQLException.
+	 */
+	public Statement createQueryStatement( int fetchSize ) throws SQLException
+	{
+		Database database = getCurrentDatabase();
+		Connection connection = database.getConnection();
+		Assert.isFalse( connection.getAutoCommit(), "Autocommit should be false" ); // PostgreSQL only uses a cursor when autocommit is off
+		Statement statement = connection.createStatement( ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY );
+		statement.setEscapeProcessing( this.context.getJdbcEscaping() );
+		setFetchSize( statement, fetchSize, database );
+		return statement;
+	}
+
+	/**
+	 * Sets the fetch size of the statement.
+	 *
+	 * @param statement The statement.
+	 * @param fetchSize The number of rows to fetch at a time, 0 for the default of the database.
+	 * @param database The database.
+	 * @throws SQLException Whenever JDBC throws an SQLException.
+	 */
+	static public void setFetchSize( Statement statement, int fetchSize, Database database ) throws SQLException
+	{
+		if( fetchSize <= 0 )
+			fetchSize = database.getFetchSize();
+		if( fetchSize > 0 )
+			statement.setFetchSize( fetchSize );
+	}
+
 	/**
 	 * Prepares a new statement from the current connection.
 
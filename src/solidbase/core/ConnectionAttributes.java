@@ -55,6 +55,11 @@ public class ConnectionAttributes
 	 */
 	protected String password;
 
+	/**
+	 * The default fetch size of the connection.
+	 */
+	protected int fetchSize;
+
 
 	/**
 	 * Constructor.
@@ -217,4 +222,24 @@ public class ConnectionAttributes
 	{
 		this.password = password;
 	}
+
+	/**
+	 * Returns the default fetch size of the connection.
+	 *
+	 * @return The default fetch size of the connection, 0 for the default of the driver.
+	 */
+	public int getFetchSize()
+	{
+		return this.fetchSize;
+	}
+
+	/**
+	 * Sets the default fetch size of the connection.
+	 *
+	 * @param fetchSize The default fetch size of the connection, 0 for the default of the driver.
+	 */
+	public void setFetchSize( int fetchSize )
+	{
+		this.fetchSize = fetchSize;
+	}
 }
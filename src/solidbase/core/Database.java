@@ -86,6 +86,11 @@ public class Database
 	 */
 	protected ConnectionListener connectionListener;
 
+	/**
+	 * The default number of rows to fetch at a time when reading query results, 0 for the default of the driver.
+	 */
+	protected int fetchSize;
+
 	/**
 	 * Constructor for a named database that manages connections for multiple users.
 	 *
@@ -183,6 +188,27 @@ public class Database
 		return this.currentUser;
 	}
 
+	/**
+	 * Returns the default number of rows to fetch at a time when reading query results.
+	 *
+	 * @return The default number of rows to fetch at a time, 0 for the default of the driver.
+	 */
+	public int getFetchSize()
+	{
+		return this.fetchSize;
+	}
+
+	/**
+	 * Sets the default number of rows to fetch at a time when reading query results. Some drivers read the complete
+	 * result in memory unless a fetch size is given.
+	 *
+	 * @param fetchSize The default number of rows to fetch at a time, 0 for the default of the driver.
+	 */
+	public void setFetchSize( int fetchSize )
+	{
+		this.fetchSize = fetchSize;
+	}
+
 	/**
 	 * Sets the connection listener that listens to connection events.
 	 *
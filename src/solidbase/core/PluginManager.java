@@ -29,7 +29,8 @@ import java.util.List;
 
 /**
  * Reads plugins from the classpath. First it collects all of the following files: META-INF/solidbase.plugins.
- * Each (non-empty) line in these files represents a plugin class. A plugin should extend {@link CommandListener}.
+ * Each (non-empty) line in these files represents a plugin class. A plugin should extend {@link CommandListener} or
+ * {@link BulkLoader}.
  *
  * @author Ren M. de Bloois
  * @since May 2010
@@ -41,9 +42,15 @@ public class PluginManager
 	 */
 	static protected List< CommandListener > listeners;
 
+	/**
+	 * All the bulk loaders found.
+	 */
+	static protected List< BulkLoader > bulkLoaders;
+
 	static
 	{
 		listeners = new ArrayList< CommandListener >();
+		bulkLoaders = new ArrayList< BulkLoader >();
 
 		try
 		{
@@ -62,9 +69,12 @@ public class PluginManager
 						{
 							Class< ? > pluginClass = Class.forName( line );
 							Object plugin = pluginClass.getConstructor().newInstance();
-							if( !( plugin instanceof CommandListener ) )
-								throw new FatalException( "Plugin class '" + line + "' should be extending " + CommandListener.class.getName() );
-							listeners.add( (CommandListener)plugin );
+							if( plugin instanceof CommandListener )
+								listeners.add( (CommandListener)plugin );
+							else if( plugin instanceof BulkLoader )
+								bulkLoaders.add( (BulkLoader)plugin );
+							else
+								throw new FatalException( "Plugin class '" + line + "' should be extending " + CommandListener.class.getName() + " or " + BulkLoader.class.getName() );
 						}
 
 						line = reader.readLine();
@@ -112,6 +122,16 @@ public class PluginManager
 		return listeners;
 	}
 
+	/**
+	 * Returns a list of all the bulk loaders.
+	 *
+	 * @return a list of all the bulk loaders.
+	 */
+	static public List< BulkLoader > getBulkLoaders()
+	{
+		return bulkLoaders;
+	}
+
 	/**
 	 * Send all listeners the signal to terminate
 	 */
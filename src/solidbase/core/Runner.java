@@ -99,6 +99,20 @@ public class Runner
 		this.connections.put( name, new ConnectionAttributes( name, driver, url, username, password ) );
 	}
 
+	/**
+	 * Sets the default fetch size of a connection that has been set before.
+	 *
+	 * @param name The name of the connection.
+	 * @param fetchSize The number of rows to fetch at a time when reading query results, 0 for the default of the driver.
+	 */
+	public void setFetchSize( String name, int fetchSize )
+	{
+		ConnectionAttributes connection = this.connections.get( name );
+		if( connection == null )
+			throw new IllegalArgumentException( "Connection '" + name + "' not set." );
+		connection.setFetchSize( fetchSize );
+	}
+
 	/**
 	 * Sets a connection to use.
 	 *
@@ -305,10 +319,13 @@ public class Runner
 			if( url == null )
 				url = def.getUrl();
 
+			Database database;
 			if( dataSource != null )
-				databases.addDatabase( new Database( connection.getName(), dataSource, connection.getUsername(), connection.getPassword(), this.listener ) );
+				database = new Database( connection.getName(), dataSource, connection.getUsername(), connection.getPassword(), this.listener );
 			else
-				databases.addDatabase( new Database( connection.getName(), driver, url, connection.getUsername(), connection.getPassword(), this.listener ) );
+				database = new Database( connection.getName(), driver, url, connection.getUsername(), connection.getPassword(), this.listener );
+			database.setFetchSize( connection.getFetchSize() > 0 ? connection.getFetchSize() : def.getFetchSize() );
+			databases.addDatabase( database );
 		}
 		return databases;
 	}
@@ -56,9 +56,10 @@ public class AssertExistsOrEmptySelect implements CommandListener
 		String message = matcher.group( 2 );
 		String select  = matcher.group( 3 ).trim();
 		Assert.isTrue( select.substring( 0, 7 ).equalsIgnoreCase( "SELECT " ), "Check should be a SELECT" );
-		Statement statement = processor.createStatement();
+		Statement statement = processor.createQueryStatement( 1 );
 		try
 		{
+			statement.setMaxRows( 1 ); // Only existence is checked
 			boolean result = statement.executeQuery( select ).next();
 			if( mode.equalsIgnoreCase( "EXISTS" ) ? !result : result )
 				throw new SourceException( message, command.getLocation() );
@@ -0,0 +1,325 @@
+/*--
+ * Copyright 2012 Ren M. de Bloois
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package solidbase.core.plugins;
+
+import java.io.File;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Types;
+
+import solidbase.core.Command;
+import solidbase.core.CommandProcessor;
+import solidbase.core.FatalException;
+import solidbase.core.SystemException;
+import solidbase.util.Assert;
+import solidbase.util.SourceBuffer;
+import solidstack.io.Resource;
+
+
+/**
+ * The progress of an import that commits every n records, kept in the checkpoint table. When an import fails, the
+ * records that have been committed stay in the database, and the checkpoint tells where to continue when the same
+ * import is executed again: the position in the file, the line number and the number of records. The checkpoint is
+ * updated in the same transaction as the records, and it is deleted when the import completes.
+ *
+ * <p>The checkpoint table is created when it does not exist yet.</p>
+ *
+ * @author Ren M. de Bloois
+ */
+public class Checkpoint
+{
+	/** The name of the checkpoint table. */
+	static public final String TABLE_NAME = "DBCHECKPOINT";
+
+	private Connection connection;
+	private SourceBuffer input;
+	private String source;
+	private String target;
+	private long fileSize = -1;
+	private long modified = -1;
+
+	private boolean exists;
+	private long bytePosition = -1;
+	private int lineNumber;
+	private long records;
+
+
+	/**
+	 * Constructor.
+	 *
+	 * @param connection The connection that imports the records.
+	 * @param input The input that the records are read from.
+	 * @param source Identifies the data: the file or the location of the data in the upgrade or SQL file.
+	 * @param target Identifies the destination of the data: the table.
+	 */
+	public Checkpoint( Connection connection, SourceBuffer input, String source, String target )
+	{
+		this.connection = connection;
+		this.input = input;
+		this.source = source;
+		this.target = target;
+	}
+
+	/**
+	 * Reads the checkpoint of an import command. The data is identified by the file it is read from, or by the location
+	 * of the command when the data is not in a separate file.
+	 *
+	 * @param processor The command processor.
+	 * @param command The import command.
+	 * @param resource The file that the data is read from, null if the data is not in a separate file.
+	 * @param input The input that the records are read from.
+	 * @param target Identifies the destination of the data: the table.
+	 * @return The checkpoint.
+	 */
+	static public Checkpoint forImport( CommandProcessor processor, Command command, Resource resource, SourceBuffer input, String target )
+	{
+		String source;
+		long fileSize = -1;
+		long modified = -1;
+		if( resource == null )
+			source = command.getLocation().toString();
+		else if( resource.supportsFile() )
+		{
+			File file = resource.getFile();
+			source = file.getAbsolutePath();
+			fileSize = file.length();
+			modified = file.lastModified();
+		}
+		else
+			source = resource.toString();
+
+		Checkpoint result = new Checkpoint( processor.getCurrentDatabase().getConnection(), input, source, target );
+		result.init( fileSize, modified );
+		return result;
+	}
+
+	/**
+	 * Reads the checkpoint, creates the checkpoint table if it does not exist yet. The connection is only committed when
+	 * the checkpoint table does not exist yet.
+	 *
+	 * @param fileSize The size of the file, -1 if unknown.
+	 * @param modified The last modified time of the file, -1 if unknown.
+	 * @throws FatalException When the file has changed since the checkpoint was made.
+	 */
+	public void init( long fileSize, long modified )
+	{
+		this.fileSize = fileSize;
+		this.modified = modified;
+		try
+		{
+			if( !tableExists() )
+			{
+				Statement statement = this.connection.createStatement();
+				try
+				{
+					statement.executeUpdate( "CREATE TABLE " + TABLE_NAME + " ( SOURCE VARCHAR(1000) NOT NULL, TARGET VARCHAR(250) NOT NULL, "
+							+ "FILESIZE DECIMAL(19), MODIFIED DECIMAL(19), BYTEPOSITION DECIMAL(19), LINENUMBER INTEGER NOT NULL, RECORDS DECIMAL(19) NOT NULL )" );
+				}
+				finally
+				{
+					statement.close();
+				}
+				this.connection.commit();
+				return;
+			}
+
+			PreparedStatement statement = this.connection.prepareStatement( "SELECT FILESIZE, MODIFIED, BYTEPOSITION, LINENUMBER, RECORDS FROM " + TABLE_NAME + " WHERE SOURCE = ? AND TARGET = ?" );
+			try
+			{
+				statement.setString( 1, this.source );
+				statement.setString( 2, this.target );
+				ResultSet result = statement.executeQuery();
+				if( result.next() )
+				{
+					long checkpointSize = getLong( result, 1 );
+					long checkpointModified = getLong( result, 2 );
+					if( fileSize >= 0 && checkpointSize >= 0 && fileSize != checkpointSize || modified >= 0 && checkpointModified >= 0 && modified != checkpointModified )
+						throw new FatalException( "The file '" + this.source + "' has changed since the checkpoint in " + TABLE_NAME + " was made, delete the checkpoint to import it from the start" );
+					this.bytePosition = getLong( result, 3 );
+					this.lineNumber = result.getInt( 4 );
+					this.records = result.getLong( 5 );
+					this.exists = true;
+					Assert.isFalse( result.next(), "More than one checkpoint found" );
+				}
+			}
+			finally
+			{
+				statement.close();
+			}
+		}
+		catch( SQLException e )
+		{
+			throw new SystemException( e );
+		}
+	}
+
+	private boolean tableExists() throws SQLException
+	{
+		try
+		{
+			PreparedStatement statement = this.connection.prepareStatement( "SELECT * FROM " + TABLE_NAME + " WHERE 1 = 0" );
+			try
+			{
+				statement.executeQuery();
+				return true;
+			}
+			finally
+			{
+				statement.close();
+			}
+		}
+		catch( SQLException e )
+		{
+			String sqlState = e.getSQLState();
+			// Oracle: 42000, MySQL: 42S02, Derby: 42X05, HSQLDB: S0002
+			if( sqlState == null || !( sqlState.startsWith( "42" ) || sqlState.startsWith( "S0" ) ) )
+				throw e;
+			// PostgreSQL: the SELECT above threw an SQLException, the transaction is in an 'aborted' state until it ends
+			this.connection.commit();
+		}
+		return false;
+	}
+
+	static private long getLong( ResultSet result, int index ) throws SQLException
+	{
+		long value = result.getLong( index );
+		return result.wasNull() ? -1 : value;
+	}
+
+	/**
+	 * @return True if a checkpoint was found.
+	 */
+	public boolean exists()
+	{
+		return this.exists;
+	}
+
+	/**
+	 * @return The position in the file after the last committed record, -1 if unknown.
+	 */
+	public long getBytePosition()
+	{
+		return this.bytePosition;
+	}
+
+	/**
+	 * @return The line number after the last committed record.
+	 */
+	public int getLineNumber()
+	{
+		return this.lineNumber;
+	}
+
+	/**
+	 * @return The number of committed records.
+	 */
+	public long getRecords()
+	{
+		return this.records;
+	}
+
+	/**
+	 * Continues reading the input at the checkpoint, if the input is seekable.
+	 *
+	 * @return True if the input is positioned after the last committed record, false if the caller needs to skip
+	 *         {@link #getRecords()} records.
+	 */
+	public boolean seek()
+	{
+		if( !this.exists || this.bytePosition < 0 || !this.input.isSeekable() )
+			return false;
+		this.input.seek( this.bytePosition, this.lineNumber );
+		return true;
+	}
+
+	/**
+	 * Updates the checkpoint with the current position of the input and commits the connection.
+	 *
+	 * @param records The number of records imported so far, including the records of previous executions.
+	 * @throws SQLException Whenever JDBC throws it.
+	 */
+	public void commit( long records ) throws SQLException
+	{
+		long bytePosition = this.input.isSeekable() ? this.input.getBytePosition() : -1;
+		int lineNumber = this.input.getLineNumber();
+
+		String sql;
+		if( this.exists )
+			sql = "UPDATE " + TABLE_NAME + " SET FILESIZE = ?, MODIFIED = ?, BYTEPOSITION = ?, LINENUMBER = ?, RECORDS = ? WHERE SOURCE = ? AND TARGET = ?";
+		else
+			sql = "INSERT INTO " + TABLE_NAME + " ( FILESIZE, MODIFIED, BYTEPOSITION, LINENUMBER, RECORDS, SOURCE, TARGET ) VALUES ( ?, ?, ?, ?, ?, ?, ? )";
+		PreparedStatement statement = this.connection.prepareStatement( sql );
+		try
+		{
+			setLong( statement, 1, this.fileSize );
+			setLong( statement, 2, this.modified );
+			setLong( statement, 3, bytePosition );
+			statement.setInt( 4, lineNumber );
+			statement.setLong( 5, records );
+			statement.setString( 6, this.source );
+			statement.setString( 7, this.target );
+			int modified = statement.executeUpdate();
+			Assert.isTrue( modified == 1, "Expecting 1 record to be updated, not " + modified );
+		}
+		finally
+		{
+			statement.close();
+		}
+		this.connection.commit();
+
+		this.exists = true;
+		this.bytePosition = bytePosition;
+		this.lineNumber = lineNumber;
+		this.records = records;
+	}
+
+	static private void setLong( PreparedStatement statement, int index, long value ) throws SQLException
+	{
+		if( value < 0 )
+			statement.setNull( index, Types.DECIMAL );
+		else
+			statement.setLong( index, value );
+	}
+
+	/**
+	 * Deletes the checkpoint and commits the connection, because the import is complete.
+	 *
+	 * @throws SQLException Whenever JDBC throws it.
+	 */
+	public void complete() throws SQLException
+	{
+		if( this.exists )
+		{
+			PreparedStatement statement = this.connection.prepareStatement( "DELETE FROM " + TABLE_NAME + " WHERE SOURCE = ? AND TARGET = ?" );
+			try
+			{
+				statement.setString( 1, this.source );
+				statement.setString( 2, this.target );
+				statement.executeUpdate();
+			}
+			finally
+			{
+				statement.close();
+			}
+			this.exists = false;
+		}
+		this.connection.commit();
+	}
+}
@@ -0,0 +1,146 @@
+/*--
+ * Copyright 2012 Ren M. de Bloois
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package solidbase.core.plugins;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Reader;
+import java.io.Writer;
+import java.sql.CallableStatement;
+import java.sql.Connection;
+import java.sql.DatabaseMetaData;
+import java.sql.SQLException;
+
+import solidbase.core.BulkLoader;
+import solidbase.core.SystemException;
+
+
+/**
+ * Loads CSV data into an embedded Derby database with SYSCS_UTIL.SYSCS_IMPORT_DATA. The procedure reads from a file, so
+ * the data is written to a temporary file first. This only works with the embedded driver, because the file must be
+ * accessible by the database engine.
+ *
+ * @author Ren M. de Bloois
+ */
+public class DerbyBulkLoader implements BulkLoader
+{
+	//@Override
+	public boolean supports( Connection connection ) throws SQLException
+	{
+		DatabaseMetaData metaData = connection.getMetaData();
+		String url = metaData.getURL();
+		return "Apache Derby".equals( metaData.getDatabaseProductName() ) && url != null && url.startsWith( "jdbc:derby:" ) && !url.startsWith( "jdbc:derby://" );
+	}
+
+	//@Override
+	public void load( Connection connection, String tableName, String[] columns, Reader data ) throws SQLException
+	{
+		String schema = null;
+		int dot = tableName.indexOf( '.' );
+		if( dot >= 0 )
+		{
+			schema = toIdentifier( tableName.substring( 0, dot ) );
+			tableName = tableName.substring( dot + 1 );
+		}
+		tableName = toIdentifier( tableName );
+
+		String columnList = null;
+		if( columns != null )
+		{
+			StringBuilder list = new StringBuilder();
+			for( int i = 0; i < columns.length; i++ )
+			{
+				if( i > 0 )
+					list.append( ',' );
+				list.append( toIdentifier( columns[ i ] ) );
+			}
+			columnList = list.toString();
+		}
+
+		File file = writeTempFile( data );
+		try
+		{
+			CallableStatement call = connection.prepareCall( "CALL SYSCS_UTIL.SYSCS_IMPORT_DATA( ?, ?, ?, NULL, ?, ',', '\"', 'UTF-8', 0 )" );
+			try
+			{
+				call.setString( 1, schema );
+				call.setString( 2, tableName );
+				call.setString( 3, columnList );
+				call.setString( 4, file.getAbsolutePath() );
+				call.execute();
+			}
+			finally
+			{
+				call.close();
+			}
+		}
+		finally
+		{
+			file.delete();
+		}
+	}
+
+	/**
+	 * Derby expects the names as they are stored in the catalog, which is upper case unless the name was quoted.
+	 */
+	static private String toIdentifier( String name )
+	{
+		name = name.trim();
+		if( name.length() > 1 && name.charAt( 0 ) == '"' && name.charAt( name.length() - 1 ) == '"' )
+			return name.substring( 1, name.length() - 1 );
+		return name.toUpperCase();
+	}
+
+	static private File writeTempFile( Reader data )
+	{
+		try
+		{
+			File file = File.createTempFile( "solidbase", ".csv" );
+			try
+			{
+				Writer out = new OutputStreamWriter( new FileOutputStream( file ), "UTF-8" );
+				try
+				{
+					char[] buffer = new char[ 4096 ];
+					for( int read = data.read( buffer ); read >= 0; read = data.read( buffer ) )
+						out.write( buffer, 0, read );
+				}
+				finally
+				{
+					out.close();
+				}
+			}
+			catch( IOException e )
+			{
+				file.delete();
+				throw e;
+			}
+			catch( RuntimeException e )
+			{
+				file.delete();
+				throw e;
+			}
+			return file;
+		}
+		catch( IOException e )
+		{
+			throw new SystemException( e );
+		}
+	}
+}
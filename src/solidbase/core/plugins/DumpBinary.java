@@ -0,0 +1,302 @@
+/*--
+ * Copyright 2012 Ren M. de Bloois
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package solidbase.core.plugins;
+
+import java.io.File;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Types;
+import java.util.regex.Pattern;
+
+import org.apache.commons.lang.StringUtils;
+
+import solidbase.core.Command;
+import solidbase.core.CommandListener;
+import solidbase.core.CommandProcessor;
+import solidbase.core.SourceException;
+import solidbase.util.ColumnarWriter;
+import solidbase.util.Counter;
+import solidbase.util.FixedCounter;
+import solidbase.util.JDBCSupport;
+import solidbase.util.JDBCSupport.ColumnReader;
+import solidbase.util.JSONArray;
+import solidbase.util.JSONObject;
+import solidbase.util.SQLTokenizer;
+import solidbase.util.SQLTokenizer.Token;
+import solidbase.util.TimedCounter;
+import solidstack.io.FileResource;
+import solidstack.io.SourceReaders;
+import solidstack.script.scopes.AbstractScope;
+
+
+/**
+ * This plugin executes DUMP BINARY statements. The result of the query is written in the columnar binary format of
+ * {@link ColumnarWriter}, with the same header as a JSON dump. The file can be loaded with LOAD BINARY.
+ *
+ * @author Ren M. de Bloois
+ */
+public class DumpBinary implements CommandListener
+{
+	static private final Pattern triggerPattern = Pattern.compile( "\\s*DUMP\\s+BINARY\\s+.*", Pattern.DOTALL | Pattern.CASE_INSENSITIVE );
+
+
+	//@Override
+	public boolean execute( CommandProcessor processor, Command command, boolean skip ) throws SQLException
+	{
+		if( command.isTransient() )
+			return false;
+
+		if( !triggerPattern.matcher( command.getCommand() ).matches() )
+			return false;
+
+		if( skip )
+			return true;
+
+		Parsed parsed = parse( command );
+
+		// DUMP JSON DATE_CREATED ON | OFF applies to binary dumps too
+		AbstractScope scope = processor.getContext().getScope();
+		Object object = scope.get( "solidbase.dump_json.dateCreated" );
+		boolean dateCreated = object == null || object instanceof Boolean && (Boolean)object;
+
+		Counter counter = null;
+		if( parsed.logRecords > 0 )
+			counter = new FixedCounter( parsed.logRecords );
+		else if( parsed.logSeconds > 0 )
+			counter = new TimedCounter( parsed.logSeconds );
+
+		Statement statement = processor.createQueryStatement( parsed.fetchSize );
+		try
+		{
+			dump( statement, parsed, dateCreated, new DumpJSON.Progress( processor.getProgressListener(), counter ) );
+		}
+		finally
+		{
+			processor.closeStatement( statement, true );
+		}
+
+		return true;
+	}
+
+
+	/**
+	 * Dumps the result of the query to the binary file.
+	 *
+	 * @param statement The statement to execute the query with.
+	 * @param parsed The parsed command.
+	 * @param dateCreated Write the creation date in the header of the file.
+	 * @param progress Reports the progress.
+	 * @return The number of records dumped.
+	 * @throws SQLException Whenever JDBC throws it.
+	 */
+	static protected long dump( Statement statement, Parsed parsed, boolean dateCreated, DumpJSON.Progress progress ) throws SQLException
+	{
+		ResultSet result = statement.executeQuery( parsed.query );
+		ResultSetMetaData metaData = result.getMetaData();
+
+		// Analyze metadata
+
+		int columns = metaData.getColumnCount();
+		int[] types = new int[ columns ];
+		int[] fieldColumns = new int[ columns ];
+		int fieldCount = 0;
+
+		JSONObject properties = DumpJSON.newHeader( "row-group-columnar", "SolidBase Binary Data Dump File", dateCreated );
+		JSONArray fields = new JSONArray();
+		properties.set( "fields", fields );
+
+		for( int i = 0; i < columns; i++ )
+		{
+			int col = i + 1;
+			types[ i ] = metaData.getColumnType( col );
+			if( types[ i ] == Types.DATE && parsed.dateAsTimestamp )
+				types[ i ] = Types.TIMESTAMP;
+			if( types[ i ] == Types.BIT && metaData.getPrecision( col ) > 1 )
+				types[ i ] = Types.VARBINARY; // Only BIT(1) is a boolean, a longer BIT is a string of bits
+			if( ColumnarWriter.getEncoding( types[ i ] ) == 0 )
+				continue; // Like DUMP JSON, columns of unsupported types are not dumped
+
+			JSONObject field = new JSONObject();
+			field.set( "schemaName", StringUtils.upperCase( StringUtils.defaultIfEmpty( metaData.getSchemaName( col ), null ) ) );
+			field.set( "tableName", StringUtils.upperCase( StringUtils.defaultIfEmpty( metaData.getTableName( col ), null ) ) );
+			field.set( "name", metaData.getColumnName( col ).toUpperCase() );
+			field.set( "type", JDBCSupport.toTypeName( types[ i ] ) );
+			fields.add( field );
+
+			fieldColumns[ fieldCount++ ] = i;
+		}
+
+		ColumnReader[] readers = JDBCSupport.getReaders( metaData, types );
+		int[] fieldTypes = new int[ fieldCount ];
+		for( int i = 0; i < columns; i++ )
+			if( ColumnarWriter.getEncoding( types[ i ] ) == 0 )
+				readers[ i ] = null; // Not read at all
+		for( int i = 0; i < fieldCount; i++ )
+			fieldTypes[ i ] = types[ fieldColumns[ i ] ];
+
+		Object[] values = new Object[ columns ];
+		Object[] record = new Object[ fieldCount ];
+
+		long count = 0;
+		ColumnarWriter writer = new ColumnarWriter( new FileResource( new File( parsed.fileName ) ).getOutputStream(), properties, fieldTypes, parsed.rowGroup ); // Relative to current folder
+		try
+		{
+			while( result.next() )
+			{
+				JDBCSupport.getValues( result, readers, values );
+				for( int i = 0; i < fieldCount; i++ )
+					record[ i ] = values[ fieldColumns[ i ] ];
+				writer.write( record );
+
+				count++;
+				progress.next();
+			}
+			progress.end();
+		}
+		finally
+		{
+			writer.close();
+		}
+
+		return count;
+	}
+
+
+	/**
+	 * Parses the given command.
+	 *
+	 * @param command The command to be parsed.
+	 * @return A structure representing the parsed command.
+	 */
+	static protected Parsed parse( Command command )
+	{
+		/*
+		DUMP BINARY
+		DATE AS TIMESTAMP
+		FETCH SIZE n
+		LOG EVERY n RECORDS|SECONDS
+		FILE "file" ROW GROUP n
+		*/
+
+		Parsed result = new Parsed();
+
+		SQLTokenizer tokenizer = new SQLTokenizer( SourceReaders.forString( command.getCommand(), command.getLocation() ) );
+
+		tokenizer.get( "DUMP" );
+		tokenizer.get( "BINARY" );
+
+		Token t = tokenizer.get( "DATE", "FETCH", "LOG", "FILE" );
+
+		if( t.eq( "DATE" ) )
+		{
+			tokenizer.get( "AS" );
+			tokenizer.get( "TIMESTAMP" );
+
+			result.dateAsTimestamp = true;
+
+			t = tokenizer.get( "FETCH", "LOG", "FILE" );
+		}
+
+		if( t.eq( "FETCH" ) )
+		{
+			tokenizer.get( "SIZE" );
+			t = tokenizer.get();
+			if( !t.isNumber() )
+				throw new SourceException( "Expecting a number, not [" + t + "]", tokenizer.getLocation() );
+			result.fetchSize = Integer.parseInt( t.getValue() );
+			if( result.fetchSize < 1 )
+				throw new SourceException( "FETCH SIZE must be at least 1", tokenizer.getLocation() );
+
+			t = tokenizer.get( "LOG", "FILE" );
+		}
+
+		if( t.eq( "LOG" ) )
+		{
+			tokenizer.get( "EVERY" );
+			t = tokenizer.get();
+			if( !t.isNumber() )
+				throw new SourceException( "Expecting a number, not [" + t + "]", tokenizer.getLocation() );
+
+			int interval = Integer.parseInt( t.getValue() );
+			t = tokenizer.get( "RECORDS", "SECONDS" );
+			if( t.eq( "RECORDS" ) )
+				result.logRecords = interval;
+			else
+				result.logSeconds = interval;
+
+			tokenizer.get( "FILE" );
+		}
+
+		t = tokenizer.get();
+		if( !t.isString() )
+			throw new SourceException( "Expecting filename enclosed in double quotes, not [" + t + "]", tokenizer.getLocation() );
+		result.fileName = t.stripQuotes();
+
+		t = tokenizer.get();
+		if( t.eq( "ROW" ) )
+		{
+			tokenizer.get( "GROUP" );
+			t = tokenizer.get();
+			if( !t.isNumber() )
+				throw new SourceException( "Expecting a number, not [" + t + "]", tokenizer.getLocation() );
+			result.rowGroup = Integer.parseInt( t.getValue() );
+			if( result.rowGroup < 1 )
+				throw new SourceException( "ROW GROUP must be at least 1", tokenizer.getLocation() );
+		}
+		else
+			tokenizer.push( t );
+
+		result.query = tokenizer.getRemaining();
+
+		return result;
+	}
+
+
+	//@Override
+	public void terminate()
+	{
+		// Nothing to clean up
+	}
+
+
+	/**
+	 * A parsed command.
+	 *
+	 * @author Ren M. de Bloois
+	 */
+	static protected class Parsed
+	{
+		/** The file path to dump to. */
+		protected String fileName;
+
+		/** The number of rows in a row group. */
+		protected int rowGroup = ColumnarWriter.DEFAULT_ROW_GROUP;
+
+		/** The query. */
+		protected String query;
+
+		protected boolean dateAsTimestamp;
+
+		protected int logRecords;
+		protected int logSeconds;
+
+		/** The number of rows to fetch at a time, 0 for the default of the database. */
+		protected int fetchSize;
+	}
+}
@@ -17,6 +17,7 @@
 package solidbase.core.plugins;
 
 import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
@@ -24,8 +25,11 @@ import java.io.OutputStream;
 import java.io.OutputStreamWriter;
 import java.io.Reader;
 import java.io.Writer;
+import java.math.BigDecimal;
 import java.sql.Blob;
 import java.sql.Clob;
+import java.sql.Connection;
+import java.sql.DatabaseMetaData;
 import java.sql.ResultSet;
 import java.sql.ResultSetMetaData;
 import java.sql.SQLException;
@@ -37,9 +41,10 @@ import java.util.Date;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
-import java.util.ListIterator;
 import java.util.Map;
+import java.util.Queue;
 import java.util.Set;
+import java.util.concurrent.ConcurrentLinkedQueue;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 import java.util.zip.GZIPOutputStream;
@@ -49,16 +54,24 @@ import org.apache.commons.lang.StringUtils;
 import solidbase.core.Command;
 import solidbase.core.CommandListener;
 import solidbase.core.CommandProcessor;
+import solidbase.core.Database;
 import solidbase.core.FatalException;
+import solidbase.core.ProgressListener;
 import solidbase.core.SourceException;
 import solidbase.core.SystemException;
 import solidbase.util.Assert;
+import solidbase.util.AsyncOutputStream;
+import solidbase.util.BlobStore;
 import solidbase.util.Counter;
+import solidbase.util.FileParts;
 import solidbase.util.FixedCounter;
 import solidbase.util.JDBCSupport;
+import solidbase.util.JDBCSupport.ColumnReader;
 import solidbase.util.JSONArray;
 import solidbase.util.JSONObject;
 import solidbase.util.JSONWriter;
+import solidbase.util.ParallelGZIPOutputStream;
+import solidbase.util.RecordIndex;
 import solidbase.util.SQLTokenizer;
 import solidbase.util.SQLTokenizer.Token;
 import solidbase.util.TimedCounter;
@@ -67,6 +80,7 @@ import solidstack.io.FileResource;
 import solidstack.io.Resource;
 import solidstack.io.Resources;
 import solidstack.io.SourceReaders;
+import solidstack.lang.ThreadInterrupted;
 import solidstack.script.scopes.AbstractScope;
 
 
@@ -120,342 +134,742 @@ public class DumpJSON implements CommandListener
 		Object object = scope.get( "solidbase.dump_json.dateCreated" );
 		boolean dateCreated = object == null || object instanceof Boolean && (Boolean)object;
 
-		Resource jsvResource = new FileResource( new File( parsed.fileName ) ); // Relative to current folder
+		if( parsed.tables != null || parsed.schema != null )
+		{
+			dumpTables( processor, parsed, dateCreated, command );
+			return true;
+		}
 
+		Statement statement = processor.createQueryStatement( parsed.fetchSize );
 		try
 		{
-			OutputStream out = jsvResource.getOutputStream();
-			if( parsed.gzip )
-				out = new BufferedOutputStream( new GZIPOutputStream( out, 65536 ), 65536 ); // TODO Ctrl-C, close the outputstream?
+			dump( statement, parsed.query, parsed.fileName, parsed, dateCreated, command, new Progress( processor.getProgressListener(), newCounter( parsed ) ) );
+		}
+		finally
+		{
+			processor.closeStatement( statement, true );
+		}
+
+		return true;
+	}
+
+
+	/**
+	 * Dumps the result of a query to a JSON file.
+	 *
+	 * @param statement The statement to execute the query with.
+	 * @param query The query.
+	 * @param jsonFileName The name of the JSON file.
+	 * @param parsed The parsed command.
+	 * @param dateCreated Write the creation date in the header of the file.
+	 * @param command The command, for the location in error messages.
+	 * @param progress Reports the progress.
+	 * @return The number of records dumped.
+	 * @throws SQLException Whenever JDBC throws it.
+	 */
+	static protected long dump( Statement statement, String query, String jsonFileName, Parsed parsed, boolean dateCreated, Command command, Progress progress ) throws SQLException
+	{
+		Resource jsvResource = new FileResource( new File( jsonFileName ) ); // Relative to current folder
 
-			JSONWriter jsonWriter = new JSONWriter( out );
+		FileParts parts = null;
+		if( parsed.maxFileSize > 0 || parsed.maxRecords > 0 )
+			parts = new FileParts( jsonFileName, parsed.maxFileSize, parsed.maxRecords );
+
+		long count = 0;
+		try
+		{
+			// With an index the bytes are counted, to know the positions of the records
+			FileParts.CountingOutputStream counted = null;
+			OutputStream out;
+			if( parts != null )
+				out = parts.next();
+			else
+			{
+				out = jsvResource.getOutputStream();
+				if( parsed.indexRecords > 0 )
+					out = counted = new FileParts.CountingOutputStream( out );
+			}
+			JSONWriter jsonWriter = newJSONWriter( out, parsed, parts );
+			RecordIndex recordIndex = null;
 			try
 			{
-				Statement statement = processor.createStatement();
-				try
+				ResultSet result = statement.executeQuery( query );
+				ResultSetMetaData metaData = result.getMetaData();
+
+				// Define locals
+
+				int columns = metaData.getColumnCount();
+				int[] types = new int[ columns ];
+				String[] names = new String[ columns ];
+				boolean[] ignore = new boolean[ columns ];
+				FileSpec[] fileSpecs = new FileSpec[ columns ];
+				String schemaNames[] = new String[ columns ];
+				String tableNames[] = new String[ columns ];
+
+				// Analyze metadata
+
+				for( int i = 0; i < columns; i++ )
 				{
-					ResultSet result = statement.executeQuery( parsed.query );
-					ResultSetMetaData metaData = result.getMetaData();
+					int col = i + 1;
+					String name = metaData.getColumnName( col ).toUpperCase();
+					types[ i ] = metaData.getColumnType( col );
+					if( types[ i ] == Types.DATE && parsed.dateAsTimestamp )
+						types[ i ] = Types.TIMESTAMP;
+					names[ i ] = name;
+					if( parsed.columns != null )
+					{
+						ColumnSpec columnSpec = parsed.columns.get( name );
+						if( columnSpec != null )
+							if( columnSpec.skip )
+								ignore[ i ] = true;
+							else
+								fileSpecs[ i ] = columnSpec.toFile;
+					}
+					if( parsed.coalesce != null && parsed.coalesce.notFirst( name ) )
+						ignore[ i ] = true;
+					// TODO STRUCT serialize
+					// TODO This must be optional and not the default
+					else if( types[ i ] == 2002 || JDBCSupport.toTypeName( types[ i ] ) == null )
+						ignore[ i ] = true;
+					tableNames[ i ] = StringUtils.upperCase( StringUtils.defaultIfEmpty( metaData.getTableName( col ), null ) );
+					schemaNames[ i ] = StringUtils.upperCase( StringUtils.defaultIfEmpty( metaData.getSchemaName( col ), null ) );
+				}
 
-					// Define locals
+				if( parsed.coalesce != null )
+					parsed.coalesce.bind( names );
 
-					int columns = metaData.getColumnCount();
-					int[] types = new int[ columns ];
-					String[] names = new String[ columns ];
-					boolean[] ignore = new boolean[ columns ];
-					FileSpec[] fileSpecs = new FileSpec[ columns ];
-					String schemaNames[] = new String[ columns ];
-					String tableNames[] = new String[ columns ];
+				// Write header
 
-					// Analyze metadata
+				JSONObject properties = newHeader( "record-stream", "SolidBase JSON Data Dump File", dateCreated );
 
-					for( int i = 0; i < columns; i++ )
+				if( parsed.binaryFileName != null )
+				{
+					// TODO FIXME Should be wrapped in a SourceException: solidbase.solidstack.io.FatalURISyntaxException: java.net.URISyntaxException: Illegal character in path at index 1: &{folder}/JIADHOCCH
+					Resource binResource = Resources.getResource( parsed.binaryFileName );
+					Resource resource = Resources.getResource( jsonFileName );
+					properties.set( "binaryFile", binResource.getPathFrom( resource ).toString() );
+				}
+
+				JSONArray fields = new JSONArray();
+				properties.set( "fields", fields );
+				for( int i = 0; i < columns; i++ )
+					if( !ignore[ i ] )
 					{
-						int col = i + 1;
-						String name = metaData.getColumnName( col ).toUpperCase();
-						types[ i ] = metaData.getColumnType( col );
-						if( types[ i ] == Types.DATE && parsed.dateAsTimestamp )
-							types[ i ] = Types.TIMESTAMP;
-						names[ i ] = name;
-						if( parsed.columns != null )
+						JSONObject field = new JSONObject();
+						field.set( "schemaName", schemaNames[ i ] );
+						field.set( "tableName", tableNames[ i ] );
+						field.set( "name", names[ i ] );
+						field.set( "type", JDBCSupport.toTypeName( types[ i ] ) ); // TODO Better error message when type is not recognized, for example Oracle's 2007 for a user type
+						FileSpec spec = fileSpecs[ i ];
+						if( spec != null && !spec.generator.isDynamic() )
 						{
-							ColumnSpec columnSpec = parsed.columns.get( name );
-							if( columnSpec != null )
-								if( columnSpec.skip )
-									ignore[ i ] = true;
-								else
-									fileSpecs[ i ] = columnSpec.toFile;
+							Resource fileResource = new FileResource( spec.generator.fileName );
+							field.set( "file", fileResource.getPathFrom( jsvResource ).toString() );
 						}
-						if( parsed.coalesce != null && parsed.coalesce.notFirst( name ) )
-							ignore[ i ] = true;
-						// TODO STRUCT serialize
-						// TODO This must be optional and not the default
-						else if( types[ i ] == 2002 || JDBCSupport.toTypeName( types[ i ] ) == null )
-							ignore[ i ] = true;
-						tableNames[ i ] = StringUtils.upperCase( StringUtils.defaultIfEmpty( metaData.getTableName( col ), null ) );
-						schemaNames[ i ] = StringUtils.upperCase( StringUtils.defaultIfEmpty( metaData.getSchemaName( col ), null ) );
+						fields.add( field );
 					}
 
-					if( parsed.coalesce != null )
-						parsed.coalesce.bind( names );
+				FileSpec binaryFile = parsed.binaryFileName != null ? new FileSpec( true, parsed.binaryFileName, 0 ) : null;
+				BlobStore blobStore = null;
 
-					// Write header
+				jsonWriter.writeFormatted( properties, 120 );
+				jsonWriter.getWriter().write( '\n' );
 
-					JSONObject properties = new JSONObject();
-					properties.set( "version", "1.0" );
-					properties.set( "format", "record-stream" );
-					properties.set( "description", "SolidBase JSON Data Dump File" );
-					properties.set( "createdBy", new JSONObject( "product", "SolidBase", "version", "2.0.0" ) );
+				if( counted != null )
+					recordIndex = new RecordIndex( parsed.indexRecords, countLines( properties ) + 1 );
 
-					if( dateCreated )
-					{
-						SimpleDateFormat format = new SimpleDateFormat( "yyyy-MM-dd HH:mm:ss" );
-						properties.set( "createdDate", format.format( new Date() ) );
-					}
+				ColumnReader[] readers = JDBCSupport.getReaders( metaData, types );
+				Object[] values = new Object[ columns ]; // The values are written before the next row is read, so the buffer is reused
+				boolean[] asLong = new boolean[ columns ];
+				long[] longs = new long[ columns ];
 
-					if( parsed.binaryFileName != null )
+				// Integer columns that are not coalesced or redirected are read into the long buffer, without boxing
+				if( parsed.coalesce == null )
+					for( int i = 0; i < columns; i++ )
+						if( !ignore[ i ] && fileSpecs[ i ] == null )
+							switch( types[ i ] )
+							{
+								case Types.TINYINT:
+								case Types.SMALLINT:
+								case Types.INTEGER:
+								case Types.BIGINT:
+									asLong[ i ] = true;
+							}
+
+				try
+				{
+					while( result.next() )
 					{
-						// TODO FIXME Should be wrapped in a SourceException: solidbase.solidstack.io.FatalURISyntaxException: java.net.URISyntaxException: Illegal character in path at index 1: &{folder}/JIADHOCCH
-						Resource binResource = Resources.getResource( parsed.binaryFileName );
-						Resource resource = Resources.getResource( parsed.fileName );
-						properties.set( "binaryFile", binResource.getPathFrom( resource ).toString() );
-					}
+						if( recordIndex != null && count % parsed.indexRecords == 0 )
+						{
+							jsonWriter.getWriter().flush(); // Pushes the characters through the counting stream
+							recordIndex.add( counted.getCount() );
+						}
 
-					JSONArray fields = new JSONArray();
-					properties.set( "fields", fields );
-					for( int i = 0; i < columns; i++ )
-						if( !ignore[ i ] )
+						if( parts != null )
 						{
-							JSONObject field = new JSONObject();
-							field.set( "schemaName", schemaNames[ i ] );
-							field.set( "tableName", tableNames[ i ] );
-							field.set( "name", names[ i ] );
-							field.set( "type", JDBCSupport.toTypeName( types[ i ] ) ); // TODO Better error message when type is not recognized, for example Oracle's 2007 for a user type
-							FileSpec spec = fileSpecs[ i ];
-							if( spec != null && !spec.generator.isDynamic() )
+							if( parts.isFull() )
 							{
-								Resource fileResource = new FileResource( spec.generator.fileName );
-								field.set( "file", fileResource.getPathFrom( jsvResource ).toString() );
+								// Every part starts with the header, so that it can be loaded on its own
+								jsonWriter.close();
+								jsonWriter = newJSONWriter( parts.next(), parsed, parts );
+								jsonWriter.writeFormatted( properties, 120 );
+								jsonWriter.getWriter().write( '\n' );
 							}
-							fields.add( field );
+							parts.record();
 						}
 
-					FileSpec binaryFile = parsed.binaryFileName != null ? new FileSpec( true, parsed.binaryFileName, 0 ) : null;
-
-					jsonWriter.writeFormatted( properties, 120 );
-					jsonWriter.getWriter().write( '\n' );
+						JDBCSupport.getValues( result, readers, values, asLong, longs );
 
-					Counter counter = null;
-					if( parsed.logRecords > 0 )
-						counter = new FixedCounter( parsed.logRecords );
-					else if( parsed.logSeconds > 0 )
-						counter = new TimedCounter( parsed.logSeconds );
+						if( parsed.coalesce != null )
+							parsed.coalesce.coalesce( values );
 
-					try
-					{
-						while( result.next() )
-						{
-							Object[] values = new Object[ columns ];
-							for( int i = 0; i < values.length; i++ )
-								values[ i ] = JDBCSupport.getValue( result, types, i );
-
-							if( parsed.coalesce != null )
-								parsed.coalesce.coalesce( values );
+						jsonWriter.writeArrayStart();
+						for( int i = 0; i < columns; i++ )
+							if( !ignore[ i ] )
+							{
+								Object value = values[ i ];
+								if( value == null )
+								{
+									jsonWriter.writeNullElement();
+									continue;
+								}
 
-							JSONArray array = new JSONArray();
-							for( int i = 0; i < columns; i++ )
-								if( !ignore[ i ] )
+								if( asLong[ i ] )
 								{
-									Object value = values[ i ];
-									if( value == null )
-									{
-										array.add( null );
-										continue;
-									}
+									jsonWriter.writeElement( longs[ i ] );
+									continue;
+								}
 
-									// TODO 2 columns can't be written to the same dynamic filename
+								// TODO 2 columns can't be written to the same dynamic filename
 
-									FileSpec spec = fileSpecs[ i ];
-									if( spec != null ) // The column is redirected to its own file
+								FileSpec spec = fileSpecs[ i ];
+								if( spec != null ) // The column is redirected to its own file
+								{
+									String relFileName = null;
+									int startIndex;
+									if( spec.binary )
 									{
-										String relFileName = null;
-										int startIndex;
-										if( spec.binary )
+										if( spec.generator.isDynamic() )
 										{
-											if( spec.generator.isDynamic() )
-											{
-												String fileName = spec.generator.generateFileName( result );
-												Resource fileResource = new FileResource( fileName );
-												spec.out = fileResource.getOutputStream();
-												spec.index = 0;
-												relFileName = fileResource.getPathFrom( jsvResource ).toString();
-											}
-											else if( spec.out == null )
-											{
-												String fileName = spec.generator.generateFileName( result );
-												Resource fileResource = new FileResource( fileName );
-												spec.out = fileResource.getOutputStream();
-											}
-											if( value instanceof Blob )
-											{
-												InputStream in = ( (Blob)value ).getBinaryStream();
-												startIndex = spec.index;
-												byte[] buf = new byte[ 4096 ];
-												for( int read = in.read( buf ); read >= 0; read = in.read( buf ) )
-												{
-													spec.out.write( buf, 0, read );
-													spec.index += read;
-												}
-												in.close();
-											}
-											else if( value instanceof byte[] )
-											{
-												startIndex = spec.index;
-												spec.out.write( (byte[])value );
-												spec.index += ( (byte[])value ).length;
-											}
-											else
-												throw new SourceException( names[ i ] + " (" + value.getClass().getName() + ") is not a binary column. Only binary columns like BLOB, RAW, BINARY VARYING can be written to a binary file", command.getLocation() );
-											if( spec.generator.isDynamic() )
-											{
-												spec.out.close();
-												JSONObject ref = new JSONObject();
-												ref.set( "file", relFileName );
-												ref.set( "size", spec.index - startIndex );
-												array.add( ref );
-											}
-											else
+											String fileName = spec.generator.generateFileName( result );
+											Resource fileResource = new FileResource( fileName );
+											spec.out = fileResource.getOutputStream();
+											spec.index = 0;
+											relFileName = fileResource.getPathFrom( jsvResource ).toString();
+										}
+										else if( spec.out == null )
+										{
+											String fileName = spec.generator.generateFileName( result );
+											Resource fileResource = new FileResource( fileName );
+											spec.out = fileResource.getOutputStream();
+										}
+										if( value instanceof Blob )
+										{
+											InputStream in = ( (Blob)value ).getBinaryStream();
+											startIndex = spec.index;
+											byte[] buf = new byte[ 4096 ];
+											for( int read = in.read( buf ); read >= 0; read = in.read( buf ) )
 											{
-												JSONObject ref = new JSONObject();
-												ref.set( "index", startIndex );
-												ref.set( "length", spec.index - startIndex );
-												array.add( ref );
+												spec.out.write( buf, 0, read );
+												spec.index += read;
 											}
+											in.close();
+										}
+										else if( value instanceof byte[] )
+										{
+											startIndex = spec.index;
+											spec.out.write( (byte[])value );
+											spec.index += ( (byte[])value ).length;
 										}
 										else
+											throw new SourceException( names[ i ] + " (" + value.getClass().getName() + ") is not a binary column. Only binary columns like BLOB, RAW, BINARY VARYING can be written to a binary file", command.getLocation() );
+										if( spec.generator.isDynamic() )
 										{
-											if( spec.generator.isDynamic() )
-											{
-												String fileName = spec.generator.generateFileName( result );
-												Resource fileResource = new FileResource( fileName );
-												spec.writer = new DeferringWriter( spec.threshold, fileResource, jsonWriter.getEncoding() );
-												spec.index = 0;
-												relFileName = fileResource.getPathFrom( jsvResource ).toString();
-											}
-											else if( spec.writer == null )
-											{
-												String fileName = spec.generator.generateFileName( result );
-												Resource fileResource = new FileResource( fileName );
-												spec.writer = new OutputStreamWriter( fileResource.getOutputStream(), jsonWriter.getEncoding() );
-											}
-											if( value instanceof Blob || value instanceof byte[] )
-												throw new SourceException( names[ i ] + " is a binary column. Binary columns like BLOB, RAW, BINARY VARYING cannot be written to a text file", command.getLocation() );
-											if( value instanceof Clob )
-											{
-												Reader in = ( (Clob)value ).getCharacterStream();
-												startIndex = spec.index;
-												char[] buf = new char[ 4096 ];
-												for( int read = in.read( buf ); read >= 0; read = in.read( buf ) )
-												{
-													spec.writer.write( buf, 0, read );
-													spec.index += read;
-												}
-												in.close();
-											}
-											else
-											{
-												String val = value.toString();
-												startIndex = spec.index;
-												spec.writer.write( val );
-												spec.index += val.length();
-											}
-											if( spec.generator.isDynamic() )
-											{
-												DeferringWriter writer = (DeferringWriter)spec.writer;
-												if( writer.isBuffered() )
-													array.add( writer.clearBuffer() );
-												else
-												{
-													JSONObject ref = new JSONObject();
-													ref.set( "file", relFileName );
-													ref.set( "size", spec.index - startIndex );
-													array.add( ref );
-												}
-												writer.close();
-											}
-											else
-											{
-												JSONObject ref = new JSONObject();
-												ref.set( "index", startIndex );
-												ref.set( "length", spec.index - startIndex );
-												array.add( ref );
-											}
+											spec.out.close();
+											JSONObject ref = new JSONObject();
+											ref.set( "file", relFileName );
+											ref.set( "size", spec.index - startIndex );
+											jsonWriter.writeElement( ref );
+										}
+										else
+										{
+											JSONObject ref = new JSONObject();
+											ref.set( "index", startIndex );
+											ref.set( "length", spec.index - startIndex );
+											jsonWriter.writeElement( ref );
 										}
 									}
-									else if( value instanceof Clob )
-										array.add( ( (Clob)value ).getCharacterStream() );
-									else if( binaryFile != null && ( value instanceof Blob || value instanceof byte[] ) )
+									else
 									{
-										if( binaryFile.out == null )
+										if( spec.generator.isDynamic() )
 										{
-											String fileName = binaryFile.generator.generateFileName( null );
+											String fileName = spec.generator.generateFileName( result );
 											Resource fileResource = new FileResource( fileName );
-											binaryFile.out = fileResource.getOutputStream();
-											if( parsed.binaryGzip )
-												binaryFile.out = new BufferedOutputStream( new GZIPOutputStream( binaryFile.out, 65536 ), 65536 ); // TODO Ctrl-C, close the outputstream?
+											spec.writer = new DeferringWriter( spec.threshold, fileResource, jsonWriter.getEncoding() );
+											spec.index = 0;
+											relFileName = fileResource.getPathFrom( jsvResource ).toString();
 										}
-										int startIndex = binaryFile.index;
-										if( value instanceof Blob )
+										else if( spec.writer == null )
 										{
-											InputStream in = ( (Blob)value ).getBinaryStream();
-											byte[] buf = new byte[ 4096 ];
+											String fileName = spec.generator.generateFileName( result );
+											Resource fileResource = new FileResource( fileName );
+											spec.writer = new OutputStreamWriter( fileResource.getOutputStream(), jsonWriter.getEncoding() );
+										}
+										if( value instanceof Blob || value instanceof byte[] )
+											throw new SourceException( names[ i ] + " is a binary column. Binary columns like BLOB, RAW, BINARY VARYING cannot be written to a text file", command.getLocation() );
+										if( value instanceof Clob )
+										{
+											Reader in = ( (Clob)value ).getCharacterStream();
+											startIndex = spec.index;
+											char[] buf = new char[ 4096 ];
 											for( int read = in.read( buf ); read >= 0; read = in.read( buf ) )
 											{
-												binaryFile.out.write( buf, 0, read );
-												binaryFile.index += read;
+												spec.writer.write( buf, 0, read );
+												spec.index += read;
 											}
 											in.close();
 										}
 										else
 										{
-											binaryFile.out.write( (byte[])value );
-											binaryFile.index += ( (byte[])value ).length;
+											String val = value.toString();
+											startIndex = spec.index;
+											spec.writer.write( val );
+											spec.index += val.length();
+										}
+										if( spec.generator.isDynamic() )
+										{
+											DeferringWriter writer = (DeferringWriter)spec.writer;
+											if( writer.isBuffered() )
+												jsonWriter.writeElement( writer.clearBuffer() );
+											else
+											{
+												JSONObject ref = new JSONObject();
+												ref.set( "file", relFileName );
+												ref.set( "size", spec.index - startIndex );
+												jsonWriter.writeElement( ref );
+											}
+											writer.close();
+										}
+										else
+										{
+											JSONObject ref = new JSONObject();
+											ref.set( "index", startIndex );
+											ref.set( "length", spec.index - startIndex );
+											jsonWriter.writeElement( ref );
 										}
-										JSONObject ref = new JSONObject();
-										ref.set( "index", startIndex );
-										ref.set( "length", binaryFile.index - startIndex );
-										array.add( ref );
 									}
+								}
+								else if( value instanceof Clob )
+									jsonWriter.writeElement( ( (Clob)value ).getCharacterStream() );
+								else if( binaryFile != null && parsed.binaryDeduplicate && ( value instanceof Blob || value instanceof byte[] ) )
+								{
+									if( blobStore == null )
+										blobStore = new BlobStore( new File( binaryFile.generator.generateFileName( null ) ) ); // Relative to current folder
+									long index;
+									if( value instanceof Blob )
+										index = blobStore.store( ( (Blob)value ).getBinaryStream() );
 									else
-										array.add( value );
+										index = blobStore.store( (byte[])value );
+									JSONObject ref = new JSONObject();
+									ref.set( "index", index );
+									ref.set( "length", blobStore.getLength() );
+									jsonWriter.writeElement( ref );
 								}
-
-							for( ListIterator< Object > i = array.iterator(); i.hasNext(); )
-							{
-								Object value = i.next();
-								if( value instanceof java.sql.Date || value instanceof java.sql.Time || value instanceof java.sql.Timestamp || value instanceof java.sql.RowId )
-									i.set( value.toString() );
+								else if( binaryFile != null && ( value instanceof Blob || value instanceof byte[] ) )
+								{
+									if( binaryFile.out == null )
+									{
+										String fileName = binaryFile.generator.generateFileName( null );
+										Resource fileResource = new FileResource( fileName );
+										binaryFile.out = fileResource.getOutputStream();
+										if( parsed.binaryGzip )
+											binaryFile.out = newGZIPOutputStream( binaryFile.out, parsed.binaryGzipThreads );
+									}
+									int startIndex = binaryFile.index;
+									if( value instanceof Blob )
+									{
+										InputStream in = ( (Blob)value ).getBinaryStream();
+										byte[] buf = new byte[ 4096 ];
+										for( int read = in.read( buf ); read >= 0; read = in.read( buf ) )
+										{
+											binaryFile.out.write( buf, 0, read );
+											binaryFile.index += read;
+										}
+										in.close();
+									}
+									else
+									{
+										binaryFile.out.write( (byte[])value );
+										binaryFile.index += ( (byte[])value ).length;
+									}
+									JSONObject ref = new JSONObject();
+									ref.set( "index", startIndex );
+									ref.set( "length", binaryFile.index - startIndex );
+									jsonWriter.writeElement( ref );
+								}
+								else if( parsed.coalesce != null )
+									jsonWriter.writeElement( value ); // Coalesced values are not necessarily of the column's type
+								else
+									switch( types[ i ] )
+									{
+										case Types.CHAR:
+										case Types.VARCHAR:
+										case Types.LONGVARCHAR:
+											jsonWriter.writeElement( (String)value );
+											break;
+										case Types.DATE:
+										case Types.TIME:
+										case Types.TIMESTAMP:
+											jsonWriter.writeElement( (Date)value );
+											break;
+										default:
+											jsonWriter.writeElement( value );
+									}
 							}
-							jsonWriter.write( array );
-							jsonWriter.getWriter().write( '\n' );
+						jsonWriter.writeArrayEnd();
+						jsonWriter.getWriter().write( '\n' );
 
-							if( counter != null && counter.next() )
-								processor.getProgressListener().println( "Exported " + counter.total() + " records." );
-						}
-						if( counter != null && counter.needFinal() )
-							processor.getProgressListener().println( "Exported " + counter.total() + " records." );
-					}
-					finally
-					{
-						// Close files that have been left open
-						for( FileSpec fileSpec : fileSpecs )
-							if( fileSpec != null )
-							{
-								if( fileSpec.out != null )
-									fileSpec.out.close();
-								if( fileSpec.writer != null )
-									fileSpec.writer.close();
-							}
-						if( binaryFile != null && binaryFile.out != null )
-							binaryFile.out.close();
+						count++;
+						progress.next();
 					}
+					progress.end();
+					if( blobStore != null && blobStore.getDuplicates() > 0 )
+						progress.println( "Deduplicated " + blobStore.getDuplicates() + " binary values." );
 				}
 				finally
 				{
-					processor.closeStatement( statement, true );
+					// Close files that have been left open
+					for( FileSpec fileSpec : fileSpecs )
+						if( fileSpec != null )
+						{
+							if( fileSpec.out != null )
+								fileSpec.out.close();
+							if( fileSpec.writer != null )
+								fileSpec.writer.close();
+						}
+					if( binaryFile != null && binaryFile.out != null )
+						binaryFile.out.close();
+					if( blobStore != null )
+						blobStore.close();
 				}
 			}
 			finally
 			{
 				jsonWriter.close();
 			}
+
+			if( parts != null )
+			{
+				parts.end();
+				writeManifest( parts, jsonFileName );
+				progress.println( "Dumped into " + parts.getParts().size() + " files." );
+			}
+
+			if( recordIndex != null )
+			{
+				recordIndex.end( count, counted.getCount() );
+				recordIndex.write( jsonFileName );
+			}
 		}
 		catch( IOException e )
 		{
 			throw new SystemException( e );
 		}
 
-		return true;
+		return count;
+	}
+
+
+	/**
+	 * Counts the lines of the formatted header.
+	 *
+	 * @param properties The header.
+	 * @return The number of lines.
+	 */
+	static protected int countLines( JSONObject properties )
+	{
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		JSONWriter writer = new JSONWriter( bytes );
+		writer.writeFormatted( properties, 120 );
+		writer.close();
+
+		int result = 1;
+		for( byte b : bytes.toByteArray() )
+			if( b == '\n' )
+				result++;
+		return result;
+	}
+
+
+	/**
+	 * Creates the header of a dump file, without the fields.
+	 *
+	 * @param format The format of the file.
+	 * @param description The description of the file.
+	 * @param dateCreated Add the creation date.
+	 * @return The header.
+	 */
+	static protected JSONObject newHeader( String format, String description, boolean dateCreated )
+	{
+		JSONObject properties = new JSONObject();
+		properties.set( "version", "1.0" );
+		properties.set( "format", format );
+		properties.set( "description", description );
+		properties.set( "createdBy", new JSONObject( "product", "SolidBase", "version", "2.0.0" ) );
+
+		if( dateCreated )
+		{
+			SimpleDateFormat dateFormat = new SimpleDateFormat( "yyyy-MM-dd HH:mm:ss" );
+			properties.set( "createdDate", dateFormat.format( new Date() ) );
+		}
+
+		return properties;
+	}
+
+
+	/**
+	 * Dumps each table of the TABLES list or of the SCHEMA into its own file in the folder. Without PARALLEL the tables
+	 * are dumped one after another through the current connection. With PARALLEL n, n workers each take the next table
+	 * to dump until all tables are done, each through its own connection.
+	 *
+	 * @param processor The command processor.
+	 * @param parsed The parsed command.
+	 * @param dateCreated Write the creation date in the header of the files.
+	 * @param command The command.
+	 * @throws SQLException Whenever JDBC throws it.
+	 */
+	protected void dumpTables( CommandProcessor processor, Parsed parsed, boolean dateCreated, Command command ) throws SQLException
+	{
+		Database database = processor.getCurrentDatabase();
+		List< String > tables = parsed.tables;
+		if( tables == null )
+		{
+			tables = getTables( database.getConnection(), parsed.schema );
+			if( tables.isEmpty() )
+				throw new SourceException( "No tables found in schema " + parsed.schema, command.getLocation() );
+		}
+
+		new File( parsed.folderName ).mkdirs(); // Relative to current folder
+		SharedProgress progress = new SharedProgress( processor.getProgressListener(), newCounter( parsed ) );
+
+		if( parsed.parallel <= 0 )
+		{
+			for( String table : tables )
+			{
+				Statement statement = processor.createQueryStatement( parsed.fetchSize );
+				try
+				{
+					long count = dump( statement, "SELECT * FROM " + table, getFileName( parsed, table ), parsed, dateCreated, command, progress );
+					progress.tableDone( table, count );
+				}
+				finally
+				{
+					processor.closeStatement( statement, true );
+				}
+			}
+			progress.end( tables.size() );
+			return;
+		}
+
+		Queue< String > queue = new ConcurrentLinkedQueue< String >( tables );
+		Worker[] workers = new Worker[ Math.min( parsed.parallel, tables.size() ) ];
+		try
+		{
+			for( int i = 0; i < workers.length; i++ )
+				workers[ i ] = new Worker( i + 1, database, queue, parsed, dateCreated, command, progress );
+			for( Worker worker : workers )
+				worker.start();
+			try
+			{
+				for( Worker worker : workers )
+					worker.join();
+			}
+			catch( InterruptedException e )
+			{
+				throw new ThreadInterrupted();
+			}
+			for( Worker worker : workers )
+				worker.checkFailure();
+			progress.end( tables.size() );
+		}
+		finally
+		{
+			for( Worker worker : workers )
+				if( worker != null )
+					worker.close();
+		}
+	}
+
+
+	/**
+	 * Returns the tables of a schema.
+	 *
+	 * @param connection The connection to read the metadata from.
+	 * @param schema The schema name. Names that are not enclosed in double quotes are converted to the case in which
+	 *        the database stores unquoted identifiers.
+	 * @return The qualified names of the tables, quoted when needed.
+	 * @throws SQLException Whenever JDBC throws it.
+	 */
+	static protected List< String > getTables( Connection connection, String schema ) throws SQLException
+	{
+		DatabaseMetaData metaData = connection.getMetaData();
+		if( schema.startsWith( "\"" ) )
+			schema = schema.substring( 1, schema.length() - 1 );
+		else if( metaData.storesUpperCaseIdentifiers() )
+			schema = schema.toUpperCase();
+		else if( metaData.storesLowerCaseIdentifiers() )
+			schema = schema.toLowerCase();
+
+		// The schema is a pattern, _ and % in the name must be escaped
+		String escape = metaData.getSearchStringEscape();
+		if( escape != null && escape.length() > 0 )
+			schema = schema.replace( escape, escape + escape ).replace( "_", escape + "_" ).replace( "%", escape + "%" );
+
+		String quote = metaData.getIdentifierQuoteString().trim();
+		List< String > result = new ArrayList< String >();
+		ResultSet tables = metaData.getTables( null, schema, null, new String[] { "TABLE" } );
+		try
+		{
+			while( tables.next() )
+				result.add( quote + tables.getString( "TABLE_SCHEM" ) + quote + "." + quote + tables.getString( "TABLE_NAME" ) + quote );
+		}
+		finally
+		{
+			tables.close();
+		}
+		return result;
+	}
+
+
+	/**
+	 * Returns the name of the file in the folder that a table is dumped into.
+	 *
+	 * @param parsed The parsed command.
+	 * @param table The table.
+	 * @return The file name, the base name of the table with .json or .json.gz appended.
+	 */
+	static protected String getFileName( Parsed parsed, String table )
+	{
+		return new File( parsed.folderName, getBaseName( table ) + ( parsed.gzip ? ".json.gz" : ".json" ) ).getPath();
+	}
+
+
+	/**
+	 * Returns the table name without schema name and quotes. Dots in a quoted table name are replaced by underscores,
+	 * MAX FILE SIZE inserts the part number before the first dot of the file name.
+	 *
+	 * @param table The table, optionally qualified with a schema name.
+	 * @return The table name without schema name and quotes.
+	 */
+	static protected String getBaseName( String table )
+	{
+		String name;
+		int end = table.length() - 1;
+		char quote = table.charAt( end );
+		if( quote == '"' || quote == '`' )
+			name = table.substring( table.lastIndexOf( quote, end - 1 ) + 1, end );
+		else
+			name = table.substring( table.lastIndexOf( '.' ) + 1 );
+		return name.replace( '.', '_' );
+	}
+
+
+	/**
+	 * Creates the counter that decides when progress needs to be logged.
+	 *
+	 * @param parsed The parsed command.
+	 * @return The counter, null if no progress needs to be logged.
+	 */
+	static protected Counter newCounter( Parsed parsed )
+	{
+		if( parsed.logRecords > 0 )
+			return new FixedCounter( parsed.logRecords );
+		if( parsed.logSeconds > 0 )
+			return new TimedCounter( parsed.logSeconds );
+		return null;
+	}
+
+
+	/**
+	 * Creates a JSON writer. With GZIP the output is compressed, and with ASYNC the compression and the writing to the
+	 * output stream are done in a separate thread.
+	 *
+	 * @param out The output stream to write to.
+	 * @param parsed The parsed command.
+	 * @param parts The part files that count the bytes written, null if the records are written to one file.
+	 * @return The JSON writer.
+	 */
+	static protected JSONWriter newJSONWriter( OutputStream out, Parsed parsed, FileParts parts )
+	{
+		if( parsed.gzip )
+			out = newGZIPOutputStream( out, parsed.gzipThreads );
+		if( parsed.async )
+			out = new AsyncOutputStream( "DumpJSON-writer", out );
+		if( parts != null )
+			out = parts.count( out );
+		return new JSONWriter( out );
+	}
+
+
+	/**
+	 * Writes the manifest that lists the part files of a dump. The manifest is named after the file name with the
+	 * extensions replaced by .manifest.json, and lists the part files with their number of records and bytes.
+	 *
+	 * @param parts The part files.
+	 * @param fileName The file name of the dump.
+	 * @return The file name of the manifest.
+	 */
+	static protected String writeManifest( FileParts parts, String fileName )
+	{
+		JSONArray files = new JSONArray();
+		long records = 0;
+		for( FileParts.Part part : parts.getParts() )
+		{
+			files.add( new JSONObject( "file", part.getName(), "records", BigDecimal.valueOf( part.getRecords() ), "bytes", BigDecimal.valueOf( part.getBytes() ) ) );
+			records += part.getRecords();
+		}
+
+		JSONObject manifest = new JSONObject();
+		manifest.set( "version", "1.0" );
+		manifest.set( "format", "record-stream-parts" );
+		manifest.set( "description", "SolidBase JSON Data Dump Manifest" );
+		manifest.set( "records", BigDecimal.valueOf( records ) );
+		manifest.set( "parts", files );
+
+		String manifestName = FileParts.stripExtensions( fileName ) + ".manifest.json";
+		JSONWriter writer = new JSONWriter( Resources.getResource( manifestName ) );
+		try
+		{
+			writer.writeFormatted( manifest, 120 );
+		}
+		finally
+		{
+			writer.close();
+		}
+		return manifestName;
+	}
+
+
+	/**
+	 * Wraps the output stream in a GZIP compressing output stream.
+	 *
+	 * @param out The output stream to wrap.
+	 * @param threads The number of compressing threads, 0 for compressing in the current thread.
+	 * @return The compressing output stream.
+	 */
+	static protected OutputStream newGZIPOutputStream( OutputStream out, int threads )
+	{
+		if( threads > 0 )
+			return new ParallelGZIPOutputStream( out, threads );
+		try
+		{
+			return new BufferedOutputStream( new GZIPOutputStream( out, 65536 ), 65536 ); // TODO Ctrl-C, close the outputstream?
+		}
+		catch( IOException e )
+		{
+			throw new SystemException( e );
+		}
 	}
 
 
@@ -471,9 +885,14 @@ public class DumpJSON implements CommandListener
 		DUMP JSON
 		DATE AS TIMESTAMP
 		COALESCE "<col1>", "<col2>"
+		FETCH SIZE n
 		LOG EVERY n RECORDS|SECONDS
-		FILE "file" GZIP
-		BINARY FILE "file" GZIP
+		FILE "file" | TABLES ( t1, t2 ) INTO FOLDER "folder" PARALLEL n | SCHEMA s INTO FOLDER "folder" PARALLEL n
+		GZIP PARALLEL n ASYNC
+		MAX FILE SIZE n KB|MB|GB
+		MAX RECORDS n
+		INDEX EVERY n RECORDS
+		BINARY FILE "file" GZIP PARALLEL n | DEDUPLICATE
 		COLUMN col1, col2 TO BINARY|TEXT FILE "file" THRESHOLD n
 		*/
 
@@ -484,7 +903,7 @@ public class DumpJSON implements CommandListener
 		tokenizer.get( "DUMP" );
 		tokenizer.get( "JSON" );
 
-		Token t = tokenizer.get( "DATE", "COALESCE", "LOG", "FILE" );
+		Token t = tokenizer.get( "DATE", "COALESCE", "FETCH", "LOG", "FILE", "TABLES", "SCHEMA" );
 
 		if( t.eq( "DATE" ) )
 		{
@@ -493,7 +912,7 @@ public class DumpJSON implements CommandListener
 
 			result.dateAsTimestamp = true;
 
-			t = tokenizer.get( "COALESCE", "LOG", "FILE" );
+			t = tokenizer.get( "COALESCE", "FETCH", "LOG", "FILE", "TABLES", "SCHEMA" );
 		}
 
 		while( t.eq( "COALESCE" ) )
@@ -521,7 +940,20 @@ public class DumpJSON implements CommandListener
 			result.coalesce.end();
 		}
 
-		tokenizer.expect( t, "LOG", "FILE" );
+		tokenizer.expect( t, "FETCH", "LOG", "FILE", "TABLES", "SCHEMA" );
+
+		if( t.eq( "FETCH" ) )
+		{
+			tokenizer.get( "SIZE" );
+			t = tokenizer.get();
+			if( !t.isNumber() )
+				throw new SourceException( "Expecting a number, not [" + t + "]", tokenizer.getLocation() );
+			result.fetchSize = Integer.parseInt( t.getValue() );
+			if( result.fetchSize < 1 )
+				throw new SourceException( "FETCH SIZE must be at least 1", tokenizer.getLocation() );
+
+			t = tokenizer.get( "LOG", "FILE", "TABLES", "SCHEMA" );
+		}
 
 		if( t.eq( "LOG" ) )
 		{
@@ -537,19 +969,146 @@ public class DumpJSON implements CommandListener
 			else
 				result.logSeconds = interval;
 
-			tokenizer.get( "FILE" );
+			t = tokenizer.get( "FILE", "TABLES", "SCHEMA" );
 		}
 
-		t = tokenizer.get();
-		if( !t.isString() )
-			throw new SourceException( "Expecting filename enclosed in double quotes, not [" + t + "]", tokenizer.getLocation() );
-		result.fileName = t.stripQuotes();
+		if( t.eq( "FILE" ) )
+		{
+			t = tokenizer.get();
+			if( !t.isString() )
+				throw new SourceException( "Expecting filename enclosed in double quotes, not [" + t + "]", tokenizer.getLocation() );
+			result.fileName = t.stripQuotes();
+		}
+		else
+		{
+			if( result.coalesce != null )
+				throw new SourceException( "COALESCE can't be combined with TABLES or SCHEMA", tokenizer.getLocation() );
+
+			if( t.eq( "TABLES" ) )
+			{
+				tokenizer.get( "(" );
+				result.tables = new ArrayList< String >();
+				do
+				{
+					// A table name can be qualified with a schema name
+					StringBuilder table = new StringBuilder( getName( tokenizer ) );
+					t = tokenizer.get();
+					while( t.eq( "." ) )
+					{
+						table.append( '.' ).append( getName( tokenizer ) );
+						t = tokenizer.get();
+					}
+					result.tables.add( table.toString() );
+				}
+				while( t.eq( "," ) );
+				tokenizer.expect( t, ")" );
+			}
+			else
+				result.schema = getName( tokenizer );
+
+			tokenizer.get( "INTO" );
+			tokenizer.get( "FOLDER" );
+			t = tokenizer.get();
+			if( !t.isString() )
+				throw new SourceException( "Expecting folder name enclosed in double quotes, not [" + t + "]", tokenizer.getLocation() );
+			result.folderName = t.stripQuotes();
+
+			if( result.tables != null )
+			{
+				// Tables with the same name in different schemas would be dumped into the same file
+				Set< String > names = new HashSet< String >();
+				for( String table : result.tables )
+					if( !names.add( getBaseName( table ).toUpperCase() ) )
+						throw new SourceException( "TABLES contains more than one table named " + getBaseName( table ) + ", they would be dumped into the same file", tokenizer.getLocation() );
+			}
+
+			t = tokenizer.get();
+			if( t.eq( "PARALLEL" ) )
+			{
+				t = tokenizer.get();
+				if( !t.isNumber() )
+					throw new SourceException( "Expecting a number, not [" + t + "]", tokenizer.getLocation() );
+				result.parallel = Integer.parseInt( t.getValue() );
+				if( result.parallel < 1 )
+					throw new SourceException( "PARALLEL must be at least 1", tokenizer.getLocation() );
+			}
+			else
+				tokenizer.push( t );
+		}
 
 		t = tokenizer.get();
 		if( t.eq( "GZIP" ) )
 		{
 			result.gzip = true;
 			t = tokenizer.get();
+			if( t.eq( "PARALLEL" ) )
+			{
+				t = tokenizer.get();
+				if( !t.isNumber() )
+					throw new SourceException( "Expecting a number, not [" + t + "]", tokenizer.getLocation() );
+				result.gzipThreads = Integer.parseInt( t.getValue() );
+				if( result.gzipThreads < 1 )
+					throw new SourceException( "GZIP PARALLEL must be at least 1", tokenizer.getLocation() );
+				t = tokenizer.get();
+			}
+		}
+		if( t.eq( "ASYNC" ) )
+		{
+			result.async = true;
+			t = tokenizer.get();
+		}
+
+		while( t.eq( "MAX" ) )
+		{
+			t = tokenizer.get( "FILE", "RECORDS" );
+			if( t.eq( "FILE" ) )
+			{
+				tokenizer.get( "SIZE" );
+				t = tokenizer.get();
+				if( !t.isNumber() )
+					throw new SourceException( "Expecting a number, not [" + t + "]", tokenizer.getLocation() );
+				long size = Long.parseLong( t.getValue() );
+				t = tokenizer.get( "KB", "MB", "GB" );
+				if( t.eq( "KB" ) )
+					size <<= 10;
+				else if( t.eq( "MB" ) )
+					size <<= 20;
+				else
+					size <<= 30;
+				result.maxFileSize = size;
+			}
+			else
+			{
+				t = tokenizer.get();
+				if( !t.isNumber() )
+					throw new SourceException( "Expecting a number, not [" + t + "]", tokenizer.getLocation() );
+				result.maxRecords = Long.parseLong( t.getValue() );
+			}
+			if( result.maxFileSize <= 0 && result.maxRecords <= 0 )
+				throw new SourceException( "MAX FILE SIZE or MAX RECORDS must be at least 1", tokenizer.getLocation() );
+			t = tokenizer.get();
+		}
+
+		if( t.eq( "INDEX" ) )
+		{
+			if( result.gzip || result.async || result.maxFileSize > 0 || result.maxRecords > 0 )
+				throw new SourceException( "INDEX can't be combined with GZIP, ASYNC or MAX", tokenizer.getLocation() );
+			tokenizer.get( "EVERY" );
+			t = tokenizer.get();
+			if( !t.isNumber() )
+				throw new SourceException( "Expecting a number, not [" + t + "]", tokenizer.getLocation() );
+			result.indexRecords = Long.parseLong( t.getValue() );
+			if( result.indexRecords < 1 )
+				throw new SourceException( "INDEX EVERY must be at least 1", tokenizer.getLocation() );
+			tokenizer.get( "RECORDS" );
+			t = tokenizer.get();
+		}
+
+		if( result.folderName != null )
+		{
+			// The tables are dumped with SELECT *, BINARY FILE and COLUMN are per query
+			tokenizer.expect( t, (String)null );
+			return result;
 		}
 
 		if( t.eq( "BINARY" ) )
@@ -565,6 +1124,24 @@ public class DumpJSON implements CommandListener
 			{
 				result.binaryGzip = true;
 				t = tokenizer.get();
+				if( t.eq( "PARALLEL" ) )
+				{
+					t = tokenizer.get();
+					if( !t.isNumber() )
+						throw new SourceException( "Expecting a number, not [" + t + "]", tokenizer.getLocation() );
+					result.binaryGzipThreads = Integer.parseInt( t.getValue() );
+					if( result.binaryGzipThreads < 1 )
+						throw new SourceException( "GZIP PARALLEL must be at least 1", tokenizer.getLocation() );
+					t = tokenizer.get();
+				}
+			}
+			if( t.eq( "DEDUPLICATE" ) )
+			{
+				// Taking back a duplicate needs an uncompressed file, and loading needs to jump back in the file
+				if( result.binaryGzip )
+					throw new SourceException( "DEDUPLICATE can't be combined with GZIP", tokenizer.getLocation() );
+				result.binaryDeduplicate = true;
+				t = tokenizer.get();
 			}
 		}
 
@@ -624,6 +1201,277 @@ public class DumpJSON implements CommandListener
 	}
 
 
+	static private String getName( SQLTokenizer tokenizer )
+	{
+		Token t = tokenizer.get();
+		if( t.isEndOfInput() || !t.isString() && !Character.isJavaIdentifierStart( t.getValue().charAt( 0 ) ) )
+			throw new SourceException( "Expecting a name, not [" + t + "]", tokenizer.getLocation() );
+		return t.getValue();
+	}
+
+
+	/**
+	 * Reports the progress of a dump to the progress listener.
+	 *
+	 * @author Ren M. de Bloois
+	 */
+	static protected class Progress
+	{
+		/** The progress listener. */
+		protected ProgressListener listener;
+
+		/** The counter that decides when progress needs to be logged, null if no progress needs to be logged. */
+		protected Counter counter;
+
+		/**
+		 * Constructor.
+		 *
+		 * @param listener The progress listener.
+		 * @param counter The counter that decides when progress needs to be logged, null if no progress needs to be logged.
+		 */
+		protected Progress( ProgressListener listener, Counter counter )
+		{
+			this.listener = listener;
+			this.counter = counter;
+		}
+
+		/**
+		 * Counts a dumped record.
+		 */
+		protected void next()
+		{
+			if( this.counter != null && this.counter.next() )
+				report();
+		}
+
+		/**
+		 * Called when the dump of a query is done.
+		 */
+		protected void end()
+		{
+			if( this.counter != null && this.counter.needFinal() )
+				report();
+		}
+
+		/**
+		 * Logs the number of records dumped.
+		 */
+		protected void report()
+		{
+			println( "Exported " + this.counter.total() + " records." );
+		}
+
+		/**
+		 * Prints a message.
+		 *
+		 * @param message The message.
+		 */
+		protected void println( String message )
+		{
+			this.listener.println( message );
+		}
+	}
+
+
+	/**
+	 * The progress of a dump of several tables, shared by the workers that dump the tables. It logs the number of
+	 * records dumped from all tables together, with the number of records per second since the start.
+	 *
+	 * @author Ren M. de Bloois
+	 */
+	static protected class SharedProgress extends Progress
+	{
+		private long start = System.currentTimeMillis();
+		private long total;
+
+		/**
+		 * Constructor.
+		 *
+		 * @param listener The progress listener.
+		 * @param counter The counter that decides when progress needs to be logged, null if only the tables that are
+		 *        done need to be logged.
+		 */
+		protected SharedProgress( ProgressListener listener, Counter counter )
+		{
+			super( listener, counter );
+		}
+
+		@Override
+		protected void next()
+		{
+			if( this.counter != null ) // Only lock when counting
+				synchronized( this )
+				{
+					super.next();
+				}
+		}
+
+		@Override
+		protected void end()
+		{
+			// The total is logged when all tables are done
+		}
+
+		/**
+		 * Logs a table that is done.
+		 *
+		 * @param table The table.
+		 * @param count The number of records dumped from the table.
+		 */
+		protected synchronized void tableDone( String table, long count )
+		{
+			this.total += count;
+			println( "Dumped " + count + " records from " + table + "." );
+		}
+
+		/**
+		 * Logs the total when all tables are done.
+		 *
+		 * @param tables The number of tables.
+		 */
+		protected synchronized void end( int tables )
+		{
+			println( "Dumped " + this.total + " records from " + tables + " tables, " + perSecond( this.total ) + " records per second." );
+		}
+
+		@Override
+		protected void report()
+		{
+			long total = this.counter.total();
+			println( "Exported " + total + " records, " + perSecond( total ) + " records per second." );
+		}
+
+		private long perSecond( long records )
+		{
+			return records * 1000 / Math.max( System.currentTimeMillis() - this.start, 1 );
+		}
+
+		@Override
+		protected synchronized void println( String message )
+		{
+			super.println( message );
+		}
+	}
+
+
+	/**
+	 * A thread that dumps tables through its own connection. It takes the next table from the queue until the queue is
+	 * empty.
+	 *
+	 * @author Ren M. de Bloois
+	 */
+	static protected class Worker extends Thread
+	{
+		/** The connection of this worker. */
+		protected Connection connection;
+
+		private Database database;
+		private Queue< String > tables;
+		private Parsed parsed;
+		private boolean dateCreated;
+		private Command command;
+		private SharedProgress progress;
+		private Throwable failure;
+
+		/**
+		 * Constructor.
+		 *
+		 * @param number The number of the worker, starting at 1.
+		 * @param database The database to dump the tables from.
+		 * @param tables The queue of tables to dump, shared by the workers.
+		 * @param parsed The parsed command.
+		 * @param dateCreated Write the creation date in the header of the files.
+		 * @param command The command.
+		 * @param progress The progress, shared by the workers.
+		 */
+		protected Worker( int number, Database database, Queue< String > tables, Parsed parsed, boolean dateCreated, Command command, SharedProgress progress )
+		{
+			super( "DumpJSON-" + number );
+			this.connection = database.newConnection();
+			this.database = database;
+			this.tables = tables;
+			this.parsed = parsed;
+			this.dateCreated = dateCreated;
+			this.command = command;
+			this.progress = progress;
+		}
+
+		@Override
+		public void run()
+		{
+			try
+			{
+				for( String table = this.tables.poll(); table != null; table = this.tables.poll() )
+				{
+					if( isInterrupted() )
+						throw new ThreadInterrupted();
+					Statement statement = this.connection.createStatement( ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY );
+					try
+					{
+						CommandProcessor.setFetchSize( statement, this.parsed.fetchSize, this.database );
+						long count = dump( statement, "SELECT * FROM " + table, getFileName( this.parsed, table ), this.parsed, this.dateCreated, this.command, this.progress );
+						this.progress.tableDone( table, count );
+					}
+					finally
+					{
+						statement.close();
+					}
+					this.connection.commit();
+				}
+			}
+			catch( Throwable t )
+			{
+				this.failure = t;
+				this.tables.clear(); // Stops the other workers after their current table
+			}
+		}
+
+		/**
+		 * Rethrows the failure of this worker, if any.
+		 *
+		 * @throws SQLException When the worker failed with an SQLException.
+		 */
+		protected void checkFailure() throws SQLException
+		{
+			Throwable t = this.failure;
+			if( t == null )
+				return;
+			if( t instanceof SQLException )
+				throw (SQLException)t;
+			if( t instanceof RuntimeException )
+				throw (RuntimeException)t;
+			if( t instanceof Error )
+				throw (Error)t;
+			throw new SystemException( t );
+		}
+
+		/**
+		 * Stops this worker if it is still running, and closes the connection.
+		 */
+		protected void close()
+		{
+			interrupt();
+			try
+			{
+				join();
+			}
+			catch( InterruptedException e )
+			{
+				Thread.currentThread().interrupt();
+			}
+			try
+			{
+				this.connection.rollback();
+				this.connection.close();
+			}
+			catch( SQLException e )
+			{
+				// Ignore, we are cleaning up
+			}
+		}
+	}
+
+
 	//@Override
 	public void terminate()
 	{
@@ -642,8 +1490,27 @@ public class DumpJSON implements CommandListener
 		protected String fileName;
 		protected boolean gzip;
 
+		/** The number of threads that compress the file, 0 for compressing in the query thread. */
+		protected int gzipThreads;
+
+		/** Compress and write the file in a separate thread. */
+		protected boolean async;
+
+		/** The maximum number of bytes in a file before rolling over to the next part file, 0 for no maximum. */
+		protected long maxFileSize;
+
+		/** The maximum number of records in a file before rolling over to the next part file, 0 for no maximum. */
+		protected long maxRecords;
+
+		/** Write an index with the position of every this number of records, 0 for no index. */
+		protected long indexRecords;
+
 		protected String binaryFileName;
 		protected boolean binaryGzip;
+		protected int binaryGzipThreads;
+
+		/** Store identical binary values only once in the binary file. */
+		protected boolean binaryDeduplicate;
 
 		/** The query */
 		protected String query;
@@ -656,6 +1523,21 @@ public class DumpJSON implements CommandListener
 		protected int logRecords;
 		protected int logSeconds;
 
+		/** The number of rows to fetch at a time, 0 for the default of the database. */
+		protected int fetchSize;
+
+		/** The tables to dump with TABLES, each into its own file in the folder. */
+		protected List< String > tables;
+
+		/** The schema whose tables are dumped with SCHEMA, each into its own file in the folder. */
+		protected String schema;
+
+		/** The folder to dump the tables into. */
+		protected String folderName;
+
+		/** The number of workers that dump the tables, 0 for dumping the tables one after another. */
+		protected int parallel;
+
 		protected Map<String, ColumnSpec> columns;
 	}
 
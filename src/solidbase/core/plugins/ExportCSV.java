@@ -16,39 +16,48 @@
 
 package solidbase.core.plugins;
 
-import java.io.BufferedOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
 import java.io.OutputStreamWriter;
 import java.io.Reader;
 import java.io.UnsupportedEncodingException;
+import java.math.BigDecimal;
 import java.sql.Blob;
 import java.sql.Clob;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.ResultSetMetaData;
 import java.sql.SQLException;
 import java.sql.Statement;
+import java.sql.Timestamp;
 import java.sql.Types;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.regex.Pattern;
-import java.util.zip.GZIPOutputStream;
 
 import solidbase.core.Command;
 import solidbase.core.CommandListener;
 import solidbase.core.CommandProcessor;
+import solidbase.core.Database;
 import solidbase.core.SourceException;
 import solidbase.core.SystemException;
 import solidbase.core.plugins.DumpJSON.Coalescer;
+import solidbase.util.AsyncOutputStream;
 import solidbase.util.CSVWriter;
 import solidbase.util.Counter;
+import solidbase.util.FileParts;
 import solidbase.util.FixedCounter;
 import solidbase.util.JDBCSupport;
+import solidbase.util.JDBCSupport.ColumnReader;
 import solidbase.util.SQLTokenizer;
 import solidbase.util.SQLTokenizer.Token;
 import solidbase.util.TimedCounter;
 import solidstack.io.Resource;
 import solidstack.io.Resources;
 import solidstack.io.SourceReaders;
+import solidstack.lang.ThreadInterrupted;
 
 
 /**
@@ -78,135 +87,485 @@ public class ExportCSV implements CommandListener
 
 		Parsed parsed = parse( command );
 
+		if( parsed.partitionColumn != null )
+		{
+			exportPartitioned( processor, command, parsed );
+			return true;
+		}
+
 		Resource csvResource = Resources.getResource( parsed.fileName ); // Relative to current folder
 
+		FileParts parts = null;
+		if( parsed.maxFileSize > 0 || parsed.maxRecords > 0 )
+			parts = new FileParts( parsed.fileName, parsed.maxFileSize, parsed.maxRecords );
+
 		try
 		{
-			OutputStream out = csvResource.getOutputStream();
-			if( parsed.gzip )
-				out = new BufferedOutputStream( new GZIPOutputStream( out, 65536 ), 65536 ); // TODO Ctrl-C, close the outputstream?
+			CSVWriter csvWriter = newWriter( parts != null ? parts.next() : csvResource.getOutputStream(), parsed, parsed.gzip, parts, command );
 
-			CSVWriter csvWriter;
+			// TODO Lots of identical code in DumpJSON
 			try
 			{
-				csvWriter = new CSVWriter( new OutputStreamWriter( out, parsed.encoding ), parsed.separator, false );
+				Statement statement = processor.createQueryStatement( parsed.fetchSize );
+				try
+				{
+					ResultSet result = statement.executeQuery( parsed.query );
+
+					Counter counter = newCounter( parsed );
+
+					export( result, csvWriter, parsed, parsed.withHeader, processor, counter, parts, command );
+
+					if( counter != null && counter.needFinal() )
+						processor.getProgressListener().println( "Exported " + counter.total() + " records." );
+				}
+				finally
+				{
+					processor.closeStatement( statement, true );
+				}
 			}
-			catch( UnsupportedEncodingException e )
+			finally
 			{
-				// toString() instead of getMessage(), the getMessage only returns the character encoding
-				throw new SourceException( e.toString(), command.getLocation() );
+				csvWriter.close();
 			}
+		}
+		catch( IOException e )
+		{
+			throw new SystemException( e );
+		}
 
-			// TODO Lots of identical code in DumpJSON
-			try
+		if( parts != null )
+		{
+			parts.end();
+			processor.getProgressListener().println( "Exported into " + parts.getParts().size() + " files." );
+		}
+
+		return true;
+	}
+
+
+	/**
+	 * Creates a CSV writer. With ASYNC the compression and the writing to the output stream are done in a separate
+	 * thread.
+	 *
+	 * @param out The output stream to write to.
+	 * @param parsed The parsed command.
+	 * @param gzip Compress the output.
+	 * @param parts The part files that count the bytes written, null if the records are written to one file.
+	 * @param command The command, used in error messages.
+	 * @return The CSV writer.
+	 * @throws IOException Whenever an {@link IOException} occurs.
+	 */
+	static protected CSVWriter newWriter( OutputStream out, Parsed parsed, boolean gzip, FileParts parts, Command command ) throws IOException
+	{
+		if( gzip )
+			out = DumpJSON.newGZIPOutputStream( out, parsed.gzipThreads );
+		if( parsed.async )
+			out = new AsyncOutputStream( "ExportCSV-writer", out );
+		if( parts != null )
+			out = parts.count( out );
+		try
+		{
+			return new CSVWriter( new OutputStreamWriter( out, parsed.encoding ), parsed.separator, false );
+		}
+		catch( UnsupportedEncodingException e )
+		{
+			// toString() instead of getMessage(), the getMessage only returns the character encoding
+			throw new SourceException( e.toString(), command.getLocation() );
+		}
+	}
+
+
+	/**
+	 * Writes the records of the result set to the CSV writer.
+	 *
+	 * @param result The result set.
+	 * @param csvWriter The CSV writer.
+	 * @param parsed The parsed command.
+	 * @param withHeader Write a header with the column names.
+	 * @param processor The command processor, null if no progress needs to be logged.
+	 * @param counter The logging counter, may be null. The counter may be shared by concurrent exports.
+	 * @param parts The part files to roll over to, null if the records are written to one file. The given CSV writer
+	 *        writes to the first part, the CSV writers of the next parts are created and closed here.
+	 * @param command The command, used in error messages.
+	 * @return The number of records written.
+	 * @throws SQLException Whenever JDBC throws it.
+	 * @throws IOException Whenever an {@link IOException} occurs.
+	 */
+	static protected long export( ResultSet result, CSVWriter csvWriter, Parsed parsed, boolean withHeader, CommandProcessor processor, Counter counter, FileParts parts, Command command ) throws SQLException, IOException
+	{
+		ResultSetMetaData metaData = result.getMetaData();
+
+		// Define locals
+
+		int columns = metaData.getColumnCount();
+		int[] types = new int[ columns ];
+		String[] names = new String[ columns ];
+		boolean[] ignore = new boolean[ columns ];
+
+		// Analyze metadata
+
+		for( int i = 0; i < columns; i++ )
+		{
+			int col = i + 1;
+			String name = metaData.getColumnName( col ).toUpperCase();
+			types[ i ] = metaData.getColumnType( col );
+			if( types[ i ] == Types.DATE && parsed.dateAsTimestamp )
+				types[ i ] = Types.TIMESTAMP;
+			names[ i ] = name;
+			if( parsed.coalesce != null && parsed.coalesce.notFirst( name ) )
+				ignore[ i ] = true;
+			// TODO STRUCT serialize
+			// TODO This must be optional and not the default
+			else if( types[ i ] == 2002 || JDBCSupport.toTypeName( types[ i ] ) == null )
+				ignore[ i ] = true;
+		}
+
+		if( parsed.coalesce != null )
+			synchronized( parsed.coalesce ) // The partitions of a partitioned export share the coalescer
 			{
-				Statement statement = processor.createStatement();
-				try
-				{
-					ResultSet result = statement.executeQuery( parsed.query );
-					ResultSetMetaData metaData = result.getMetaData();
+				parsed.coalesce.bind( names );
+			}
 
-					// Define locals
+		// Write header
 
-					int columns = metaData.getColumnCount();
-					int[] types = new int[ columns ];
-					String[] names = new String[ columns ];
-					boolean[] ignore = new boolean[ columns ];
+		if( withHeader )
+			writeHeader( csvWriter, names, ignore );
 
-					// Analyze metadata
+		ColumnReader[] readers = JDBCSupport.getReaders( metaData, types );
+		Object[] values = new Object[ columns ];
 
-					for( int i = 0; i < columns; i++ )
+		CSVWriter out = csvWriter; // The CSV writer of the current part
+		long count = 0;
+		try
+		{
+			while( result.next() )
+			{
+				if( parts != null )
+				{
+					if( parts.isFull() )
 					{
-						int col = i + 1;
-						String name = metaData.getColumnName( col ).toUpperCase();
-						types[ i ] = metaData.getColumnType( col );
-						if( types[ i ] == Types.DATE && parsed.dateAsTimestamp )
-							types[ i ] = Types.TIMESTAMP;
-						names[ i ] = name;
-						if( parsed.coalesce != null && parsed.coalesce.notFirst( name ) )
-							ignore[ i ] = true;
-						// TODO STRUCT serialize
-						// TODO This must be optional and not the default
-						else if( types[ i ] == 2002 || JDBCSupport.toTypeName( types[ i ] ) == null )
-							ignore[ i ] = true;
+						out.close();
+						out = newWriter( parts.next(), parsed, parsed.gzip, parts, command );
+						if( withHeader )
+							writeHeader( out, names, ignore );
 					}
+					parts.record();
+				}
 
-					if( parsed.coalesce != null )
-						parsed.coalesce.bind( names );
+				JDBCSupport.getValues( result, readers, values );
 
-					// Write header
+				if( parsed.coalesce != null )
+					parsed.coalesce.coalesce( values );
 
-					if( parsed.withHeader )
+				for( int i = 0; i < columns; i++ )
+					if( !ignore[ i ] )
 					{
-						for( int i = 0; i < columns; i++ )
-							if( !ignore[ i ] )
-								csvWriter.writeValue( names[ i ] );
-						csvWriter.nextRecord();
+						Object value = values[ i ];
+						if( value == null )
+							out.writeValue( (String)null );
+						else if( value instanceof Clob )
+						{
+							Reader in = ( (Clob)value ).getCharacterStream();
+							out.writeValue( in );
+							in.close();
+						}
+						else if( value instanceof Blob )
+						{
+							InputStream in = ( (Blob)value ).getBinaryStream();
+							out.writeValue( in );
+							in.close();
+						}
+						else if( value instanceof byte[] )
+							out.writeValue( (byte[])value );
+						else if( value instanceof Integer || value instanceof Long || value instanceof Short )
+							out.writeValue( ( (Number)value ).longValue() );
+						else if( value instanceof BigDecimal )
+							out.writeValue( (BigDecimal)value );
+						else if( value instanceof Timestamp )
+							out.writeValue( (Timestamp)value );
+						else
+							out.writeValue( value.toString() );
 					}
 
-					Counter counter = null;
-					if( parsed.logRecords > 0 )
-						counter = new FixedCounter( parsed.logRecords );
-					else if( parsed.logSeconds > 0 )
-						counter = new TimedCounter( parsed.logSeconds );
+				out.nextRecord();
+				count++;
 
-					while( result.next() )
+				if( counter != null )
+					synchronized( counter )
 					{
-						Object[] values = new Object[ columns ];
-						for( int i = 0; i < values.length; i++ )
-							values[ i ] = JDBCSupport.getValue( result, types, i );
-
-						if( parsed.coalesce != null )
-							parsed.coalesce.coalesce( values );
-
-						for( int i = 0; i < columns; i++ )
-							if( !ignore[ i ] )
-							{
-								Object value = values[ i ];
-								if( value == null )
-									csvWriter.writeValue( (String)null );
-								else if( value instanceof Clob )
-								{
-									Reader in = ( (Clob)value ).getCharacterStream();
-									csvWriter.writeValue( in );
-									in.close();
-								}
-								else if( value instanceof Blob )
-								{
-									InputStream in = ( (Blob)value ).getBinaryStream();
-									csvWriter.writeValue( in );
-									in.close();
-								}
-								else if( value instanceof byte[] )
-									csvWriter.writeValue( (byte[])value );
-								else
-									csvWriter.writeValue( value.toString() );
-							}
-
-						csvWriter.nextRecord();
-
-						if( counter != null && counter.next() )
-								processor.getProgressListener().println( "Exported " + counter.total() + " records." );
+						if( counter.next() )
+							processor.getProgressListener().println( "Exported " + counter.total() + " records." );
 					}
-					if( counter != null && counter.needFinal() )
-						processor.getProgressListener().println( "Exported " + counter.total() + " records." );
+			}
+		}
+		finally
+		{
+			if( out != csvWriter )
+				out.close();
+		}
+		return count;
+	}
+
+
+	/**
+	 * Creates the counter that decides when progress needs to be logged.
+	 *
+	 * @param parsed The parsed command.
+	 * @return The counter, null if no progress needs to be logged.
+	 */
+	static protected Counter newCounter( Parsed parsed )
+	{
+		if( parsed.logRecords > 0 )
+			return new FixedCounter( parsed.logRecords );
+		if( parsed.logSeconds > 0 )
+			return new TimedCounter( parsed.logSeconds );
+		return null;
+	}
+
+
+	static private void writeHeader( CSVWriter csvWriter, String[] names, boolean[] ignore )
+	{
+		for( int i = 0; i < names.length; i++ )
+			if( !ignore[ i ] )
+				csvWriter.writeValue( names[ i ] );
+		csvWriter.nextRecord();
+	}
+
+
+	/**
+	 * Exports the records in key ranges of the partition column, each range through its own connection, concurrently.
+	 * The boundaries of the ranges are quantiles of the partition column, so that the ranges contain about the same
+	 * number of records. The ranges are written to separate part files, or to range files next to the CSV file that are
+	 * appended to the CSV file in the order of the ranges.
+	 *
+	 * @param processor The command processor.
+	 * @param command The command.
+	 * @param parsed The parsed command.
+	 * @throws SQLException Whenever JDBC throws it.
+	 */
+	protected void exportPartitioned( CommandProcessor processor, Command command, Parsed parsed ) throws SQLException
+	{
+		Database database = processor.getCurrentDatabase();
+		if( parsed.fetchSize <= 0 )
+			parsed.fetchSize = database.getFetchSize();
+
+		List< Object > boundaries;
+		Connection connection = database.newConnection();
+		try
+		{
+			boundaries = getBoundaries( connection, parsed );
+		}
+		finally
+		{
+			connection.close();
+		}
+
+		int count = boundaries.size() + 1; // Less partitions than requested when there are not enough distinct values
+		Counter counter = newCounter( parsed ); // Shared by the partitions
+		Partition[] partitions = new Partition[ count ];
+		Resource[] ranges = new Resource[ count ];
+		try
+		{
+			try
+			{
+				for( int i = 0; i < count; i++ )
+				{
+					OutputStream out;
+					boolean header = parsed.withHeader;
+					if( parsed.partitionFiles )
+						out = Resources.getResource( FileParts.getPartFileName( parsed.fileName, i + 1 ) ).getOutputStream();
+					else
+					{
+						// The header goes in front of the first range
+						ranges[ i ] = Resources.getResource( FileParts.insert( parsed.fileName, ".range-" + ( i + 1 ) ) );
+						out = ranges[ i ].getOutputStream();
+						header &= i == 0;
+					}
+					CSVWriter csvWriter = newWriter( out, parsed, parsed.gzip && parsed.partitionFiles, null, command );
+					Object lower = i > 0 ? boundaries.get( i - 1 ) : null;
+					Object upper = i < count - 1 ? boundaries.get( i ) : null;
+					partitions[ i ] = new Partition( i + 1, database.newConnection(), getPartitionQuery( parsed, i > 0, i < count - 1 ), lower, upper, csvWriter, header, parsed, processor, counter );
 				}
-				finally
+			}
+			catch( IOException e )
+			{
+				throw new SystemException( e );
+			}
+
+			for( Partition partition : partitions )
+				partition.start();
+			try
+			{
+				for( Partition partition : partitions )
+					partition.join();
+			}
+			catch( InterruptedException e )
+			{
+				throw new ThreadInterrupted();
+			}
+
+			long total = 0;
+			for( Partition partition : partitions )
+			{
+				partition.checkFailure();
+				total += partition.count;
+			}
+
+			if( !parsed.partitionFiles )
+				merge( ranges, Resources.getResource( parsed.fileName ), parsed.gzip, parsed.gzipThreads );
+
+			for( Partition partition : partitions )
+				processor.getProgressListener().println( "Partition " + partition.number + " exported " + partition.count + " records." );
+			processor.getProgressListener().println( "Exported " + total + " records." );
+		}
+		finally
+		{
+			for( Partition partition : partitions )
+				if( partition != null )
+					partition.close();
+			for( Resource range : ranges )
+				if( range != null && range.supportsFile() )
+					range.getFile().delete();
+		}
+	}
+
+
+	/**
+	 * Determines the boundaries of the key ranges. The NTILE window function is tried first. When that fails, the
+	 * values of the partition column are counted and then read in order to find the quantiles.
+	 *
+	 * @param connection The connection to query with.
+	 * @param parsed The parsed command.
+	 * @return The distinct upper boundaries of the ranges, except the last range which has no upper boundary.
+	 * @throws SQLException Whenever JDBC throws it.
+	 */
+	static protected List< Object > getBoundaries( Connection connection, Parsed parsed ) throws SQLException
+	{
+		String column = parsed.partitionColumn;
+		int n = parsed.partitions;
+		String from = "( " + parsed.query + " ) Q WHERE " + column + " IS NOT NULL";
+		List< Object > result = new ArrayList< Object >();
+
+		Statement statement = connection.createStatement( ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY );
+		if( parsed.fetchSize > 0 )
+			statement.setFetchSize( parsed.fetchSize );
+		try
+		{
+			try
+			{
+				ResultSet resultSet = statement.executeQuery( "SELECT MAX( " + column + " ) FROM ( SELECT " + column + ", NTILE( " + n + " ) OVER ( ORDER BY " + column + " ) T FROM " + from + " ) X GROUP BY T ORDER BY 1" );
+				while( resultSet.next() )
+					addBoundary( result, resultSet.getObject( 1 ) );
+				if( !result.isEmpty() )
+					result.remove( result.size() - 1 ); // The maximum value is not a boundary
+				return result;
+			}
+			catch( SQLException e )
+			{
+				// No NTILE, PostgreSQL needs a rollback to continue
+				connection.rollback();
+				result.clear();
+			}
+
+			ResultSet resultSet = statement.executeQuery( "SELECT COUNT( * ) FROM " + from );
+			resultSet.next();
+			long rows = resultSet.getLong( 1 );
+
+			resultSet = statement.executeQuery( "SELECT " + column + " FROM " + from + " ORDER BY " + column );
+			long row = 0;
+			int k = 1;
+			while( k < n && resultSet.next() )
+				if( ++row >= k * rows / n )
 				{
-					processor.closeStatement( statement, true );
+					addBoundary( result, resultSet.getObject( 1 ) );
+					// With less rows than partitions, more boundaries fall on the same row
+					while( k < n && row >= k * rows / n )
+						k++;
+				}
+			return result;
+		}
+		finally
+		{
+			statement.close();
+			connection.rollback();
+		}
+	}
+
+
+	static private void addBoundary( List< Object > boundaries, Object value )
+	{
+		if( value != null && ( boundaries.isEmpty() || !value.equals( boundaries.get( boundaries.size() - 1 ) ) ) )
+			boundaries.add( value );
+	}
+
+
+	/**
+	 * Returns the query of a key range. The first range also contains the records with a null key. When the ranges are
+	 * merged into one file, the records are ordered by the partition column.
+	 *
+	 * @param parsed The parsed command.
+	 * @param lower The range has a lower boundary, the first parameter.
+	 * @param upper The range has an upper boundary, the last parameter.
+	 * @return The query.
+	 */
+	static protected String getPartitionQuery( Parsed parsed, boolean lower, boolean upper )
+	{
+		String column = parsed.partitionColumn;
+		StringBuilder result = new StringBuilder( "SELECT * FROM ( " ).append( parsed.query ).append( " ) Q" );
+		if( lower && upper )
+			result.append( " WHERE " ).append( column ).append( " > ? AND " ).append( column ).append( " <= ?" );
+		else if( lower )
+			result.append( " WHERE " ).append( column ).append( " > ?" );
+		else if( upper )
+			result.append( " WHERE " ).append( column ).append( " IS NULL OR " ).append( column ).append( " <= ?" );
+		if( !parsed.partitionFiles )
+			result.append( " ORDER BY " ).append( column );
+		return result.toString();
+	}
+
+
+	/**
+	 * Appends the range files to the CSV file in order.
+	 *
+	 * @param ranges The range files.
+	 * @param csvResource The CSV file.
+	 * @param gzip Compress the CSV file.
+	 * @param gzipThreads The number of compressing threads, 0 for compressing in the current thread.
+	 */
+	static protected void merge( Resource[] ranges, Resource csvResource, boolean gzip, int gzipThreads )
+	{
+		try
+		{
+			OutputStream out = csvResource.getOutputStream();
+			if( gzip )
+				out = DumpJSON.newGZIPOutputStream( out, gzipThreads );
+			try
+			{
+				byte[] buffer = new byte[ 65536 ];
+				for( Resource range : ranges )
+				{
+					InputStream in = range.newInputStream();
+					try
+					{
+						int read;
+						while( ( read = in.read( buffer ) ) >= 0 )
+							out.write( buffer, 0, read );
+					}
+					finally
+					{
+						in.close();
+					}
 				}
 			}
 			finally
 			{
-				csvWriter.close();
+				out.close();
 			}
 		}
 		catch( IOException e )
 		{
 			throw new SystemException( e );
 		}
-
-		return true;
 	}
 
 
@@ -224,8 +583,12 @@ public class ExportCSV implements CommandListener
 		SEPARATED BY TAB|SPACE|<character>
 		DATE AS TIMESTAMP
 		COALESCE "<col1>", "<col2>"
+		PARTITION BY <column> INTO n [ FILES ]
+		FETCH SIZE n
 		LOG EVERY n RECORDS|SECONDS
-		FILE "<file>" ENCODING "<encoding>" GZIP
+		FILE "<file>" ENCODING "<encoding>" GZIP PARALLEL n ASYNC
+		MAX FILE SIZE n KB|MB|GB
+		MAX RECORDS n
 		*/
 
 		Parsed result = new Parsed();
@@ -235,13 +598,13 @@ public class ExportCSV implements CommandListener
 		tokenizer.get( "EXPORT" );
 		tokenizer.get( "CSV" );
 
-		Token t = tokenizer.get( "WITH", "SEPARATED", "DATE", "COALESCE", "LOG", "FILE" );
+		Token t = tokenizer.get( "WITH", "SEPARATED", "DATE", "COALESCE", "PARTITION", "FETCH", "LOG", "FILE" );
 		if( t.eq( "WITH" ) )
 		{
 			tokenizer.get( "HEADER" );
 			result.withHeader = true;
 
-			t = tokenizer.get( "SEPARATED", "DATE", "COALESCE", "LOG", "FILE" );
+			t = tokenizer.get( "SEPARATED", "DATE", "COALESCE", "PARTITION", "FETCH", "LOG", "FILE" );
 		}
 
 		if( t.eq( "SEPARATED" ) )
@@ -259,7 +622,7 @@ public class ExportCSV implements CommandListener
 				result.separator = t.getValue().charAt( 0 );
 			}
 
-			t = tokenizer.get( "DATE", "COALESCE", "LOG", "FILE" );
+			t = tokenizer.get( "DATE", "COALESCE", "PARTITION", "FETCH", "LOG", "FILE" );
 		}
 
 		if( t.eq( "DATE" ) )
@@ -269,7 +632,7 @@ public class ExportCSV implements CommandListener
 
 			result.dateAsTimestamp = true;
 
-			t = tokenizer.get( "COALESCE", "LOG", "FILE" );
+			t = tokenizer.get( "COALESCE", "PARTITION", "FETCH", "LOG", "FILE" );
 		}
 
 		while( t.eq( "COALESCE" ) )
@@ -297,7 +660,40 @@ public class ExportCSV implements CommandListener
 			result.coalesce.end();
 		}
 
-		tokenizer.expect( t, "LOG", "FILE" );
+		tokenizer.expect( t, "PARTITION", "FETCH", "LOG", "FILE" );
+
+		if( t.eq( "PARTITION" ) )
+		{
+			tokenizer.get( "BY" );
+			result.partitionColumn = tokenizer.get().getValue();
+			tokenizer.get( "INTO" );
+			t = tokenizer.get();
+			if( !t.isNumber() )
+				throw new SourceException( "Expecting a number, not [" + t + "]", tokenizer.getLocation() );
+			result.partitions = Integer.parseInt( t.getValue() );
+			if( result.partitions < 1 )
+				throw new SourceException( "PARTITION BY must be INTO at least 1 partition", tokenizer.getLocation() );
+
+			t = tokenizer.get( "FILES", "FETCH", "LOG", "FILE" );
+			if( t.eq( "FILES" ) )
+			{
+				result.partitionFiles = true;
+				t = tokenizer.get( "FETCH", "LOG", "FILE" );
+			}
+		}
+
+		if( t.eq( "FETCH" ) )
+		{
+			tokenizer.get( "SIZE" );
+			t = tokenizer.get();
+			if( !t.isNumber() )
+				throw new SourceException( "Expecting a number, not [" + t + "]", tokenizer.getLocation() );
+			result.fetchSize = Integer.parseInt( t.getValue() );
+			if( result.fetchSize < 1 )
+				throw new SourceException( "FETCH SIZE must be at least 1", tokenizer.getLocation() );
+
+			t = tokenizer.get( "LOG", "FILE" );
+		}
 
 		if( t.eq( "LOG" ) )
 		{
@@ -331,9 +727,60 @@ public class ExportCSV implements CommandListener
 
 		t = tokenizer.get();
 		if( t.eq( "GZIP" ) )
+		{
 			result.gzip = true;
-		else
-			tokenizer.push( t );
+			t = tokenizer.get();
+			if( t.eq( "PARALLEL" ) )
+			{
+				t = tokenizer.get();
+				if( !t.isNumber() )
+					throw new SourceException( "Expecting a number, not [" + t + "]", tokenizer.getLocation() );
+				result.gzipThreads = Integer.parseInt( t.getValue() );
+				if( result.gzipThreads < 1 )
+					throw new SourceException( "GZIP PARALLEL must be at least 1", tokenizer.getLocation() );
+				t = tokenizer.get();
+			}
+		}
+		if( t.eq( "ASYNC" ) )
+		{
+			result.async = true;
+			t = tokenizer.get();
+		}
+
+		while( t.eq( "MAX" ) )
+		{
+			t = tokenizer.get( "FILE", "RECORDS" );
+			if( t.eq( "FILE" ) )
+			{
+				tokenizer.get( "SIZE" );
+				t = tokenizer.get();
+				if( !t.isNumber() )
+					throw new SourceException( "Expecting a number, not [" + t + "]", tokenizer.getLocation() );
+				long size = Long.parseLong( t.getValue() );
+				t = tokenizer.get( "KB", "MB", "GB" );
+				if( t.eq( "KB" ) )
+					size <<= 10;
+				else if( t.eq( "MB" ) )
+					size <<= 20;
+				else
+					size <<= 30;
+				result.maxFileSize = size;
+			}
+			else
+			{
+				t = tokenizer.get();
+				if( !t.isNumber() )
+					throw new SourceException( "Expecting a number, not [" + t + "]", tokenizer.getLocation() );
+				result.maxRecords = Long.parseLong( t.getValue() );
+			}
+			if( result.maxFileSize <= 0 && result.maxRecords <= 0 )
+				throw new SourceException( "MAX FILE SIZE or MAX RECORDS must be at least 1", tokenizer.getLocation() );
+			t = tokenizer.get();
+		}
+		tokenizer.push( t );
+
+		if( result.partitionColumn != null && ( result.maxFileSize > 0 || result.maxRecords > 0 ) )
+			throw new SourceException( "PARTITION BY can't be combined with MAX FILE SIZE or MAX RECORDS", tokenizer.getLocation() );
 
 		String query = tokenizer.getRemaining();
 
@@ -345,6 +792,147 @@ public class ExportCSV implements CommandListener
 	}
 
 
+	/**
+	 * A thread that exports a key range through its own connection.
+	 *
+	 * @author Ren M. de Bloois
+	 */
+	static protected class Partition extends Thread
+	{
+		/** The number of the partition, starting at 1. */
+		protected int number;
+
+		/** The connection of this partition. */
+		protected Connection connection;
+
+		/** The number of records exported. */
+		protected long count;
+
+		private String query;
+		private Object lower;
+		private Object upper;
+		private CSVWriter csvWriter;
+		private boolean withHeader;
+		private Parsed parsed;
+		private CommandProcessor processor;
+		private Counter counter;
+		private Throwable failure;
+
+		/**
+		 * Constructor.
+		 *
+		 * @param number The number of the partition, starting at 1.
+		 * @param connection The connection of this partition.
+		 * @param query The query of the key range.
+		 * @param lower The lower boundary of the key range, null if none.
+		 * @param upper The upper boundary of the key range, null if none.
+		 * @param csvWriter The CSV writer to write the records to.
+		 * @param withHeader Write a header with the column names.
+		 * @param parsed The parsed command.
+		 * @param processor The command processor to log progress to.
+		 * @param counter The logging counter shared by the partitions, may be null.
+		 */
+		protected Partition( int number, Connection connection, String query, Object lower, Object upper, CSVWriter csvWriter, boolean withHeader, Parsed parsed, CommandProcessor processor, Counter counter )
+		{
+			super( "ExportCSV-" + number );
+			this.number = number;
+			this.connection = connection;
+			this.query = query;
+			this.lower = lower;
+			this.upper = upper;
+			this.csvWriter = csvWriter;
+			this.withHeader = withHeader;
+			this.parsed = parsed;
+			this.processor = processor;
+			this.counter = counter;
+		}
+
+		@Override
+		public void run()
+		{
+			try
+			{
+				PreparedStatement statement = this.connection.prepareStatement( this.query, ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY );
+				try
+				{
+					if( this.parsed.fetchSize > 0 )
+						statement.setFetchSize( this.parsed.fetchSize );
+					int pos = 1;
+					if( this.lower != null )
+						statement.setObject( pos++, this.lower );
+					if( this.upper != null )
+						statement.setObject( pos++, this.upper );
+					this.count = export( statement.executeQuery(), this.csvWriter, this.parsed, this.withHeader, this.processor, this.counter, null, null );
+				}
+				finally
+				{
+					statement.close();
+				}
+			}
+			catch( Throwable t )
+			{
+				this.failure = t;
+			}
+			finally
+			{
+				this.csvWriter.close();
+			}
+		}
+
+		/**
+		 * Rethrows the failure of this partition, if any.
+		 *
+		 * @throws SQLException When the partition failed with an SQLException.
+		 */
+		protected void checkFailure() throws SQLException
+		{
+			Throwable t = this.failure;
+			if( t == null )
+				return;
+			if( t instanceof SQLException )
+				throw (SQLException)t;
+			if( t instanceof RuntimeException )
+				throw (RuntimeException)t;
+			if( t instanceof Error )
+				throw (Error)t;
+			throw new SystemException( t );
+		}
+
+		/**
+		 * Stops this partition if it is still running, and closes the CSV writer and the connection.
+		 */
+		protected void close()
+		{
+			interrupt();
+			try
+			{
+				join();
+			}
+			catch( InterruptedException e )
+			{
+				Thread.currentThread().interrupt();
+			}
+			try
+			{
+				this.csvWriter.close();
+			}
+			catch( SystemException e )
+			{
+				// Ignore, we are cleaning up
+			}
+			try
+			{
+				this.connection.rollback();
+				this.connection.close();
+			}
+			catch( SQLException e )
+			{
+				// Ignore, we are cleaning up
+			}
+		}
+	}
+
+
 	//@Override
 	public void terminate()
 	{
@@ -372,6 +960,18 @@ public class ExportCSV implements CommandListener
 
 		protected boolean gzip;
 
+		/** The number of threads that compress the file, 0 for compressing in the query thread. */
+		protected int gzipThreads;
+
+		/** Compress and write the file in a separate thread. */
+		protected boolean async;
+
+		/** The maximum number of bytes in a file before rolling over to the next part file, 0 for no maximum. */
+		protected long maxFileSize;
+
+		/** The maximum number of records in a file before rolling over to the next part file, 0 for no maximum. */
+		protected long maxRecords;
+
 		/** The query */
 		protected String query;
 
@@ -382,5 +982,17 @@ public class ExportCSV implements CommandListener
 
 		protected int logRecords;
 		protected int logSeconds;
+
+		/** The number of rows to fetch at a time, 0 for the default of the database. */
+		protected int fetchSize;
+
+		/** The column of the query result to partition the export by, null if not partitioned. */
+		protected String partitionColumn;
+
+		/** The number of partitions. */
+		protected int partitions;
+
+		/** Write each partition to its own part file, instead of merging them into one file. */
+		protected boolean partitionFiles;
 	}
 }
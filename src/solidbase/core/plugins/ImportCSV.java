@@ -17,28 +17,49 @@
 package solidbase.core.plugins;
 
 import java.io.FileNotFoundException;
+import java.io.OutputStreamWriter;
+import java.io.UnsupportedEncodingException;
+import java.sql.Connection;
+import java.sql.ParameterMetaData;
 import java.sql.PreparedStatement;
 import java.sql.SQLException;
+import java.sql.Statement;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
+import solidbase.core.BulkLoader;
 import solidbase.core.Command;
 import solidbase.core.CommandListener;
 import solidbase.core.CommandProcessor;
+import solidbase.core.Database;
 import solidbase.core.FatalException;
+import solidbase.core.PluginManager;
 import solidbase.core.SQLExecutionException;
 import solidbase.core.SourceException;
 import solidbase.core.SystemException;
 import solidbase.util.Assert;
+import solidbase.util.BatchBisector;
+import solidbase.util.BatchSizer;
 import solidbase.util.CSVReader;
+import solidbase.util.CSVRecord;
+import solidbase.util.CSVRecordReader;
+import solidbase.util.CSVWriter;
 import solidbase.util.Counter;
 import solidbase.util.FixedCounter;
+import solidbase.util.ParameterBinder;
+import solidbase.util.RecordPipeline;
+import solidbase.util.RecordSource;
 import solidbase.util.SQLTokenizer;
 import solidbase.util.SQLTokenizer.Token;
+import solidbase.util.SourceBuffer;
 import solidbase.util.TimedCounter;
 import solidstack.io.Resource;
+import solidstack.io.SourceLocation;
 import solidstack.io.SourceReader;
 import solidstack.io.SourceReaders;
 import solidstack.lang.ThreadInterrupted;
@@ -81,18 +102,19 @@ public class ImportCSV implements CommandListener
 			return true;
 		}
 
-		SourceReader lineReader;
+		SourceBuffer input;
+		Resource resource = null;
 		boolean needClose = false;
 		if( parsed.reader != null )
-			lineReader = parsed.reader; // Data is in the command
+			input = new SourceBuffer( parsed.reader ); // Data is in the command
 		else if( parsed.fileName != null )
 		{
 			// Data is in a file
-			Resource resource = processor.getResource().resolve( parsed.fileName );
+			resource = processor.getResource().resolve( parsed.fileName );
 			resource.setGZip( parsed.gzip );
 			try
 			{
-				lineReader = SourceReaders.forResource( resource, parsed.encoding );
+				input = SourceBuffer.forResource( resource, parsed.encoding, parsed.gzip ); // Memory mapped if possible
 			}
 			catch( FileNotFoundException e )
 			{
@@ -102,30 +124,48 @@ public class ImportCSV implements CommandListener
 			// TODO What about the FileNotFoundException?
 		}
 		else
-			lineReader = processor.getReader(); // Data is in the source file
+			input = new SourceBuffer( processor.getReader() ); // Data is in the source file
 
 		try
 		{
 			// Initialize csv reader & read first line (and skip header if needed)
-			CSVReader reader = new CSVReader( lineReader, parsed.separator, parsed.ignoreWhiteSpace );
+			CSVReader reader = new CSVReader( input, parsed.separator, parsed.ignoreWhiteSpace );
+			CSVRecord record = new CSVRecord();
 			if( parsed.skipHeader )
-			{
-				String[] line = reader.getLine();
-				if( line == null )
+				if( !reader.read( record ) )
 					return true;
+
+			// Continue after the last committed record of a previous execution
+			Checkpoint checkpoint = null;
+			if( parsed.commitRecords > 0 )
+			{
+				checkpoint = Checkpoint.forImport( processor, command, resource, input, parsed.tableName != null ? parsed.tableName : "EXECUTE" );
+				if( checkpoint.exists() )
+				{
+					if( !checkpoint.seek() )
+						for( long i = checkpoint.getRecords(); i > 0; i-- )
+							if( !reader.read( record ) )
+								break;
+					processor.getProgressListener().println( "Continuing after " + checkpoint.getRecords() + " committed records." );
+				}
 			}
-			int lineNumber = reader.getLineNumber();
-			String[] line = reader.getLine();
-			if( line == null )
+
+			if( !reader.read( record ) )
+			{
+				if( checkpoint != null )
+					checkpoint.complete();
 				return true;
+			}
 
-			importNormal( command, processor, reader, parsed, line, lineNumber );
+			if( parsed.bulk && importBulk( processor, reader, parsed, record ) )
+				return true;
+			importNormal( command, processor, reader, parsed, record, checkpoint );
 			return true;
 		}
 		finally
 		{
 			if( needClose )
-				lineReader.close();
+				input.close();
 		}
 	}
 
@@ -141,17 +181,19 @@ public class ImportCSV implements CommandListener
 	 * @param processor The command processor.
 	 * @param reader The CSV reader.
 	 * @param parsed The parsed command.
-	 * @param line The first line of data read.
-	 * @param lineNumber The current line number.
+	 * @param record The first record of data read.
+	 * @param checkpoint The checkpoint that is updated every time the records are committed, null if not committing
+	 *        while importing.
 	 * @throws SQLException Whenever SQL execution throws it.
 	 */
 	// TODO Cope with a variable number of values in the CSV list
-	protected void importNormal( @SuppressWarnings( "unused" ) Command command, CommandProcessor processor, CSVReader reader, Parsed parsed, String[] line, int lineNumber ) throws SQLException
+	protected void importNormal( @SuppressWarnings( "unused" ) Command command, CommandProcessor processor, CSVReader reader, Parsed parsed, CSVRecord record, Checkpoint checkpoint ) throws SQLException
 	{
 		boolean prependLineNumber = parsed.prependLineNumber;
 
 		String sql;
 		List< Integer > parameterMap = new ArrayList< Integer >();
+		int valuesStart = -1; // Where the values of the generated INSERT start
 
 		if( parsed.sql != null )
 		{
@@ -175,7 +217,9 @@ public class ImportCSV implements CommandListener
 			}
 			if( parsed.values != null )
 			{
-				sql1.append( " VALUES (" );
+				sql1.append( " VALUES " );
+				valuesStart = sql1.length();
+				sql1.append( '(' );
 				for( int i = 0; i < parsed.values.length; i++ )
 				{
 					if( i > 0 )
@@ -188,13 +232,15 @@ public class ImportCSV implements CommandListener
 			}
 			else
 			{
-				int count = line.length;
+				int count = record.size();
 				if( parsed.columns != null )
 					count = parsed.columns.length;
 				if( prependLineNumber )
 					count++;
 				int par = 1;
-				sql1.append( " VALUES (?" );
+				sql1.append( " VALUES " );
+				valuesStart = sql1.length();
+				sql1.append( "(?" );
 				parameterMap.add( par++ );
 				while( par <= count )
 				{
@@ -206,101 +252,617 @@ public class ImportCSV implements CommandListener
 			sql = sql1.toString();
 		}
 
-		Counter counter = null;
-		if( parsed.logRecords > 0 )
-			counter = new FixedCounter( parsed.logRecords );
-		else if( parsed.logSeconds > 0 )
-			counter = new TimedCounter( parsed.logSeconds );
+		Counter counter = newCounter( parsed );
+
+		if( parsed.parallel > 1 )
+		{
+			importParallel( processor, reader, parsed, sql, parameterMap, record, counter );
+			return;
+		}
+
+		if( parsed.rowsPerStatement > 1 )
+		{
+			importMultiRow( processor, reader, parsed, sql, valuesStart, parameterMap, record, counter, checkpoint );
+			return;
+		}
+
+		SourceLocation location = reader.getLocation();
+
+		// When pipelined, the records are read and parsed by a separate thread while this thread executes the inserts
+		// When rejecting, the records of a batch are kept to be able to execute them again
+		RecordSource< CSVRecord > records = new Records( reader, record, parsed.pipelined || parsed.rejectFile != null );
+		RecordPipeline< CSVRecord > pipeline = null;
 
 		PreparedStatement statement = processor.prepareStatement( sql );
+		Rejects rejects = null;
 		boolean commit = false;
 		try
 		{
-			int batchSize = 0;
+			if( parsed.pipelined )
+				records = pipeline = new RecordPipeline< CSVRecord >( "ImportCSV-reader", records );
+
+			ParameterBinder binder = new ParameterBinder( getParameterTypes( statement, parsed, parameterMap ) );
+			if( parsed.rejectFile != null )
+				rejects = new Rejects( statement, parsed.maxErrors, newRejectWriter( processor, parsed ), binder, sql, parameterMap, prependLineNumber, location );
+			BatchSizer batch = newBatchSizer( parsed );
+			long total = checkpoint != null ? checkpoint.getRecords() : 0;
+			int uncommitted = 0;
 			while( true )
 			{
 				if( Thread.currentThread().isInterrupted() ) // TODO Is this the right spot during an upgrade?
 					throw new ThreadInterrupted();
 
-				preprocess( line );
+				record = records.read();
+				if( record == null )
+				{
+					executeBatch( batch, statement, rejects );
+					if( checkpoint != null )
+						checkpoint.complete();
 
-				int pos = 1;
-				int index = 0;
-				for( int par : parameterMap )
+					if( counter != null && counter.needFinal() )
+						processor.getProgressListener().println( "Imported " + counter.total() + " records." );
+					if( rejects != null && rejects.getErrors() > 0 )
+						processor.getProgressListener().println( "Rejected " + rejects.getErrors() + " records." );
+
+					commit = true;
+					return;
+				}
+
+				setParameters( statement, binder, sql, parameterMap, prependLineNumber, record, location );
+
+				if( parsed.noBatch )
+					executeUpdate( statement, sql, parameterMap, prependLineNumber, record, location );
+				else
 				{
-					try
+					statement.addBatch();
+					if( rejects != null )
+						rejects.add( record, record.getLineNumber() );
+					if( batch.add( record.getCharCount() ) )
+						executeBatch( batch, statement, rejects );
+				}
+
+				if( checkpoint != null && ++uncommitted >= parsed.commitRecords )
+				{
+					executeBatch( batch, statement, rejects );
+					total += uncommitted;
+					uncommitted = 0;
+					checkpoint.commit( total );
+				}
+
+				if( counter != null && counter.next() )
+					processor.getProgressListener().println( "Imported " + counter.total() + " records." );
+			}
+		}
+		finally
+		{
+			if( pipeline != null )
+				pipeline.close();
+			if( rejects != null )
+				rejects.close();
+			processor.closeStatement( statement, commit );
+		}
+	}
+
+
+	/**
+	 * Executes the JDBC batch. When rejecting, the failing records are isolated and written to the reject file.
+	 *
+	 * @param batch The batch sizer.
+	 * @param statement The statement.
+	 * @param rejects Isolates and rejects the failing records, may be null.
+	 * @throws SQLException Whenever SQL execution throws it.
+	 */
+	static protected void executeBatch( BatchSizer batch, PreparedStatement statement, BatchBisector< ? > rejects ) throws SQLException
+	{
+		if( rejects != null )
+			rejects.executeBatch( batch );
+		else
+			batch.executeBatch( statement );
+	}
+
+
+	/**
+	 * Creates the CSV writer for the reject file. The file gets the encoding and the separator of the imported data.
+	 *
+	 * @param processor The command processor.
+	 * @param parsed The parsed command.
+	 * @return The CSV writer.
+	 */
+	static protected CSVWriter newRejectWriter( CommandProcessor processor, Parsed parsed )
+	{
+		Resource resource = processor.getResource().resolve( parsed.rejectFile );
+		String encoding = parsed.encoding != null ? parsed.encoding : "UTF-8";
+		try
+		{
+			return new CSVWriter( new OutputStreamWriter( resource.getOutputStream(), encoding ), parsed.separator, false );
+		}
+		catch( UnsupportedEncodingException e )
+		{
+			throw new SystemException( e );
+		}
+	}
+
+
+	/**
+	 * Import data using multi-row INSERT statements, like this:
+	 *
+	 * <blockquote><pre>
+	 * INSERT INTO TABLE1 VALUES ( ?, ? ), ( ?, ? ), ( ?, ? );
+	 * </pre></blockquote>
+	 *
+	 * <p>The records are collected in groups of {@link Parsed#rowsPerStatement}. Each full group is bound to the same
+	 * multi-row statement and added to its JDBC batch, so the batch size counts statements instead of records. The
+	 * remaining records at the end and at every commit are inserted with a separate statement for that number of
+	 * records.</p>
+	 *
+	 * @param processor The command processor.
+	 * @param reader The CSV reader.
+	 * @param parsed The parsed command.
+	 * @param sql The single-row SQL to execute for each record.
+	 * @param valuesStart The index of the row of values in the SQL.
+	 * @param parameterMap A map of ? index to index of the CSV fields for a single row.
+	 * @param record The first record of data read.
+	 * @param counter The logging counter, may be null.
+	 * @param checkpoint The checkpoint that is updated every time the records are committed, null if not committing
+	 *        while importing.
+	 * @throws SQLException Whenever SQL execution throws it.
+	 */
+	protected void importMultiRow( CommandProcessor processor, CSVReader reader, Parsed parsed, String sql, int valuesStart, List< Integer > parameterMap, CSVRecord record, Counter counter, Checkpoint checkpoint ) throws SQLException
+	{
+		Assert.isTrue( valuesStart > 0 );
+		int rows = parsed.rowsPerStatement;
+		boolean prependLineNumber = parsed.prependLineNumber;
+		int parameters = parameterMap.size();
+		SourceLocation location = reader.getLocation();
+
+		// The records of a group are kept until the group is bound
+		RecordSource< CSVRecord > records = new Records( reader, record, true );
+		RecordPipeline< CSVRecord > pipeline = null;
+		CSVRecord[] group = new CSVRecord[ rows ];
+		int grouped = 0;
+
+		String multiSql = getMultiRowSQL( sql, valuesStart, rows );
+		PreparedStatement statement = processor.prepareStatement( multiSql );
+		PreparedStatement tail = null; // Cached, the tail mostly has the same number of records
+		String tailSql = null;
+		int tailRows = 0;
+		boolean commit = false;
+		try
+		{
+			if( parsed.pipelined )
+				records = pipeline = new RecordPipeline< CSVRecord >( "ImportCSV-reader", records );
+
+			int[] types = ParameterBinder.getParameterTypes( statement, parameters * rows );
+			if( types == null && parsed.values == null )
+			{
+				types = ParameterBinder.getColumnTypes( statement.getConnection(), parsed.tableName, parsed.columns );
+				types = types != null && types.length >= parameters ? repeat( types, parameters, rows ) : null;
+			}
+			ParameterBinder binder = new ParameterBinder( types );
+			BatchSizer batch = newBatchSizer( parsed );
+			long total = checkpoint != null ? checkpoint.getRecords() : 0;
+			int uncommitted = 0;
+			while( true )
+			{
+				if( Thread.currentThread().isInterrupted() )
+					throw new ThreadInterrupted();
+
+				record = records.read();
+				if( record != null )
+				{
+					group[ grouped++ ] = record;
+					if( grouped == rows )
 					{
-						if( prependLineNumber )
+						long bytes = 0;
+						for( int i = 0; i < rows; i++ )
 						{
-							if( par == 1 )
-								statement.setInt( pos++, lineNumber );
-							else
-								statement.setString( pos++, line[ index = par - 2 ] );
+							setParameters( statement, binder, sql, parameterMap, prependLineNumber, group[ i ], location, i * parameters );
+							bytes += group[ i ].getCharCount();
 						}
+						grouped = 0;
+						if( parsed.noBatch )
+							executeRows( statement, multiSql, group[ 0 ], location );
 						else
-							statement.setString( pos++, line[ index = par - 1 ] );
-					}
-					catch( ArrayIndexOutOfBoundsException e )
-					{
-						throw new SourceException( "Value with index " + ( index + 1 ) + " does not exist, record has only " + line.length + " values", reader.getLocation().lineNumber( lineNumber ) );
-					}
-					catch( SQLException e )
-					{
-						String message = buildMessage( sql, parameterMap, prependLineNumber, lineNumber, line );
-						throw new SQLExecutionException( message, reader.getLocation().lineNumber( lineNumber ), e );
+						{
+							statement.addBatch();
+							if( batch.add( bytes ) )
+								batch.executeBatch( statement );
+						}
 					}
+					uncommitted++;
+					if( counter != null && counter.next() )
+						processor.getProgressListener().println( "Imported " + counter.total() + " records." );
 				}
 
-				if( parsed.noBatch )
+				// Insert the tail of the group before committing
+				boolean end = record == null;
+				if( end || checkpoint != null && uncommitted >= parsed.commitRecords )
 				{
-					try
+					batch.executeBatch( statement );
+					if( grouped > 0 )
 					{
-						statement.executeUpdate();
+						if( tail == null || tailRows != grouped )
+						{
+							if( tail != null )
+								tail.close();
+							tailSql = getMultiRowSQL( sql, valuesStart, grouped );
+							tail = processor.prepareStatement( tailSql );
+							tailRows = grouped;
+						}
+						for( int i = 0; i < grouped; i++ )
+							setParameters( tail, binder, sql, parameterMap, prependLineNumber, group[ i ], location, i * parameters );
+						executeRows( tail, tailSql, group[ 0 ], location );
+						grouped = 0;
 					}
-					catch( SQLException e )
+					if( checkpoint != null )
 					{
-						String message = buildMessage( sql, parameterMap, prependLineNumber, lineNumber, line );
-						// When NOBATCH is on, you can see the actual insert statement and line number in the file where the SQLException occurred.
-						throw new SQLExecutionException( message, reader.getLocation().lineNumber( lineNumber ), e );
+						total += uncommitted;
+						uncommitted = 0;
+						if( end )
+							checkpoint.complete();
+						else
+							checkpoint.commit( total );
 					}
 				}
-				else
+
+				if( end )
 				{
-					statement.addBatch();
-					batchSize++;
-					if( batchSize >= 1000 )
-					{
-						statement.executeBatch();
-						batchSize = 0;
-					}
+					if( counter != null && counter.needFinal() )
+						processor.getProgressListener().println( "Imported " + counter.total() + " records." );
+
+					commit = true;
+					return;
+				}
+			}
+		}
+		finally
+		{
+			try
+			{
+				if( pipeline != null )
+					pipeline.close();
+			}
+			finally
+			{
+				try
+				{
+					if( tail != null )
+						processor.closeStatement( tail, commit );
+				}
+				finally
+				{
+					processor.closeStatement( statement, commit );
+				}
+			}
+		}
+	}
+
+
+	/**
+	 * Generates the SQL of a multi-row INSERT statement from the SQL of a single-row INSERT statement.
+	 *
+	 * @param sql The single-row SQL.
+	 * @param valuesStart The index of the row of values in the SQL.
+	 * @param rows The number of rows.
+	 * @return The multi-row SQL.
+	 */
+	static protected String getMultiRowSQL( String sql, int valuesStart, int rows )
+	{
+		String row = sql.substring( valuesStart );
+		StringBuilder result = new StringBuilder( valuesStart + ( row.length() + 1 ) * rows );
+		result.append( sql, 0, valuesStart );
+		for( int i = 0; i < rows; i++ )
+		{
+			if( i > 0 )
+				result.append( ',' );
+			result.append( row );
+		}
+		return result.toString();
+	}
+
+
+	/**
+	 * Repeats the types of the parameters of a single row for the given number of rows.
+	 *
+	 * @param types The types of the parameters of the first row.
+	 * @param parameters The number of parameters of a single row.
+	 * @param rows The number of rows.
+	 * @return The types of the parameters of all rows.
+	 */
+	static protected int[] repeat( int[] types, int parameters, int rows )
+	{
+		int[] result = new int[ parameters * rows ];
+		for( int i = 0; i < rows; i++ )
+			System.arraycopy( types, 0, result, i * parameters, parameters );
+		return result;
+	}
+
+
+	/**
+	 * Executes a multi-row statement. The error message refers to the first record of the rows.
+	 *
+	 * @param statement The statement.
+	 * @param sql The SQL of the statement, used in error messages.
+	 * @param first The first record bound to the statement.
+	 * @param location The location of the CSV data, used in error messages.
+	 */
+	static protected void executeRows( PreparedStatement statement, String sql, CSVRecord first, SourceLocation location )
+	{
+		try
+		{
+			statement.executeUpdate();
+		}
+		catch( SQLException e )
+		{
+			throw new SQLExecutionException( sql, location.lineNumber( first.getLineNumber() ), e );
+		}
+	}
+
+
+	/**
+	 * Import data with a {@link BulkLoader}. The first bulk loader that supports the database is used. The records are
+	 * handed to the bulk loader as CSV text, see {@link CSVRecordReader}.
+	 *
+	 * @param processor The command processor.
+	 * @param reader The CSV reader.
+	 * @param parsed The parsed command.
+	 * @param record The first record of data read.
+	 * @return False if there is no bulk loader that supports the database, true otherwise.
+	 * @throws SQLException Whenever SQL execution throws it.
+	 */
+	protected boolean importBulk( CommandProcessor processor, CSVReader reader, Parsed parsed, CSVRecord record ) throws SQLException
+	{
+		BulkLoader loader = null;
+		Connection connection = processor.getCurrentDatabase().getConnection();
+		for( BulkLoader candidate : PluginManager.getBulkLoaders() )
+			if( candidate.supports( connection ) )
+			{
+				loader = candidate;
+				break;
+			}
+		if( loader == null )
+			return false;
+
+		Counter counter = newCounter( parsed );
+		CSVRecordReader data = new CSVRecordReader( new BulkRecords( new Records( reader, record, false ), processor, counter ) );
+
+		// The statement is only used to commit or rollback the connection afterwards
+		Statement statement = processor.createStatement();
+		boolean commit = false;
+		try
+		{
+			loader.load( statement.getConnection(), parsed.tableName, parsed.columns, data );
+			commit = true;
+		}
+		finally
+		{
+			processor.closeStatement( statement, commit );
+		}
+
+		if( counter != null && counter.needFinal() )
+			processor.getProgressListener().println( "Imported " + counter.total() + " records." );
+		return true;
+	}
+
+
+	/**
+	 * Import data using multiple connections. The current thread reads the records and hands them in chunks to a number
+	 * of {@link Worker}s. Each worker inserts its chunks through its own connection. The connections are committed when
+	 * all workers have finished successfully, and rolled back when one of them fails. This means that the target table
+	 * must accept inserts from concurrent transactions, otherwise the workers will block each other.
+	 *
+	 * @param processor The command processor.
+	 * @param reader The CSV reader.
+	 * @param parsed The parsed command.
+	 * @param sql The SQL to execute for each record.
+	 * @param parameterMap A map of ? index to index of the CSV fields.
+	 * @param record The first record of data read.
+	 * @param counter The logging counter, may be null.
+	 * @throws SQLException Whenever SQL execution throws it.
+	 */
+	protected void importParallel( CommandProcessor processor, CSVReader reader, Parsed parsed, String sql, List< Integer > parameterMap, CSVRecord record, Counter counter ) throws SQLException
+	{
+		Database database = processor.getCurrentDatabase();
+		Workers workers = new Workers( parsed.parallel );
+		boolean commit = false;
+		try
+		{
+			SourceLocation location = reader.getLocation();
+			for( int i = 0; i < parsed.parallel; i++ )
+				workers.start( new Worker( workers, i + 1, database.newConnection(), sql, parameterMap, parsed, location ) );
+
+			Chunk chunk = new Chunk( Chunk.SIZE );
+			while( true )
+			{
+				if( Thread.currentThread().isInterrupted() )
+					throw new ThreadInterrupted();
+
+				chunk.add( record.copy() );
+				if( chunk.isFull() )
+				{
+					workers.dispatch( chunk );
+					chunk = new Chunk( Chunk.SIZE );
 				}
 
 				if( counter != null && counter.next() )
 					processor.getProgressListener().println( "Imported " + counter.total() + " records." );
 
-				lineNumber = reader.getLineNumber();
-				line = reader.getLine();
-				if( line == null )
-				{
-					if( batchSize > 0 )
-						statement.executeBatch();
+				if( !reader.read( record ) )
+					break;
+			}
 
-					if( counter != null && counter.needFinal() )
-						processor.getProgressListener().println( "Imported " + counter.total() + " records." );
+			if( chunk.size > 0 )
+				workers.dispatch( chunk );
+			workers.finish();
 
-					commit = true;
-					return;
+			if( counter != null && counter.needFinal() )
+				processor.getProgressListener().println( "Imported " + counter.total() + " records." );
+			for( Worker worker : workers.list )
+				processor.getProgressListener().println( "Worker " + worker.number + " imported " + worker.count + " records." );
+
+			commit = true;
+		}
+		finally
+		{
+			workers.close( commit );
+		}
+	}
+
+
+	/**
+	 * Creates the counter that decides when progress needs to be logged.
+	 *
+	 * @param parsed The parsed command.
+	 * @return The counter, null if no progress needs to be logged.
+	 */
+	static protected Counter newCounter( Parsed parsed )
+	{
+		if( parsed.logRecords > 0 )
+			return new FixedCounter( parsed.logRecords );
+		if( parsed.logSeconds > 0 )
+			return new TimedCounter( parsed.logSeconds );
+		return null;
+	}
+
+
+	/**
+	 * Creates the {@link BatchSizer} that decides when the JDBC batch needs to be executed.
+	 *
+	 * @param parsed The parsed command.
+	 * @return The batch sizer.
+	 */
+	static protected BatchSizer newBatchSizer( Parsed parsed )
+	{
+		if( parsed.batchAuto )
+			return new BatchSizer( parsed.batchMaxBytes );
+		return new BatchSizer( parsed.batchSize, parsed.batchMaxBytes );
+	}
+
+
+	/**
+	 * Determines the types of the parameters of the statement, so that the values can be bound with the matching
+	 * setters. {@link ParameterMetaData} is tried first. When that is not supported and the statement inserts directly
+	 * into the columns of a table, the types of the columns are used.
+	 *
+	 * @param statement The statement.
+	 * @param parsed The parsed command.
+	 * @param parameterMap A map of ? index to index of the CSV fields.
+	 * @return The JDBC types of the parameters, null if they could not be determined.
+	 * @throws SQLException Whenever JDBC throws it.
+	 */
+	static protected int[] getParameterTypes( PreparedStatement statement, Parsed parsed, List< Integer > parameterMap ) throws SQLException
+	{
+		int[] types = ParameterBinder.getParameterTypes( statement, parameterMap.size() );
+		if( types != null )
+			return types;
+		if( parsed.sql != null || parsed.values != null )
+			return null;
+		return ParameterBinder.getColumnTypes( statement.getConnection(), parsed.tableName, parsed.columns );
+	}
+
+
+	/**
+	 * Returns a value from the given CSV record. Empty values are returned as null.
+	 *
+	 * @param record The CSV record.
+	 * @param index The index of the value.
+	 * @return The value, or null if the value is empty.
+	 */
+	static protected String getValue( CSVRecord record, int index )
+	{
+		if( record.getLength( index ) == 0 )
+			return null;
+		return record.getString( index );
+	}
+
+
+	/**
+	 * Sets the parameters of the statement with the values from the given CSV record.
+	 *
+	 * @param statement The statement.
+	 * @param binder Binds the values with the setters that match the types of the parameters.
+	 * @param sql The SQL of the statement, used in error messages.
+	 * @param parameterMap A map of ? index to index of the CSV fields.
+	 * @param prependLineNumber Prepend the values with the line number.
+	 * @param record The CSV record.
+	 * @param location The location of the CSV data, used in error messages.
+	 */
+	static protected void setParameters( PreparedStatement statement, ParameterBinder binder, String sql, List< Integer > parameterMap, boolean prependLineNumber, CSVRecord record, SourceLocation location )
+	{
+		setParameters( statement, binder, sql, parameterMap, prependLineNumber, record, location, 0 );
+	}
+
+
+	/**
+	 * Sets the parameters of one row of a multi-row statement with the values from the given CSV record.
+	 *
+	 * @param statement The statement.
+	 * @param binder Binds the values with the setters that match the types of the parameters.
+	 * @param sql The SQL of the statement, used in error messages.
+	 * @param parameterMap A map of ? index to index of the CSV fields for a single row.
+	 * @param prependLineNumber Prepend the values with the line number.
+	 * @param record The CSV record.
+	 * @param location The location of the CSV data, used in error messages.
+	 * @param offset The number of parameters of the preceding rows.
+	 */
+	static protected void setParameters( PreparedStatement statement, ParameterBinder binder, String sql, List< Integer > parameterMap, boolean prependLineNumber, CSVRecord record, SourceLocation location, int offset )
+	{
+		int lineNumber = record.getLineNumber();
+		int pos = offset + 1;
+		int index = 0;
+		for( int par : parameterMap )
+		{
+			try
+			{
+				if( prependLineNumber )
+				{
+					if( par == 1 )
+						statement.setInt( pos++, lineNumber );
+					else
+						binder.bind( statement, pos++, record, index = par - 2 );
 				}
+				else
+					binder.bind( statement, pos++, record, index = par - 1 );
+			}
+			catch( ArrayIndexOutOfBoundsException e )
+			{
+				throw new SourceException( "Value with index " + ( index + 1 ) + " does not exist, record has only " + record.size() + " values", location.lineNumber( lineNumber ) );
+			}
+			catch( SQLException e )
+			{
+				String message = buildMessage( sql, parameterMap, prependLineNumber, record );
+				throw new SQLExecutionException( message, location.lineNumber( lineNumber ), e );
 			}
 		}
-		finally
+	}
+
+
+	/**
+	 * Executes the statement for a single CSV record. When NOBATCH is on, you can see the actual insert statement and
+	 * line number in the file where the SQLException occurred.
+	 *
+	 * @param statement The statement.
+	 * @param sql The SQL of the statement, used in error messages.
+	 * @param parameterMap A map of ? index to index of the CSV fields.
+	 * @param prependLineNumber Prepend the values with the line number.
+	 * @param record The CSV record.
+	 * @param location The location of the CSV data, used in error messages.
+	 */
+	static protected void executeUpdate( PreparedStatement statement, String sql, List< Integer > parameterMap, boolean prependLineNumber, CSVRecord record, SourceLocation location )
+	{
+		try
+		{
+			statement.executeUpdate();
+		}
+		catch( SQLException e )
 		{
-			processor.closeStatement( statement, commit );
+			String message = buildMessage( sql, parameterMap, prependLineNumber, record );
+			throw new SQLExecutionException( message, location.lineNumber( record.getLineNumber() ), e );
 		}
 	}
 
 
-	static private String buildMessage( String sql, List<Integer> parameterMap, boolean prependLineNumber, int lineNumber, String[] line )
+	static private String buildMessage( String sql, List<Integer> parameterMap, boolean prependLineNumber, CSVRecord record )
 	{
 		StringBuilder result = new StringBuilder( sql );
 		result.append( " VALUES (" );
@@ -316,12 +878,12 @@ public class ImportCSV implements CommandListener
 				if( prependLineNumber )
 				{
 					if( par == 1 )
-						result.append( lineNumber );
+						result.append( record.getLineNumber() );
 					else
-						result.append( line[ par - 2 ] );
+						result.append( getValue( record, par - 2 ) );
 				}
 				else
-					result.append( line[ par - 1 ] );
+					result.append( getValue( record, par - 1 ) );
 			}
 			catch( ArrayIndexOutOfBoundsException ee )
 			{
@@ -355,19 +917,6 @@ public class ImportCSV implements CommandListener
 	}
 
 
-	/**
-	 * Replaces empty strings with null.
-	 *
-	 * @param line The line to preprocess.
-	 */
-	static protected void preprocess( String[] line )
-	{
-		for( int i = 0; i < line.length; i++ )
-			if( line[ i ].length() == 0 )
-				line[ i ] = null;
-	}
-
-
 	/**
 	 * Parses the given command.
 	 *
@@ -383,8 +932,12 @@ public class ImportCSV implements CommandListener
 		[ SEPARATED BY TAB | SPACE | <character> ]
 		[ IGNORE WHITESPACE ]
 		[ PREPEND LINENUMBER ]
-		[ NOBATCH ]
+		[ NOBATCH | BATCH SIZE n | AUTO [ MAX n MB ] ]
+		[ ROWS PER STATEMENT n ]
+		[ PARALLEL n | PIPELINED | USING BULK ]
 		[ LOG EVERY n RECORDS | SECONDS ]
+		[ COMMIT EVERY n RECORDS ]
+		[ MAX ERRORS n REJECT FILE "<file>" ]
 		(
 			[ FILE "<file>" ENCODING "<encoding>" [ GZIP ] ]
 			EXECUTE ...
@@ -404,14 +957,14 @@ public class ImportCSV implements CommandListener
 		tokenizer.get( "IMPORT" );
 		tokenizer.get( "CSV" );
 
-		Token t = tokenizer.get( "SKIP", "SEPARATED", "IGNORE", "PREPEND", "NOBATCH", "LOG", "FILE", "EXECUTE", "INTO" );
+		Token t = tokenizer.get( "SKIP", "SEPARATED", "IGNORE", "PREPEND", "NOBATCH", "BATCH", "ROWS", "PARALLEL", "PIPELINED", "USING", "LOG", "COMMIT", "MAX", "FILE", "EXECUTE", "INTO" );
 
 		if( t.eq( "SKIP" ) )
 		{
 			tokenizer.get( "HEADER" );
 			result.skipHeader = true;
 
-			t = tokenizer.get( "SEPARATED", "IGNORE", "PREPEND", "NOBATCH", "LOG", "FILE", "EXECUTE", "INTO" );
+			t = tokenizer.get( "SEPARATED", "IGNORE", "PREPEND", "NOBATCH", "BATCH", "ROWS", "PARALLEL", "PIPELINED", "USING", "LOG", "COMMIT", "MAX", "FILE", "EXECUTE", "INTO" );
 		}
 
 		if( t.eq( "SEPARATED" ) )
@@ -429,7 +982,7 @@ public class ImportCSV implements CommandListener
 				result.separator = t.getValue().charAt( 0 );
 			}
 
-			t = tokenizer.get( "IGNORE", "PREPEND", "NOBATCH", "LOG", "FILE", "EXECUTE", "INTO" );
+			t = tokenizer.get( "IGNORE", "PREPEND", "NOBATCH", "BATCH", "ROWS", "PARALLEL", "PIPELINED", "USING", "LOG", "COMMIT", "MAX", "FILE", "EXECUTE", "INTO" );
 		}
 
 		if( t.eq( "IGNORE" ) )
@@ -437,7 +990,7 @@ public class ImportCSV implements CommandListener
 			tokenizer.get( "WHITESPACE" );
 			result.ignoreWhiteSpace = true;
 
-			t = tokenizer.get( "PREPEND", "NOBATCH", "LOG", "FILE", "EXECUTE", "INTO" );
+			t = tokenizer.get( "PREPEND", "NOBATCH", "BATCH", "ROWS", "PARALLEL", "PIPELINED", "USING", "LOG", "COMMIT", "MAX", "FILE", "EXECUTE", "INTO" );
 		}
 
 		if( t.eq( "PREPEND" ) )
@@ -445,14 +998,63 @@ public class ImportCSV implements CommandListener
 			tokenizer.get( "LINENUMBER" );
 			result.prependLineNumber = true;
 
-			t = tokenizer.get( "NOBATCH", "LOG", "FILE", "EXECUTE", "INTO" );
+			t = tokenizer.get( "NOBATCH", "BATCH", "ROWS", "PARALLEL", "PIPELINED", "USING", "LOG", "COMMIT", "MAX", "FILE", "EXECUTE", "INTO" );
 		}
 
 		if( t.eq( "NOBATCH" ) )
 		{
 			result.noBatch = true;
 
-			t = tokenizer.get( "LOG", "FILE", "EXECUTE", "INTO" );
+			t = tokenizer.get( "ROWS", "PARALLEL", "PIPELINED", "USING", "LOG", "COMMIT", "MAX", "FILE", "EXECUTE", "INTO" );
+		}
+		else if( t.eq( "BATCH" ) )
+		{
+			parseBatchSize( tokenizer, result );
+
+			t = tokenizer.get( "ROWS", "PARALLEL", "PIPELINED", "USING", "LOG", "COMMIT", "MAX", "FILE", "EXECUTE", "INTO" );
+		}
+
+		if( t.eq( "ROWS" ) )
+		{
+			tokenizer.get( "PER" );
+			tokenizer.get( "STATEMENT" );
+			t = tokenizer.get();
+			if( !t.isNumber() )
+				throw new SourceException( "Expecting a number, not [" + t + "]", tokenizer.getLocation() );
+			result.rowsPerStatement = Integer.parseInt( t.getValue() );
+			if( result.rowsPerStatement < 1 )
+				throw new SourceException( "ROWS PER STATEMENT must be at least 1", tokenizer.getLocation() );
+
+			t = tokenizer.get( "PARALLEL", "PIPELINED", "USING", "LOG", "COMMIT", "MAX", "FILE", "EXECUTE", "INTO" );
+		}
+
+		if( t.eq( "PARALLEL" ) )
+		{
+			if( result.rowsPerStatement > 1 )
+				throw new SourceException( "ROWS PER STATEMENT can't be combined with PARALLEL", tokenizer.getLocation() );
+			t = tokenizer.get();
+			if( !t.isNumber() )
+				throw new SourceException( "Expecting a number, not [" + t + "]", tokenizer.getLocation() );
+			result.parallel = Integer.parseInt( t.getValue() );
+			if( result.parallel < 1 )
+				throw new SourceException( "PARALLEL must be at least 1", tokenizer.getLocation() );
+
+			t = tokenizer.get( "LOG", "COMMIT", "MAX", "FILE", "EXECUTE", "INTO" );
+		}
+		else if( t.eq( "PIPELINED" ) )
+		{
+			result.pipelined = true;
+
+			t = tokenizer.get( "LOG", "COMMIT", "MAX", "FILE", "EXECUTE", "INTO" );
+		}
+		else if( t.eq( "USING" ) )
+		{
+			if( result.rowsPerStatement > 1 )
+				throw new SourceException( "ROWS PER STATEMENT can't be combined with USING BULK", tokenizer.getLocation() );
+			tokenizer.get( "BULK" );
+			result.bulk = true;
+
+			t = tokenizer.get( "LOG", "COMMIT", "MAX", "FILE", "EXECUTE", "INTO" );
 		}
 
 		if( t.eq( "LOG" ) )
@@ -469,6 +1071,45 @@ public class ImportCSV implements CommandListener
 			else
 				result.logSeconds = interval;
 
+			t = tokenizer.get( "COMMIT", "MAX", "FILE", "EXECUTE", "INTO" );
+		}
+
+		if( t.eq( "COMMIT" ) )
+		{
+			if( result.parallel > 1 || result.pipelined || result.bulk )
+				throw new SourceException( "COMMIT EVERY can't be combined with PARALLEL, PIPELINED or USING BULK", tokenizer.getLocation() );
+			tokenizer.get( "EVERY" );
+			t = tokenizer.get();
+			if( !t.isNumber() )
+				throw new SourceException( "Expecting a number, not [" + t + "]", tokenizer.getLocation() );
+			result.commitRecords = Integer.parseInt( t.getValue() );
+			if( result.commitRecords < 1 )
+				throw new SourceException( "COMMIT EVERY must be at least 1", tokenizer.getLocation() );
+			tokenizer.get( "RECORDS" );
+
+			t = tokenizer.get( "MAX", "FILE", "EXECUTE", "INTO" );
+		}
+
+		if( t.eq( "MAX" ) )
+		{
+			if( result.noBatch || result.rowsPerStatement > 1 || result.parallel > 1 || result.bulk )
+				throw new SourceException( "MAX ERRORS can't be combined with NOBATCH, ROWS PER STATEMENT, PARALLEL or USING BULK", tokenizer.getLocation() );
+			// A continued import would truncate the reject file and restart the error count
+			if( result.commitRecords > 0 )
+				throw new SourceException( "MAX ERRORS can't be combined with COMMIT EVERY", tokenizer.getLocation() );
+			tokenizer.get( "ERRORS" );
+			t = tokenizer.get();
+			if( !t.isNumber() )
+				throw new SourceException( "Expecting a number, not [" + t + "]", tokenizer.getLocation() );
+			result.maxErrors = Integer.parseInt( t.getValue() );
+			tokenizer.get( "REJECT" );
+			tokenizer.get( "FILE" );
+			t = tokenizer.get();
+			String file = t.getValue();
+			if( !file.startsWith( "\"" ) )
+				throw new SourceException( "Expecting filename enclosed in double quotes, not [" + t + "]", tokenizer.getLocation() );
+			result.rejectFile = file.substring( 1, file.length() - 1 );
+
 			t = tokenizer.get( "FILE", "EXECUTE", "INTO" );
 		}
 
@@ -481,6 +1122,10 @@ public class ImportCSV implements CommandListener
 
 		if( t.eq( "EXECUTE" ) )
 		{
+			if( result.bulk )
+				throw new SourceException( "USING BULK can't be combined with EXECUTE", tokenizer.getLocation() );
+			if( result.rowsPerStatement > 1 )
+				throw new SourceException( "ROWS PER STATEMENT can't be combined with EXECUTE", tokenizer.getLocation() );
 			result.sql = tokenizer.getRemaining();
 			return result;
 		}
@@ -543,6 +1188,9 @@ public class ImportCSV implements CommandListener
 		if( values.size() > 0 )
 			result.values = values.toArray( new String[ values.size() ] );
 
+		if( result.bulk && ( result.values != null || result.prependLineNumber ) )
+			throw new SourceException( "USING BULK can't be combined with VALUES or PREPEND LINENUMBER", tokenizer.getLocation() );
+
 		if( t.isEndOfInput() )
 			return result;
 
@@ -560,6 +1208,43 @@ public class ImportCSV implements CommandListener
 	}
 
 
+	static private void parseBatchSize( SQLTokenizer tokenizer, Parsed result )
+	{
+		tokenizer.get( "SIZE" );
+		Token t = tokenizer.get();
+		if( t.eq( "AUTO" ) )
+		{
+			result.batchAuto = true;
+			t = tokenizer.get();
+			if( !t.eq( "MAX" ) )
+			{
+				tokenizer.push( t );
+				return;
+			}
+			Token max = t;
+			t = tokenizer.get();
+			if( t.eq( "ERRORS" ) )
+			{
+				// MAX ERRORS is the next option
+				tokenizer.push( t );
+				tokenizer.push( max );
+				return;
+			}
+			if( !t.isNumber() )
+				throw new SourceException( "Expecting a number, not [" + t + "]", tokenizer.getLocation() );
+			result.batchMaxBytes = Long.parseLong( t.getValue() ) * 1024 * 1024;
+			tokenizer.get( "MB" );
+			return;
+		}
+
+		if( !t.isNumber() )
+			throw new SourceException( "Expecting a number or [AUTO], not [" + t + "]", tokenizer.getLocation() );
+		result.batchSize = Integer.parseInt( t.getValue() );
+		if( result.batchSize < 1 )
+			throw new SourceException( "BATCH SIZE must be at least 1", tokenizer.getLocation() );
+	}
+
+
 	static private void parseFile( SQLTokenizer tokenizer, Parsed result )
 	{
 		Token t = tokenizer.get();
@@ -657,9 +1342,39 @@ public class ImportCSV implements CommandListener
 		/** Don't use JDBC batch update. */
 		protected boolean noBatch;
 
+		/** The number of records in a JDBC batch. */
+		protected int batchSize = BatchSizer.DEFAULT_SIZE;
+
+		/** Tune the number of records in a JDBC batch while importing. */
+		protected boolean batchAuto;
+
+		/** The maximum number of bytes bound to a JDBC batch, 0 for the default. */
+		protected long batchMaxBytes;
+
+		/** The number of records inserted by a single multi-row INSERT statement. */
+		protected int rowsPerStatement = 1;
+
+		/** The number of connections to import with. */
+		protected int parallel = 1;
+
+		/** Read and parse the records in a separate thread. */
+		protected boolean pipelined;
+
+		/** Load the data with a {@link BulkLoader}, if there is one for the database. */
+		protected boolean bulk;
+
 		protected int logRecords;
 		protected int logSeconds;
 
+		/** Commit and update the checkpoint every this number of records, 0 for no intermediate commits. */
+		protected int commitRecords;
+
+		/** The maximum number of records that may fail. */
+		protected int maxErrors;
+
+		/** The file that the failing records are written to, null if failing records are not allowed. */
+		protected String rejectFile;
+
 		protected String sql;
 
 		/** The table name to insert into. */
@@ -684,6 +1399,499 @@ public class ImportCSV implements CommandListener
 	}
 
 
+	/**
+	 * The records of the CSV data, starting with the first record that has already been read. All records are read
+	 * into the same {@link CSVRecord}, unless they need to be kept.
+	 *
+	 * @author Ren M. de Bloois
+	 */
+	static protected class Records implements RecordSource< CSVRecord >
+	{
+		private CSVReader reader;
+		private CSVRecord record;
+		private boolean first = true;
+		private boolean copy;
+
+		/**
+		 * Constructor.
+		 *
+		 * @param reader The CSV reader.
+		 * @param record The first record, which has already been read. This record is reused for the next records.
+		 * @param copy Return a copy of each record, because the records are kept after the next one is read.
+		 */
+		protected Records( CSVReader reader, CSVRecord record, boolean copy )
+		{
+			this.reader = reader;
+			this.record = record;
+			this.copy = copy;
+		}
+
+		//@Override
+		public CSVRecord read()
+		{
+			if( this.first )
+				this.first = false;
+			else if( !this.reader.read( this.record ) )
+				return null;
+			return this.copy ? this.record.copy() : this.record;
+		}
+
+		//@Override
+		public int getLineNumber()
+		{
+			return this.record.getLineNumber();
+		}
+	}
+
+
+	/**
+	 * Isolates the failing records of a batch and writes them to the reject file. Each rejected record is written as a
+	 * CSV record with the line number and the error message in front of the original values.
+	 *
+	 * @author Ren M. de Bloois
+	 */
+	static protected class Rejects extends BatchBisector< CSVRecord >
+	{
+		private PreparedStatement statement;
+		private CSVWriter writer;
+		private ParameterBinder binder;
+		private String sql;
+		private List< Integer > parameterMap;
+		private boolean prependLineNumber;
+		private SourceLocation location;
+
+		/**
+		 * Constructor.
+		 *
+		 * @param statement The statement.
+		 * @param maxErrors The maximum number of records that may fail.
+		 * @param writer The writer for the reject file.
+		 * @param binder Binds the values with the setters that match the types of the parameters.
+		 * @param sql The SQL of the statement, used in error messages.
+		 * @param parameterMap A map of ? index to index of the CSV fields.
+		 * @param prependLineNumber Prepend the values with the line number.
+		 * @param location The location of the CSV data, used in error messages.
+		 */
+		protected Rejects( PreparedStatement statement, int maxErrors, CSVWriter writer, ParameterBinder binder, String sql, List< Integer > parameterMap, boolean prependLineNumber, SourceLocation location )
+		{
+			super( statement, maxErrors );
+			this.statement = statement;
+			this.writer = writer;
+			this.binder = binder;
+			this.sql = sql;
+			this.parameterMap = parameterMap;
+			this.prependLineNumber = prependLineNumber;
+			this.location = location;
+		}
+
+		@Override
+		protected void bind( CSVRecord record, int lineNumber )
+		{
+			setParameters( this.statement, this.binder, this.sql, this.parameterMap, this.prependLineNumber, record, this.location );
+		}
+
+		@Override
+		protected void rejected( CSVRecord record, int lineNumber, SQLException e )
+		{
+			CSVWriter writer = this.writer;
+			writer.writeValue( Integer.toString( lineNumber ) );
+			writer.writeValue( getMessage( e ) );
+			for( int i = 0; i < record.size(); i++ )
+				writer.writeValue( record.getString( i ) );
+			writer.nextRecord();
+		}
+
+		/**
+		 * Closes the reject file.
+		 */
+		protected void close()
+		{
+			this.writer.close();
+		}
+	}
+
+
+	/**
+	 * Hands the records to a {@link BulkLoader}, while logging the progress.
+	 *
+	 * @author Ren M. de Bloois
+	 */
+	static protected class BulkRecords implements RecordSource< CSVRecord >
+	{
+		private RecordSource< CSVRecord > records;
+		private CommandProcessor processor;
+		private Counter counter;
+
+		/**
+		 * Constructor.
+		 *
+		 * @param records The source of the records.
+		 * @param processor The command processor.
+		 * @param counter The logging counter, may be null.
+		 */
+		protected BulkRecords( RecordSource< CSVRecord > records, CommandProcessor processor, Counter counter )
+		{
+			this.records = records;
+			this.processor = processor;
+			this.counter = counter;
+		}
+
+		//@Override
+		public CSVRecord read()
+		{
+			if( Thread.currentThread().isInterrupted() )
+				throw new ThreadInterrupted();
+			CSVRecord record = this.records.read();
+			if( record != null && this.counter != null && this.counter.next() )
+				this.processor.getProgressListener().println( "Imported " + this.counter.total() + " records." );
+			return record;
+		}
+
+		//@Override
+		public int getLineNumber()
+		{
+			return this.records.getLineNumber();
+		}
+	}
+
+
+	/**
+	 * A chunk of CSV records that is handed to a {@link Worker}.
+	 *
+	 * @author Ren M. de Bloois
+	 */
+	static protected class Chunk
+	{
+		/** The number of records in a chunk. */
+		static protected final int SIZE = 1000;
+
+		/** Signals the workers that there are no more chunks. */
+		static protected final Chunk END = new Chunk( 0 );
+
+		/** The records. */
+		protected CSVRecord[] records;
+
+		/** The number of records in this chunk. */
+		protected int size;
+
+		/**
+		 * Constructor.
+		 *
+		 * @param capacity The maximum number of records in this chunk.
+		 */
+		protected Chunk( int capacity )
+		{
+			this.records = new CSVRecord[ capacity ];
+		}
+
+		/**
+		 * Adds a record to this chunk.
+		 *
+		 * @param record The record.
+		 */
+		protected void add( CSVRecord record )
+		{
+			this.records[ this.size++ ] = record;
+		}
+
+		/**
+		 * @return True if this chunk is full, false otherwise.
+		 */
+		protected boolean isFull()
+		{
+			return this.size >= this.records.length;
+		}
+	}
+
+
+	/**
+	 * The workers of a parallel import. Hands out the chunks, remembers the first failure and commits or rolls back the
+	 * connections of the workers.
+	 *
+	 * @author Ren M. de Bloois
+	 */
+	static protected class Workers
+	{
+		/** The queue of chunks waiting to be imported. */
+		protected BlockingQueue< Chunk > queue;
+
+		/** The workers. */
+		protected List< Worker > list = new ArrayList< Worker >();
+
+		/** The first failure of one of the workers. */
+		private volatile Throwable failure;
+
+		/**
+		 * Constructor.
+		 *
+		 * @param count The number of workers.
+		 */
+		protected Workers( int count )
+		{
+			this.queue = new ArrayBlockingQueue< Chunk >( count * 2 );
+		}
+
+		/**
+		 * Starts the given worker.
+		 *
+		 * @param worker The worker to start.
+		 */
+		protected void start( Worker worker )
+		{
+			this.list.add( worker );
+			worker.start();
+		}
+
+		/**
+		 * Hands a chunk to the workers. Blocks when all workers are busy.
+		 *
+		 * @param chunk The chunk.
+		 * @throws SQLException When a worker failed with an SQLException.
+		 */
+		protected void dispatch( Chunk chunk ) throws SQLException
+		{
+			try
+			{
+				do
+					checkFailure();
+				while( !this.queue.offer( chunk, 100, TimeUnit.MILLISECONDS ) );
+			}
+			catch( InterruptedException e )
+			{
+				throw new ThreadInterrupted();
+			}
+		}
+
+		/**
+		 * Signals the workers that there are no more chunks and waits for them to finish.
+		 *
+		 * @throws SQLException When a worker failed with an SQLException.
+		 */
+		protected void finish() throws SQLException
+		{
+			for( int i = 0; i < this.list.size(); i++ )
+				dispatch( Chunk.END );
+			try
+			{
+				for( Worker worker : this.list )
+					worker.join();
+			}
+			catch( InterruptedException e )
+			{
+				throw new ThreadInterrupted();
+			}
+			checkFailure();
+		}
+
+		/**
+		 * Remembers the failure of a worker. Only the first failure is kept.
+		 *
+		 * @param t The failure.
+		 */
+		protected synchronized void fail( Throwable t )
+		{
+			if( this.failure == null )
+				this.failure = t;
+		}
+
+		/**
+		 * @return True if one of the workers failed, false otherwise.
+		 */
+		protected boolean failed()
+		{
+			return this.failure != null;
+		}
+
+		/**
+		 * Rethrows the failure of a worker, if any.
+		 *
+		 * @throws SQLException When a worker failed with an SQLException.
+		 */
+		protected void checkFailure() throws SQLException
+		{
+			Throwable t = this.failure;
+			if( t == null )
+				return;
+			if( t instanceof SQLException )
+				throw (SQLException)t;
+			if( t instanceof RuntimeException )
+				throw (RuntimeException)t;
+			if( t instanceof Error )
+				throw (Error)t;
+			throw new SystemException( t );
+		}
+
+		/**
+		 * Commits or rolls back the connections of the workers and closes them. Workers that are still running are
+		 * interrupted first. When a commit fails, the connections that are not committed yet are rolled back.
+		 *
+		 * @param commit Commit when true, rollback when false.
+		 */
+		protected void close( boolean commit )
+		{
+			for( Worker worker : this.list )
+				worker.interrupt();
+			try
+			{
+				for( Worker worker : this.list )
+					worker.join();
+			}
+			catch( InterruptedException e )
+			{
+				Thread.currentThread().interrupt();
+			}
+
+			int done = 0; // The number of connections that are committed or rolled back
+			try
+			{
+				for( ; done < this.list.size(); done++ )
+				{
+					Worker worker = this.list.get( done );
+					if( commit )
+						worker.connection.commit();
+					else
+						worker.connection.rollback();
+				}
+			}
+			catch( SQLException e )
+			{
+				if( commit && done > 0 )
+					throw new SystemException( "Commit of worker " + ( done + 1 ) + " failed, workers 1 to " + done + " have already committed", e );
+				throw new SystemException( e );
+			}
+			finally
+			{
+				for( int i = 0; i < this.list.size(); i++ )
+				{
+					Worker worker = this.list.get( i );
+					try
+					{
+						if( i >= done )
+							worker.connection.rollback();
+					}
+					catch( SQLException e )
+					{
+						// Ignore, we are cleaning up
+					}
+					try
+					{
+						worker.connection.close();
+					}
+					catch( SQLException e )
+					{
+						// Ignore, we are cleaning up
+					}
+				}
+			}
+		}
+	}
+
+
+	/**
+	 * A worker thread of a parallel import. Takes chunks from the queue and inserts them through its own connection.
+	 * Each worker sizes its own JDBC batches, independent of the chunks. The connection is committed or rolled back by
+	 * {@link Workers#close(boolean)}.
+	 *
+	 * @author Ren M. de Bloois
+	 */
+	static protected class Worker extends Thread
+	{
+		/** The workers this worker belongs to. */
+		protected Workers workers;
+
+		/** The number of this worker, starting at 1. */
+		protected int number;
+
+		/** The connection of this worker. */
+		protected Connection connection;
+
+		/** The number of records imported by this worker. */
+		protected long count;
+
+		private String sql;
+		private List< Integer > parameterMap;
+		private Parsed parsed;
+		private SourceLocation location;
+
+		/**
+		 * Constructor.
+		 *
+		 * @param workers The workers this worker belongs to.
+		 * @param number The number of this worker, starting at 1.
+		 * @param connection The connection of this worker.
+		 * @param sql The SQL to execute for each record.
+		 * @param parameterMap A map of ? index to index of the CSV fields.
+		 * @param parsed The parsed command.
+		 * @param location The location of the CSV data, used in error messages.
+		 */
+		protected Worker( Workers workers, int number, Connection connection, String sql, List< Integer > parameterMap, Parsed parsed, SourceLocation location )
+		{
+			super( "ImportCSV-" + number );
+			this.workers = workers;
+			this.number = number;
+			this.connection = connection;
+			this.sql = sql;
+			this.parameterMap = parameterMap;
+			this.parsed = parsed;
+			this.location = location;
+		}
+
+		@Override
+		public void run()
+		{
+			boolean prependLineNumber = this.parsed.prependLineNumber;
+			try
+			{
+				PreparedStatement statement = this.connection.prepareStatement( this.sql );
+				try
+				{
+					ParameterBinder binder = new ParameterBinder( getParameterTypes( statement, this.parsed, this.parameterMap ) );
+					BatchSizer batch = newBatchSizer( this.parsed );
+					while( true )
+					{
+						Chunk chunk = this.workers.queue.take();
+						if( this.workers.failed() )
+							return;
+						if( chunk == Chunk.END )
+						{
+							batch.executeBatch( statement );
+							return;
+						}
+
+						for( int i = 0; i < chunk.size; i++ )
+						{
+							CSVRecord record = chunk.records[ i ];
+							setParameters( statement, binder, this.sql, this.parameterMap, prependLineNumber, record, this.location );
+							if( this.parsed.noBatch )
+								executeUpdate( statement, this.sql, this.parameterMap, prependLineNumber, record, this.location );
+							else
+							{
+								statement.addBatch();
+								if( batch.add( record.getCharCount() ) )
+									batch.executeBatch( statement );
+							}
+						}
+
+						this.count += chunk.size;
+					}
+				}
+				finally
+				{
+					statement.close();
+				}
+			}
+			catch( InterruptedException e )
+			{
+				// Stopped by the main thread
+			}
+			catch( Throwable t )
+			{
+				this.workers.fail( t );
+			}
+		}
+	}
+
+
 	//@Override
 	public void terminate()
 	{
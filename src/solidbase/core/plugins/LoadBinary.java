@@ -0,0 +1,341 @@
+/*--
+ * Copyright 2012 Ren M. de Bloois
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package solidbase.core.plugins;
+
+import java.io.FileNotFoundException;
+import java.io.InputStream;
+import java.math.BigDecimal;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Time;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.regex.Pattern;
+
+import solidbase.core.Command;
+import solidbase.core.CommandListener;
+import solidbase.core.CommandProcessor;
+import solidbase.core.FatalException;
+import solidbase.core.SourceException;
+import solidbase.util.Assert;
+import solidbase.util.BatchSizer;
+import solidbase.util.ColumnarReader;
+import solidbase.util.ColumnarWriter;
+import solidbase.util.Counter;
+import solidbase.util.FixedCounter;
+import solidbase.util.SQLTokenizer;
+import solidbase.util.SQLTokenizer.Token;
+import solidbase.util.TimedCounter;
+import solidstack.io.Resource;
+import solidstack.io.SourceReaders;
+import solidstack.lang.ThreadInterrupted;
+import solidstack.script.java.DefaultClassExtensions;
+
+
+/**
+ * This plugin executes LOAD BINARY statements. It loads files written by DUMP BINARY. The values are bound with the
+ * setter that belongs to their type, without the conversions that LOAD JSON needs.
+ *
+ * @author Ren M. de Bloois
+ */
+public class LoadBinary implements CommandListener
+{
+	static private final Pattern triggerPattern = Pattern.compile( "\\s*LOAD\\s+BINARY\\s+.*", Pattern.DOTALL | Pattern.CASE_INSENSITIVE );
+
+
+	//@Override
+	public boolean execute( CommandProcessor processor, Command command, boolean skip ) throws SQLException
+	{
+		if( command.isTransient() )
+			return false;
+
+		if( !triggerPattern.matcher( command.getCommand() ).matches() )
+			return false;
+
+		if( skip )
+			return true;
+
+		// Parse the command
+		Parsed parsed = parse( command );
+
+		// Open the file resource
+		Resource resource = processor.getResource().resolve( parsed.fileName );
+		InputStream in;
+		try
+		{
+			in = resource.newInputStream();
+		}
+		catch( FileNotFoundException e )
+		{
+			throw new FatalException( e.toString() );
+		}
+
+		ColumnarReader reader = new ColumnarReader( in );
+		try
+		{
+			int[] types = reader.getTypes();
+			int[] encodings = reader.getEncodings();
+
+			int count = types.length;
+			if( parsed.columns != null )
+			{
+				if( parsed.columns.length > count )
+					throw new FatalException( "The file contains " + count + " fields, but " + parsed.columns.length + " columns are specified" );
+				count = parsed.columns.length;
+			}
+
+			// Create the INSERT statement
+			StringBuilder sql = new StringBuilder( "INSERT INTO " );
+			sql.append( parsed.tableName );
+			if( parsed.columns != null )
+				DefaultClassExtensions.addString( parsed.columns, sql, " (", ",", ")" );
+			sql.append( " VALUES (?" );
+			for( int i = 1; i < count; i++ )
+				sql.append( ",?" );
+			sql.append( ')' );
+
+			// Create the log counter
+			Counter counter = null;
+			if( parsed.logRecords > 0 )
+				counter = new FixedCounter( parsed.logRecords );
+			else if( parsed.logSeconds > 0 )
+				counter = new TimedCounter( parsed.logSeconds );
+
+			PreparedStatement statement = processor.prepareStatement( sql.toString() );
+			boolean commit = false; // boolean to see if we reached the end
+			try
+			{
+				BatchSizer batch = new BatchSizer( parsed.batchSize, 0 );
+				while( reader.next() )
+				{
+					// Detect interruption
+					if( Thread.currentThread().isInterrupted() )
+						throw new ThreadInterrupted();
+
+					bind( statement, reader, types, encodings, count );
+					statement.addBatch();
+					if( batch.add( 0 ) )
+						batch.executeBatch( statement );
+
+					if( counter != null && counter.next() )
+						processor.getProgressListener().println( "Imported " + counter.total() + " records." );
+				}
+
+				// End of file, finalize things
+				batch.executeBatch( statement );
+				if( counter != null && counter.needFinal() )
+					processor.getProgressListener().println( "Imported " + counter.total() + " records." );
+
+				commit = true;
+				return true;
+			}
+			finally
+			{
+				processor.closeStatement( statement, commit );
+			}
+		}
+		finally
+		{
+			reader.close();
+		}
+	}
+
+
+	/**
+	 * Binds the values of the current record to the statement.
+	 *
+	 * @param statement The statement.
+	 * @param reader The reader positioned on the record.
+	 * @param types The JDBC types of the fields.
+	 * @param encodings The encodings of the fields.
+	 * @param count The number of fields to bind.
+	 * @throws SQLException Whenever JDBC throws it.
+	 */
+	static protected void bind( PreparedStatement statement, ColumnarReader reader, int[] types, int[] encodings, int count ) throws SQLException
+	{
+		for( int i = 0; i < count; i++ )
+		{
+			int index = i + 1;
+			if( reader.isNull( i ) )
+			{
+				statement.setNull( index, types[ i ] );
+				continue;
+			}
+
+			switch( encodings[ i ] )
+			{
+				case ColumnarWriter.INTEGER:
+					statement.setLong( index, reader.getLong( i ) );
+					break;
+				case ColumnarWriter.DECIMAL:
+					statement.setBigDecimal( index, (BigDecimal)reader.getObject( i ) );
+					break;
+				case ColumnarWriter.DOUBLE:
+					statement.setDouble( index, (Double)reader.getObject( i ) );
+					break;
+				case ColumnarWriter.BOOLEAN:
+					statement.setBoolean( index, (Boolean)reader.getObject( i ) );
+					break;
+				case ColumnarWriter.STRING:
+					statement.setString( index, (String)reader.getObject( i ) );
+					break;
+				case ColumnarWriter.DATE:
+					statement.setDate( index, (java.sql.Date)reader.getObject( i ) );
+					break;
+				case ColumnarWriter.TIME:
+					statement.setTime( index, (Time)reader.getObject( i ) );
+					break;
+				case ColumnarWriter.TIMESTAMP:
+					statement.setTimestamp( index, (Timestamp)reader.getObject( i ) );
+					break;
+				case ColumnarWriter.BYTES:
+					statement.setBytes( index, (byte[])reader.getObject( i ) );
+					break;
+				default:
+					Assert.fail( "Unexpected encoding " + encodings[ i ] );
+			}
+		}
+	}
+
+
+	/**
+	 * Parses the given command.
+	 *
+	 * @param command The command to be parsed.
+	 * @return A structure representing the parsed command.
+	 */
+	static protected Parsed parse( Command command )
+	{
+		/*
+		LOAD BINARY
+		[ BATCH SIZE n ]
+		[ LOG EVERY n RECORDS | SECONDS ]
+		INTO <schema>.<table> [ ( <columns> ) ]
+		FILE "<file>"
+		*/
+
+		Parsed result = new Parsed();
+		List< String > columns = new ArrayList< String >();
+
+		SQLTokenizer tokenizer = new SQLTokenizer( SourceReaders.forString( command.getCommand(), command.getLocation() ) );
+
+		tokenizer.get( "LOAD" );
+		tokenizer.get( "BINARY" );
+
+		Token t = tokenizer.get( "BATCH", "LOG", "INTO" );
+
+		if( t.eq( "BATCH" ) )
+		{
+			tokenizer.get( "SIZE" );
+			t = tokenizer.get();
+			if( !t.isNumber() )
+				throw new SourceException( "Expecting a number, not [" + t + "]", tokenizer.getLocation() );
+			result.batchSize = Integer.parseInt( t.getValue() );
+			if( result.batchSize < 1 )
+				throw new SourceException( "BATCH SIZE must be at least 1", tokenizer.getLocation() );
+
+			t = tokenizer.get( "LOG", "INTO" );
+		}
+
+		if( t.eq( "LOG" ) )
+		{
+			tokenizer.get( "EVERY" );
+			t = tokenizer.get();
+			if( !t.isNumber() )
+				throw new SourceException( "Expecting a number, not [" + t + "]", tokenizer.getLocation() );
+
+			int interval = Integer.parseInt( t.getValue() );
+			t = tokenizer.get( "RECORDS", "SECONDS" );
+			if( t.eq( "RECORDS" ) )
+				result.logRecords = interval;
+			else
+				result.logSeconds = interval;
+
+			tokenizer.get( "INTO" );
+		}
+
+		result.tableName = tokenizer.get().toString();
+
+		t = tokenizer.get( ".", "(", "FILE" );
+
+		if( t.eq( "." ) )
+		{
+			result.tableName = result.tableName + "." + tokenizer.get().toString();
+
+			t = tokenizer.get( "(", "FILE" );
+		}
+
+		if( t.eq( "(" ) )
+		{
+			do
+			{
+				t = tokenizer.get();
+				if( t.eq( ")" ) || t.eq( "," ) )
+					throw new SourceException( "Expecting a column name, not [" + t + "]", tokenizer.getLocation() );
+				columns.add( t.getValue() );
+				t = tokenizer.get( ",", ")" );
+			}
+			while( t.eq( "," ) );
+
+			result.columns = columns.toArray( new String[ columns.size() ] );
+
+			tokenizer.get( "FILE" );
+		}
+
+		// File
+		t = tokenizer.get();
+		if( !t.isString() )
+			throw new SourceException( "Expecting filename enclosed in double quotes, not [" + t + "]", tokenizer.getLocation() );
+		result.fileName = t.stripQuotes();
+
+		tokenizer.get( (String)null );
+
+		return result;
+	}
+
+
+	//@Override
+	public void terminate()
+	{
+		// Nothing to clean up
+	}
+
+
+	/**
+	 * A parsed command.
+	 *
+	 * @author Ren M. de Bloois
+	 */
+	static protected class Parsed
+	{
+		/** The number of records in a JDBC batch. */
+		protected int batchSize = BatchSizer.DEFAULT_SIZE;
+
+		protected int logRecords;
+		protected int logSeconds;
+
+		/** The table name to insert into. */
+		protected String tableName;
+
+		/** The columns to insert into. */
+		protected String[] columns;
+
+		/** The file path to load from. */
+		protected String fileName;
+	}
+}
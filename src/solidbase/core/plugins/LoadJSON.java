@@ -17,43 +17,59 @@
 package solidbase.core.plugins;
 
 import java.io.ByteArrayOutputStream;
+import java.io.File;
 import java.io.FileNotFoundException;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.InputStreamReader;
+import java.io.RandomAccessFile;
 import java.io.UnsupportedEncodingException;
 import java.math.BigDecimal;
+import java.sql.Connection;
 import java.sql.PreparedStatement;
 import java.sql.SQLException;
 import java.sql.Types;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.ListIterator;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
 import solidbase.core.Command;
 import solidbase.core.CommandListener;
 import solidbase.core.CommandProcessor;
+import solidbase.core.Database;
 import solidbase.core.FatalException;
+import solidbase.core.ProgressListener;
 import solidbase.core.SQLExecutionException;
 import solidbase.core.SourceException;
 import solidbase.core.SystemException;
 import solidbase.util.Assert;
+import solidbase.util.BatchBisector;
+import solidbase.util.BatchSizer;
 import solidbase.util.CloseQueue;
 import solidbase.util.Counter;
+import solidbase.util.FileSegments;
 import solidbase.util.FixedCounter;
 import solidbase.util.JDBCSupport;
 import solidbase.util.JSONArray;
 import solidbase.util.JSONObject;
 import solidbase.util.JSONReader;
+import solidbase.util.JSONRecordCursor;
+import solidbase.util.JSONWriter;
+import solidbase.util.RecordIndex;
+import solidbase.util.RecordPipeline;
+import solidbase.util.RecordSource;
 import solidbase.util.SQLTokenizer;
 import solidbase.util.SQLTokenizer.Token;
+import solidbase.util.SourceBuffer;
 import solidbase.util.TimedCounter;
 import solidstack.io.Resource;
 import solidstack.io.SegmentedInputStream;
 import solidstack.io.SegmentedReader;
-import solidstack.io.SourceReader;
+import solidstack.io.SourceLocation;
 import solidstack.io.SourceReaders;
 import solidstack.lang.ThreadInterrupted;
 import solidstack.script.java.DefaultClassExtensions;
@@ -85,11 +101,11 @@ public class LoadJSON implements CommandListener
 		// Open the file resource
 		Resource resource = processor.getResource().resolve( parsed.fileName );
 		resource.setGZip( parsed.gzip );
-		SourceReader sourceReader;
+		SourceBuffer input;
 		try
 		{
 			// TODO Use the same charset detection as JSON does. Maybe introduce the UTF charset if the default does not become UTF.
-			sourceReader = SourceReaders.forResource( resource, "UTF-8" );
+			input = SourceBuffer.forResource( resource, "UTF-8", parsed.gzip ); // Memory mapped if possible
 		}
 		catch( FileNotFoundException e )
 		{
@@ -97,7 +113,7 @@ public class LoadJSON implements CommandListener
 		}
 
 		// Create a JSON reader
-		JSONReader reader = new JSONReader( sourceReader );
+		JSONReader reader = new JSONReader( input );
 		try
 		{
 			// Read the header
@@ -113,8 +129,6 @@ public class LoadJSON implements CommandListener
 			// Initialise the working arrays
 			int[] types = new int[ fieldCount ];
 			String[] fileNames = new String[ fieldCount ];
-			SegmentedInputStream[] streams = new SegmentedInputStream[ fieldCount ];
-			SegmentedReader[] textStreams = new SegmentedReader[ fieldCount ];
 
 			for( int i = 0; i < fieldCount; i++ )
 			{
@@ -164,6 +178,50 @@ public class LoadJSON implements CommandListener
 			else if( parsed.logSeconds > 0 )
 				counter = new TimedCounter( parsed.logSeconds );
 
+			// Load the rest of the file with several workers
+			if( parsed.parallel > 0 )
+			{
+				if( !input.isSeekable() )
+					throw new FatalException( "PARALLEL needs a local file" );
+				loadParallel( processor, resource, input.getBytePosition(), input.getLineNumber(), sql, parameterMap, types, fileNames, binaryFile, parsed, counter );
+				return true;
+			}
+
+			// Start at the given record
+			long next = 1; // The number of the next record
+			if( parsed.fromRecord > 1 )
+			{
+				skip( resource, input, reader, parsed.fromRecord - 1 );
+				next = parsed.fromRecord;
+			}
+
+			// Continue after the last committed record of a previous execution
+			Checkpoint checkpoint = null;
+			if( parsed.commitRecords > 0 )
+			{
+				checkpoint = Checkpoint.forImport( processor, command, resource, input, parsed.tableName );
+				if( checkpoint.exists() )
+				{
+					if( !checkpoint.seek() )
+						for( long i = checkpoint.getRecords(); i > 0; i-- )
+							if( reader.read() == null )
+								break;
+					processor.getProgressListener().println( "Continuing after " + checkpoint.getRecords() + " committed records." );
+				}
+			}
+
+			// The records, when pipelined they are read and parsed by a separate thread while this thread executes the inserts.
+			// Otherwise the values are decoded and bound straight from the input by a cursor, unless the records need to
+			// be kept for the reject file.
+			SourceLocation location = reader.getLocation();
+			RecordSource< JSONArray > records = null;
+			JSONRecordCursor cursor = null;
+			if( parsed.pipelined || parsed.rejectFile != null )
+				records = new Records( reader, types );
+			else
+				cursor = new JSONRecordCursor( input, types );
+			RecordPipeline< JSONArray > pipeline = null;
+
 			// Prepare the INSERT statement
 			PreparedStatement statement = processor.prepareStatement( sql.toString() );
 
@@ -171,10 +229,19 @@ public class LoadJSON implements CommandListener
 			CloseQueue outerCloser = new CloseQueue();
 			CloseQueue closer = new CloseQueue();
 
+			Binder binder = new Binder( statement, parameterMap, prependLineNumber, types, fileNames, binaryFile, resource, location, outerCloser, closer );
+			Rejects rejects = null;
 			boolean commit = false; // boolean to see if we reached the end
 			try
 			{
-				int batchSize = 0;
+				if( parsed.pipelined )
+					records = pipeline = new RecordPipeline< JSONArray >( "LoadJSON-reader", records );
+				if( parsed.rejectFile != null )
+					rejects = new Rejects( statement, parsed.maxErrors, new JSONWriter( processor.getResource().resolve( parsed.rejectFile ) ), binder );
+
+				BatchSizer batch = parsed.batchAuto ? new BatchSizer( parsed.batchMaxBytes ) : new BatchSizer( parsed.batchSize, parsed.batchMaxBytes );
+				long total = checkpoint != null ? checkpoint.getRecords() : 0;
+				int uncommitted = 0;
 				while( true )
 				{
 					// Detect interruption
@@ -182,187 +249,34 @@ public class LoadJSON implements CommandListener
 						throw new ThreadInterrupted();
 
 					// Read a record
-					JSONArray values = (JSONArray)reader.read();
-					if( values == null )
+					JSONArray values = null;
+					boolean end = parsed.toRecord > 0 && next > parsed.toRecord;
+					if( !end )
+						if( cursor != null )
+							end = !cursor.next();
+						else
+							end = ( values = records.read() ) == null;
+					next++;
+					if( end )
 					{
 						// End of file, finalize things
-						Assert.isTrue( reader.isEOF() );
-						if( batchSize > 0 )
-							statement.executeBatch();
+						executeBatch( batch, statement, rejects );
+						if( checkpoint != null )
+							checkpoint.complete();
 
 						if( counter != null && counter.needFinal() )
 							processor.getProgressListener().println( "Imported " + counter.total() + " records." );
+						if( rejects != null && rejects.getErrors() > 0 )
+							processor.getProgressListener().println( "Rejected " + rejects.getErrors() + " records." );
 
 						commit = true;
 						return true;
 					}
 
-					int lineNumber = reader.getLineNumber();
-
-					// Convert the strings to date, time and timestamps
-					int i = 0;
-					for( ListIterator< Object > it = values.iterator(); it.hasNext(); )
-					{
-						Object value = it.next();
-						if( value != null )
-						{
-							if( types[ i ] == Types.DATE )
-								it.set( java.sql.Date.valueOf( (String)value ) );
-							else if( types[ i ] == Types.TIMESTAMP )
-								it.set( java.sql.Timestamp.valueOf( (String)value ) );
-							else if( types[ i ] == Types.TIME )
-								it.set( java.sql.Time.valueOf( (String)value ) );
-						}
-						i++;
-					}
+					int lineNumber = cursor != null ? cursor.getLineNumber() : records.getLineNumber();
 
 					// Set the statement parameters
-					int pos = 1;
-					for( int par : parameterMap )
-					{
-						if( par == 1 && prependLineNumber )
-							statement.setInt( pos++, lineNumber );
-						else
-						{
-							int index = par - ( prependLineNumber ? 2 : 1 );
-							int type = types[ index ];
-							Object value;
-							try
-							{
-								value = values.get( index );
-							}
-							catch( ArrayIndexOutOfBoundsException e )
-							{
-								throw new SourceException( "Value with index " + ( index + 1 ) + " does not exist, record has only " + values.size() + " values", reader.getLocation() );
-							}
-							if( value instanceof JSONObject )
-							{
-								// Value of parameter is in a separate file
-								JSONObject object = (JSONObject)value;
-								String filename = object.findString( "file" );
-								if( filename != null )
-								{
-									// One file per record
-									if( type == Types.BLOB || type == Types.VARBINARY )
-									{
-										try
-										{
-											// TODO Fix the input stream size given the size in the JSON file
-											Resource r = resource.resolve( filename );
-											BigDecimal filesize = object.findNumber( "size" );
-											if( filesize == null || filesize.intValue() > 10240 ) // TODO Whats a good size here? Should it be a long?
-											{
-												// Some databases read the stream directly (Oracle), others read it later (HSQLDB).
-												// TODO Do we need to decrease the batch size when files are being kept open?
-												// TODO We could detect that the database has read the stream already, and close the file
-												InputStream in = r.newInputStream();
-												statement.setBinaryStream( pos++, in );
-												closer.add( in );
-											}
-											else
-												statement.setBytes( pos++, readBytes( r ) ); // TODO Do a speed test
-										}
-										catch( FileNotFoundException e )
-										{
-											throw new SourceException( e.getMessage(), reader.getLocation() );
-										}
-									}
-									else
-										Assert.fail( "Unexpected field type for external file: " + JDBCSupport.toTypeName( type ) );
-								}
-								else
-								{
-									// One file for all records
-									BigDecimal lobIndex = object.getNumber( "index" ); // TODO Use findNumber
-									if( lobIndex == null )
-										throw new SourceException( "Expected a 'file' or 'index' attribute", reader.getLocation() );
-									BigDecimal lobLength = object.getNumber( "length" );
-									if( lobLength == null )
-										throw new SourceException( "Expected a 'length' attribute", reader.getLocation() );
-
-									if( type == Types.BLOB || type == Types.VARBINARY )
-									{
-										// Get the input stream
-										SegmentedInputStream in = streams[ index ];
-										if( in == null )
-										{
-											// File not opened yet, open it
-											String fileName = fileNames[ index ];
-											if( fileName == null )
-												fileName = binaryFile;
-											if( fileName == null )
-												throw new SourceException( "No file or default binary file configured", reader.getLocation() );
-											Resource r = resource.resolve( fileName );
-											try
-											{
-												in = new SegmentedInputStream( r.newInputStream() );
-												outerCloser.add( in ); // Close at the final end
-												streams[ index ] = in;
-											}
-											catch( FileNotFoundException e )
-											{
-												throw new SourceException( e.getMessage(), reader.getLocation() );
-											}
-										}
-										statement.setBinaryStream( pos++, in.getSegmentInputStream( lobIndex.longValue(), lobLength.longValue() ) ); // TODO Maybe use the limited setBinaryStream instead
-									}
-									else if( type == Types.CLOB )
-									{
-										// Get the reader
-										SegmentedReader in = textStreams[ index ];
-										if( in == null )
-										{
-											// File not opened yet, open it
-											if( fileNames[ index ] == null )
-												throw new SourceException( "No file configured", reader.getLocation() );
-											Resource r = resource.resolve( fileNames[ index ] );
-											try
-											{
-												try
-												{
-													in = new SegmentedReader( new InputStreamReader( r.newInputStream(), "UTF-8" ) );
-												}
-												catch( UnsupportedEncodingException e )
-												{
-													throw new SystemException( e );
-												}
-												outerCloser.add( in ); // Close at the final end
-												textStreams[ index ] = in;
-											}
-											catch( FileNotFoundException e )
-											{
-												throw new SourceException( e.getMessage(), reader.getLocation() );
-											}
-										}
-										statement.setCharacterStream( pos++, in.getSegmentReader( lobIndex.longValue(), lobLength.longValue() ) );
-									}
-									else
-										Assert.fail( "Unexpected field type for external file: " + JDBCSupport.toTypeName( type ) );
-								}
-							}
-							else
-							{
-//								if( type == Types.CLOB )
-//								{
-//									if( values.get( index ) == null )
-//										System.out.println( "NULL!" );
-//									else if( ( (String)values.get( index ) ).length() == 0 )
-//										System.out.println( "EMPTY!" );
-//
-//									// TODO What if it is a CLOB and the string value is too long?
-//									// Oracle needs this because CLOBs can contain empty strings "", and setObject() makes that null BUT THIS DOES NOT WORK!
-//									statement.setCharacterStream( pos++, new StringReader( (String)values.get( index ) ) );
-//								}
-//								else
-									// MonetDB complains when calling setObject with null value
-//									Object v = values.get( index );
-//								if( v != null )
-									statement.setObject( pos++, values.get( index ) );
-//								else
-//									statement.setNull( pos++, type );
-							}
-						}
-					}
+					long bytes = cursor != null ? binder.bind( cursor, lineNumber ) : binder.bind( values, lineNumber ); // The approximate number of bytes bound to the statement
 
 					if( parsed.noBatch )
 					{
@@ -374,29 +288,42 @@ public class LoadJSON implements CommandListener
 						catch( SQLException e )
 						{
 							// When NOBATCH is on, you can see the actual insert statement and line number in the file where the SQLException occurred.
-							String message = buildErrorMessage( sql, parameterMap, values, prependLineNumber, lineNumber );
-							throw new SQLExecutionException( message, reader.getLocation().lineNumber( lineNumber ), e );
+							String message = buildErrorMessage( sql, parameterMap, cursor != null ? cursor.toArray() : values, prependLineNumber, lineNumber );
+							throw new SQLExecutionException( message, location.lineNumber( lineNumber ), e );
 						}
 					}
 					else
 					{
 						statement.addBatch();
-						batchSize++;
+						if( rejects != null )
+							rejects.add( values, lineNumber );
 						// TODO Also check the closer's count
-						if( batchSize >= 1000 )
+						if( batch.add( bytes ) )
 						{
-							statement.executeBatch();
-							batchSize = 0;
+							executeBatch( batch, statement, rejects );
 							closer.closeAll();
 						}
 					}
 
+					if( checkpoint != null && ++uncommitted >= parsed.commitRecords )
+					{
+						executeBatch( batch, statement, rejects );
+						closer.closeAll();
+						total += uncommitted;
+						uncommitted = 0;
+						checkpoint.commit( total );
+					}
+
 					if( counter != null && counter.next() )
 						processor.getProgressListener().println( "Imported " + counter.total() + " records." );
 				}
 			}
 			finally
 			{
+				if( pipeline != null )
+					pipeline.close();
+				if( rejects != null )
+					rejects.close();
 				processor.closeStatement( statement, commit );
 				outerCloser.closeAll();
 				closer.closeAll();
@@ -409,6 +336,218 @@ public class LoadJSON implements CommandListener
 	}
 
 
+	/**
+	 * Loads the records with PARALLEL n. The file is split at line boundaries into parts of about the same size, with
+	 * the index of the file when it has one, and n workers each take the next part until all parts are loaded, each with its own reader and through its own
+	 * connection. The connections are committed only when all workers succeeded, otherwise they are all rolled back.
+	 *
+	 * @param processor The command processor.
+	 * @param resource The file.
+	 * @param position The byte position of the first record.
+	 * @param lineNumber The line number at the given position.
+	 * @param sql The INSERT statement.
+	 * @param parameterMap A map of ? index to index of the JSON fields.
+	 * @param types The JDBC types of the fields.
+	 * @param fileNames The files of the fields, null if a field is not stored in a separate file.
+	 * @param binaryFile The default binary file.
+	 * @param parsed The parsed command.
+	 * @param counter The log counter, null if no progress needs to be logged.
+	 * @throws SQLException Whenever JDBC throws it.
+	 */
+	static protected void loadParallel( CommandProcessor processor, Resource resource, long position, int lineNumber, StringBuilder sql, List< Integer > parameterMap, int[] types, String[] fileNames, String binaryFile, Parsed parsed, Counter counter ) throws SQLException
+	{
+		Database database = processor.getCurrentDatabase();
+		RecordIndex index = RecordIndex.forResource( resource );
+		List< Segment > segments;
+		if( index != null )
+			segments = split( index, parsed.parallel * 4 );
+		else
+			segments = split( resource.getFile(), position, lineNumber, parsed.parallel * 4 );
+		Progress progress = new Progress( processor.getProgressListener(), counter );
+
+		Queue< Segment > queue = new ConcurrentLinkedQueue< Segment >( segments );
+		Worker[] workers = new Worker[ Math.min( parsed.parallel, segments.size() ) ];
+		try
+		{
+			for( int i = 0; i < workers.length; i++ )
+				workers[ i ] = new Worker( i + 1, database, queue, resource, sql, parameterMap, types, fileNames, binaryFile, parsed, progress );
+			for( Worker worker : workers )
+				worker.start();
+			try
+			{
+				for( Worker worker : workers )
+					worker.join();
+			}
+			catch( InterruptedException e )
+			{
+				throw new ThreadInterrupted();
+			}
+			for( Worker worker : workers )
+				worker.checkFailure();
+			int committed = 0;
+			try
+			{
+				for( ; committed < workers.length; committed++ )
+					workers[ committed ].connection.commit();
+			}
+			catch( SQLException e )
+			{
+				if( committed == 0 )
+					throw e;
+				throw new SystemException( "Commit of worker " + ( committed + 1 ) + " failed, workers 1 to " + committed + " have already committed", e );
+			}
+			progress.end();
+		}
+		finally
+		{
+			// Rolls back the workers that have not committed
+			for( Worker worker : workers )
+				if( worker != null )
+					worker.close();
+		}
+	}
+
+
+	/**
+	 * Splits the records of a file into segments with the index of the file. Each segment starts at an entry of the
+	 * index, the file is not read.
+	 *
+	 * @param index The index of the file.
+	 * @param count The number of segments to aim for.
+	 * @return The segments, an empty list if there are no records.
+	 */
+	static protected List< Segment > split( RecordIndex index, int count )
+	{
+		List< Segment > result = new ArrayList< Segment >();
+		int entries = index.size();
+		int step = Math.max( ( entries + count - 1 ) / count, 1 );
+		for( int entry = 0; entry < entries; entry += step )
+		{
+			int next = entry + step;
+			Segment segment = new Segment( index.getPosition( entry ), index.getLineNumber( entry ) );
+			segment.records = ( next < entries ? index.getRecord( next ) : index.getRecords() ) - index.getRecord( entry );
+			if( segment.records > 0 )
+				result.add( segment );
+		}
+		return result;
+	}
+
+
+	/**
+	 * Splits the records of a file into segments of about the same size by scanning the file, when it has no index.
+	 * Each record must be on its own line, as DUMP JSON writes them. The file is scanned for line ends only, the records are not parsed. Lines that contain only
+	 * whitespace are not counted as records.
+	 *
+	 * @param file The file.
+	 * @param position The byte position of the first record.
+	 * @param lineNumber The line number at the given position.
+	 * @param count The number of segments to aim for.
+	 * @return The segments, an empty list if there are no records.
+	 */
+	static protected List< Segment > split( File file, long position, int lineNumber, int count )
+	{
+		List< Segment > result = new ArrayList< Segment >();
+		long target = Math.max( ( file.length() - position ) / count, 1 );
+		try
+		{
+			RandomAccessFile in = new RandomAccessFile( file, "r" );
+			try
+			{
+				in.seek( position );
+				byte[] buffer = new byte[ 1024 * 1024 ];
+				Segment segment = new Segment( position, lineNumber );
+				boolean record = false; // The current line contains a record
+				long pos = position; // The byte position of the buffer
+				int read;
+				while( ( read = in.read( buffer ) ) > 0 )
+				{
+					for( int i = 0; i < read; i++ )
+					{
+						byte b = buffer[ i ];
+						if( b == '\n' )
+						{
+							lineNumber++;
+							if( record )
+							{
+								segment.records++;
+								record = false;
+							}
+							long next = pos + i + 1;
+							if( next - segment.position >= target && segment.records > 0 )
+							{
+								result.add( segment );
+								segment = new Segment( next, lineNumber );
+							}
+						}
+						else if( b != ' ' && b != '\t' && b != '\r' )
+							record = true;
+					}
+					pos += read;
+				}
+				if( record )
+					segment.records++;
+				if( segment.records > 0 )
+					result.add( segment );
+			}
+			finally
+			{
+				in.close();
+			}
+		}
+		catch( IOException e )
+		{
+			throw new SystemException( e );
+		}
+		return result;
+	}
+
+
+	/**
+	 * Skips records. When the file has an index, written by DUMP JSON with INDEX EVERY n RECORDS, and the file is
+	 * seekable, the input seeks to the last indexed record before the records to skip end. Only the records after that
+	 * are read and skipped.
+	 *
+	 * @param resource The file.
+	 * @param input The input, positioned on the first record.
+	 * @param reader The JSON reader that reads the input.
+	 * @param records The number of records to skip.
+	 */
+	static protected void skip( Resource resource, SourceBuffer input, JSONReader reader, long records )
+	{
+		if( input.isSeekable() )
+		{
+			RecordIndex index = RecordIndex.forResource( resource );
+			if( index != null && index.size() > 0 )
+			{
+				int entry = index.find( records );
+				input.seek( index.getPosition( entry ), index.getLineNumber( entry ) );
+				records -= index.getRecord( entry );
+			}
+		}
+
+		for( ; records > 0; records-- )
+			if( reader.read() == null )
+				break;
+	}
+
+
+	/**
+	 * Executes the JDBC batch. When rejecting, the failing records are isolated and written to the reject file.
+	 *
+	 * @param batch The batch sizer.
+	 * @param statement The statement.
+	 * @param rejects Isolates and rejects the failing records, may be null.
+	 * @throws SQLException Whenever SQL execution throws it.
+	 */
+	static protected void executeBatch( BatchSizer batch, PreparedStatement statement, Rejects rejects ) throws SQLException
+	{
+		if( rejects != null )
+			rejects.executeBatch( batch );
+		else
+			batch.executeBatch( statement );
+	}
+
+
 	static byte[] readBytes( Resource resource ) throws FileNotFoundException
 	{
 		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
@@ -504,11 +643,15 @@ public class LoadJSON implements CommandListener
 		/*
 		LOAD JSON
 		[ PREPEND LINENUMBER ]
-		[ NOBATCH ]
+		[ NOBATCH | BATCH SIZE n | AUTO [ MAX n MB ] ]
+		[ PIPELINED | PARALLEL n ]
 		[ LOG EVERY n RECORDS | SECONDS ]
+		[ COMMIT EVERY n RECORDS ]
+		[ MAX ERRORS n REJECT FILE "<file>" ]
 		INTO <schema>.<table> [ ( <columns> ) ]
 		[ VALUES ( <values> ) ]
 		FILE "<file>" [ GZIP ]
+		[ FROM RECORD n ] [ TO RECORD n ]
 		*/
 
 		Parsed result = new Parsed();
@@ -520,21 +663,79 @@ public class LoadJSON implements CommandListener
 		tokenizer.get( "LOAD" );
 		tokenizer.get( "JSON" );
 
-		Token t = tokenizer.get( "PREPEND", "NOBATCH", "LOG", "INTO" );
+		Token t = tokenizer.get( "PREPEND", "NOBATCH", "BATCH", "PIPELINED", "PARALLEL", "LOG", "COMMIT", "MAX", "INTO" );
 
 		if( t.eq( "PREPEND" ) )
 		{
 			tokenizer.get( "LINENUMBER" );
 			result.prependLineNumber = true;
 
-			t = tokenizer.get( "NOBATCH", "LOG", "INTO" );
+			t = tokenizer.get( "NOBATCH", "BATCH", "PIPELINED", "PARALLEL", "LOG", "COMMIT", "MAX", "INTO" );
 		}
 
 		if( t.eq( "NOBATCH" ) )
 		{
 			result.noBatch = true;
 
-			t = tokenizer.get( "LOG", "INTO" );
+			t = tokenizer.get( "PIPELINED", "PARALLEL", "LOG", "COMMIT", "MAX", "INTO" );
+		}
+		else if( t.eq( "BATCH" ) )
+		{
+			tokenizer.get( "SIZE" );
+			t = tokenizer.get();
+			if( t.eq( "AUTO" ) )
+			{
+				result.batchAuto = true;
+				t = tokenizer.get( "MAX", "PIPELINED", "PARALLEL", "LOG", "COMMIT", "INTO" );
+				if( t.eq( "MAX" ) )
+				{
+					Token max = t;
+					t = tokenizer.get();
+					if( t.eq( "ERRORS" ) )
+					{
+						// MAX ERRORS is the next option
+						tokenizer.push( t );
+						t = max;
+					}
+					else
+					{
+						if( !t.isNumber() )
+							throw new SourceException( "Expecting a number, not [" + t + "]", tokenizer.getLocation() );
+						result.batchMaxBytes = Long.parseLong( t.getValue() ) * 1024 * 1024;
+						tokenizer.get( "MB" );
+
+						t = tokenizer.get( "PIPELINED", "PARALLEL", "LOG", "COMMIT", "MAX", "INTO" );
+					}
+				}
+			}
+			else
+			{
+				if( !t.isNumber() )
+					throw new SourceException( "Expecting a number or [AUTO], not [" + t + "]", tokenizer.getLocation() );
+				result.batchSize = Integer.parseInt( t.getValue() );
+				if( result.batchSize < 1 )
+					throw new SourceException( "BATCH SIZE must be at least 1", tokenizer.getLocation() );
+
+				t = tokenizer.get( "PIPELINED", "PARALLEL", "LOG", "COMMIT", "MAX", "INTO" );
+			}
+		}
+
+		if( t.eq( "PIPELINED" ) )
+		{
+			result.pipelined = true;
+
+			t = tokenizer.get( "LOG", "COMMIT", "MAX", "INTO" );
+		}
+		else if( t.eq( "PARALLEL" ) )
+		{
+			t = tokenizer.get();
+			if( !t.isNumber() )
+				throw new SourceException( "Expecting a number, not [" + t + "]", tokenizer.getLocation() );
+			result.parallel = Integer.parseInt( t.getValue() );
+			if( result.parallel < 1 )
+				throw new SourceException( "PARALLEL must be at least 1", tokenizer.getLocation() );
+
+			t = tokenizer.get( "LOG", "COMMIT", "MAX", "INTO" );
 		}
 
 		if( t.eq( "LOG" ) )
@@ -551,6 +752,49 @@ public class LoadJSON implements CommandListener
 			else
 				result.logSeconds = interval;
 
+			t = tokenizer.get( "COMMIT", "MAX", "INTO" );
+		}
+
+		if( t.eq( "COMMIT" ) )
+		{
+			if( result.pipelined )
+				throw new SourceException( "COMMIT EVERY can't be combined with PIPELINED", tokenizer.getLocation() );
+			if( result.parallel > 0 )
+				throw new SourceException( "COMMIT EVERY can't be combined with PARALLEL", tokenizer.getLocation() );
+			tokenizer.get( "EVERY" );
+			t = tokenizer.get();
+			if( !t.isNumber() )
+				throw new SourceException( "Expecting a number, not [" + t + "]", tokenizer.getLocation() );
+			result.commitRecords = Integer.parseInt( t.getValue() );
+			if( result.commitRecords < 1 )
+				throw new SourceException( "COMMIT EVERY must be at least 1", tokenizer.getLocation() );
+			tokenizer.get( "RECORDS" );
+
+			t = tokenizer.get( "MAX", "INTO" );
+		}
+
+		if( t.eq( "MAX" ) )
+		{
+			if( result.noBatch )
+				throw new SourceException( "MAX ERRORS can't be combined with NOBATCH", tokenizer.getLocation() );
+			if( result.parallel > 0 )
+				throw new SourceException( "MAX ERRORS can't be combined with PARALLEL", tokenizer.getLocation() );
+			// A continued load would truncate the reject file and restart the error count
+			if( result.commitRecords > 0 )
+				throw new SourceException( "MAX ERRORS can't be combined with COMMIT EVERY", tokenizer.getLocation() );
+			tokenizer.get( "ERRORS" );
+			t = tokenizer.get();
+			if( !t.isNumber() )
+				throw new SourceException( "Expecting a number, not [" + t + "]", tokenizer.getLocation() );
+			result.maxErrors = Integer.parseInt( t.getValue() );
+			tokenizer.get( "REJECT" );
+			tokenizer.get( "FILE" );
+			t = tokenizer.get();
+			String file = t.getValue();
+			if( !file.startsWith( "\"" ) )
+				throw new SourceException( "Expecting filename enclosed in double quotes, not [" + t + "]", tokenizer.getLocation() );
+			result.rejectFile = file.substring( 1, file.length() - 1 );
+
 			t = tokenizer.get( "INTO" );
 		}
 
@@ -620,10 +864,41 @@ public class LoadJSON implements CommandListener
 		t = tokenizer.get();
 		if( t.eq( "GZIP" ) )
 		{
+			if( result.parallel > 0 )
+				throw new SourceException( "GZIP can't be combined with PARALLEL", tokenizer.getLocation() );
 			result.gzip = true;
 			t = tokenizer.get();
 		}
 
+		if( t.eq( "FROM" ) )
+		{
+			tokenizer.get( "RECORD" );
+			t = tokenizer.get();
+			if( !t.isNumber() )
+				throw new SourceException( "Expecting a number, not [" + t + "]", tokenizer.getLocation() );
+			result.fromRecord = Long.parseLong( t.getValue() );
+			if( result.fromRecord < 1 )
+				throw new SourceException( "FROM RECORD must be at least 1", tokenizer.getLocation() );
+			t = tokenizer.get();
+		}
+
+		if( t.eq( "TO" ) )
+		{
+			tokenizer.get( "RECORD" );
+			t = tokenizer.get();
+			if( !t.isNumber() )
+				throw new SourceException( "Expecting a number, not [" + t + "]", tokenizer.getLocation() );
+			result.toRecord = Long.parseLong( t.getValue() );
+			if( result.toRecord < Math.max( result.fromRecord, 1 ) )
+				throw new SourceException( "TO RECORD must be at least FROM RECORD", tokenizer.getLocation() );
+			t = tokenizer.get();
+		}
+
+		if( result.commitRecords > 0 && ( result.fromRecord > 0 || result.toRecord > 0 ) )
+			throw new SourceException( "COMMIT EVERY can't be combined with FROM RECORD or TO RECORD", tokenizer.getLocation() );
+		if( result.parallel > 0 && ( result.fromRecord > 0 || result.toRecord > 0 ) )
+			throw new SourceException( "PARALLEL can't be combined with FROM RECORD or TO RECORD", tokenizer.getLocation() );
+
 		tokenizer.expect( t, (String)null );
 
 		result.fileName = file;
@@ -683,6 +958,764 @@ public class LoadJSON implements CommandListener
 	}
 
 
+	/**
+	 * The records of the JSON file. The strings for date, time and timestamp fields are converted to their JDBC types.
+	 *
+	 * @author Ren M. de Bloois
+	 */
+	static protected class Records implements RecordSource< JSONArray >
+	{
+		private JSONReader reader;
+		private int[] types;
+		private int lineNumber;
+
+		/**
+		 * Constructor.
+		 *
+		 * @param reader The JSON reader, positioned after the header.
+		 * @param types The JDBC types of the fields.
+		 */
+		protected Records( JSONReader reader, int[] types )
+		{
+			this.reader = reader;
+			this.types = types;
+		}
+
+		//@Override
+		public JSONArray read()
+		{
+			JSONArray values = (JSONArray)this.reader.read();
+			if( values == null )
+			{
+				Assert.isTrue( this.reader.isEOF() );
+				return null;
+			}
+
+			this.lineNumber = this.reader.getLineNumber();
+
+			// Convert the strings to date, time and timestamps
+			int[] types = this.types;
+			int i = 0;
+			for( ListIterator< Object > it = values.iterator(); it.hasNext(); )
+			{
+				Object value = it.next();
+				if( value != null )
+				{
+					if( types[ i ] == Types.DATE )
+						it.set( java.sql.Date.valueOf( (String)value ) );
+					else if( types[ i ] == Types.TIMESTAMP )
+						it.set( java.sql.Timestamp.valueOf( (String)value ) );
+					else if( types[ i ] == Types.TIME )
+						it.set( java.sql.Time.valueOf( (String)value ) );
+				}
+				i++;
+			}
+
+			return values;
+		}
+
+		//@Override
+		public int getLineNumber()
+		{
+			return this.lineNumber;
+		}
+	}
+
+
+	/**
+	 * Binds the values of a JSON record to the parameters of the statement. LOBs are read from separate files, or from
+	 * segments of a file shared by all records.
+	 *
+	 * @author Ren M. de Bloois
+	 */
+	static protected class Binder
+	{
+		private PreparedStatement statement;
+		private List< Integer > parameterMap;
+		private boolean prependLineNumber;
+		private int[] types;
+		private String[] fileNames;
+		private String binaryFile;
+		private Resource resource;
+		private SourceLocation location;
+
+		// The files shared by all records, closed at the final end
+		private CloseQueue outerCloser;
+		private FileSegments[] files;
+		private SegmentedInputStream[] streams;
+		private SegmentedReader[] textStreams;
+
+		// The files of the current batch
+		private CloseQueue closer;
+
+		// The end of the last segment read from the shared file of each field
+		private long[] ends;
+
+		/** Open the shared files again, because records are bound again. */
+		protected boolean reopen;
+
+		/**
+		 * Constructor.
+		 *
+		 * @param statement The statement.
+		 * @param parameterMap A map of ? index to index of the JSON fields.
+		 * @param prependLineNumber Prepend the values with the line number.
+		 * @param types The JDBC types of the fields.
+		 * @param fileNames The files of the fields, null if a field is not stored in a separate file.
+		 * @param binaryFile The default binary file.
+		 * @param resource The JSON file, the other files are relative to this one.
+		 * @param location The location of the JSON data, used in error messages.
+		 * @param outerCloser Closes the shared files at the final end.
+		 * @param closer Closes the files of the current batch.
+		 */
+		protected Binder( PreparedStatement statement, List< Integer > parameterMap, boolean prependLineNumber, int[] types, String[] fileNames, String binaryFile, Resource resource, SourceLocation location, CloseQueue outerCloser, CloseQueue closer )
+		{
+			this.statement = statement;
+			this.parameterMap = parameterMap;
+			this.prependLineNumber = prependLineNumber;
+			this.types = types;
+			this.fileNames = fileNames;
+			this.binaryFile = binaryFile;
+			this.resource = resource;
+			this.location = location;
+			this.outerCloser = outerCloser;
+			this.closer = closer;
+			this.files = new FileSegments[ types.length ];
+			this.streams = new SegmentedInputStream[ types.length ];
+			this.textStreams = new SegmentedReader[ types.length ];
+			this.ends = new long[ types.length ];
+		}
+
+		/**
+		 * Sets the parameters of the statement with the values of the given record.
+		 *
+		 * @param values The values of the record.
+		 * @param lineNumber The line number of the record.
+		 * @return The approximate number of bytes bound to the statement.
+		 * @throws SQLException Whenever JDBC throws it.
+		 */
+		protected long bind( JSONArray values, int lineNumber ) throws SQLException
+		{
+			PreparedStatement statement = this.statement;
+			List< Integer > parameterMap = this.parameterMap;
+			boolean prependLineNumber = this.prependLineNumber;
+			SourceLocation location = this.location;
+
+			int pos = 1;
+			long bytes = 0;
+			for( int par : parameterMap )
+			{
+				if( par == 1 && prependLineNumber )
+					statement.setInt( pos++, lineNumber );
+				else
+				{
+					int index = par - ( prependLineNumber ? 2 : 1 );
+					Object value;
+					try
+					{
+						value = values.get( index );
+					}
+					catch( ArrayIndexOutOfBoundsException e )
+					{
+						throw new SourceException( "Value with index " + ( index + 1 ) + " does not exist, record has only " + values.size() + " values", location.lineNumber( lineNumber ) );
+					}
+					if( value instanceof JSONObject )
+						bytes += bind( pos++, index, (JSONObject)value, lineNumber ); // Value of parameter is in a separate file
+					else
+					{
+						if( value instanceof String )
+							bytes += ( (String)value ).length();
+						else if( value != null )
+							bytes += 8;
+
+//						if( type == Types.CLOB )
+//						{
+//							if( values.get( index ) == null )
+//								System.out.println( "NULL!" );
+//							else if( ( (String)values.get( index ) ).length() == 0 )
+//								System.out.println( "EMPTY!" );
+//
+//							// TODO What if it is a CLOB and the string value is too long?
+//							// Oracle needs this because CLOBs can contain empty strings "", and setObject() makes that null BUT THIS DOES NOT WORK!
+//							statement.setCharacterStream( pos++, new StringReader( (String)values.get( index ) ) );
+//						}
+//						else
+							// MonetDB complains when calling setObject with null value
+//							Object v = values.get( index );
+//						if( v != null )
+							statement.setObject( pos++, values.get( index ) );
+//						else
+//							statement.setNull( pos++, type );
+					}
+				}
+			}
+			return bytes;
+		}
+
+		/**
+		 * Sets the parameters of the statement with the values of the current record of the cursor. Integers and
+		 * floating point numbers are bound with setLong and setDouble.
+		 *
+		 * @param record The cursor, positioned on the record.
+		 * @param lineNumber The line number of the record.
+		 * @return The approximate number of bytes bound to the statement.
+		 * @throws SQLException Whenever JDBC throws it.
+		 */
+		protected long bind( JSONRecordCursor record, int lineNumber ) throws SQLException
+		{
+			PreparedStatement statement = this.statement;
+			boolean prependLineNumber = this.prependLineNumber;
+
+			int pos = 1;
+			long bytes = 0;
+			for( int par : this.parameterMap )
+			{
+				if( par == 1 && prependLineNumber )
+					statement.setInt( pos++, lineNumber );
+				else
+				{
+					int index = par - ( prependLineNumber ? 2 : 1 );
+					if( index >= record.size() )
+						throw new SourceException( "Value with index " + ( index + 1 ) + " does not exist, record has only " + record.size() + " values", this.location.lineNumber( lineNumber ) );
+					switch( record.getKind( index ) )
+					{
+						case JSONRecordCursor.LONG:
+							statement.setLong( pos++, record.getLong( index ) );
+							bytes += 8;
+							break;
+						case JSONRecordCursor.DOUBLE:
+							statement.setDouble( pos++, record.getDouble( index ) );
+							bytes += 8;
+							break;
+						default:
+							Object value = record.getObject( index );
+							if( value instanceof JSONObject )
+								bytes += bind( pos++, index, (JSONObject)value, lineNumber ); // Value of parameter is in a separate file
+							else
+							{
+								if( value instanceof String )
+									bytes += ( (String)value ).length();
+								else if( value != null )
+									bytes += 8;
+								statement.setObject( pos++, value );
+							}
+					}
+				}
+			}
+			return bytes;
+		}
+
+		/**
+		 * Sets a parameter of the statement with a value that is stored in a separate file, or in a segment of a file
+		 * shared by all records.
+		 *
+		 * @param pos The index of the parameter.
+		 * @param index The index of the field.
+		 * @param object The value, which refers to the file.
+		 * @param lineNumber The line number of the record.
+		 * @return The approximate number of bytes bound to the statement.
+		 * @throws SQLException Whenever JDBC throws it.
+		 */
+		protected long bind( int pos, int index, JSONObject object, int lineNumber ) throws SQLException
+		{
+			PreparedStatement statement = this.statement;
+			int type = this.types[ index ];
+			String[] fileNames = this.fileNames;
+			String binaryFile = this.binaryFile;
+			Resource resource = this.resource;
+			SourceLocation location = this.location;
+			CloseQueue outerCloser = this.outerCloser;
+			CloseQueue closer = this.closer;
+			FileSegments[] files = this.files;
+			SegmentedInputStream[] streams = this.streams;
+			SegmentedReader[] textStreams = this.textStreams;
+
+			long bytes = 0;
+			String filename = object.findString( "file" );
+			if( filename != null )
+			{
+				// One file per record
+				if( type == Types.BLOB || type == Types.VARBINARY )
+				{
+					try
+					{
+						// TODO Fix the input stream size given the size in the JSON file
+						Resource r = resource.resolve( filename );
+						BigDecimal filesize = object.findNumber( "size" );
+						if( filesize != null )
+							bytes += filesize.longValue();
+						if( filesize == null || filesize.intValue() > 10240 ) // TODO Whats a good size here? Should it be a long?
+						{
+							// Some databases read the stream directly (Oracle), others read it later (HSQLDB).
+							// TODO Do we need to decrease the batch size when files are being kept open?
+							// TODO We could detect that the database has read the stream already, and close the file
+							InputStream in = r.newInputStream();
+							statement.setBinaryStream( pos, in );
+							closer.add( in );
+						}
+						else
+							statement.setBytes( pos, readBytes( r ) ); // TODO Do a speed test
+					}
+					catch( FileNotFoundException e )
+					{
+						throw new SourceException( e.getMessage(), location.lineNumber( lineNumber ) );
+					}
+				}
+				else
+					Assert.fail( "Unexpected field type for external file: " + JDBCSupport.toTypeName( type ) );
+			}
+			else
+			{
+				// One file for all records
+				BigDecimal lobIndex = object.getNumber( "index" ); // TODO Use findNumber
+				if( lobIndex == null )
+					throw new SourceException( "Expected a 'file' or 'index' attribute", location.lineNumber( lineNumber ) );
+				BigDecimal lobLength = object.getNumber( "length" );
+				if( lobLength == null )
+					throw new SourceException( "Expected a 'length' attribute", location.lineNumber( lineNumber ) );
+				bytes += lobLength.longValue();
+
+				// A segment before the end of the previous one, for example a deduplicated value, is read from
+				// the file opened again, a shared stream can only move forward. This does not apply to local
+				// binary files, they are read with positional reads.
+				boolean reopen = this.reopen || lobIndex.longValue() < this.ends[ index ];
+				if( !reopen )
+					this.ends[ index ] = lobIndex.longValue() + lobLength.longValue();
+
+				if( type == Types.BLOB || type == Types.VARBINARY )
+				{
+					// Get the file or the input stream
+					FileSegments file = files[ index ];
+					SegmentedInputStream in = reopen ? null : streams[ index ];
+					if( file == null && in == null )
+					{
+						// File not opened yet, open it
+						String fileName = fileNames[ index ];
+						if( fileName == null )
+							fileName = binaryFile;
+						if( fileName == null )
+							throw new SourceException( "No file or default binary file configured", location.lineNumber( lineNumber ) );
+						Resource r = resource.resolve( fileName );
+						try
+						{
+							if( r.supportsFile() )
+							{
+								// The segments are read with positional reads, in any order and without a file handle per segment
+								file = new FileSegments( r.getFile() );
+								outerCloser.add( file ); // Close at the final end
+								files[ index ] = file;
+							}
+							else
+							{
+								in = new SegmentedInputStream( r.newInputStream() );
+								if( reopen )
+									closer.add( in ); // The segment may be before the current position of the shared stream
+								else
+								{
+									outerCloser.add( in ); // Close at the final end
+									streams[ index ] = in;
+								}
+							}
+						}
+						catch( FileNotFoundException e )
+						{
+							throw new SourceException( e.getMessage(), location.lineNumber( lineNumber ) );
+						}
+					}
+					if( file != null )
+						statement.setBinaryStream( pos, file.getSegmentInputStream( lobIndex.longValue(), lobLength.longValue() ) );
+					else
+						statement.setBinaryStream( pos, in.getSegmentInputStream( lobIndex.longValue(), lobLength.longValue() ) ); // TODO Maybe use the limited setBinaryStream instead
+				}
+				else if( type == Types.CLOB )
+				{
+					// Get the reader
+					SegmentedReader in = reopen ? null : textStreams[ index ];
+					if( in == null )
+					{
+						// File not opened yet, open it
+						if( fileNames[ index ] == null )
+							throw new SourceException( "No file configured", location.lineNumber( lineNumber ) );
+						Resource r = resource.resolve( fileNames[ index ] );
+						try
+						{
+							try
+							{
+								in = new SegmentedReader( new InputStreamReader( r.newInputStream(), "UTF-8" ) );
+							}
+							catch( UnsupportedEncodingException e )
+							{
+								throw new SystemException( e );
+							}
+							if( reopen )
+								closer.add( in ); // The segment may be before the current position of the shared reader
+							else
+							{
+								outerCloser.add( in ); // Close at the final end
+								textStreams[ index ] = in;
+							}
+						}
+						catch( FileNotFoundException e )
+						{
+							throw new SourceException( e.getMessage(), location.lineNumber( lineNumber ) );
+						}
+					}
+					statement.setCharacterStream( pos, in.getSegmentReader( lobIndex.longValue(), lobLength.longValue() ) );
+				}
+				else
+					Assert.fail( "Unexpected field type for external file: " + JDBCSupport.toTypeName( type ) );
+			}
+			return bytes;
+		}
+	}
+
+
+	/**
+	 * Isolates the failing records of a batch and writes them to the reject file. Each rejected record is written as a
+	 * JSON object on a line of its own, with the line number, the error message and the original values.
+	 *
+	 * @author Ren M. de Bloois
+	 */
+	static protected class Rejects extends BatchBisector< JSONArray >
+	{
+		private JSONWriter writer;
+		private Binder binder;
+
+		/**
+		 * Constructor.
+		 *
+		 * @param statement The statement.
+		 * @param maxErrors The maximum number of records that may fail.
+		 * @param writer The writer for the reject file.
+		 * @param binder Binds the records again.
+		 */
+		protected Rejects( PreparedStatement statement, int maxErrors, JSONWriter writer, Binder binder )
+		{
+			super( statement, maxErrors );
+			this.writer = writer;
+			this.binder = binder;
+		}
+
+		@Override
+		protected void bind( JSONArray record, int lineNumber ) throws SQLException
+		{
+			this.binder.reopen = true;
+			try
+			{
+				this.binder.bind( record, lineNumber );
+			}
+			finally
+			{
+				this.binder.reopen = false;
+			}
+		}
+
+		@Override
+		protected void rejected( JSONArray record, int lineNumber, SQLException e )
+		{
+			// Dates, times and timestamps back to strings
+			JSONArray values = new JSONArray();
+			for( Object value : record )
+				values.add( value instanceof java.util.Date ? value.toString() : value );
+
+			this.writer.write( new JSONObject( "line", new BigDecimal( lineNumber ), "error", getMessage( e ), "values", values ) );
+			try
+			{
+				this.writer.getWriter().write( '\n' );
+			}
+			catch( IOException x )
+			{
+				throw new SystemException( x );
+			}
+		}
+
+		/**
+		 * Closes the reject file.
+		 */
+		protected void close()
+		{
+			this.writer.close();
+		}
+	}
+
+
+	/**
+	 * A part of the records of a file, that is loaded by one worker.
+	 *
+	 * @author Ren M. de Bloois
+	 */
+	static protected class Segment
+	{
+		/** The byte position of the first record. */
+		protected long position;
+
+		/** The line number at the position. */
+		protected int lineNumber;
+
+		/** The number of records. */
+		protected long records;
+
+		/**
+		 * Constructor.
+		 *
+		 * @param position The byte position of the first record.
+		 * @param lineNumber The line number at the position.
+		 */
+		protected Segment( long position, int lineNumber )
+		{
+			this.position = position;
+			this.lineNumber = lineNumber;
+		}
+	}
+
+
+	/**
+	 * Reports the progress of the workers to the progress listener.
+	 *
+	 * @author Ren M. de Bloois
+	 */
+	static protected class Progress
+	{
+		private ProgressListener listener;
+		private Counter counter;
+
+		/**
+		 * Constructor.
+		 *
+		 * @param listener The progress listener.
+		 * @param counter The counter that decides when progress needs to be logged, null if no progress needs to be logged.
+		 */
+		protected Progress( ProgressListener listener, Counter counter )
+		{
+			this.listener = listener;
+			this.counter = counter;
+		}
+
+		/**
+		 * Counts a loaded record.
+		 */
+		protected void next()
+		{
+			if( this.counter != null ) // Only lock when counting
+				synchronized( this )
+				{
+					if( this.counter.next() )
+						this.listener.println( "Imported " + this.counter.total() + " records." );
+				}
+		}
+
+		/**
+		 * Called when all records are loaded.
+		 */
+		protected synchronized void end()
+		{
+			if( this.counter != null && this.counter.needFinal() )
+				this.listener.println( "Imported " + this.counter.total() + " records." );
+		}
+	}
+
+
+	/**
+	 * A thread that loads segments of the file through its own connection. It takes the next segment from the queue
+	 * until the queue is empty. The connection is committed by {@link LoadJSON#loadParallel}, when all workers are
+	 * done. The segments are read with a reader of its own, and the LOBs in shared files through streams of its own, so
+	 * that nothing is shared with the other workers.
+	 *
+	 * @author Ren M. de Bloois
+	 */
+	static protected class Worker extends Thread
+	{
+		/** The connection of this worker. */
+		protected Connection connection;
+
+		private Queue< Segment > segments;
+		private Resource resource;
+		private StringBuilder sql;
+		private List< Integer > parameterMap;
+		private int[] types;
+		private String[] fileNames;
+		private String binaryFile;
+		private Parsed parsed;
+		private Progress progress;
+		private Throwable failure;
+
+		/**
+		 * Constructor.
+		 *
+		 * @param number The number of the worker, starting at 1.
+		 * @param database The database to load the records into.
+		 * @param segments The queue of segments to load, shared by the workers.
+		 * @param resource The JSON file.
+		 * @param sql The INSERT statement.
+		 * @param parameterMap A map of ? index to index of the JSON fields.
+		 * @param types The JDBC types of the fields.
+		 * @param fileNames The files of the fields, null if a field is not stored in a separate file.
+		 * @param binaryFile The default binary file.
+		 * @param parsed The parsed command.
+		 * @param progress The progress, shared by the workers.
+		 */
+		protected Worker( int number, Database database, Queue< Segment > segments, Resource resource, StringBuilder sql, List< Integer > parameterMap, int[] types, String[] fileNames, String binaryFile, Parsed parsed, Progress progress )
+		{
+			super( "LoadJSON-" + number );
+			this.connection = database.newConnection();
+			this.segments = segments;
+			this.resource = resource;
+			this.sql = sql;
+			this.parameterMap = parameterMap;
+			this.types = types;
+			this.fileNames = fileNames;
+			this.binaryFile = binaryFile;
+			this.parsed = parsed;
+			this.progress = progress;
+		}
+
+		@Override
+		public void run()
+		{
+			try
+			{
+				load();
+			}
+			catch( Throwable t )
+			{
+				this.failure = t;
+				this.segments.clear(); // Stops the other workers after their current segment
+			}
+		}
+
+		/**
+		 * Loads the segments from the queue until the queue is empty.
+		 *
+		 * @throws SQLException Whenever JDBC throws it.
+		 */
+		protected void load() throws SQLException
+		{
+			Parsed parsed = this.parsed;
+
+			SourceBuffer input;
+			try
+			{
+				input = SourceBuffer.forResource( this.resource, "UTF-8", false );
+			}
+			catch( FileNotFoundException e )
+			{
+				throw new FatalException( e.toString() );
+			}
+
+			JSONReader reader = new JSONReader( input );
+			try
+			{
+				SourceLocation location = reader.getLocation();
+				JSONRecordCursor cursor = new JSONRecordCursor( input, this.types );
+				PreparedStatement statement = this.connection.prepareStatement( this.sql.toString() );
+				CloseQueue outerCloser = new CloseQueue();
+				CloseQueue closer = new CloseQueue();
+				try
+				{
+					// The segments are taken in the order of the file, so the shared streams of the binder only move forward
+					Binder binder = new Binder( statement, this.parameterMap, parsed.prependLineNumber, this.types, this.fileNames, this.binaryFile, this.resource, location, outerCloser, closer );
+					BatchSizer batch = parsed.batchAuto ? new BatchSizer( parsed.batchMaxBytes ) : new BatchSizer( parsed.batchSize, parsed.batchMaxBytes );
+					for( Segment segment = this.segments.poll(); segment != null; segment = this.segments.poll() )
+					{
+						input.seek( segment.position, segment.lineNumber );
+						for( long i = 0; i < segment.records; i++ )
+						{
+							// Detect interruption
+							if( isInterrupted() )
+								throw new ThreadInterrupted();
+
+							if( !cursor.next() )
+								throw new SourceException( "Unexpected end of file", cursor.getLocation() );
+							int lineNumber = cursor.getLineNumber();
+
+							long bytes = binder.bind( cursor, lineNumber );
+							if( parsed.noBatch )
+							{
+								try
+								{
+									statement.executeUpdate();
+									closer.closeAll();
+								}
+								catch( SQLException e )
+								{
+									String message = buildErrorMessage( this.sql, this.parameterMap, cursor.toArray(), parsed.prependLineNumber, lineNumber );
+									throw new SQLExecutionException( message, location.lineNumber( lineNumber ), e );
+								}
+							}
+							else
+							{
+								statement.addBatch();
+								if( batch.add( bytes ) )
+								{
+									batch.executeBatch( statement );
+									closer.closeAll();
+								}
+							}
+
+							this.progress.next();
+						}
+					}
+					batch.executeBatch( statement );
+				}
+				finally
+				{
+					statement.close();
+					outerCloser.closeAll();
+					closer.closeAll();
+				}
+			}
+			finally
+			{
+				reader.close();
+			}
+		}
+
+		/**
+		 * Rethrows the failure of this worker, if any.
+		 *
+		 * @throws SQLException When the worker failed with an SQLException.
+		 */
+		protected void checkFailure() throws SQLException
+		{
+			Throwable t = this.failure;
+			if( t == null )
+				return;
+			if( t instanceof SQLException )
+				throw (SQLException)t;
+			if( t instanceof RuntimeException )
+				throw (RuntimeException)t;
+			if( t instanceof Error )
+				throw (Error)t;
+			throw new SystemException( t );
+		}
+
+		/**
+		 * Stops this worker if it is still running, rolls back what is not committed, and closes the connection.
+		 */
+		protected void close()
+		{
+			interrupt();
+			try
+			{
+				join();
+			}
+			catch( InterruptedException e )
+			{
+				Thread.currentThread().interrupt();
+			}
+			try
+			{
+				this.connection.rollback();
+				this.connection.close();
+			}
+			catch( SQLException e )
+			{
+				// Ignore, we are cleaning up
+			}
+		}
+	}
+
+
 	/**
 	 * A parsed command.
 	 *
@@ -696,9 +1729,33 @@ public class LoadJSON implements CommandListener
 		/** Don't use JDBC batch update. */
 		protected boolean noBatch;
 
+		/** The number of records in a JDBC batch. */
+		protected int batchSize = BatchSizer.DEFAULT_SIZE;
+
+		/** Tune the number of records in a JDBC batch while loading. */
+		protected boolean batchAuto;
+
+		/** The maximum number of bytes bound to a JDBC batch, 0 for the default. */
+		protected long batchMaxBytes;
+
+		/** Read and parse the records in a separate thread. */
+		protected boolean pipelined;
+
+		/** The number of workers that each load a part of the file through their own connection, 0 for no workers. */
+		protected int parallel;
+
 		protected int logRecords;
 		protected int logSeconds;
 
+		/** Commit and update the checkpoint every this number of records, 0 for no intermediate commits. */
+		protected int commitRecords;
+
+		/** The maximum number of records that may fail. */
+		protected int maxErrors;
+
+		/** The file that the failing records are written to, null if failing records are not allowed. */
+		protected String rejectFile;
+
 		/** The table name to insert into. */
 		protected String tableName;
 
@@ -714,6 +1771,12 @@ public class LoadJSON implements CommandListener
 		/** The file path to import from */
 		protected String fileName;
 		protected boolean gzip;
+
+		/** The number of the first record to load, counting from 1, 0 for the first record of the file. */
+		protected long fromRecord;
+
+		/** The number of the last record to load, 0 for the last record of the file. */
+		protected long toRecord;
 	}
 
 
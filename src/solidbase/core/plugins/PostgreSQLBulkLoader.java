@@ -0,0 +1,115 @@
+/*--
+ * Copyright 2012 Ren M. de Bloois
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package solidbase.core.plugins;
+
+import java.io.Reader;
+import java.lang.reflect.InvocationTargetException;
+import java.sql.Connection;
+import java.sql.SQLException;
+
+import solidbase.core.BulkLoader;
+import solidbase.core.SystemException;
+
+
+/**
+ * Loads CSV data into PostgreSQL with COPY ... FROM STDIN, streaming the data through the CopyManager of the PostgreSQL
+ * JDBC driver. The driver is accessed with reflection, so that SolidBase does not depend on it.
+ *
+ * @author Ren M. de Bloois
+ */
+public class PostgreSQLBulkLoader implements BulkLoader
+{
+	static private final String PG_CONNECTION = "org.postgresql.PGConnection";
+
+	//@Override
+	public boolean supports( Connection connection ) throws SQLException
+	{
+		if( !"PostgreSQL".equals( connection.getMetaData().getDatabaseProductName() ) )
+			return false;
+		Class< ? > pgConnection = getPGConnectionClass( connection );
+		return pgConnection != null && pgConnection.isInstance( connection );
+	}
+
+	//@Override
+	public void load( Connection connection, String tableName, String[] columns, Reader data ) throws SQLException
+	{
+		StringBuilder sql = new StringBuilder( "COPY " );
+		sql.append( tableName );
+		if( columns != null )
+		{
+			sql.append( " (" );
+			for( int i = 0; i < columns.length; i++ )
+			{
+				if( i > 0 )
+					sql.append( ',' );
+				sql.append( columns[ i ] );
+			}
+			sql.append( ')' );
+		}
+		sql.append( " FROM STDIN WITH CSV" );
+
+		try
+		{
+			Object copyManager = getCopyManager( connection );
+			copyManager.getClass().getMethod( "copyIn", String.class, Reader.class ).invoke( copyManager, sql.toString(), data );
+		}
+		catch( InvocationTargetException e )
+		{
+			Throwable cause = e.getCause();
+			if( cause instanceof SQLException )
+				throw (SQLException)cause;
+			if( cause instanceof RuntimeException )
+				throw (RuntimeException)cause;
+			throw new SystemException( cause );
+		}
+		catch( NoSuchMethodException e )
+		{
+			throw new SystemException( e );
+		}
+		catch( IllegalAccessException e )
+		{
+			throw new SystemException( e );
+		}
+	}
+
+	/**
+	 * Returns the CopyManager of the PostgreSQL connection.
+	 *
+	 * @param connection The connection.
+	 * @return The CopyManager.
+	 * @throws NoSuchMethodException When the driver has no CopyManager.
+	 * @throws IllegalAccessException When the CopyManager is not accessible.
+	 * @throws InvocationTargetException When getting the CopyManager throws an exception.
+	 */
+	protected Object getCopyManager( Connection connection ) throws NoSuchMethodException, IllegalAccessException, InvocationTargetException
+	{
+		Class< ? > pgConnection = getPGConnectionClass( connection );
+		return pgConnection.getMethod( "getCopyAPI" ).invoke( connection );
+	}
+
+	static private Class< ? > getPGConnectionClass( Connection connection )
+	{
+		try
+		{
+			return Class.forName( PG_CONNECTION, false, connection.getClass().getClassLoader() );
+		}
+		catch( ClassNotFoundException e )
+		{
+			return null;
+		}
+	}
+}
@@ -32,6 +32,7 @@ import solidbase.core.SourceException;
 import solidbase.core.CommandListener;
 import solidbase.core.CommandProcessor;
 import solidbase.util.JDBCSupport;
+import solidbase.util.JDBCSupport.ColumnReader;
 
 
 /**
@@ -43,12 +44,14 @@ import solidbase.util.JDBCSupport;
  * GO
  * </pre></blockquote>
  *
+ * <p>With PRINT FETCH SIZE n SELECT the rows are fetched n at a time.</p>
+ *
  * @author Ren M. de Bloois
  * @since May 2010
  */
 public class PrintSelect implements CommandListener
 {
-	static private final Pattern printSelectPattern = Pattern.compile( "\\s*PRINT\\s+(SELECT\\s+.+)", Pattern.DOTALL | Pattern.CASE_INSENSITIVE );
+	static private final Pattern printSelectPattern = Pattern.compile( "\\s*PRINT\\s+(?:FETCH\\s+SIZE\\s+(\\d+)\\s+)?(SELECT\\s+.+)", Pattern.DOTALL | Pattern.CASE_INSENSITIVE );
 
 	//@Override
 	public boolean execute( CommandProcessor processor, Command command, boolean skip ) throws SQLException
@@ -63,17 +66,29 @@ public class PrintSelect implements CommandListener
 		if( skip )
 			return true;
 
-		String sql = matcher.group( 1 );
+		int fetchSize = 0;
+		if( matcher.group( 1 ) != null )
+		{
+			try
+			{
+				fetchSize = Integer.parseInt( matcher.group( 1 ) );
+			}
+			catch( NumberFormatException e )
+			{
+				throw new SourceException( "FETCH SIZE " + matcher.group( 1 ) + " is too large", command.getLocation() );
+			}
+		}
+		String sql = matcher.group( 2 );
 
-		Statement statement = processor.createStatement();
+		Statement statement = processor.createQueryStatement( fetchSize );
 		try
 		{
 			ResultSet result = statement.executeQuery( sql );
 			ResultSetMetaData metaData = result.getMetaData();
-			int[] types = new int[] { metaData.getColumnType( 1 ) };
+			ColumnReader reader = JDBCSupport.getReader( metaData.getColumnType( 1 ), metaData.isSigned( 1 ) );
 			while( result.next() )
 			{
-				Object value = JDBCSupport.getValue( result, types, 0 );
+				Object value = reader.read( result, 1 );
 				// TODO Print binary columns as hex characters
 				if( value instanceof Blob || value instanceof byte[] )
 					throw new SourceException( "Binary columns like BLOB, RAW, BINARY VARYING cannot be printed", command.getLocation() );
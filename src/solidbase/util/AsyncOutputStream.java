@@ -0,0 +1,283 @@
+/*--
+ * Copyright 2012 Ren M. de Bloois
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package solidbase.util;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+import solidstack.lang.ThreadInterrupted;
+
+
+/**
+ * Writes to an output stream in a separate thread, so that producing the output overlaps with compressing and writing
+ * it. The bytes are collected in blocks, and full blocks are handed over to the writer thread through a bounded queue.
+ * The blocks are taken from a fixed pool and are returned to it when they have been written, so no new buffers are
+ * allocated while writing.
+ *
+ * <p>An exception thrown by the wrapped output stream is rethrown by the next hand over of a block, or by
+ * {@link #close()}. The wrapped output stream is closed by the writer thread after the last block.</p>
+ *
+ * @author Ren M. de Bloois
+ */
+public class AsyncOutputStream extends OutputStream
+{
+	/** The default number of bytes in a block. */
+	static public final int BLOCK_SIZE = 65536;
+
+	/** The default number of full blocks that can be waiting in the queue. */
+	static public final int DEPTH = 4;
+
+	private BlockingQueue< Block > pool;
+	private BlockingQueue< Block > queue;
+	private Writer writer;
+
+	private Block block;
+	private boolean closed;
+
+
+	/**
+	 * Constructor. Starts the writer thread.
+	 *
+	 * @param name The name of the writer thread.
+	 * @param out The output stream to write to.
+	 * @param blockSize The number of bytes in a block.
+	 * @param depth The number of full blocks that can be waiting in the queue.
+	 */
+	public AsyncOutputStream( String name, OutputStream out, int blockSize, int depth )
+	{
+		// One block being filled and one being written, besides the ones in the queue
+		int count = depth + 2;
+		this.pool = new ArrayBlockingQueue< Block >( count );
+		for( int i = 0; i < count; i++ )
+			this.pool.add( new Block( blockSize ) );
+		this.queue = new ArrayBlockingQueue< Block >( depth + 1 ); // Room for the last block
+
+		this.block = this.pool.remove();
+
+		this.writer = new Writer( name, out );
+		this.writer.start();
+	}
+
+	/**
+	 * Constructor. Starts the writer thread.
+	 *
+	 * @param name The name of the writer thread.
+	 * @param out The output stream to write to.
+	 */
+	public AsyncOutputStream( String name, OutputStream out )
+	{
+		this( name, out, BLOCK_SIZE, DEPTH );
+	}
+
+	@Override
+	public void write( int b ) throws IOException
+	{
+		Block block = this.block;
+		if( block.size >= block.bytes.length )
+			block = handOver( false );
+		block.bytes[ block.size++ ] = (byte)b;
+	}
+
+	@Override
+	public void write( byte[] b, int off, int len ) throws IOException
+	{
+		Block block = this.block;
+		while( len > 0 )
+		{
+			if( block.size >= block.bytes.length )
+				block = handOver( false );
+			int count = Math.min( len, block.bytes.length - block.size );
+			System.arraycopy( b, off, block.bytes, block.size, count );
+			block.size += count;
+			off += count;
+			len -= count;
+		}
+	}
+
+	/**
+	 * Hands the current block over to the writer thread. The wrapped output stream is not flushed.
+	 */
+	@Override
+	public void flush() throws IOException
+	{
+		if( this.block.size > 0 )
+			handOver( false );
+	}
+
+	/**
+	 * Hands the last block over to the writer thread and waits for the writer thread to end.
+	 */
+	@Override
+	public void close() throws IOException
+	{
+		if( this.closed )
+			return;
+		this.closed = true;
+		handOver( true );
+		try
+		{
+			this.writer.join();
+		}
+		catch( InterruptedException e )
+		{
+			this.writer.interrupt();
+			throw new ThreadInterrupted();
+		}
+		checkFailure();
+	}
+
+	private Block handOver( boolean last ) throws IOException
+	{
+		if( !last )
+			checkFailure(); // The last block is always handed over, it ends the writer thread
+		Block block = this.block;
+		block.last = last;
+		try
+		{
+			this.queue.put( block );
+			if( last )
+				return this.block = null;
+			block = this.pool.take();
+		}
+		catch( InterruptedException e )
+		{
+			this.writer.interrupt();
+			throw new ThreadInterrupted();
+		}
+		block.size = 0;
+		return this.block = block;
+	}
+
+	private void checkFailure() throws IOException
+	{
+		Throwable failure = this.writer.failure;
+		if( failure == null )
+			return;
+		if( failure instanceof IOException )
+			throw (IOException)failure;
+		if( failure instanceof RuntimeException )
+			throw (RuntimeException)failure;
+		if( failure instanceof Error )
+			throw (Error)failure;
+		throw new IOException( failure.toString() );
+	}
+
+
+	/**
+	 * A block of bytes.
+	 *
+	 * @author Ren M. de Bloois
+	 */
+	static protected class Block
+	{
+		/** The bytes. */
+		protected byte[] bytes;
+
+		/** The number of bytes in this block. */
+		protected int size;
+
+		/** This is the last block. */
+		protected boolean last;
+
+		/**
+		 * Constructor.
+		 *
+		 * @param capacity The maximum number of bytes in this block.
+		 */
+		protected Block( int capacity )
+		{
+			this.bytes = new byte[ capacity ];
+		}
+	}
+
+
+	/**
+	 * The thread that writes the blocks to the output stream.
+	 *
+	 * @author Ren M. de Bloois
+	 */
+	protected class Writer extends Thread
+	{
+		private OutputStream out;
+
+		/** The exception that ended the writing. */
+		protected volatile Throwable failure;
+
+		/**
+		 * Constructor.
+		 *
+		 * @param name The name of the thread.
+		 * @param out The output stream to write to.
+		 */
+		protected Writer( String name, OutputStream out )
+		{
+			super( name );
+			setDaemon( true ); // Does not keep the VM alive when the stream is not closed after an error
+			this.out = out;
+		}
+
+		@Override
+		public void run()
+		{
+			BlockingQueue< Block > pool = AsyncOutputStream.this.pool;
+			BlockingQueue< Block > queue = AsyncOutputStream.this.queue;
+			try
+			{
+				while( true )
+				{
+					Block block = queue.take();
+					if( this.failure == null )
+						try
+						{
+							this.out.write( block.bytes, 0, block.size );
+							if( block.last )
+								this.out.close();
+						}
+						catch( Throwable t )
+						{
+							this.failure = t; // Keep taking blocks, so that the producer does not block
+							try
+							{
+								this.out.close();
+							}
+							catch( Throwable t2 )
+							{
+								// Ignore, the first exception is the one that counts
+							}
+						}
+					if( block.last )
+						return;
+					pool.put( block );
+				}
+			}
+			catch( InterruptedException e )
+			{
+				// Stopped by an interrupted producer
+				try
+				{
+					this.out.close();
+				}
+				catch( Throwable t )
+				{
+					// Ignore, we are cleaning up
+				}
+			}
+		}
+	}
+}
@@ -0,0 +1,185 @@
+/*--
+ * Copyright 2012 Ren M. de Bloois
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package solidbase.util;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Savepoint;
+import java.util.ArrayList;
+import java.util.List;
+
+
+/**
+ * Isolates the records that fail in a JDBC batch. Every batch is executed after a savepoint. When the batch fails, the
+ * connection is rolled back to the savepoint and the batch is split in two halves that are bound and executed again,
+ * recursively, until the failing records are found. The failing records are handed to {@link #rejected(Object, int, SQLException)}.
+ * The records that do not fail are inserted with batches as normal.
+ *
+ * <p>When more records fail than the configured maximum, the {@link SQLException} of the record that exceeded the
+ * maximum is thrown.</p>
+ *
+ * @author Ren M. de Bloois
+ * @param <T> The type of the records.
+ */
+abstract public class BatchBisector< T >
+{
+	private PreparedStatement statement;
+	private int maxErrors;
+	private int errors;
+
+	// The records of the current batch
+	private List< T > records = new ArrayList< T >();
+	private List< Integer > lineNumbers = new ArrayList< Integer >();
+
+
+	/**
+	 * Constructor.
+	 *
+	 * @param statement The statement.
+	 * @param maxErrors The maximum number of records that may fail.
+	 */
+	public BatchBisector( PreparedStatement statement, int maxErrors )
+	{
+		this.statement = statement;
+		this.maxErrors = maxErrors;
+	}
+
+	/**
+	 * Remembers a record that has been bound and added to the batch of the statement.
+	 *
+	 * @param record The record.
+	 * @param lineNumber The line number of the record.
+	 */
+	public void add( T record, int lineNumber )
+	{
+		this.records.add( record );
+		this.lineNumbers.add( lineNumber );
+	}
+
+	/**
+	 * @return The number of records that failed.
+	 */
+	public int getErrors()
+	{
+		return this.errors;
+	}
+
+	/**
+	 * Executes the batch of the statement. When the batch fails, the failing records are isolated.
+	 *
+	 * @param batch The batch sizer that executes the batch.
+	 * @throws SQLException When JDBC throws it, or when more records fail than the configured maximum.
+	 */
+	public void executeBatch( BatchSizer batch ) throws SQLException
+	{
+		if( this.records.isEmpty() )
+			return;
+
+		Connection connection = this.statement.getConnection();
+		Savepoint savepoint = connection.setSavepoint();
+		try
+		{
+			batch.executeBatch( this.statement );
+			connection.releaseSavepoint( savepoint );
+		}
+		catch( SQLException e )
+		{
+			connection.rollback( savepoint );
+			this.statement.clearBatch();
+			batch.reset();
+			bisect( 0, this.records.size(), e );
+		}
+		finally
+		{
+			this.records.clear();
+			this.lineNumbers.clear();
+		}
+	}
+
+	private void bisect( int from, int to, SQLException e ) throws SQLException
+	{
+		if( to - from == 1 )
+		{
+			if( ++this.errors > this.maxErrors )
+				throw e;
+			rejected( this.records.get( from ), this.lineNumbers.get( from ), e );
+			return;
+		}
+
+		int middle = ( from + to ) >>> 1;
+		execute( from, middle );
+		execute( middle, to );
+	}
+
+	private void execute( int from, int to ) throws SQLException
+	{
+		PreparedStatement statement = this.statement;
+		for( int i = from; i < to; i++ )
+		{
+			bind( this.records.get( i ), this.lineNumbers.get( i ) );
+			statement.addBatch();
+		}
+
+		Connection connection = statement.getConnection();
+		Savepoint savepoint = connection.setSavepoint();
+		try
+		{
+			statement.executeBatch();
+			connection.releaseSavepoint( savepoint );
+		}
+		catch( SQLException e )
+		{
+			connection.rollback( savepoint );
+			statement.clearBatch();
+			bisect( from, to, e );
+		}
+	}
+
+	/**
+	 * Binds the record to the statement again, because it is executed in a smaller batch.
+	 *
+	 * @param record The record.
+	 * @param lineNumber The line number of the record.
+	 * @throws SQLException Whenever JDBC throws it.
+	 */
+	abstract protected void bind( T record, int lineNumber ) throws SQLException;
+
+	/**
+	 * Called for each record that fails.
+	 *
+	 * @param record The record.
+	 * @param lineNumber The line number of the record.
+	 * @param e The exception of the failing record.
+	 */
+	abstract protected void rejected( T record, int lineNumber, SQLException e );
+
+	/**
+	 * Returns the message of the given exception. A {@link java.sql.BatchUpdateException} often only says that the
+	 * batch failed, the reason is in the next exception.
+	 *
+	 * @param e The exception.
+	 * @return The message.
+	 */
+	static public String getMessage( SQLException e )
+	{
+		SQLException next = e.getNextException();
+		if( next != null && next.getMessage() != null )
+			return next.getMessage();
+		return e.getMessage();
+	}
+}
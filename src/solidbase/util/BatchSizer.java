@@ -0,0 +1,183 @@
+/*--
+ * Copyright 2012 Ren M. de Bloois
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package solidbase.util;
+
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+
+
+/**
+ * Decides when a JDBC batch needs to be executed. A batch is executed when it contains the configured number of records
+ * or when the bound values of the records add up to the configured number of bytes, whichever comes first.
+ *
+ * <p>In auto mode the number of records is tuned while importing. Every executed batch is timed, and the size of the
+ * next batches is increased as long as the number of records per second increases, and decreased otherwise. Batches
+ * that take longer than {@link #MAX_LATENCY} are always made smaller.</p>
+ *
+ * @author Ren M. de Bloois
+ */
+public class BatchSizer
+{
+	/** The default number of records in a batch. */
+	static public final int DEFAULT_SIZE = 1000;
+
+	/** The minimum number of records in a batch in auto mode. */
+	static public final int MIN_SIZE = 10;
+
+	/** The maximum number of records in a batch in auto mode. */
+	static public final int MAX_SIZE = 100000;
+
+	/** The default maximum number of bytes bound to a batch in auto mode. */
+	static public final long DEFAULT_MAX_BYTES = 16 * 1024 * 1024;
+
+	/** The maximum time in nanoseconds that the execution of a batch may take in auto mode. */
+	static public final long MAX_LATENCY = 2000000000L;
+
+	private boolean auto;
+	private int size;
+	private long maxBytes;
+
+	private int records;
+	private long bytes;
+
+	// Auto mode
+	private boolean growing = true;
+	private double lastThroughput;
+
+
+	/**
+	 * Constructor for a fixed batch size.
+	 *
+	 * @param size The number of records in a batch.
+	 * @param maxBytes The maximum number of bytes bound to a batch, 0 for no maximum.
+	 */
+	public BatchSizer( int size, long maxBytes )
+	{
+		Assert.isTrue( size > 0 );
+		this.size = size;
+		this.maxBytes = maxBytes;
+	}
+
+	/**
+	 * Constructor for a batch size that is tuned while importing.
+	 *
+	 * @param maxBytes The maximum number of bytes bound to a batch, 0 for {@link #DEFAULT_MAX_BYTES}.
+	 */
+	public BatchSizer( long maxBytes )
+	{
+		this.auto = true;
+		this.size = DEFAULT_SIZE;
+		this.maxBytes = maxBytes > 0 ? maxBytes : DEFAULT_MAX_BYTES;
+	}
+
+	/**
+	 * Registers a record that has been added to the batch.
+	 *
+	 * @param bytes The approximate number of bytes bound to the record.
+	 * @return True if the batch needs to be executed now.
+	 */
+	public boolean add( long bytes )
+	{
+		this.records++;
+		this.bytes += bytes;
+		return this.records >= this.size || this.maxBytes > 0 && this.bytes >= this.maxBytes;
+	}
+
+	/**
+	 * @return True if records have been added to the batch since the last execution.
+	 */
+	public boolean isPending()
+	{
+		return this.records > 0;
+	}
+
+	/**
+	 * Executes the batch of the given statement, if records have been added since the last execution. In auto mode the
+	 * execution is timed and the batch size is adjusted.
+	 *
+	 * @param statement The statement.
+	 * @throws SQLException Whenever the execution throws it.
+	 */
+	public void executeBatch( PreparedStatement statement ) throws SQLException
+	{
+		if( this.records == 0 )
+			return;
+		if( !this.auto )
+		{
+			statement.executeBatch();
+			reset();
+			return;
+		}
+
+		long start = System.nanoTime();
+		statement.executeBatch();
+		executed( this.records, this.bytes >= this.maxBytes, System.nanoTime() - start );
+		reset();
+	}
+
+	/**
+	 * Forgets the records added since the last execution.
+	 */
+	public void reset()
+	{
+		this.records = 0;
+		this.bytes = 0;
+	}
+
+	/**
+	 * @return The current number of records in a batch.
+	 */
+	public int getSize()
+	{
+		return this.size;
+	}
+
+	/**
+	 * Adjusts the batch size after the execution of a batch.
+	 *
+	 * @param records The number of records in the executed batch.
+	 * @param full True if the batch was executed because of the byte maximum.
+	 * @param nanos The time it took to execute the batch.
+	 */
+	protected void executed( int records, boolean full, long nanos )
+	{
+		if( nanos > MAX_LATENCY )
+		{
+			this.growing = false;
+			this.size = Math.max( MIN_SIZE, Math.min( this.size, records ) / 2 );
+			this.lastThroughput = 0;
+			return;
+		}
+
+		// A batch that was cut short says nothing about the current size
+		if( records < this.size && !full )
+			return;
+
+		double throughput = records * 1000000000D / Math.max( nanos, 1 );
+		if( throughput < this.lastThroughput * 0.95 )
+			this.growing = !this.growing;
+		this.lastThroughput = throughput;
+
+		if( full )
+			this.growing = false; // No use in growing when the byte maximum is reached first
+
+		if( this.growing )
+			this.size = Math.min( MAX_SIZE, this.size + this.size / 2 );
+		else
+			this.size = Math.max( MIN_SIZE, this.size - this.size / 3 );
+	}
+}
@@ -0,0 +1,280 @@
+/*--
+ * Copyright 2012 Ren M. de Bloois
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package solidbase.util;
+
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+
+import solidbase.core.SystemException;
+
+
+/**
+ * A content-addressed file of binary values that stores every distinct value only once. Each value is hashed while it
+ * is written. When the same content has been stored before, the value is taken back from the file and the index of
+ * the earlier copy is returned, so that the references of the duplicates point to the same bytes.
+ *
+ * <p>The values are identified by the first 128 bits of their SHA-256 hash together with their length. The index of
+ * the hashes is kept in parallel arrays of longs, 32 bytes per distinct value. Values that fit in the write buffer are
+ * taken back without touching the file, larger values are taken back by truncating the file.</p>
+ *
+ * @author Ren M. de Bloois
+ */
+public class BlobStore
+{
+	static private final int BUFFER_SIZE = 65536;
+
+	private FileOutputStream out;
+	private MessageDigest digest;
+	private byte[] buffer = new byte[ BUFFER_SIZE ];
+	private int pos;
+	private long flushed; // The number of bytes in the file
+	private long length; // The length of the last stored value
+	private long duplicates;
+
+	// The index: open addressing with linear probing, an empty slot has length -1
+	private long[] hashes1;
+	private long[] hashes2;
+	private long[] indexes;
+	private long[] lengths;
+	private int count;
+
+
+	/**
+	 * Constructor.
+	 *
+	 * @param file The file to store the values in.
+	 * @throws FileNotFoundException When the file can't be created.
+	 */
+	public BlobStore( File file ) throws FileNotFoundException
+	{
+		this.out = new FileOutputStream( file );
+		try
+		{
+			this.digest = MessageDigest.getInstance( "SHA-256" );
+		}
+		catch( NoSuchAlgorithmException e )
+		{
+			throw new SystemException( e );
+		}
+		allocate( 1024 );
+	}
+
+	/**
+	 * Stores a value.
+	 *
+	 * @param bytes The value.
+	 * @return The index of the value in the file. The length is available from {@link #getLength()}.
+	 */
+	public long store( byte[] bytes )
+	{
+		long start = position();
+		write( bytes, 0, bytes.length );
+		return stored( start );
+	}
+
+	/**
+	 * Stores the value that is read from the given input stream. The input stream is closed.
+	 *
+	 * @param in The input stream to read the value from.
+	 * @return The index of the value in the file. The length is available from {@link #getLength()}.
+	 */
+	public long store( InputStream in )
+	{
+		long start = position();
+		try
+		{
+			try
+			{
+				byte[] buf = new byte[ 4096 ];
+				for( int read = in.read( buf ); read >= 0; read = in.read( buf ) )
+					write( buf, 0, read );
+			}
+			finally
+			{
+				in.close();
+			}
+		}
+		catch( IOException e )
+		{
+			throw new SystemException( e );
+		}
+		return stored( start );
+	}
+
+	/**
+	 * @return The length of the last stored value.
+	 */
+	public long getLength()
+	{
+		return this.length;
+	}
+
+	/**
+	 * @return The number of values that were found to be stored already.
+	 */
+	public long getDuplicates()
+	{
+		return this.duplicates;
+	}
+
+	/**
+	 * Flushes and closes the file.
+	 */
+	public void close()
+	{
+		try
+		{
+			flush();
+			this.out.close();
+		}
+		catch( IOException e )
+		{
+			throw new SystemException( e );
+		}
+	}
+
+	private long position()
+	{
+		return this.flushed + this.pos;
+	}
+
+	private void write( byte[] bytes, int offset, int len )
+	{
+		this.digest.update( bytes, offset, len );
+		while( len > 0 )
+		{
+			if( this.pos >= this.buffer.length )
+				flush();
+			int n = Math.min( len, this.buffer.length - this.pos );
+			System.arraycopy( bytes, offset, this.buffer, this.pos, n );
+			this.pos += n;
+			offset += n;
+			len -= n;
+		}
+	}
+
+	private void flush()
+	{
+		if( this.pos == 0 )
+			return;
+		try
+		{
+			this.out.write( this.buffer, 0, this.pos );
+		}
+		catch( IOException e )
+		{
+			throw new SystemException( e );
+		}
+		this.flushed += this.pos;
+		this.pos = 0;
+	}
+
+	// Looks up the value written since start, takes it back if it is a duplicate
+	private long stored( long start )
+	{
+		long length = position() - start;
+		this.length = length;
+
+		byte[] hash = this.digest.digest();
+		long hash1 = toLong( hash, 0 );
+		long hash2 = toLong( hash, 8 );
+
+		int mask = this.lengths.length - 1;
+		int slot = (int)hash1 & mask;
+		while( this.lengths[ slot ] >= 0 )
+		{
+			if( this.hashes1[ slot ] == hash1 && this.hashes2[ slot ] == hash2 && this.lengths[ slot ] == length )
+			{
+				takeBack( start );
+				this.duplicates++;
+				return this.indexes[ slot ];
+			}
+			slot = slot + 1 & mask;
+		}
+
+		this.hashes1[ slot ] = hash1;
+		this.hashes2[ slot ] = hash2;
+		this.indexes[ slot ] = start;
+		this.lengths[ slot ] = length;
+		if( ++this.count > this.lengths.length / 2 )
+			grow();
+		return start;
+	}
+
+	private void takeBack( long start )
+	{
+		if( start >= this.flushed )
+		{
+			this.pos = (int)( start - this.flushed ); // Still in the buffer
+			return;
+		}
+		try
+		{
+			this.out.getChannel().truncate( start ); // Also moves the position back
+		}
+		catch( IOException e )
+		{
+			throw new SystemException( e );
+		}
+		this.flushed = start;
+		this.pos = 0;
+	}
+
+	private void allocate( int capacity )
+	{
+		this.hashes1 = new long[ capacity ];
+		this.hashes2 = new long[ capacity ];
+		this.indexes = new long[ capacity ];
+		this.lengths = new long[ capacity ];
+		Arrays.fill( this.lengths, -1 );
+	}
+
+	private void grow()
+	{
+		long[] hashes1 = this.hashes1;
+		long[] hashes2 = this.hashes2;
+		long[] indexes = this.indexes;
+		long[] lengths = this.lengths;
+		allocate( lengths.length * 2 );
+		int mask = this.lengths.length - 1;
+		for( int i = 0; i < lengths.length; i++ )
+			if( lengths[ i ] >= 0 )
+			{
+				int slot = (int)hashes1[ i ] & mask;
+				while( this.lengths[ slot ] >= 0 )
+					slot = slot + 1 & mask;
+				this.hashes1[ slot ] = hashes1[ i ];
+				this.hashes2[ slot ] = hashes2[ i ];
+				this.indexes[ slot ] = indexes[ i ];
+				this.lengths[ slot ] = lengths[ i ];
+			}
+	}
+
+	static private long toLong( byte[] bytes, int offset )
+	{
+		long result = 0;
+		for( int i = offset; i < offset + 8; i++ )
+			result = result << 8 | bytes[ i ] & 0xFF;
+		return result;
+	}
+}
@@ -16,11 +16,6 @@
 
 package solidbase.util;
 
-import java.util.ArrayList;
-import java.util.List;
-
-import solidbase.core.SourceException;
-import solidbase.util.CSVTokenizer.Token;
 import solidstack.io.SourceLocation;
 import solidstack.io.SourceReader;
 
@@ -42,6 +37,11 @@ public class CSVReader
 	 */
 	protected char separator;
 
+	/**
+	 * The record used by {@link #getLine()}.
+	 */
+	protected CSVRecord record = new CSVRecord();
+
 
 	/**
 	 * Constructor.
@@ -51,11 +51,35 @@ public class CSVReader
 	 * @param ignoreWhiteSpace Ignore white space, except white space enclosed in double quotes.
 	 */
 	public CSVReader( SourceReader reader, char separator, boolean ignoreWhiteSpace )
+	{
+		this( new SourceBuffer( reader ), separator, ignoreWhiteSpace );
+	}
+
+	/**
+	 * Constructor.
+	 *
+	 * @param reader The source of the CSV data.
+	 * @param separator The separator that separates the values.
+	 * @param ignoreWhiteSpace Ignore white space, except white space enclosed in double quotes.
+	 */
+	public CSVReader( SourceBuffer reader, char separator, boolean ignoreWhiteSpace )
 	{
 		this.tokenizer = new CSVTokenizer( reader, separator, ignoreWhiteSpace );
 		this.separator = separator;
 	}
 
+	/**
+	 * Reads the next record of values from the CSV data into the given record. The record can be reused for every
+	 * record read, so no objects are created while reading.
+	 *
+	 * @param record The record to read into.
+	 * @return False if there are no more records, true otherwise.
+	 */
+	public boolean read( CSVRecord record )
+	{
+		return this.tokenizer.read( record );
+	}
+
 	/**
 	 * Gets a line of values from the CSV data.
 	 *
@@ -63,38 +87,10 @@ public class CSVReader
 	 */
 	public String[] getLine()
 	{
-		CSVTokenizer tokenizer = this.tokenizer;
-		List< String > values = new ArrayList< String >();
-
-		while( true )
-		{
-			Token token = tokenizer.get();
-
-			// We expect a value here. So if we get a separator/newline/EOI then we need to add an empty value
-			if( token.isSeparator() )
-			{
-				values.add( "" );
-			}
-			else if( token.isNewline() || token.isEndOfInput() )
-			{
-				if( values.size() > 0 ) // Only if values are already found
-					values.add( "" );
-				break;
-			}
-			else
-			{
-				values.add( token.getValue() );
-				token = tokenizer.get();
-				if( token.isNewline() || token.isEndOfInput() )
-					break;
-				if( !token.isSeparator() )
-					throw new SourceException( "Expecting <separator>, <newline> or <end-of-input>, not '" + token.getValue() + "'", tokenizer.getLocation() );
-			}
-		}
-
-		if( values.isEmpty() )
+		CSVRecord record = this.record;
+		if( !this.tokenizer.read( record ) )
 			return null;
-		return values.toArray( new String[ values.size() ] );
+		return record.toArray();
 	}
 
 	/**
@@ -0,0 +1,253 @@
+/*--
+ * Copyright 2010 Ren M. de Bloois
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package solidbase.util;
+
+
+/**
+ * A record of CSV values. The characters of all values are kept in a single character array, with an offset and a length
+ * for each value. A record can be reused for every record read with {@link CSVReader#read(CSVRecord)}, so that no
+ * objects are created while reading. Strings are only created when asked for with {@link #getString(int)}.
+ *
+ * @author Ren M. de Bloois
+ */
+public class CSVRecord
+{
+	private char[] chars;
+	private int length;
+
+	private int[] offsets;
+	private int[] lengths;
+	private int size;
+
+	private int lineNumber;
+
+
+	/**
+	 * Constructor.
+	 */
+	public CSVRecord()
+	{
+		this( 256, 16 );
+	}
+
+	/**
+	 * Constructor.
+	 *
+	 * @param chars The initial capacity in characters.
+	 * @param values The initial capacity in values.
+	 */
+	public CSVRecord( int chars, int values )
+	{
+		this.chars = new char[ Math.max( chars, 1 ) ];
+		this.offsets = new int[ Math.max( values, 1 ) ];
+		this.lengths = new int[ this.offsets.length ];
+	}
+
+	/**
+	 * Empties this record.
+	 *
+	 * @param lineNumber The line number of the record that is going to be read into this record.
+	 */
+	protected void clear( int lineNumber )
+	{
+		this.length = 0;
+		this.size = 0;
+		this.lineNumber = lineNumber;
+	}
+
+	/**
+	 * Starts a new value.
+	 */
+	protected void startValue()
+	{
+		if( this.size >= this.offsets.length )
+		{
+			int capacity = this.offsets.length * 2;
+			int[] offsets = new int[ capacity ];
+			int[] lengths = new int[ capacity ];
+			System.arraycopy( this.offsets, 0, offsets, 0, this.size );
+			System.arraycopy( this.lengths, 0, lengths, 0, this.size );
+			this.offsets = offsets;
+			this.lengths = lengths;
+		}
+		this.offsets[ this.size ] = this.length;
+		this.lengths[ this.size ] = 0;
+		this.size++;
+	}
+
+	/**
+	 * Appends characters to the current value.
+	 *
+	 * @param buffer The characters.
+	 * @param offset The offset of the characters to append.
+	 * @param count The number of characters to append.
+	 */
+	protected void append( char[] buffer, int offset, int count )
+	{
+		ensureCapacity( this.length + count );
+		System.arraycopy( buffer, offset, this.chars, this.length, count );
+		this.length += count;
+		this.lengths[ this.size - 1 ] += count;
+	}
+
+	/**
+	 * Appends a character to the current value.
+	 *
+	 * @param ch The character.
+	 */
+	protected void append( char ch )
+	{
+		ensureCapacity( this.length + 1 );
+		this.chars[ this.length++ ] = ch;
+		this.lengths[ this.size - 1 ]++;
+	}
+
+	/**
+	 * Removes characters from the end of the current value.
+	 *
+	 * @param count The number of characters to remove.
+	 */
+	protected void truncate( int count )
+	{
+		this.length -= count;
+		this.lengths[ this.size - 1 ] -= count;
+	}
+
+	/**
+	 * Adds an empty value.
+	 */
+	protected void addEmpty()
+	{
+		startValue();
+	}
+
+	private void ensureCapacity( int capacity )
+	{
+		if( capacity > this.chars.length )
+		{
+			char[] chars = new char[ Math.max( capacity, this.chars.length * 2 ) ];
+			System.arraycopy( this.chars, 0, chars, 0, this.length );
+			this.chars = chars;
+		}
+	}
+
+	/**
+	 * @return The number of values in this record.
+	 */
+	public int size()
+	{
+		return this.size;
+	}
+
+	/**
+	 * @return The line number where this record starts.
+	 */
+	public int getLineNumber()
+	{
+		return this.lineNumber;
+	}
+
+	/**
+	 * Returns the character array that contains the characters of the values. Use {@link #getOffset(int)} and
+	 * {@link #getLength(int)} to find the characters of a value.
+	 *
+	 * @return The character array.
+	 */
+	public char[] getChars()
+	{
+		return this.chars;
+	}
+
+	/**
+	 * @return The total number of characters of all values in this record.
+	 */
+	public int getCharCount()
+	{
+		return this.length;
+	}
+
+	/**
+	 * Returns the offset of the given value in the character array.
+	 *
+	 * @param index The index of the value.
+	 * @return The offset of the value in the character array.
+	 */
+	public int getOffset( int index )
+	{
+		checkIndex( index );
+		return this.offsets[ index ];
+	}
+
+	/**
+	 * Returns the length of the given value.
+	 *
+	 * @param index The index of the value.
+	 * @return The length of the value.
+	 */
+	public int getLength( int index )
+	{
+		checkIndex( index );
+		return this.lengths[ index ];
+	}
+
+	/**
+	 * Returns the given value as a string.
+	 *
+	 * @param index The index of the value.
+	 * @return The value.
+	 */
+	public String getString( int index )
+	{
+		checkIndex( index );
+		return new String( this.chars, this.offsets[ index ], this.lengths[ index ] );
+	}
+
+	private void checkIndex( int index )
+	{
+		if( index < 0 || index >= this.size )
+			throw new ArrayIndexOutOfBoundsException( index );
+	}
+
+	/**
+	 * @return All values as strings.
+	 */
+	public String[] toArray()
+	{
+		String[] result = new String[ this.size ];
+		for( int i = 0; i < this.size; i++ )
+			result[ i ] = new String( this.chars, this.offsets[ i ], this.lengths[ i ] );
+		return result;
+	}
+
+	/**
+	 * Returns a copy of this record that only takes the space it needs. Use this when the record needs to be kept while
+	 * this record is reused for reading the next record.
+	 *
+	 * @return A copy of this record.
+	 */
+	public CSVRecord copy()
+	{
+		CSVRecord result = new CSVRecord( this.length, this.size );
+		System.arraycopy( this.chars, 0, result.chars, 0, this.length );
+		System.arraycopy( this.offsets, 0, result.offsets, 0, this.size );
+		System.arraycopy( this.lengths, 0, result.lengths, 0, this.size );
+		result.length = this.length;
+		result.size = this.size;
+		result.lineNumber = this.lineNumber;
+		return result;
+	}
+}
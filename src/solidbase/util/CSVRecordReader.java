@@ -0,0 +1,127 @@
+/*--
+ * Copyright 2012 Ren M. de Bloois
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package solidbase.util;
+
+import java.io.Reader;
+
+
+/**
+ * Reads CSV records as CSV text, the format that is expected by the {@link solidbase.core.BulkLoader}s. The values are
+ * separated by commas and enclosed in double quotes, double quotes in the values are doubled. Empty values are written
+ * as nothing at all, which means null. The records are separated by newlines.
+ *
+ * @author Ren M. de Bloois
+ */
+public class CSVRecordReader extends Reader
+{
+	private RecordSource< CSVRecord > records;
+	private char[] buffer = new char[ 4096 ];
+	private int pos;
+	private int limit;
+	private boolean endOfInput;
+	private long count;
+
+
+	/**
+	 * Constructor.
+	 *
+	 * @param records The source of the records.
+	 */
+	public CSVRecordReader( RecordSource< CSVRecord > records )
+	{
+		this.records = records;
+	}
+
+	@Override
+	public int read( char[] cbuf, int off, int len )
+	{
+		if( len == 0 )
+			return 0;
+		while( this.pos >= this.limit )
+		{
+			if( this.endOfInput )
+				return -1;
+			fill();
+		}
+		int count = Math.min( len, this.limit - this.pos );
+		System.arraycopy( this.buffer, this.pos, cbuf, off, count );
+		this.pos += count;
+		return count;
+	}
+
+	/**
+	 * Writes the next record into the buffer.
+	 */
+	private void fill()
+	{
+		CSVRecord record = this.records.read();
+		if( record == null )
+		{
+			this.endOfInput = true;
+			return;
+		}
+		this.count++;
+
+		char[] chars = record.getChars();
+		int size = record.size();
+
+		// Worst case every character is a double quote
+		int needed = record.getCharCount() * 2 + size * 3 + 1;
+		if( needed > this.buffer.length )
+			this.buffer = new char[ Math.max( needed, this.buffer.length * 2 ) ];
+
+		char[] buffer = this.buffer;
+		int pos = 0;
+		for( int i = 0; i < size; i++ )
+		{
+			if( i > 0 )
+				buffer[ pos++ ] = ',';
+			int length = record.getLength( i );
+			if( length == 0 )
+				continue;
+			buffer[ pos++ ] = '"';
+			int offset = record.getOffset( i );
+			int end = offset + length;
+			for( int j = offset; j < end; j++ )
+			{
+				char ch = chars[ j ];
+				if( ch == '"' )
+					buffer[ pos++ ] = '"';
+				buffer[ pos++ ] = ch;
+			}
+			buffer[ pos++ ] = '"';
+		}
+		buffer[ pos++ ] = '\n';
+
+		this.pos = 0;
+		this.limit = pos;
+	}
+
+	/**
+	 * @return The number of records read so far.
+	 */
+	public long getCount()
+	{
+		return this.count;
+	}
+
+	@Override
+	public void close()
+	{
+		// Nothing to close
+	}
+}
@@ -19,20 +19,22 @@ package solidbase.util;
 import solidbase.core.SourceException;
 import solidstack.io.SourceLocation;
 import solidstack.io.SourceReader;
-import solidstack.io.PushbackReader;
 
 
 /**
  * This is a tokenizer for CSV. It maintains the current line number, and it ignores whitespace.
  *
+ * <p>The input is read into a {@link SourceBuffer} which is scanned directly.
+ * {@link #read(CSVRecord)} reads a complete record without creating any objects.</p>
+ *
  * @author Ren M. de Bloois
  */
 public class CSVTokenizer
 {
 	/**
-	 * The reader used to read from and push back characters.
+	 * The buffer to read from.
 	 */
-	protected PushbackReader in;
+	protected SourceBuffer in;
 
 	/**
 	 * The CSV separator.
@@ -64,7 +66,19 @@ public class CSVTokenizer
 	 */
 	public CSVTokenizer( SourceReader in, int separator, boolean ignoreWhiteSpace )
 	{
-		this.in = new PushbackReader( in );
+		this( new SourceBuffer( in ), separator, ignoreWhiteSpace );
+	}
+
+	/**
+	 * Constructs a new instance of the Tokenizer.
+	 *
+	 * @param in The input.
+	 * @param separator The CSV separator.
+	 * @param ignoreWhiteSpace Ignore white space, except white space enclosed in double quotes.
+	 */
+	public CSVTokenizer( SourceBuffer in, int separator, boolean ignoreWhiteSpace )
+	{
+		this.in = in;
 		this.separator = separator;
 		this.ignoreWhiteSpace = ignoreWhiteSpace;
 	}
@@ -112,7 +126,7 @@ public class CSVTokenizer
 			{
 				ch = this.in.read();
 				if( ch == -1 )
-					throw new SourceException( "Missing \"", this.in.getLocation() );
+					throw new SourceException( "Missing \"", getLocation() );
 				if( ch == '"' )
 				{
 					ch = this.in.read();
@@ -143,7 +157,7 @@ public class CSVTokenizer
 		do
 		{
 			if( ch == '"' )
-				throw new SourceException( "Unexpected \"", this.in.getLocation() );
+				throw new SourceException( "Unexpected \"", getLocation() );
 			if( ignoreWhiteSpace )
 			{
 				if( isWhitespace( ch ) )
@@ -174,6 +188,171 @@ public class CSVTokenizer
 		return new Token( result.toString() );
 	}
 
+	/**
+	 * Reads a complete record of values into the given record. The values are scanned directly from the buffer, no
+	 * objects are created. A record is ended by a newline or the end of the input. An empty line ends the CSV data.
+	 *
+	 * @param record The record to read into. Its previous contents are discarded.
+	 * @return False if the end of the CSV data has been reached, true otherwise.
+	 */
+	public boolean read( CSVRecord record )
+	{
+		boolean ignoreWhiteSpace = this.ignoreWhiteSpace;
+		int separator = this.separator;
+		SourceBuffer in = this.in;
+
+		record.clear( in.lineNumber );
+
+		while( true )
+		{
+			// We expect a value here. So if we get a separator/newline/EOI then we need to add an empty value
+			if( in.pos >= in.limit && !in.fill() )
+			{
+				if( record.size() == 0 )
+					return false;
+				record.addEmpty();
+				return true;
+			}
+
+			char[] buffer = in.buffer;
+			int pos = in.pos;
+			int limit = in.limit;
+
+			// Ignore whitespace
+			if( ignoreWhiteSpace )
+			{
+				while( pos < limit && isWhitespace( buffer[ pos ] ) && buffer[ pos ] != separator )
+					pos++;
+				in.pos = pos;
+				if( pos >= limit )
+					continue;
+			}
+
+			char ch = buffer[ pos ];
+			if( ch == '"' )
+			{
+				in.pos = pos + 1;
+				record.startValue();
+				readQuoted( record );
+
+				// After the value we expect a separator, newline or EOI
+				int next = in.read();
+				if( ignoreWhiteSpace )
+					while( isWhitespace( next ) && next != separator )
+						next = in.read();
+				if( next == separator )
+					continue;
+				if( next == '\n' || next == -1 )
+					return true;
+				in.push( next );
+				Token token = get();
+				throw new SourceException( "Expecting <separator>, <newline> or <end-of-input>, not '" + token.getValue() + "'", getLocation() );
+			}
+
+			if( ch == separator )
+			{
+				in.pos = pos + 1;
+				record.addEmpty();
+				continue;
+			}
+
+			if( ch == '\n' )
+			{
+				in.pos = pos + 1;
+				in.lineNumber++;
+				if( record.size() == 0 ) // Only if values are already found
+					return false;
+				record.addEmpty();
+				return true;
+			}
+
+			// Collect all characters until separator or newline or EOI
+			record.startValue();
+			int trailing = 0; // Whitespace at the end of the value
+			while( true )
+			{
+				buffer = in.buffer;
+				pos = in.pos;
+				limit = in.limit;
+				int start = pos;
+				while( pos < limit )
+				{
+					ch = buffer[ pos ];
+					if( ch == separator || ch == '\n' )
+						break;
+					if( ch == '"' )
+					{
+						in.pos = pos + 1;
+						throw new SourceException( "Unexpected \"", getLocation() );
+					}
+					if( ignoreWhiteSpace )
+					{
+						if( isWhitespace( ch ) )
+							trailing++;
+						else
+							trailing = 0;
+					}
+					pos++;
+				}
+				record.append( buffer, start, pos - start );
+				in.pos = pos;
+				if( pos < limit || !in.fill() )
+					break;
+			}
+			record.truncate( trailing );
+
+			if( in.pos >= in.limit )
+				return true; // End of input
+			ch = in.buffer[ in.pos++ ];
+			if( ch == '\n' )
+			{
+				in.lineNumber++;
+				return true;
+			}
+			// Separator, continue with the next value
+		}
+	}
+
+	/**
+	 * Reads the characters of a value enclosed by double quotes. The opening " has already been read.
+	 *
+	 * @param record The record to add the characters to.
+	 */
+	protected void readQuoted( CSVRecord record )
+	{
+		SourceBuffer in = this.in;
+		while( true )
+		{
+			if( in.pos >= in.limit && !in.fill() )
+				throw new SourceException( "Missing \"", getLocation() );
+
+			char[] buffer = in.buffer;
+			int start = in.pos;
+			int limit = in.limit;
+			int pos = start;
+			while( pos < limit && buffer[ pos ] != '"' )
+			{
+				if( buffer[ pos ] == '\n' )
+					in.lineNumber++;
+				pos++;
+			}
+			record.append( buffer, start, pos - start );
+			in.pos = pos;
+			if( pos >= limit )
+				continue;
+
+			// Found a ", double "" do not end the string
+			in.pos++;
+			int ch = in.read();
+			if( ch != '"' )
+			{
+				in.push( ch );
+				return;
+			}
+			record.append( '"' );
+		}
+	}
+
 	/**
 	 * Returns the current line number.
 	 *
@@ -195,15 +374,23 @@ public class CSVTokenizer
 	}
 
 	/**
-	 * Returns the underlying reader. But only if the back buffer is empty, otherwise an IllegalStateException is thrown.
+	 * Returns the underlying reader. But only if the buffer is empty, otherwise an IllegalStateException is thrown.
 	 *
-	 * @return The underlying reader.
+	 * @return The underlying reader, null if the input is not read a line at a time.
 	 */
 	public SourceReader getReader()
 	{
 		return this.in.getReader();
 	}
 
+	/**
+	 * Closes the input.
+	 */
+	public void close()
+	{
+		this.in.close();
+	}
+
 
 	/**
 	 * A CSV token.
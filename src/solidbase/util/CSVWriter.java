@@ -20,13 +20,15 @@ import java.io.IOException;
 import java.io.InputStream;
 import java.io.Reader;
 import java.io.Writer;
-import java.util.regex.Pattern;
+import java.math.BigDecimal;
+import java.sql.Timestamp;
 
 import solidbase.core.SystemException;
 
 
 /**
- * A CSV writer.
+ * A CSV writer. The values are written to an internal buffer, which is written to the writer when it is full. Values
+ * that contain the separator, a double quote, a carriage return or a newline are enclosed in double quotes.
  *
  * @author Ren de Bloois
  */
@@ -34,13 +36,18 @@ public class CSVWriter
 {
 	static private final char[] HEX = "0123456789ABCDEF".toCharArray();
 	static private final String HEX_ENCODING = "^HEX:"; // TODO Final decision
+	static private final int BUFFER_SIZE = 8192;
 
 	private Writer out;
 	private char separator;
-	private Pattern needQuotesPattern;
+	private boolean[] needQuotes; // Indexed by character, the characters that need the value to be enclosed in double quotes
 	private boolean extendedFormat; // TODO Remove
 	private boolean valueWritten;
 
+	private char[] buffer = new char[ BUFFER_SIZE ];
+	private int pos;
+	private char[] scratch = new char[ 4096 ]; // For reading CLOBs and formatting numbers and timestamps
+
 
 	/**
 	 * @param out A writer.
@@ -57,8 +64,12 @@ public class CSVWriter
 		this.separator = separator;
 		this.extendedFormat = extendedFormat;
 
-		// Pattern: ", CR, NL or parsed.separator, or ^ when extended format is enabled
-		this.needQuotesPattern = Pattern.compile( "\"|\r|\n|" + Pattern.quote( Character.toString( separator ) ) + ( extendedFormat ? "|^\\^" : "" ) );
+		// ", CR, NL or the separator. A ^ at the start of the value when extended format is enabled is checked separately
+		this.needQuotes = new boolean[ Math.max( 128, separator + 1 ) ];
+		this.needQuotes[ '"' ] = true;
+		this.needQuotes[ '\r' ] = true;
+		this.needQuotes[ '\n' ] = true;
+		this.needQuotes[ separator ] = true;
 	}
 
 	/**
@@ -72,33 +83,158 @@ public class CSVWriter
 		internalWriteValue( value );
 	}
 
+	/**
+	 * Write a number.
+	 *
+	 * @param value The number to write.
+	 */
+	public void writeValue( long value )
+	{
+		writeSeparatorIfNeeded();
+		if( value == Long.MIN_VALUE )
+		{
+			internalWriteValue( Long.toString( value ) ); // Cannot be negated
+			return;
+		}
+
+		char[] chars = this.scratch;
+		int start = chars.length;
+		boolean negative = value < 0;
+		if( negative )
+			value = -value;
+		do
+		{
+			chars[ --start ] = (char)( '0' + value % 10 );
+			value /= 10;
+		}
+		while( value != 0 );
+		if( negative )
+			chars[ --start ] = '-';
+		internalWriteValue( chars, start, chars.length - start );
+	}
+
+	/**
+	 * Write a number.
+	 *
+	 * @param value The number to write.
+	 */
+	public void writeValue( BigDecimal value )
+	{
+		writeSeparatorIfNeeded();
+		if( value != null )
+			internalWriteValue( value.toString() );
+	}
+
+	/**
+	 * Write a timestamp, in the same format as {@link Timestamp#toString()}.
+	 *
+	 * @param value The timestamp to write.
+	 */
+	@SuppressWarnings( "deprecation" )
+	public void writeValue( Timestamp value )
+	{
+		writeSeparatorIfNeeded();
+		if( value == null )
+			return;
+
+		char[] chars = this.scratch;
+		int year = value.getYear() + 1900;
+		if( year < 1000 || year > 9999 )
+		{
+			internalWriteValue( value.toString() );
+			return;
+		}
+		int len = digits( chars, 0, year, 4 );
+		chars[ len++ ] = '-';
+		len = digits( chars, len, value.getMonth() + 1, 2 );
+		chars[ len++ ] = '-';
+		len = digits( chars, len, value.getDate(), 2 );
+		chars[ len++ ] = ' ';
+		len = digits( chars, len, value.getHours(), 2 );
+		chars[ len++ ] = ':';
+		len = digits( chars, len, value.getMinutes(), 2 );
+		chars[ len++ ] = ':';
+		len = digits( chars, len, value.getSeconds(), 2 );
+		chars[ len++ ] = '.';
+		int nanos = value.getNanos();
+		if( nanos == 0 )
+			chars[ len++ ] = '0';
+		else
+		{
+			len = digits( chars, len, nanos, 9 );
+			while( chars[ len - 1 ] == '0' )
+				len--;
+		}
+		internalWriteValue( chars, 0, len );
+	}
+
+	static private int digits( char[] chars, int pos, int value, int count )
+	{
+		for( int i = pos + count - 1; i >= pos; i-- )
+		{
+			chars[ i ] = (char)( '0' + value % 10 );
+			value /= 10;
+		}
+		return pos + count;
+	}
+
 	private void internalWriteValue( String value )
 	{
 		if( value == null )
 			return;
-		try
+
+		int len = value.length();
+		boolean[] needQuotes = this.needQuotes;
+		boolean quotes = this.extendedFormat && len > 0 && value.charAt( 0 ) == '^';
+		for( int i = 0; i < len && !quotes; i++ )
+		{
+			char c = value.charAt( i );
+			quotes = c < needQuotes.length && needQuotes[ c ];
+		}
+
+		if( !quotes )
 		{
-			boolean needQuotes = this.needQuotesPattern.matcher( value ).find();
-			if( needQuotes )
+			int i = 0;
+			while( i < len )
 			{
-				this.out.write( '"' );
-				int len = value.length();
-				for( int i = 0; i < len; i++ )
-				{
-					char c = value.charAt( i );
-					if( c == '"' )
-						this.out.write( c );
-					this.out.write( c );
-				}
-				this.out.write( '"' );
+				if( this.pos >= this.buffer.length )
+					flushBuffer();
+				int count = Math.min( len - i, this.buffer.length - this.pos );
+				value.getChars( i, i + count, this.buffer, this.pos );
+				this.pos += count;
+				i += count;
 			}
-			else
-				this.out.write( value );
+			return;
 		}
-		catch( IOException e )
+
+		write( '"' );
+		for( int i = 0; i < len; i++ )
 		{
-			throw new SystemException( e );
+			char c = value.charAt( i );
+			if( c == '"' )
+				write( c );
+			write( c );
+		}
+		write( '"' );
+	}
+
+	private void internalWriteValue( char[] chars, int start, int len )
+	{
+		int end = start + len;
+		boolean[] needQuotes = this.needQuotes;
+		boolean quotes = false;
+		for( int i = start; i < end && !quotes; i++ )
+		{
+			char c = chars[ i ];
+			quotes = c < needQuotes.length && needQuotes[ c ];
 		}
+
+		if( quotes )
+			write( '"' );
+		for( int i = start; i < end; i++ )
+			write( chars[ i ] ); // Numbers and timestamps do not contain double quotes
+		if( quotes )
+			write( '"' );
 	}
 
 	/**
@@ -111,11 +247,17 @@ public class CSVWriter
 		writeSeparatorIfNeeded();
 		try
 		{
-			this.out.write( '"' );
-			char[] buf = new char[ 4096 ];
+			write( '"' );
+			char[] buf = this.scratch;
 			for( int read = reader.read( buf ); read >= 0; read = reader.read( buf ) )
-				this.out.write( new String( buf, 0, read ).replace( "\"", "\"\"" ) );
-			this.out.write( '"' );
+				for( int i = 0; i < read; i++ )
+				{
+					char c = buf[ i ];
+					if( c == '"' )
+						write( c );
+					write( c );
+				}
+			write( '"' );
 		}
 		catch( IOException e )
 		{
@@ -134,18 +276,11 @@ public class CSVWriter
 		try
 		{
 			if( this.extendedFormat )
-				this.out.write( HEX_ENCODING );
+				writeRaw( HEX_ENCODING );
 
 			byte[] buf = new byte[ 4096 ];
 			for( int read = in.read( buf ); read >= 0; read = in.read( buf ) )
-			{
-				for( int j = 0; j < read; j++ )
-				{
-					int b = buf[ j ];
-					this.out.write( HEX[ b >> 4 & 15 ] );
-					this.out.write( HEX[ b & 15 ] );
-				}
-			}
+				writeHex( buf, read );
 		}
 		catch( IOException e )
 		{
@@ -163,39 +298,61 @@ public class CSVWriter
 		writeSeparatorIfNeeded();
 		if( value == null )
 			return;
-		try
-		{
-			if( this.extendedFormat )
-				this.out.write( HEX_ENCODING );
+		if( this.extendedFormat )
+			writeRaw( HEX_ENCODING );
+		writeHex( value, value.length );
+	}
 
-			for( int b : value )
+	private void writeHex( byte[] bytes, int len )
+	{
+		char[] buffer = this.buffer;
+		int pos = this.pos;
+		for( int i = 0; i < len; i++ )
+		{
+			if( pos + 2 > buffer.length )
 			{
-				this.out.write( HEX[ b >> 4 & 15 ] );
-				this.out.write( HEX[ b & 15 ] );
+				this.pos = pos;
+				flushBuffer();
+				pos = 0;
 			}
+			int b = bytes[ i ];
+			buffer[ pos++ ] = HEX[ b >> 4 & 15 ];
+			buffer[ pos++ ] = HEX[ b & 15 ];
 		}
-		catch( IOException e )
-		{
-			throw new SystemException( e );
-		}
+		this.pos = pos;
+	}
+
+	private void writeRaw( String s )
+	{
+		int len = s.length();
+		for( int i = 0; i < len; i++ )
+			write( s.charAt( i ) );
+	}
+
+	private void write( char c )
+	{
+		if( this.pos >= this.buffer.length )
+			flushBuffer();
+		this.buffer[ this.pos++ ] = c;
 	}
 
-	private void nextValue()
+	private void flushBuffer()
 	{
 		try
 		{
-			this.out.write( this.separator );
+			this.out.write( this.buffer, 0, this.pos );
 		}
 		catch( IOException e )
 		{
 			throw new SystemException( e );
 		}
+		this.pos = 0;
 	}
 
 	private void writeSeparatorIfNeeded()
 	{
 		if( this.valueWritten )
-			nextValue();
+			write( this.separator );
 		this.valueWritten = true;
 	}
 
@@ -205,14 +362,7 @@ public class CSVWriter
 	public void nextRecord()
 	{
 		this.valueWritten = false;
-		try
-		{
-			this.out.write( '\n' );
-		}
-		catch( IOException e )
-		{
-			throw new SystemException( e );
-		}
+		write( '\n' );
 	}
 
 	/**
@@ -226,15 +376,24 @@ public class CSVWriter
 		Assert.isTrue( this.extendedFormat );
 
 		writeSeparatorIfNeeded();
+		write( '^' );
+		internalWriteValue( value );
+	}
+
+	/**
+	 * Writes the buffered values to the writer and flushes the writer.
+	 */
+	public void flush()
+	{
+		flushBuffer();
 		try
 		{
-			this.out.write( '^' );
+			this.out.flush();
 		}
 		catch( IOException e )
 		{
 			throw new SystemException( e );
 		}
-		internalWriteValue( value );
 	}
 
 	/**
@@ -244,6 +403,8 @@ public class CSVWriter
 	{
 		try
 		{
+			if( this.pos > 0 )
+				flushBuffer();
 			this.out.close();
 		}
 		catch( IOException e )
@@ -1,5 +1,6 @@
 package solidbase.util;
 
+import java.io.Closeable;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.Reader;
@@ -16,7 +17,7 @@ import solidbase.core.SystemException;
  */
 public class CloseQueue
 {
-	private List< Object > files = new ArrayList< Object >();
+	private List< Closeable > files = new ArrayList< Closeable >();
 
 	/**
 	 * Add an input stream.
@@ -41,19 +42,25 @@ public class CloseQueue
 	}
 
 	/**
-	 * Close all registered input streams and readers.
+	 * Add another file, for example {@link FileSegments}.
+	 *
+	 * @param file A file.
+	 */
+	public void add( Closeable file )
+	{
+		Assert.notNull( file );
+		this.files.add( file );
+	}
+
+	/**
+	 * Close all registered input streams, readers and other files.
 	 */
 	public void closeAll()
 	{
 		try
 		{
-			for( Object file : this.files )
-			{
-				if( file instanceof InputStream )
-					( (InputStream)file ).close();
-				else
-					( (Reader)file ).close();
-			}
+			for( Closeable file : this.files )
+				file.close();
 		}
 		catch( IOException e )
 		{
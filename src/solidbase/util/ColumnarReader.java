@@ -0,0 +1,425 @@
+/*--
+ * Copyright 2012 Ren M. de Bloois
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package solidbase.util;
+
+import java.io.BufferedInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UnsupportedEncodingException;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.sql.Time;
+import java.sql.Timestamp;
+import java.util.Arrays;
+
+import solidbase.core.FatalException;
+import solidbase.core.SystemException;
+import solidstack.io.SourceReaders;
+
+
+/**
+ * Reads records in the SolidBase binary dump format. A whole row group is decoded at a time, after which the records
+ * are read from memory.
+ *
+ * @author Ren M. de Bloois
+ * @see ColumnarWriter
+ */
+public class ColumnarReader
+{
+	private InputStream in;
+	private JSONObject header;
+	private int[] types;
+	private int[] encodings;
+
+	// The decoded row group
+	private int rows;
+	private int row;
+	private boolean end;
+	private boolean[][] nulls;
+	private long[][] longs;
+	private Object[][] objects;
+
+	// The chunk being decoded
+	private byte[] data = new byte[ 4096 ];
+	private int pos;
+
+
+	/**
+	 * Constructor. Reads the start of the file and the header.
+	 *
+	 * @param in The input stream to read from.
+	 */
+	public ColumnarReader( InputStream in )
+	{
+		this.in = new BufferedInputStream( in, 65536 );
+
+		try
+		{
+			byte[] magic = ColumnarWriter.MAGIC;
+			readFully( magic.length );
+			for( int i = 0; i < magic.length; i++ )
+				if( this.data[ i ] != magic[ i ] )
+					throw new FatalException( "Not a SolidBase binary dump file, or an unsupported version" );
+
+			int length = readLength();
+			readFully( length );
+			String header = new String( this.data, 0, length, ColumnarWriter.UTF8 );
+			this.header = (JSONObject)new JSONReader( SourceReaders.forString( header ) ).read();
+		}
+		catch( IOException e )
+		{
+			throw new SystemException( e );
+		}
+
+		JSONArray fields = this.header.getArray( "fields" );
+		int count = fields.size();
+		this.types = new int[ count ];
+		this.encodings = new int[ count ];
+		this.nulls = new boolean[ count ][];
+		this.longs = new long[ count ][];
+		this.objects = new Object[ count ][];
+		for( int i = 0; i < count; i++ )
+		{
+			JSONObject field = (JSONObject)fields.get( i );
+			this.types[ i ] = JDBCSupport.fromTypeName( field.getString( "type" ) );
+			this.encodings[ i ] = ColumnarWriter.getEncoding( this.types[ i ] );
+			if( this.encodings[ i ] == 0 )
+				throw new FatalException( "Unsupported type " + field.getString( "type" ) + " of field " + field.getString( "name" ) );
+		}
+	}
+
+	/**
+	 * @return The header of the file.
+	 */
+	public JSONObject getHeader()
+	{
+		return this.header;
+	}
+
+	/**
+	 * @return The JDBC types of the fields.
+	 */
+	public int[] getTypes()
+	{
+		return this.types;
+	}
+
+	/**
+	 * @return The encodings of the fields.
+	 */
+	public int[] getEncodings()
+	{
+		return this.encodings;
+	}
+
+	/**
+	 * Moves to the next record.
+	 *
+	 * @return False if there are no more records.
+	 */
+	public boolean next()
+	{
+		if( ++this.row < this.rows )
+			return true;
+		if( this.end )
+			return false;
+		try
+		{
+			readRowGroup();
+		}
+		catch( IOException e )
+		{
+			throw new SystemException( e );
+		}
+		return !this.end;
+	}
+
+	/**
+	 * Returns true if the value of the given field of the current record is null.
+	 *
+	 * @param field The index of the field.
+	 * @return True if the value is null.
+	 */
+	public boolean isNull( int field )
+	{
+		return this.nulls[ field ][ this.row ];
+	}
+
+	/**
+	 * Returns the value of a field with the {@link ColumnarWriter#INTEGER} encoding. Check {@link #isNull(int)} first.
+	 *
+	 * @param field The index of the field.
+	 * @return The value.
+	 */
+	public long getLong( int field )
+	{
+		return this.longs[ field ][ this.row ];
+	}
+
+	/**
+	 * Returns the value of a field: a Long, BigDecimal, Double, Boolean, String, java.sql.Date, Time, Timestamp or byte
+	 * array, depending on the encoding.
+	 *
+	 * @param field The index of the field.
+	 * @return The value, null if the value is null.
+	 */
+	public Object getObject( int field )
+	{
+		if( this.nulls[ field ][ this.row ] )
+			return null;
+		if( this.encodings[ field ] == ColumnarWriter.INTEGER )
+			return Long.valueOf( this.longs[ field ][ this.row ] );
+		return this.objects[ field ][ this.row ];
+	}
+
+	/**
+	 * Closes the input stream.
+	 */
+	public void close()
+	{
+		try
+		{
+			this.in.close();
+		}
+		catch( IOException e )
+		{
+			throw new SystemException( e );
+		}
+	}
+
+	/**
+	 * Reads and decodes the next row group.
+	 *
+	 * @throws IOException Whenever the input stream throws it.
+	 */
+	protected void readRowGroup() throws IOException
+	{
+		int rows = readLength();
+		this.row = 0;
+		this.rows = rows;
+		if( rows == 0 )
+		{
+			this.end = true;
+			return;
+		}
+
+		for( int i = 0; i < this.encodings.length; i++ )
+		{
+			if( this.nulls[ i ] == null || this.nulls[ i ].length < rows )
+			{
+				this.nulls[ i ] = new boolean[ rows ];
+				if( this.encodings[ i ] == ColumnarWriter.INTEGER )
+					this.longs[ i ] = new long[ rows ];
+				else
+					this.objects[ i ] = new Object[ rows ];
+			}
+
+			readFully( readLength() );
+			readBitmap( this.nulls[ i ], rows );
+			if( this.encodings[ i ] == ColumnarWriter.INTEGER )
+				readLongs( this.longs[ i ], this.nulls[ i ], rows );
+			else
+				readObjects( this.encodings[ i ], this.objects[ i ], this.nulls[ i ], rows );
+		}
+	}
+
+	private void readBitmap( boolean[] nulls, int rows )
+	{
+		byte[] data = this.data;
+		int start = this.pos;
+		for( int i = 0; i < rows; i++ )
+			nulls[ i ] = ( data[ start + ( i >> 3 ) ] & 1 << ( i & 7 ) ) != 0;
+		this.pos += ( rows + 7 ) / 8;
+	}
+
+	private void readLongs( long[] values, boolean[] nulls, int rows )
+	{
+		for( int i = 0; i < rows; i++ )
+			if( !nulls[ i ] )
+				values[ i ] = readSigned();
+	}
+
+	@SuppressWarnings( "deprecation" )
+	private void readObjects( int encoding, Object[] values, boolean[] nulls, int rows )
+	{
+		if( encoding == ColumnarWriter.STRING )
+		{
+			readStrings( values, nulls, rows );
+			return;
+		}
+
+		Arrays.fill( values, null ); // Don't keep the values of the previous row group alive
+		for( int i = 0; i < rows; i++ )
+			if( !nulls[ i ] )
+				switch( encoding )
+				{
+					case ColumnarWriter.DECIMAL:
+						int scale = (int)readSigned();
+						int length = (int)readUnsigned();
+						BigInteger unscaled;
+						if( length == 0 )
+							unscaled = BigInteger.valueOf( readSigned() );
+						else
+						{
+							unscaled = new BigInteger( readBytes( length ) );
+						}
+						values[ i ] = new BigDecimal( unscaled, scale );
+						break;
+					case ColumnarWriter.DOUBLE:
+						long bits = 0;
+						for( int j = 0; j < 8; j++ )
+							bits = bits << 8 | this.data[ this.pos++ ] & 0xFF;
+						values[ i ] = Double.longBitsToDouble( bits );
+						break;
+					case ColumnarWriter.BOOLEAN:
+						values[ i ] = this.data[ this.pos++ ] != 0;
+						break;
+					case ColumnarWriter.DATE:
+						long date = readSigned();
+						values[ i ] = new java.sql.Date( (int)( date >> 9 ) - 1900, (int)( date >> 5 & 15 ) - 1, (int)( date & 31 ) );
+						break;
+					case ColumnarWriter.TIME:
+						int seconds = (int)readUnsigned();
+						values[ i ] = new Time( seconds / 3600, seconds / 60 % 60, seconds % 60 );
+						break;
+					case ColumnarWriter.TIMESTAMP:
+						date = readSigned();
+						seconds = (int)readUnsigned();
+						int nanos = (int)readUnsigned();
+						values[ i ] = new Timestamp( (int)( date >> 9 ) - 1900, (int)( date >> 5 & 15 ) - 1, (int)( date & 31 ), seconds / 3600, seconds / 60 % 60, seconds % 60, nanos );
+						break;
+					case ColumnarWriter.BYTES:
+						length = (int)readUnsigned();
+						values[ i ] = readBytes( length );
+						break;
+					default:
+						Assert.fail( "Unexpected encoding " + encoding );
+				}
+	}
+
+	private void readStrings( Object[] values, boolean[] nulls, int rows )
+	{
+		Arrays.fill( values, null );
+		int layout = this.data[ this.pos++ ];
+		if( layout == ColumnarWriter.DICTIONARY )
+		{
+			String[] dictionary = new String[ (int)readUnsigned() ];
+			for( int i = 0; i < dictionary.length; i++ )
+				dictionary[ i ] = readString();
+			for( int i = 0; i < rows; i++ )
+				if( !nulls[ i ] )
+					values[ i ] = dictionary[ (int)readUnsigned() ];
+		}
+		else
+		{
+			Assert.isTrue( layout == ColumnarWriter.PLAIN, "Unexpected string layout " + layout );
+			for( int i = 0; i < rows; i++ )
+				if( !nulls[ i ] )
+					values[ i ] = readString();
+		}
+	}
+
+	private String readString()
+	{
+		int length = (int)readUnsigned();
+		String result;
+		try
+		{
+			result = new String( this.data, this.pos, length, ColumnarWriter.UTF8 );
+		}
+		catch( UnsupportedEncodingException e )
+		{
+			throw new SystemException( e );
+		}
+		this.pos += length;
+		return result;
+	}
+
+	private byte[] readBytes( int length )
+	{
+		byte[] result = new byte[ length ];
+		System.arraycopy( this.data, this.pos, result, 0, length );
+		this.pos += length;
+		return result;
+	}
+
+	private long readSigned()
+	{
+		long value = readUnsigned();
+		return value >>> 1 ^ -( value & 1 );
+	}
+
+	private long readUnsigned()
+	{
+		byte[] data = this.data;
+		long result = 0;
+		int shift = 0;
+		byte b;
+		do
+		{
+			b = data[ this.pos++ ];
+			result |= (long)( b & 0x7F ) << shift;
+			shift += 7;
+		}
+		while( b < 0 );
+		return result;
+	}
+
+	/**
+	 * Reads a variable length integer from the input stream, a length or a number of rows that precedes a chunk.
+	 *
+	 * @return The integer.
+	 * @throws IOException Whenever the input stream throws it.
+	 */
+	private int readLength() throws IOException
+	{
+		int result = 0;
+		int shift = 0;
+		int b;
+		do
+		{
+			b = this.in.read();
+			if( b < 0 )
+				throw new FatalException( "Unexpected end of binary dump file" );
+			result |= ( b & 0x7F ) << shift;
+			shift += 7;
+		}
+		while( ( b & 0x80 ) != 0 );
+		return result;
+	}
+
+	/**
+	 * Reads the given number of bytes from the input stream into the chunk buffer.
+	 *
+	 * @param length The number of bytes.
+	 * @throws IOException Whenever the input stream throws it.
+	 */
+	private void readFully( int length ) throws IOException
+	{
+		if( this.data.length < length )
+			this.data = new byte[ Math.max( length, this.data.length * 2 ) ];
+		int pos = 0;
+		while( pos < length )
+		{
+			int read = this.in.read( this.data, pos, length - pos );
+			if( read < 0 )
+				throw new FatalException( "Unexpected end of binary dump file" );
+			pos += read;
+		}
+		this.pos = 0;
+	}
+}
@@ -0,0 +1,635 @@
+/*--
+ * Copyright 2012 Ren M. de Bloois
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package solidbase.util;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.Reader;
+import java.io.UnsupportedEncodingException;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.sql.Blob;
+import java.sql.Clob;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import solidbase.core.SystemException;
+
+
+/**
+ * Writes records in the SolidBase binary dump format, a columnar format that is a lot smaller and faster to load than
+ * the JSON dump format.
+ *
+ * <p>The file starts with {@link #MAGIC}, followed by the length of the header and the header itself: a JSON object
+ * with the same properties and fields as the header of a JSON dump. The records follow in row groups. A row group
+ * starts with its number of rows, followed by a chunk for each field containing the values of that field for all the
+ * rows in the group. A chunk starts with its length in bytes, followed by a bitmap of the rows that are null and the
+ * values of the rows that are not null. A row group of 0 rows marks the end of the file.</p>
+ *
+ * <p>Integers and lengths are written as variable length integers, so small values take few bytes. A string chunk with
+ * many repeated values is dictionary encoded: the distinct values are written once, followed by the index in the
+ * dictionary of the value of each row. Binary and character LOBs are written as raw length prefixed segments.</p>
+ *
+ * @author Ren M. de Bloois
+ * @see ColumnarReader
+ */
+public class ColumnarWriter
+{
+	/** The bytes that a binary dump file starts with. The last byte is the version of the format. */
+	static public final byte[] MAGIC = { 'S', 'B', 'C', 'D', 1 };
+
+	/** The default number of rows in a row group. */
+	static public final int DEFAULT_ROW_GROUP = 10000;
+
+	/** The number of buffered bytes after which a row group is written, even if it does not have all its rows yet. */
+	static public final int MAX_GROUP_BYTES = 16 * 1024 * 1024;
+
+	/** Encoding of TINYINT, SMALLINT, INTEGER and BIGINT values: a zigzag variable length integer. */
+	static public final int INTEGER = 1;
+
+	/** Encoding of DECIMAL and NUMERIC values: the scale followed by the unscaled value. */
+	static public final int DECIMAL = 2;
+
+	/** Encoding of FLOAT, REAL and DOUBLE values: the 8 bytes of the double. */
+	static public final int DOUBLE = 3;
+
+	/** Encoding of BOOLEAN and BIT(1) values: a single byte. A longer BIT should be written as VARBINARY. */
+	static public final int BOOLEAN = 4;
+
+	/** Encoding of character values and CLOBs: length prefixed UTF-8, plain or dictionary encoded. */
+	static public final int STRING = 5;
+
+	/** Encoding of DATE values: the year, month and day packed into a variable length integer. */
+	static public final int DATE = 6;
+
+	/** Encoding of TIME values: the second of the day. */
+	static public final int TIME = 7;
+
+	/** Encoding of TIMESTAMP values: the packed date, the second of the day and the nanoseconds. */
+	static public final int TIMESTAMP = 8;
+
+	/** Encoding of binary values and BLOBs: length prefixed bytes. */
+	static public final int BYTES = 9;
+
+	/** The layout of a string chunk with the values written one after another. */
+	static final int PLAIN = 0;
+
+	/** The layout of a string chunk with a dictionary of distinct values followed by an index for each value. */
+	static final int DICTIONARY = 1;
+
+	static final String UTF8 = "UTF-8";
+
+	private OutputStream out;
+	private int[] encodings;
+	private int rowGroup;
+
+	// The buffered row group
+	private int rows;
+	private boolean[][] nulls;
+	private Chunk[] chunks;
+	private String[][] strings;
+	private long stringBytes;
+
+	// Scratch buffer for the parts that are not written to a chunk
+	private Chunk scratch = new Chunk();
+
+
+	/**
+	 * Constructor. Writes the start of the file and the header.
+	 *
+	 * @param out The output stream to write to.
+	 * @param header The header, its fields need to match the given types.
+	 * @param types The JDBC types of the fields.
+	 * @param rowGroup The number of rows in a row group.
+	 */
+	public ColumnarWriter( OutputStream out, JSONObject header, int[] types, int rowGroup )
+	{
+		Assert.isTrue( rowGroup > 0 );
+
+		int fields = types.length;
+		this.out = new BufferedOutputStream( out, 65536 );
+		this.encodings = new int[ fields ];
+		this.rowGroup = rowGroup;
+		this.nulls = new boolean[ fields ][ rowGroup ];
+		this.chunks = new Chunk[ fields ];
+		this.strings = new String[ fields ][];
+
+		for( int i = 0; i < fields; i++ )
+		{
+			int encoding = getEncoding( types[ i ] );
+			Assert.isTrue( encoding > 0, "Unsupported JDBC type " + types[ i ] );
+			this.encodings[ i ] = encoding;
+			this.chunks[ i ] = new Chunk();
+			if( encoding == STRING )
+				this.strings[ i ] = new String[ rowGroup ];
+		}
+
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		JSONWriter writer = new JSONWriter( bytes );
+		writer.write( header );
+		writer.close();
+
+		try
+		{
+			this.out.write( MAGIC );
+			this.scratch.writeUnsigned( bytes.size() );
+			this.scratch.writeTo( this.out );
+			bytes.writeTo( this.out );
+		}
+		catch( IOException e )
+		{
+			throw new SystemException( e );
+		}
+	}
+
+	/**
+	 * Returns the encoding of the values of the given JDBC type. BIT is taken to be BIT(1), a boolean.
+	 *
+	 * @param type The JDBC type.
+	 * @return The encoding, 0 if values of the type can't be written.
+	 */
+	static public int getEncoding( int type )
+	{
+		switch( type )
+		{
+			case Types.TINYINT:
+			case Types.SMALLINT:
+			case Types.INTEGER:
+			case Types.BIGINT:
+				return INTEGER;
+			case Types.DECIMAL:
+			case Types.NUMERIC:
+				return DECIMAL;
+			case Types.FLOAT:
+			case Types.REAL:
+			case Types.DOUBLE:
+				return DOUBLE;
+			case Types.BOOLEAN:
+			case Types.BIT:
+				return BOOLEAN;
+			case Types.CHAR:
+			case Types.VARCHAR:
+			case Types.LONGVARCHAR:
+			case Types.NCHAR:
+			case Types.NVARCHAR:
+			case Types.LONGNVARCHAR:
+			case Types.CLOB:
+			case Types.NCLOB:
+				return STRING;
+			case Types.DATE:
+				return DATE;
+			case Types.TIME:
+				return TIME;
+			case Types.TIMESTAMP:
+				return TIMESTAMP;
+			case Types.BINARY:
+			case Types.VARBINARY:
+			case Types.LONGVARBINARY:
+			case Types.BLOB:
+				return BYTES;
+		}
+		return 0;
+	}
+
+	/**
+	 * Writes a record. The values are copied, so the array can be reused for the next record.
+	 *
+	 * @param values The values of the fields.
+	 * @throws SQLException When reading a {@link Blob} or {@link Clob} throws it.
+	 */
+	@SuppressWarnings( "deprecation" )
+	public void write( Object[] values ) throws SQLException
+	{
+		int row = this.rows;
+		int fields = this.encodings.length;
+		try
+		{
+			for( int i = 0; i < fields; i++ )
+			{
+				Object value = values[ i ];
+				if( value == null )
+				{
+					this.nulls[ i ][ row ] = true;
+					continue;
+				}
+
+				Chunk chunk = this.chunks[ i ];
+				switch( this.encodings[ i ] )
+				{
+					case INTEGER:
+						chunk.writeSigned( ( (Number)value ).longValue() );
+						break;
+					case DECIMAL:
+						BigDecimal decimal = value instanceof BigDecimal ? (BigDecimal)value : new BigDecimal( value.toString() );
+						chunk.writeSigned( decimal.scale() );
+						BigInteger unscaled = decimal.unscaledValue();
+						if( unscaled.bitLength() < 64 )
+						{
+							chunk.writeUnsigned( 0 ); // 0 means that a long follows
+							chunk.writeSigned( unscaled.longValue() );
+						}
+						else
+						{
+							byte[] bytes = unscaled.toByteArray();
+							chunk.writeUnsigned( bytes.length );
+							chunk.write( bytes );
+						}
+						break;
+					case DOUBLE:
+						chunk.writeLong( Double.doubleToLongBits( ( (Number)value ).doubleValue() ) );
+						break;
+					case BOOLEAN:
+						chunk.writeByte( (Boolean)value ? 1 : 0 );
+						break;
+					case STRING:
+						String string = value instanceof Clob ? read( (Clob)value ) : (String)value;
+						this.strings[ i ][ row ] = string;
+						this.stringBytes += string.length();
+						break;
+					case DATE:
+						chunk.writeSigned( packDate( (java.util.Date)value ) );
+						break;
+					case TIME:
+						java.util.Date time = (java.util.Date)value;
+						chunk.writeUnsigned( time.getHours() * 3600 + time.getMinutes() * 60 + time.getSeconds() );
+						break;
+					case TIMESTAMP:
+						java.util.Date timestamp = (java.util.Date)value;
+						chunk.writeSigned( packDate( timestamp ) );
+						chunk.writeUnsigned( timestamp.getHours() * 3600 + timestamp.getMinutes() * 60 + timestamp.getSeconds() );
+						if( timestamp instanceof Timestamp )
+							chunk.writeUnsigned( ( (Timestamp)timestamp ).getNanos() );
+						else
+							chunk.writeUnsigned( (int)( timestamp.getTime() % 1000 + 1000 ) % 1000 * 1000000 );
+						break;
+					case BYTES:
+						if( value instanceof Blob )
+						{
+							Blob blob = (Blob)value;
+							long length = blob.length();
+							chunk.writeUnsigned( length );
+							InputStream in = blob.getBinaryStream();
+							try
+							{
+								chunk.write( in, length );
+							}
+							finally
+							{
+								in.close();
+							}
+						}
+						else
+						{
+							byte[] bytes = (byte[])value;
+							chunk.writeUnsigned( bytes.length );
+							chunk.write( bytes );
+						}
+						break;
+					default:
+						Assert.fail( "Unexpected encoding " + this.encodings[ i ] );
+				}
+				this.nulls[ i ][ row ] = false;
+			}
+
+			this.rows = ++row;
+			if( row >= this.rowGroup || getBufferedBytes() >= MAX_GROUP_BYTES )
+				flush();
+		}
+		catch( IOException e )
+		{
+			throw new SystemException( e );
+		}
+	}
+
+	/**
+	 * Writes the rows that are buffered, the end of the file, and closes the output stream.
+	 */
+	public void close()
+	{
+		try
+		{
+			flush();
+			this.scratch.writeUnsigned( 0 );
+			this.scratch.writeTo( this.out );
+			this.out.close();
+		}
+		catch( IOException e )
+		{
+			throw new SystemException( e );
+		}
+	}
+
+	/**
+	 * @return The approximate number of bytes in the buffered row group.
+	 */
+	protected long getBufferedBytes()
+	{
+		long result = this.stringBytes;
+		for( Chunk chunk : this.chunks )
+			result += chunk.size;
+		return result;
+	}
+
+	/**
+	 * Writes the buffered rows as a row group.
+	 *
+	 * @throws IOException Whenever the output stream throws it.
+	 */
+	protected void flush() throws IOException
+	{
+		int rows = this.rows;
+		if( rows == 0 )
+			return;
+
+		OutputStream out = this.out;
+		Chunk scratch = this.scratch;
+
+		scratch.writeUnsigned( rows );
+		scratch.writeTo( out );
+
+		int bitmapLength = ( rows + 7 ) / 8;
+		for( int i = 0; i < this.encodings.length; i++ )
+		{
+			Chunk chunk = this.chunks[ i ];
+			boolean[] nulls = this.nulls[ i ];
+			if( this.encodings[ i ] == STRING )
+				writeStrings( chunk, this.strings[ i ], nulls, rows );
+
+			scratch.writeUnsigned( bitmapLength + chunk.size );
+			scratch.writeBitmap( nulls, rows );
+			scratch.writeTo( out );
+			chunk.writeTo( out );
+		}
+
+		for( String[] strings : this.strings )
+			if( strings != null )
+				Arrays.fill( strings, 0, rows, null ); // Don't keep the strings of the previous row group alive
+		this.stringBytes = 0;
+		this.rows = 0;
+	}
+
+	/**
+	 * Encodes the string values of a row group into the given chunk. The values are dictionary encoded when at most half
+	 * of the rows have distinct values.
+	 *
+	 * @param chunk The chunk to write to.
+	 * @param strings The string values.
+	 * @param nulls The null values.
+	 * @param rows The number of rows in the row group.
+	 */
+	static protected void writeStrings( Chunk chunk, String[] strings, boolean[] nulls, int rows )
+	{
+		int max = rows / 2;
+		Map< String, Integer > dictionary = new HashMap< String, Integer >();
+		List< String > distinct = new ArrayList< String >();
+		for( int i = 0; i < rows; i++ )
+			if( !nulls[ i ] && !dictionary.containsKey( strings[ i ] ) )
+			{
+				if( distinct.size() >= max )
+				{
+					distinct = null;
+					break;
+				}
+				dictionary.put( strings[ i ], distinct.size() );
+				distinct.add( strings[ i ] );
+			}
+
+		if( distinct != null )
+		{
+			chunk.writeByte( DICTIONARY );
+			chunk.writeUnsigned( distinct.size() );
+			for( String string : distinct )
+				chunk.writeString( string );
+			for( int i = 0; i < rows; i++ )
+				if( !nulls[ i ] )
+					chunk.writeUnsigned( dictionary.get( strings[ i ] ) );
+		}
+		else
+		{
+			chunk.writeByte( PLAIN );
+			for( int i = 0; i < rows; i++ )
+				if( !nulls[ i ] )
+					chunk.writeString( strings[ i ] );
+		}
+	}
+
+	/**
+	 * Packs the year, month and day of the given date into a single number.
+	 *
+	 * @param date The date.
+	 * @return The packed date.
+	 */
+	@SuppressWarnings( "deprecation" )
+	static protected long packDate( java.util.Date date )
+	{
+		return ( ( date.getYear() + 1900L ) * 16 + date.getMonth() + 1 ) * 32 + date.getDate();
+	}
+
+	static private String read( Clob clob ) throws SQLException, IOException
+	{
+		StringBuilder result = new StringBuilder( (int)clob.length() );
+		Reader reader = clob.getCharacterStream();
+		try
+		{
+			char[] buffer = new char[ 4096 ];
+			int read;
+			while( ( read = reader.read( buffer ) ) >= 0 )
+				result.append( buffer, 0, read );
+		}
+		finally
+		{
+			reader.close();
+		}
+		return result.toString();
+	}
+
+
+	/**
+	 * A growable byte buffer with the primitive encodings of the format.
+	 *
+	 * @author Ren M. de Bloois
+	 */
+	static protected class Chunk
+	{
+		/** The bytes. */
+		protected byte[] data = new byte[ 4096 ];
+
+		/** The number of bytes in the buffer. */
+		protected int size;
+
+		/**
+		 * Makes sure that the given number of bytes can be added.
+		 *
+		 * @param bytes The number of bytes.
+		 */
+		protected void ensure( int bytes )
+		{
+			if( this.size + bytes > this.data.length )
+			{
+				byte[] data = new byte[ Math.max( this.data.length * 2, this.size + bytes ) ];
+				System.arraycopy( this.data, 0, data, 0, this.size );
+				this.data = data;
+			}
+		}
+
+		/**
+		 * Writes a byte.
+		 *
+		 * @param value The byte.
+		 */
+		protected void writeByte( int value )
+		{
+			ensure( 1 );
+			this.data[ this.size++ ] = (byte)value;
+		}
+
+		/**
+		 * Writes a non negative number as a variable length integer, 7 bits per byte, least significant first.
+		 *
+		 * @param value The number.
+		 */
+		protected void writeUnsigned( long value )
+		{
+			ensure( 10 );
+			byte[] data = this.data;
+			int size = this.size;
+			while( ( value & ~0x7FL ) != 0 )
+			{
+				data[ size++ ] = (byte)( value & 0x7F | 0x80 );
+				value >>>= 7;
+			}
+			data[ size++ ] = (byte)value;
+			this.size = size;
+		}
+
+		/**
+		 * Writes a number as a zigzag encoded variable length integer, so that small negative numbers take few bytes too.
+		 *
+		 * @param value The number.
+		 */
+		protected void writeSigned( long value )
+		{
+			writeUnsigned( value << 1 ^ value >> 63 );
+		}
+
+		/**
+		 * Writes the 8 bytes of a long, most significant first.
+		 *
+		 * @param value The long.
+		 */
+		protected void writeLong( long value )
+		{
+			ensure( 8 );
+			for( int shift = 56; shift >= 0; shift -= 8 )
+				this.data[ this.size++ ] = (byte)( value >>> shift );
+		}
+
+		/**
+		 * Writes bytes.
+		 *
+		 * @param bytes The bytes.
+		 */
+		protected void write( byte[] bytes )
+		{
+			ensure( bytes.length );
+			System.arraycopy( bytes, 0, this.data, this.size, bytes.length );
+			this.size += bytes.length;
+		}
+
+		/**
+		 * Writes the given number of bytes from the input stream.
+		 *
+		 * @param in The input stream.
+		 * @param length The number of bytes.
+		 * @throws IOException Whenever the input stream throws it, or when it has less bytes than expected.
+		 */
+		protected void write( InputStream in, long length ) throws IOException
+		{
+			Assert.isTrue( length <= Integer.MAX_VALUE - this.size, "LOB too large" );
+			int len = (int)length;
+			ensure( len );
+			while( len > 0 )
+			{
+				int read = in.read( this.data, this.size, len );
+				if( read < 0 )
+					throw new IOException( "Unexpected end of LOB, " + len + " bytes missing" );
+				this.size += read;
+				len -= read;
+			}
+		}
+
+		/**
+		 * Writes a length prefixed UTF-8 string.
+		 *
+		 * @param value The string.
+		 */
+		protected void writeString( String value )
+		{
+			byte[] bytes;
+			try
+			{
+				bytes = value.getBytes( UTF8 );
+			}
+			catch( UnsupportedEncodingException e )
+			{
+				throw new SystemException( e );
+			}
+			writeUnsigned( bytes.length );
+			write( bytes );
+		}
+
+		/**
+		 * Writes a bitmap with a bit set for each row that is null.
+		 *
+		 * @param nulls The null values.
+		 * @param rows The number of rows.
+		 */
+		protected void writeBitmap( boolean[] nulls, int rows )
+		{
+			int length = ( rows + 7 ) / 8;
+			ensure( length );
+			byte[] data = this.data;
+			int start = this.size;
+			Arrays.fill( data, start, start + length, (byte)0 );
+			for( int i = 0; i < rows; i++ )
+				if( nulls[ i ] )
+					data[ start + ( i >> 3 ) ] |= 1 << ( i & 7 );
+			this.size += length;
+		}
+
+		/**
+		 * Writes the bytes to the output stream and empties the buffer.
+		 *
+		 * @param out The output stream.
+		 * @throws IOException Whenever the output stream throws it.
+		 */
+		protected void writeTo( OutputStream out ) throws IOException
+		{
+			out.write( this.data, 0, this.size );
+			this.size = 0;
+		}
+	}
+}
@@ -0,0 +1,265 @@
+/*--
+ * Copyright 2012 Ren M. de Bloois
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package solidbase.util;
+
+import java.io.File;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.List;
+
+import solidstack.io.Resources;
+
+
+/**
+ * Splits an export into numbered part files. A new part is started when the current part has reached the maximum
+ * number of bytes or records. The bytes are counted before they are compressed or queued for an asynchronous writer, see
+ * {@link #count(OutputStream)}, so a compressed part is smaller than the maximum. A part can only grow beyond the maximum
+ * by the last record and the bytes that are still buffered in the character encoder of the writer.
+ *
+ * <p>The part files are named after the file name, with the number of the part inserted before the extensions:
+ * export.csv.gz becomes export-1.csv.gz, export-2.csv.gz, etc.</p>
+ *
+ * @author Ren M. de Bloois
+ */
+public class FileParts
+{
+	private String fileName;
+	private long maxBytes;
+	private long maxRecords;
+
+	private List< Part > parts = new ArrayList< Part >();
+	private Part part;
+	private CountingOutputStream file;
+	private CountingOutputStream counted;
+
+
+	/**
+	 * Constructor.
+	 *
+	 * @param fileName The file name to derive the names of the part files from.
+	 * @param maxBytes The maximum number of bytes in a part, 0 for no maximum.
+	 * @param maxRecords The maximum number of records in a part, 0 for no maximum.
+	 */
+	public FileParts( String fileName, long maxBytes, long maxRecords )
+	{
+		this.fileName = fileName;
+		this.maxBytes = maxBytes;
+		this.maxRecords = maxRecords;
+	}
+
+	/**
+	 * Starts the next part. The output stream of the previous part must have been closed.
+	 *
+	 * @return The output stream of the new part file.
+	 */
+	public OutputStream next()
+	{
+		end();
+		this.part = new Part( getPartFileName( this.fileName, this.parts.size() + 1 ) );
+		this.parts.add( this.part );
+		this.counted = this.file = new CountingOutputStream( Resources.getResource( this.part.fileName ).getOutputStream() );
+		return this.file;
+	}
+
+	/**
+	 * Counts the bytes written to the given stream against the maximum, instead of the bytes that reach the part file.
+	 * Use it for the stream that the writer writes to, when that stream compresses the bytes or queues them for an
+	 * asynchronous writer. Compressing and asynchronous streams hold back many bytes, which would otherwise let the part
+	 * grow far beyond the maximum.
+	 *
+	 * @param out The stream that writes to the output stream of the current part.
+	 * @return The stream that counts the bytes.
+	 */
+	public OutputStream count( OutputStream out )
+	{
+		return this.counted = new CountingOutputStream( out );
+	}
+
+	/**
+	 * Counts a record written to the current part.
+	 */
+	public void record()
+	{
+		this.part.records++;
+	}
+
+	/**
+	 * @return True if the current part has reached the maximum number of bytes or records.
+	 */
+	public boolean isFull()
+	{
+		return this.maxRecords > 0 && this.part.records >= this.maxRecords || this.maxBytes > 0 && this.counted.count >= this.maxBytes;
+	}
+
+	/**
+	 * Registers the size of the current part. The output stream of the current part must have been closed.
+	 */
+	public void end()
+	{
+		if( this.part != null )
+			this.part.bytes = this.file.count;
+	}
+
+	/**
+	 * @return The parts.
+	 */
+	public List< Part > getParts()
+	{
+		return this.parts;
+	}
+
+	/**
+	 * Returns the name of a part file. The number is inserted before the extensions of the file name.
+	 *
+	 * @param fileName The file name.
+	 * @param number The number of the part.
+	 * @return The name of the part file.
+	 */
+	static public String getPartFileName( String fileName, int number )
+	{
+		return insert( fileName, "-" + number );
+	}
+
+	/**
+	 * Inserts a string before the extensions of the file name.
+	 *
+	 * @param fileName The file name.
+	 * @param insert The string to insert.
+	 * @return The file name with the string inserted.
+	 */
+	static public String insert( String fileName, String insert )
+	{
+		int dot = getExtensionsStart( fileName );
+		return fileName.substring( 0, dot ) + insert + fileName.substring( dot );
+	}
+
+	/**
+	 * Removes the extensions from the file name.
+	 *
+	 * @param fileName The file name.
+	 * @return The file name without extensions.
+	 */
+	static public String stripExtensions( String fileName )
+	{
+		return fileName.substring( 0, getExtensionsStart( fileName ) );
+	}
+
+	static private int getExtensionsStart( String fileName )
+	{
+		int slash = Math.max( fileName.lastIndexOf( '/' ), fileName.lastIndexOf( '\\' ) );
+		int dot = fileName.indexOf( '.', slash + 1 );
+		return dot < 0 ? fileName.length() : dot;
+	}
+
+
+	/**
+	 * A part file.
+	 *
+	 * @author Ren M. de Bloois
+	 */
+	static public class Part
+	{
+		/** The name of the part file. */
+		protected String fileName;
+
+		/** The number of records in the part. */
+		protected long records;
+
+		/** The number of bytes in the part file. */
+		protected long bytes;
+
+		/**
+		 * Constructor.
+		 *
+		 * @param fileName The name of the part file.
+		 */
+		protected Part( String fileName )
+		{
+			this.fileName = fileName;
+		}
+
+		/**
+		 * @return The name of the part file without the folder.
+		 */
+		public String getName()
+		{
+			return new File( this.fileName ).getName();
+		}
+
+		/**
+		 * @return The number of records in the part.
+		 */
+		public long getRecords()
+		{
+			return this.records;
+		}
+
+		/**
+		 * @return The number of bytes in the part file.
+		 */
+		public long getBytes()
+		{
+			return this.bytes;
+		}
+	}
+
+
+	/**
+	 * Counts the bytes written to an output stream.
+	 *
+	 * @author Ren M. de Bloois
+	 */
+	static public class CountingOutputStream extends FilterOutputStream
+	{
+		/** The number of bytes written. Volatile because an asynchronous writer thread may write. */
+		protected volatile long count;
+
+		/**
+		 * Constructor.
+		 *
+		 * @param out The output stream to count the bytes of.
+		 */
+		public CountingOutputStream( OutputStream out )
+		{
+			super( out );
+		}
+
+		/**
+		 * @return The number of bytes written.
+		 */
+		public long getCount()
+		{
+			return this.count;
+		}
+
+		@Override
+		public void write( int b ) throws IOException
+		{
+			this.out.write( b );
+			this.count++;
+		}
+
+		@Override
+		public void write( byte[] b, int off, int len ) throws IOException
+		{
+			this.out.write( b, off, len );
+			this.count += len;
+		}
+	}
+}
@@ -0,0 +1,169 @@
+/*--
+ * Copyright 2012 Ren M. de Bloois
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package solidbase.util;
+
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+
+
+/**
+ * Gives access to segments of a file with positional reads. Unlike a stream that is shared by all segments, the
+ * segments can be read in any order, and at the same time by several threads. The segment input streams do not hold a
+ * file handle of their own, only the file is closed.
+ *
+ * @author Ren M. de Bloois
+ */
+public class FileSegments implements Closeable
+{
+	private RandomAccessFile file;
+	private FileChannel channel;
+
+
+	/**
+	 * Constructor.
+	 *
+	 * @param file The file.
+	 * @throws FileNotFoundException When the file does not exist.
+	 */
+	public FileSegments( File file ) throws FileNotFoundException
+	{
+		this.file = new RandomAccessFile( file, "r" );
+		this.channel = this.file.getChannel();
+	}
+
+	/**
+	 * Returns an input stream that reads a segment of the file. The stream reads straight into the byte arrays that are
+	 * given to it.
+	 *
+	 * @param position The position of the segment.
+	 * @param length The length of the segment.
+	 * @return The input stream.
+	 */
+	public InputStream getSegmentInputStream( long position, long length )
+	{
+		return new SegmentInputStream( this.channel, position, position + length );
+	}
+
+	/**
+	 * Closes the file. The segment input streams can't be read after this.
+	 */
+	//@Override
+	public void close() throws IOException
+	{
+		this.file.close();
+	}
+
+
+	/**
+	 * An input stream that reads a segment of a file with positional reads.
+	 *
+	 * @author Ren M. de Bloois
+	 */
+	static protected class SegmentInputStream extends InputStream
+	{
+		private FileChannel channel;
+		private long position;
+		private long end;
+		private long mark;
+
+		/**
+		 * Constructor.
+		 *
+		 * @param channel The channel of the file.
+		 * @param position The start of the segment.
+		 * @param end The end of the segment.
+		 */
+		protected SegmentInputStream( FileChannel channel, long position, long end )
+		{
+			this.channel = channel;
+			this.position = position;
+			this.end = end;
+			this.mark = position;
+		}
+
+		@Override
+		public int read() throws IOException
+		{
+			byte[] b = new byte[ 1 ];
+			return read( b, 0, 1 ) < 0 ? -1 : b[ 0 ] & 0xFF;
+		}
+
+		@Override
+		public int read( byte[] b, int off, int len ) throws IOException
+		{
+			long remaining = this.end - this.position;
+			if( remaining <= 0 )
+				return -1;
+			if( len == 0 )
+				return 0;
+			if( len > remaining )
+				len = (int)remaining;
+			int read = this.channel.read( ByteBuffer.wrap( b, off, len ), this.position );
+			if( read < 0 )
+				throw new EOFException( "The file ends before the end of the segment" );
+			this.position += read;
+			return read;
+		}
+
+		@Override
+		public long skip( long n )
+		{
+			if( n <= 0 )
+				return 0;
+			n = Math.min( n, this.end - this.position );
+			this.position += n;
+			return n;
+		}
+
+		@Override
+		public int available()
+		{
+			return (int)Math.min( this.end - this.position, Integer.MAX_VALUE );
+		}
+
+		@Override
+		public boolean markSupported()
+		{
+			return true;
+		}
+
+		@Override
+		public void mark( int readlimit )
+		{
+			this.mark = this.position;
+		}
+
+		@Override
+		public void reset()
+		{
+			this.position = this.mark;
+		}
+
+		@Override
+		public void close()
+		{
+			// Nothing to close, the file is closed by its owner
+		}
+	}
+}
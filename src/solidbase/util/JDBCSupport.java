@@ -18,6 +18,7 @@ package solidbase.util;
 
 import java.lang.reflect.Field;
 import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
 import java.sql.SQLException;
 import java.sql.Types;
 import java.util.HashMap;
@@ -38,23 +39,132 @@ public class JDBCSupport
 
 	// ResultSet.getObject returns objects that are not always of the correct types
 	// For example oracle.sql.TIMESTAMP or org.hsqldb.types.BlobDataID are not instances of java.sql.Timestamp or java.sql.Blob
-	// TODO Maybe implement getValues which returns the complete row
 	static public Object getValue( ResultSet result, int[] types, int index ) throws SQLException
 	{
-	    // TODO ROWID, NCHAR, NVARCHAR, LONGNVARCHAR, NCLOB and SQLXML are Java 6/JDBC 4. How to deal with that?
+		return getReader( types[ index ] ).read( result, index + 1 );
+	}
+
+	/**
+	 * Returns the column readers for the given column types. Determine them once for a result set and then use
+	 * {@link #getValues(ResultSet, ColumnReader[], Object[])} for each row.
+	 *
+	 * @param metaData The metadata of the result set, tells if the INTEGER columns are signed.
+	 * @param types The JDBC types of the columns.
+	 * @return The column readers.
+	 * @throws SQLException Whenever JDBC throws it.
+	 */
+	static public ColumnReader[] getReaders( ResultSetMetaData metaData, int[] types ) throws SQLException
+	{
+		ColumnReader[] result = new ColumnReader[ types.length ];
+		for( int i = 0; i < types.length; i++ )
+			result[ i ] = getReader( types[ i ], metaData.isSigned( i + 1 ) );
+		return result;
+	}
+
+	/**
+	 * Reads the values of the current row of the result set into the given array.
+	 *
+	 * @param result The result set.
+	 * @param readers The column readers. Columns without a reader are not read.
+	 * @param values The array to read the values into, can be reused for every row.
+	 * @throws SQLException Whenever JDBC throws it.
+	 */
+	static public void getValues( ResultSet result, ColumnReader[] readers, Object[] values ) throws SQLException
+	{
+		for( int i = 0; i < readers.length; i++ )
+			if( readers[ i ] != null )
+				values[ i ] = readers[ i ].read( result, i + 1 );
+	}
+
+	/**
+	 * Reads the values of the current row of the result set into the given arrays, in column order. Columns that are
+	 * flagged as long are read with {@link ResultSet#getLong(int)} into the long array, without boxing. For those
+	 * columns the object array holds null when the column is null, and the reader itself when it is not.
+	 *
+	 * @param result The result set.
+	 * @param readers The column readers. Columns without a reader are not read.
+	 * @param values The array to read the values into, can be reused for every row.
+	 * @param asLong Flags the integer columns that need to be read into the long array.
+	 * @param longs The array to read the values of the flagged columns into, can be reused for every row.
+	 * @throws SQLException Whenever JDBC throws it.
+	 */
+	static public void getValues( ResultSet result, ColumnReader[] readers, Object[] values, boolean[] asLong, long[] longs ) throws SQLException
+	{
+		for( int i = 0; i < readers.length; i++ )
+		{
+			ColumnReader reader = readers[ i ];
+			if( reader == null )
+				continue;
+			if( asLong[ i ] )
+			{
+				longs[ i ] = result.getLong( i + 1 );
+				values[ i ] = longs[ i ] == 0 && result.wasNull() ? null : reader;
+			}
+			else
+				values[ i ] = reader.read( result, i + 1 );
+		}
+	}
+
+	/**
+	 * Returns the column reader for the given column type. It is not known whether an INTEGER column is signed, so it
+	 * is read as a long.
+	 *
+	 * @param type The JDBC type of the column.
+	 * @return The column reader.
+	 */
+	static public ColumnReader getReader( int type )
+	{
+		return getReader( type, false );
+	}
+
+	/**
+	 * Returns the column reader for the given column type. An unsigned INTEGER column, like INT UNSIGNED of MySQL, can
+	 * hold values that don't fit in an int, so it is read as a long.
+	 *
+	 * @param type The JDBC type of the column.
+	 * @param signed Is the column signed?
+	 * @return The column reader.
+	 */
+	static public ColumnReader getReader( int type, boolean signed )
+	{
+		// TODO ROWID, NCHAR, NVARCHAR, LONGNVARCHAR, NCLOB and SQLXML are Java 6/JDBC 4. How to deal with that?
 
-		int type = types[ index ];
-		index++;
 		switch( type )
 		{
 			case Types.TIMESTAMP:
-				return result.getTimestamp( index );
+				return ColumnReader.TIMESTAMP;
 			case Types.BLOB:
-				return result.getBlob( index );
+				return ColumnReader.BLOB;
 			case Types.CLOB:
-				return result.getClob( index );
+				return ColumnReader.CLOB;
+			case Types.INTEGER:
+				if( !signed )
+					return ColumnReader.BIGINT;
+				//$FALL-THROUGH$
+			case Types.TINYINT:
+			case Types.SMALLINT:
+				return ColumnReader.INTEGER;
+			case Types.BIGINT:
+				return ColumnReader.BIGINT;
+			case Types.DECIMAL:
+			case Types.NUMERIC:
+				return ColumnReader.DECIMAL;
+			case Types.CHAR:
+			case Types.VARCHAR:
+			case Types.LONGVARCHAR:
+				return ColumnReader.STRING;
+			case Types.BINARY:
+			case Types.VARBINARY:
+			case Types.LONGVARBINARY:
+				return ColumnReader.BYTES;
+			case Types.DATE:
+				return ColumnReader.DATE;
+			case Types.TIME:
+				return ColumnReader.TIME;
+			case Types.BOOLEAN:
+				return ColumnReader.BOOLEAN;
 		}
-		return result.getObject( index );
+		return ColumnReader.OBJECT;
 	}
 
 	static private void initTypeNames()
@@ -98,4 +208,153 @@ public class JDBCSupport
 		Assert.notNull( result, "Unknown JDBC type " + type );
 		return result;
 	}
+
+
+	/**
+	 * Reads the value of a column with the getter that belongs to the type of the column, instead of with
+	 * {@link ResultSet#getObject(int)}.
+	 *
+	 * @author Ren de Bloois
+	 */
+	static abstract public class ColumnReader
+	{
+		/** Reads a TIMESTAMP column. */
+		static public final ColumnReader TIMESTAMP = new ColumnReader()
+		{
+			@Override
+			public Object read( ResultSet result, int column ) throws SQLException
+			{
+				return result.getTimestamp( column );
+			}
+		};
+
+		/** Reads a BLOB column. */
+		static public final ColumnReader BLOB = new ColumnReader()
+		{
+			@Override
+			public Object read( ResultSet result, int column ) throws SQLException
+			{
+				return result.getBlob( column );
+			}
+		};
+
+		/** Reads a CLOB column. */
+		static public final ColumnReader CLOB = new ColumnReader()
+		{
+			@Override
+			public Object read( ResultSet result, int column ) throws SQLException
+			{
+				return result.getClob( column );
+			}
+		};
+
+		/** Reads a TINYINT, SMALLINT or signed INTEGER column. */
+		static public final ColumnReader INTEGER = new ColumnReader()
+		{
+			@Override
+			public Object read( ResultSet result, int column ) throws SQLException
+			{
+				int value = result.getInt( column );
+				if( value == 0 && result.wasNull() )
+					return null;
+				return Integer.valueOf( value );
+			}
+		};
+
+		/** Reads a BIGINT or unsigned INTEGER column. */
+		static public final ColumnReader BIGINT = new ColumnReader()
+		{
+			@Override
+			public Object read( ResultSet result, int column ) throws SQLException
+			{
+				long value = result.getLong( column );
+				if( value == 0 && result.wasNull() )
+					return null;
+				return Long.valueOf( value );
+			}
+		};
+
+		/** Reads a DECIMAL or NUMERIC column. */
+		static public final ColumnReader DECIMAL = new ColumnReader()
+		{
+			@Override
+			public Object read( ResultSet result, int column ) throws SQLException
+			{
+				return result.getBigDecimal( column );
+			}
+		};
+
+		/** Reads a CHAR, VARCHAR or LONGVARCHAR column. */
+		static public final ColumnReader STRING = new ColumnReader()
+		{
+			@Override
+			public Object read( ResultSet result, int column ) throws SQLException
+			{
+				return result.getString( column );
+			}
+		};
+
+		/** Reads a BINARY, VARBINARY or LONGVARBINARY column. */
+		static public final ColumnReader BYTES = new ColumnReader()
+		{
+			@Override
+			public Object read( ResultSet result, int column ) throws SQLException
+			{
+				return result.getBytes( column );
+			}
+		};
+
+		/** Reads a DATE column. */
+		static public final ColumnReader DATE = new ColumnReader()
+		{
+			@Override
+			public Object read( ResultSet result, int column ) throws SQLException
+			{
+				return result.getDate( column );
+			}
+		};
+
+		/** Reads a TIME column. */
+		static public final ColumnReader TIME = new ColumnReader()
+		{
+			@Override
+			public Object read( ResultSet result, int column ) throws SQLException
+			{
+				return result.getTime( column );
+			}
+		};
+
+		/** Reads a BOOLEAN column. */
+		static public final ColumnReader BOOLEAN = new ColumnReader()
+		{
+			@Override
+			public Object read( ResultSet result, int column ) throws SQLException
+			{
+				boolean value = result.getBoolean( column );
+				if( !value && result.wasNull() )
+					return null;
+				return Boolean.valueOf( value );
+			}
+		};
+
+		/** Reads a column of any other type with {@link ResultSet#getObject(int)}. */
+		static public final ColumnReader OBJECT = new ColumnReader()
+		{
+			@Override
+			public Object read( ResultSet result, int column ) throws SQLException
+			{
+				return result.getObject( column );
+			}
+		};
+
+		/**
+		 * Reads the value of a column of the current row.
+		 *
+		 * @param result The result set.
+		 * @param column The column number, starting at 1.
+		 * @return The value.
+		 * @throws SQLException Whenever JDBC throws it.
+		 */
+		abstract public Object read( ResultSet result, int column ) throws SQLException;
+	}
 }
@@ -37,7 +37,7 @@ public class JSONParser
 	static protected enum STATE { BEFOREVALUE, BEFORENAME, AFTERVALUE };
 	static protected enum STRUCT { NONE, OBJECT, ARRAY };
 
-	private SourceReader reader;
+	private SourceBuffer reader;
 
 	/**
 	 * The source of tokens.
@@ -60,6 +60,16 @@ public class JSONParser
 	 * @param reader The source of the JSON data.
 	 */
 	public JSONParser( SourceReader reader )
+	{
+		this( new SourceBuffer( reader ) );
+	}
+
+	/**
+	 * Constructor.
+	 *
+	 * @param reader The source of the JSON data.
+	 */
+	public JSONParser( SourceBuffer reader )
 	{
 		this.reader = reader;
 		this.tokenizer = new JSONTokenizer( reader );
@@ -40,6 +40,16 @@ public class JSONReader extends JSONParser
 		super( reader );
 	}
 
+	/**
+	 * Constructor.
+	 *
+	 * @param reader The source of the JSON data.
+	 */
+	public JSONReader( SourceBuffer reader )
+	{
+		super( reader );
+	}
+
 	/**
 	 * Gets a line of values from the JSON data.
 	 *
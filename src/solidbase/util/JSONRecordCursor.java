@@ -0,0 +1,450 @@
+/*--
+ * Copyright 2012 Ren M. de Bloois
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package solidbase.util;
+
+import java.math.BigDecimal;
+import java.sql.Time;
+import java.sql.Timestamp;
+import java.sql.Types;
+
+import solidbase.core.SourceException;
+import solidbase.util.JSONTokenizer.Token;
+import solidbase.util.JSONTokenizer.Token.TYPE;
+import solidstack.io.SourceLocation;
+
+
+/**
+ * Reads the records of a JSON dump one at a time, straight from the {@link JSONTokenizer}. Each value is decoded into
+ * the JDBC type of its field while it is read, without creating a {@link JSONArray} for the record. Integers are kept
+ * as longs and floating point numbers as doubles, strings of date, time and timestamp fields are converted to their
+ * JDBC types. The values of the current record are overwritten by the next record.
+ *
+ * @author Ren M. de Bloois
+ */
+public class JSONRecordCursor
+{
+	/** The kind of a null value. */
+	static public final int NULL = 0;
+
+	/** The kind of a value that is available from {@link #getLong(int)}. */
+	static public final int LONG = 1;
+
+	/** The kind of a value that is available from {@link #getDouble(int)}. */
+	static public final int DOUBLE = 2;
+
+	/** The kind of a value that is available from {@link #getObject(int)}. */
+	static public final int OBJECT = 3;
+
+	private JSONTokenizer tokenizer;
+	private int[] types;
+
+	// The values of the current record
+	private int size;
+	private int[] kinds;
+	private long[] longs;
+	private double[] doubles;
+	private Object[] objects;
+	private int lineNumber;
+
+
+	/**
+	 * Constructor.
+	 *
+	 * @param in The input, positioned after the header.
+	 * @param types The JDBC types of the fields.
+	 */
+	public JSONRecordCursor( SourceBuffer in, int[] types )
+	{
+		this.tokenizer = new JSONTokenizer( in );
+		this.types = types;
+		int count = types.length;
+		this.kinds = new int[ count ];
+		this.longs = new long[ count ];
+		this.doubles = new double[ count ];
+		this.objects = new Object[ count ];
+	}
+
+	/**
+	 * Reads the next record.
+	 *
+	 * @return False if there are no more records.
+	 */
+	public boolean next()
+	{
+		JSONTokenizer tokenizer = this.tokenizer;
+		TYPE type = tokenizer.next();
+		if( type == TYPE.EOF )
+			return false;
+		if( type != TYPE.BEGIN_ARRAY )
+			throw new SourceException( "Expecting [, not '" + type + "'", tokenizer.getLocation() );
+
+		int size = 0;
+		type = tokenizer.next();
+		if( type != TYPE.END_ARRAY )
+			while( true )
+			{
+				if( size >= this.types.length )
+					throw new SourceException( "Record has more values than the " + this.types.length + " fields in the header", tokenizer.getLocation() );
+				read( size++, type );
+				type = tokenizer.next();
+				if( type == TYPE.END_ARRAY )
+					break;
+				if( type != TYPE.VALUE_SEPARATOR )
+					throw new SourceException( "Expecting , or ], not '" + type + "'", tokenizer.getLocation() );
+				type = tokenizer.next();
+			}
+
+		this.size = size;
+		this.lineNumber = tokenizer.getLineNumber();
+		return true;
+	}
+
+	/**
+	 * Decodes a value into the JDBC type of its field.
+	 *
+	 * @param index The index of the field.
+	 * @param token The type of the first token of the value.
+	 */
+	protected void read( int index, TYPE token )
+	{
+		CharSequence text = this.tokenizer.getText();
+		int type = this.types[ index ];
+		this.objects[ index ] = null;
+		this.kinds[ index ] = OBJECT;
+		switch( token )
+		{
+			case NULL:
+				this.kinds[ index ] = NULL;
+				return;
+			case BOOLEAN:
+				this.objects[ index ] = text.charAt( 0 ) == 't' ? Boolean.TRUE : Boolean.FALSE;
+				return;
+			case NUMBER:
+				if( type == Types.BIGINT || type == Types.INTEGER || type == Types.SMALLINT || type == Types.TINYINT )
+				{
+					long value = parseLong( text );
+					if( value != Long.MIN_VALUE )
+					{
+						this.longs[ index ] = value;
+						this.kinds[ index ] = LONG;
+						return;
+					}
+				}
+				else if( type == Types.DOUBLE || type == Types.FLOAT || type == Types.REAL )
+				{
+					this.doubles[ index ] = Double.parseDouble( text.toString() );
+					this.kinds[ index ] = DOUBLE;
+					return;
+				}
+				this.objects[ index ] = new BigDecimal( text.toString() );
+				return;
+			case STRING:
+				if( type == Types.DATE )
+					this.objects[ index ] = parseDate( text );
+				else if( type == Types.TIMESTAMP )
+					this.objects[ index ] = parseTimestamp( text );
+				else if( type == Types.TIME )
+					this.objects[ index ] = parseTime( text );
+				else
+					this.objects[ index ] = text.toString();
+				return;
+			case BEGIN_OBJECT:
+			case BEGIN_ARRAY:
+				this.objects[ index ] = readStruct( token );
+				return;
+			default:
+				throw new SourceException( "Expecting {, [, \", a number, true, false or null, not '" + token + "'", this.tokenizer.getLocation() );
+		}
+	}
+
+	/**
+	 * Reads an object or an array, for example the reference to a LOB in a separate file.
+	 *
+	 * @param token The type of the first token.
+	 * @return A {@link JSONObject} or a {@link JSONArray}.
+	 */
+	protected Object readStruct( TYPE token )
+	{
+		JSONTokenizer tokenizer = this.tokenizer;
+		if( token == TYPE.BEGIN_ARRAY )
+		{
+			JSONArray result = new JSONArray();
+			Token t = tokenizer.get();
+			if( t.getType() != TYPE.END_ARRAY )
+				while( true )
+				{
+					result.add( readValue( t ) );
+					t = tokenizer.get();
+					if( t.getType() == TYPE.END_ARRAY )
+						break;
+					if( t.getType() != TYPE.VALUE_SEPARATOR )
+						throw new SourceException( "Expecting , or ], not '" + t + "'", tokenizer.getLocation() );
+					t = tokenizer.get();
+				}
+			return result;
+		}
+
+		JSONObject result = new JSONObject();
+		Token t = tokenizer.get();
+		if( t.getType() != TYPE.END_OBJECT )
+			while( true )
+			{
+				if( t.getType() != TYPE.STRING )
+					throw new SourceException( "Expecting \", not '" + t + "'", tokenizer.getLocation() );
+				String name = (String)t.getValue();
+				t = tokenizer.get();
+				if( t.getType() != TYPE.NAME_SEPARATOR )
+					throw new SourceException( "Expecting :, not '" + t + "'", tokenizer.getLocation() );
+				result.set( name, readValue( tokenizer.get() ) );
+				t = tokenizer.get();
+				if( t.getType() == TYPE.END_OBJECT )
+					break;
+				if( t.getType() != TYPE.VALUE_SEPARATOR )
+					throw new SourceException( "Expecting , or }, not '" + t + "'", tokenizer.getLocation() );
+				t = tokenizer.get();
+			}
+		return result;
+	}
+
+	private Object readValue( Token t )
+	{
+		switch( t.getType() )
+		{
+			case BEGIN_ARRAY:
+			case BEGIN_OBJECT:
+				return readStruct( t.getType() );
+			case STRING:
+			case NUMBER:
+			case BOOLEAN:
+			case NULL:
+				return t.getValue();
+			default:
+				throw new SourceException( "Expecting {, [, \", a number, true, false or null, not '" + t + "'", this.tokenizer.getLocation() );
+		}
+	}
+
+	/**
+	 * @return The number of values in the current record.
+	 */
+	public int size()
+	{
+		return this.size;
+	}
+
+	/**
+	 * Returns the kind of a value of the current record: {@link #NULL}, {@link #LONG}, {@link #DOUBLE} or
+	 * {@link #OBJECT}.
+	 *
+	 * @param index The index of the field.
+	 * @return The kind of the value.
+	 */
+	public int getKind( int index )
+	{
+		return this.kinds[ index ];
+	}
+
+	/**
+	 * @param index The index of the field.
+	 * @return The value of a field of kind {@link #LONG}.
+	 */
+	public long getLong( int index )
+	{
+		return this.longs[ index ];
+	}
+
+	/**
+	 * @param index The index of the field.
+	 * @return The value of a field of kind {@link #DOUBLE}.
+	 */
+	public double getDouble( int index )
+	{
+		return this.doubles[ index ];
+	}
+
+	/**
+	 * Returns a value of the current record, boxed when it is a long or a double.
+	 *
+	 * @param index The index of the field.
+	 * @return The value, null if it is null.
+	 */
+	public Object getObject( int index )
+	{
+		switch( this.kinds[ index ] )
+		{
+			case LONG:
+				return Long.valueOf( this.longs[ index ] );
+			case DOUBLE:
+				return Double.valueOf( this.doubles[ index ] );
+			default:
+				return this.objects[ index ];
+		}
+	}
+
+	/**
+	 * Returns the values of the current record in a new array, for example to report an error.
+	 *
+	 * @return The values.
+	 */
+	public JSONArray toArray()
+	{
+		JSONArray result = new JSONArray();
+		for( int i = 0; i < this.size; i++ )
+			result.add( getObject( i ) );
+		return result;
+	}
+
+	/**
+	 * @return The line number of the end of the current record.
+	 */
+	public int getLineNumber()
+	{
+		return this.lineNumber;
+	}
+
+	/**
+	 * @return The current location in the input.
+	 */
+	public SourceLocation getLocation()
+	{
+		return this.tokenizer.getLocation();
+	}
+
+	/**
+	 * Parses an integer.
+	 *
+	 * @param text The number.
+	 * @return The integer, or {@link Long#MIN_VALUE} if the number has a fraction or an exponent, or if it may not fit
+	 *         in a long.
+	 */
+	static protected long parseLong( CharSequence text )
+	{
+		int len = text.length();
+		int i = 0;
+		boolean negative = false;
+		char ch = text.charAt( 0 );
+		if( ch == '-' || ch == '+' )
+		{
+			negative = ch == '-';
+			i++;
+		}
+		if( len - i > 18 )
+			return Long.MIN_VALUE;
+		long result = 0;
+		for( ; i < len; i++ )
+		{
+			ch = text.charAt( i );
+			if( ch < '0' || ch > '9' )
+				return Long.MIN_VALUE;
+			result = result * 10 + ( ch - '0' );
+		}
+		return negative ? -result : result;
+	}
+
+	/**
+	 * Parses the digits in a part of the text.
+	 *
+	 * @param text The text.
+	 * @param start The start of the digits.
+	 * @param end The end of the digits.
+	 * @return The number, -1 if the part contains something else than digits.
+	 */
+	static private int digits( CharSequence text, int start, int end )
+	{
+		int result = 0;
+		for( int i = start; i < end; i++ )
+		{
+			char ch = text.charAt( i );
+			if( ch < '0' || ch > '9' )
+				return -1;
+			result = result * 10 + ( ch - '0' );
+		}
+		return result;
+	}
+
+	/**
+	 * Parses a date in the format yyyy-mm-dd. Other formats are given to {@link java.sql.Date#valueOf(String)}.
+	 *
+	 * @param text The date.
+	 * @return The date.
+	 */
+	@SuppressWarnings( "deprecation" )
+	static protected java.sql.Date parseDate( CharSequence text )
+	{
+		if( text.length() == 10 && text.charAt( 4 ) == '-' && text.charAt( 7 ) == '-' )
+		{
+			int year = digits( text, 0, 4 );
+			int month = digits( text, 5, 7 );
+			int day = digits( text, 8, 10 );
+			if( year >= 0 && month >= 1 && month <= 12 && day >= 1 && day <= 31 )
+				return new java.sql.Date( year - 1900, month - 1, day );
+		}
+		return java.sql.Date.valueOf( text.toString() );
+	}
+
+	/**
+	 * Parses a time in the format hh:mm:ss. Other formats are given to {@link Time#valueOf(String)}.
+	 *
+	 * @param text The time.
+	 * @return The time.
+	 */
+	@SuppressWarnings( "deprecation" )
+	static protected Time parseTime( CharSequence text )
+	{
+		if( text.length() == 8 && text.charAt( 2 ) == ':' && text.charAt( 5 ) == ':' )
+		{
+			int hour = digits( text, 0, 2 );
+			int minute = digits( text, 3, 5 );
+			int second = digits( text, 6, 8 );
+			if( hour >= 0 && minute >= 0 && second >= 0 )
+				return new Time( hour, minute, second );
+		}
+		return Time.valueOf( text.toString() );
+	}
+
+	/**
+	 * Parses a timestamp in the format yyyy-mm-dd hh:mm:ss[.f...] with up to 9 digits in the fraction. Other formats are
+	 * given to {@link Timestamp#valueOf(String)}.
+	 *
+	 * @param text The timestamp.
+	 * @return The timestamp.
+	 */
+	@SuppressWarnings( "deprecation" )
+	static protected Timestamp parseTimestamp( CharSequence text )
+	{
+		int len = text.length();
+		if( len >= 19 && len != 20 && len <= 29 && text.charAt( 4 ) == '-' && text.charAt( 7 ) == '-' && text.charAt( 10 ) == ' '
+				&& text.charAt( 13 ) == ':' && text.charAt( 16 ) == ':' && ( len == 19 || text.charAt( 19 ) == '.' ) )
+		{
+			int year = digits( text, 0, 4 );
+			int month = digits( text, 5, 7 );
+			int day = digits( text, 8, 10 );
+			int hour = digits( text, 11, 13 );
+			int minute = digits( text, 14, 16 );
+			int second = digits( text, 17, 19 );
+			int nanos = 0;
+			if( len > 19 )
+			{
+				nanos = digits( text, 20, len );
+				for( int i = len; nanos >= 0 && i < 29; i++ )
+					nanos *= 10;
+			}
+			if( year >= 0 && month >= 1 && month <= 12 && day >= 1 && day <= 31 && hour >= 0 && minute >= 0 && second >= 0 && nanos >= 0 )
+				return new Timestamp( year - 1900, month - 1, day, hour, minute, second, nanos );
+		}
+		return Timestamp.valueOf( text.toString() );
+	}
+}
@@ -22,7 +22,6 @@ import solidbase.core.SourceException;
 import solidbase.util.JSONTokenizer.Token.TYPE;
 import solidstack.io.SourceLocation;
 import solidstack.io.SourceReader;
-import solidstack.io.PushbackReader;
 
 
 /**
@@ -33,9 +32,9 @@ import solidstack.io.PushbackReader;
 public class JSONTokenizer
 {
 	/**
-	 * The reader used to read from and push back characters.
+	 * The buffer used to read from and push back characters.
 	 */
-	protected PushbackReader in;
+	protected SourceBuffer in;
 
 	/**
 	 * Buffer for the result.
@@ -50,7 +49,17 @@ public class JSONTokenizer
 	 */
 	public JSONTokenizer( SourceReader in )
 	{
-		this.in = new PushbackReader( in );
+		this( new SourceBuffer( in ) );
+	}
+
+	/**
+	 * Constructs a new instance of the Tokenizer.
+	 *
+	 * @param in The input.
+	 */
+	public JSONTokenizer( SourceBuffer in )
+	{
+		this.in = in;
 	}
 
 	/**
@@ -59,6 +68,30 @@ public class JSONTokenizer
 	 * @return A token from the input. Null if there are no more tokens available.
 	 */
 	public Token get()
+	{
+		switch( next() )
+		{
+			case BEGIN_ARRAY: return Token.BEGIN_ARRAY;
+			case END_ARRAY: return Token.END_ARRAY;
+			case BEGIN_OBJECT: return Token.BEGIN_OBJECT;
+			case END_OBJECT: return Token.END_OBJECT;
+			case NAME_SEPARATOR: return Token.NAME_SEPARATOR;
+			case VALUE_SEPARATOR: return Token.VALUE_SEPARATOR;
+			case STRING: return new Token( TYPE.STRING, this.result.toString() );
+			case NUMBER: return new Token( TYPE.NUMBER, new BigDecimal( this.result.toString() ) );
+			case BOOLEAN: return this.result.charAt( 0 ) == 't' ? Token.TRUE : Token.FALSE;
+			case NULL: return Token.NULL;
+			default: return Token.EOF;
+		}
+	}
+
+	/**
+	 * Reads the next token from the input without creating a {@link Token}. The text of a string, number or keyword is
+	 * available from {@link #getText()} until the next token is read.
+	 *
+	 * @return The type of the token, {@link TYPE#EOF} if there are no more tokens available.
+	 */
+	public TYPE next()
 	{
 		StringBuilder result = this.result;
 		result.setLength( 0 );
@@ -67,7 +100,7 @@ public class JSONTokenizer
 		{
 			int ch = this.in.read();
 			if( ch == -1 )
-				return Token.EOF;
+				return TYPE.EOF;
 			switch( ch )
 			{
 				// Whitespace
@@ -77,17 +110,17 @@ public class JSONTokenizer
 				case '\r':
 					continue;
 				case ',':
-					return Token.VALUE_SEPARATOR;
+					return TYPE.VALUE_SEPARATOR;
 				case ':':
-					return Token.NAME_SEPARATOR;
+					return TYPE.NAME_SEPARATOR;
 				case '[':
-					return Token.BEGIN_ARRAY;
+					return TYPE.BEGIN_ARRAY;
 				case ']':
-					return Token.END_ARRAY;
+					return TYPE.END_ARRAY;
 				case '{':
-					return Token.BEGIN_OBJECT;
+					return TYPE.BEGIN_OBJECT;
 				case '}':
-					return Token.END_OBJECT;
+					return TYPE.END_OBJECT;
 				case '"':
 					while( true )
 					{
@@ -127,7 +160,7 @@ public class JSONTokenizer
 						}
 						result.append( (char)ch );
 					}
-					return new Token( TYPE.STRING, result.toString() );
+					return TYPE.STRING;
 				case '+':
 				case '-':
 					result.append( (char)ch );
@@ -172,7 +205,7 @@ public class JSONTokenizer
 						}
 					}
 					this.in.push( ch );
-					return new Token( TYPE.NUMBER, new BigDecimal( result.toString() ) );
+					return TYPE.NUMBER;
 				case 'a': case 'b': case 'c': case 'd': case 'e':
 				case 'f': case 'g': case 'h': case 'i': case 'j':
 				case 'k': case 'l': case 'm': case 'n': case 'o':
@@ -186,21 +219,41 @@ public class JSONTokenizer
 					}
 					this.in.push( ch );
 
-					String keyword = result.toString();
-					if( keyword.equals( "false" ) )
-						return Token.FALSE;
-					if( keyword.equals( "null" ) )
-						return Token.NULL;
-					if( keyword.equals( "true" ) )
-						return Token.TRUE;
+					if( equals( result, "false" ) || equals( result, "true" ) )
+						return TYPE.BOOLEAN;
+					if( equals( result, "null" ) )
+						return TYPE.NULL;
 
-					throw new SourceException( "Unexpected keyword " + keyword, this.in.getLocation() );
+					throw new SourceException( "Unexpected keyword " + result, this.in.getLocation() );
 				default:
 					throw new SourceException( "Unexpected character '" + (char)ch + "'", this.in.getLocation() );
 			}
 		}
 	}
 
+	// Compares without creating a string
+	static private boolean equals( StringBuilder text, String keyword )
+	{
+		int len = keyword.length();
+		if( text.length() != len )
+			return false;
+		for( int i = 0; i < len; i++ )
+			if( text.charAt( i ) != keyword.charAt( i ) )
+				return false;
+		return true;
+	}
+
+	/**
+	 * Returns the text of the last string, number or keyword read by {@link #next()}. The characters are overwritten by
+	 * the next token.
+	 *
+	 * @return The text of the last token.
+	 */
+	public CharSequence getText()
+	{
+		return this.result;
+	}
+
 	/**
 	 * Returns the current line number.
 	 *
@@ -222,9 +275,9 @@ public class JSONTokenizer
 	}
 
 	/**
-	 * Returns the underlying reader. But only if the back buffer is empty, otherwise an IllegalStateException is thrown.
+	 * Returns the underlying reader. But only if the buffer is empty, otherwise an IllegalStateException is thrown.
 	 *
-	 * @return The underlying reader.
+	 * @return The underlying reader, null if the input is not read a line at a time.
 	 */
 	public SourceReader getReader()
 	{
@@ -17,8 +17,27 @@ public class JSONWriter
 {
 	static private final String ENCODING = "UTF-8";
 
+	// The escape sequences of the characters below 128, null for characters that need no escaping
+	static private final String[] ESCAPES = new String[ 128 ];
+	static
+	{
+		for( int i = 0; i < 0x20; i++ )
+			ESCAPES[ i ] = String.format( "\\u%04X", i );
+		ESCAPES[ '"' ] = "\\\"";
+		ESCAPES[ '\\' ] = "\\\\";
+		ESCAPES[ '\b' ] = "\\b";
+		ESCAPES[ '\f' ] = "\\f";
+		ESCAPES[ '\n' ] = "\\n";
+		ESCAPES[ '\r' ] = "\\r";
+		ESCAPES[ '\t' ] = "\\t";
+	}
+
 	private Writer out;
 
+	// Needed for writing array elements one by one
+	private boolean first;
+	private char[] scratch = new char[ 32 ];
+
 	// Needed for formatted output
 	private boolean format;
 	private int maxLength;
@@ -72,6 +91,12 @@ public class JSONWriter
 				writeNotString( ( (BigDecimal)object ).toString() );
 			else if( object instanceof Integer )
 				writeNotString( ( (Integer)object ).toString() );
+			else if( object instanceof Long )
+				writeLong( (Long)object );
+			else if( object instanceof java.util.Date )
+				writeDate( (java.util.Date)object );
+			else if( object instanceof java.sql.RowId )
+				writeString( object.toString() );
 			else if( object instanceof JSONObject )
 				writeObject( (JSONObject)object );
 			else if( object instanceof JSONArray )
@@ -145,69 +170,150 @@ public class JSONWriter
 			return ( (BigDecimal)object ).toString().length();
 		if( object instanceof Boolean )
 			return ( (Boolean)object ).booleanValue() ? 4 : 5;
-		if( object instanceof Integer )
-			return ( (Integer)object ).toString().length();
+		if( object instanceof Integer || object instanceof Long )
+			return object.toString().length();
 		if( object instanceof CustomWriter )
 			return ( (CustomWriter)object ).length();
 		throw new SystemException( "Unexpected object type: " + object.getClass().getName() );
 	}
 
+	static private String escape( char ch )
+	{
+		if( ch < 128 )
+			return ESCAPES[ ch ];
+		// According to ECMA-262 the characters below are not allowed too
+		if( ch == 0x2028 )
+			return "\\u2028"; // Line separator
+		if( ch == 0x2029 )
+			return "\\u2029"; // Paragraph separator
+		return null;
+	}
+
+	// Writes the characters in runs, only the characters that need escaping are written separately
 	private void writeChars( char[] chars, int len ) throws IOException
 	{
 		Writer out = this.out;
+		int start = 0;
 		for( int i = 0; i < len; i++ )
 		{
-			char ch = chars[ i ];
-			switch( ch )
+			String escape = escape( chars[ i ] );
+			if( escape != null )
 			{
-				case '"': out.write( "\\\"" ); break;
-				case '\\': out.write( "\\\\" ); break;
-				case '\b': out.write( "\\b" ); break;
-				case '\f': out.write( "\\f" ); break;
-				case '\n': out.write( "\\n" ); break;
-				case '\r': out.write( "\\r" ); break;
-				case '\t': out.write( "\\t" ); break;
-				case 0x00: out.write( "\\u0000" ); break;
-				case 0x01: out.write( "\\u0001" ); break;
-				case 0x02: out.write( "\\u0002" ); break;
-				case 0x03: out.write( "\\u0003" ); break;
-				case 0x04: out.write( "\\u0004" ); break;
-				case 0x05: out.write( "\\u0005" ); break;
-				case 0x06: out.write( "\\u0006" ); break;
-				case 0x07: out.write( "\\u0007" ); break;
-				case 0x0B: out.write( "\\u000B" ); break;
-				case 0x0E: out.write( "\\u000E" ); break;
-				case 0x0F: out.write( "\\u000F" ); break;
-				case 0x10: out.write( "\\u0010" ); break;
-				case 0x11: out.write( "\\u0011" ); break;
-				case 0x12: out.write( "\\u0012" ); break;
-				case 0x13: out.write( "\\u0013" ); break;
-				case 0x14: out.write( "\\u0014" ); break;
-				case 0x15: out.write( "\\u0015" ); break;
-				case 0x16: out.write( "\\u0016" ); break;
-				case 0x17: out.write( "\\u0017" ); break;
-				case 0x18: out.write( "\\u0018" ); break;
-				case 0x19: out.write( "\\u0019" ); break;
-				case 0x1A: out.write( "\\u001A" ); break;
-				case 0x1B: out.write( "\\u001B" ); break;
-				case 0x1C: out.write( "\\u001C" ); break;
-				case 0x1D: out.write( "\\u001D" ); break;
-				case 0x1E: out.write( "\\u001E" ); break;
-				case 0x1F: out.write( "\\u001F" ); break;
-				// According to ECMA-262 the characters below are not allowed too
-				case 0x2028: out.write( "\\u2028" ); break; // Line separator
-				case 0x2029: out.write( "\\u2029" ); break; // Paragraph separator
-				default:
-					out.write( ch );
+				if( i > start )
+					out.write( chars, start, i - start );
+				out.write( escape );
+				start = i + 1;
 			}
 		}
+		if( len > start )
+			out.write( chars, start, len - start );
 	}
 
 	private void writeString( String string ) throws IOException
 	{
-		this.out.write( '"' );
-		writeChars( string.toCharArray(), string.length() );
-		this.out.write( '"' );
+		Writer out = this.out;
+		out.write( '"' );
+		int len = string.length();
+		int start = 0;
+		for( int i = 0; i < len; i++ )
+		{
+			String escape = escape( string.charAt( i ) );
+			if( escape != null )
+			{
+				if( i > start )
+					out.write( string, start, i - start );
+				out.write( escape );
+				start = i + 1;
+			}
+		}
+		if( len > start )
+			out.write( string, start, len - start );
+		out.write( '"' );
+	}
+
+	private void writeLong( long value ) throws IOException
+	{
+		if( value == Long.MIN_VALUE )
+		{
+			writeNotString( Long.toString( value ) ); // Cannot be negated
+			return;
+		}
+
+		char[] chars = this.scratch;
+		int start = chars.length;
+		boolean negative = value < 0;
+		if( negative )
+			value = -value;
+		do
+		{
+			chars[ --start ] = (char)( '0' + value % 10 );
+			value /= 10;
+		}
+		while( value != 0 );
+		if( negative )
+			chars[ --start ] = '-';
+		this.out.write( chars, start, chars.length - start );
+	}
+
+	// Writes java.sql.Date, Time and Timestamp as a string in the same format as their toString()
+	@SuppressWarnings( "deprecation" )
+	private void writeDate( java.util.Date value ) throws IOException
+	{
+		boolean time = !( value instanceof java.sql.Date ); // java.sql.Date has no time fields
+		boolean date = !( value instanceof java.sql.Time ); // java.sql.Time has no date fields
+		int year = date ? value.getYear() + 1900 : 0;
+		if( date && ( year < 1000 || year > 9999 ) || !( value instanceof java.sql.Date || value instanceof java.sql.Time || value instanceof java.sql.Timestamp ) )
+		{
+			writeString( value.toString() );
+			return;
+		}
+
+		char[] chars = this.scratch;
+		int len = 0;
+		chars[ len++ ] = '"';
+		if( date )
+		{
+			len = digits( chars, len, year, 4 );
+			chars[ len++ ] = '-';
+			len = digits( chars, len, value.getMonth() + 1, 2 );
+			chars[ len++ ] = '-';
+			len = digits( chars, len, value.getDate(), 2 );
+		}
+		if( time )
+		{
+			if( date )
+				chars[ len++ ] = ' ';
+			len = digits( chars, len, value.getHours(), 2 );
+			chars[ len++ ] = ':';
+			len = digits( chars, len, value.getMinutes(), 2 );
+			chars[ len++ ] = ':';
+			len = digits( chars, len, value.getSeconds(), 2 );
+		}
+		if( value instanceof java.sql.Timestamp )
+		{
+			chars[ len++ ] = '.';
+			int nanos = ( (java.sql.Timestamp)value ).getNanos();
+			if( nanos == 0 )
+				chars[ len++ ] = '0';
+			else
+			{
+				len = digits( chars, len, nanos, 9 );
+				while( chars[ len - 1 ] == '0' )
+					len--;
+			}
+		}
+		chars[ len++ ] = '"';
+		this.out.write( chars, 0, len );
+	}
+
+	static private int digits( char[] chars, int pos, int value, int count )
+	{
+		for( int i = pos + count - 1; i >= pos; i-- )
+		{
+			chars[ i ] = (char)( '0' + value % 10 );
+			value /= 10;
+		}
+		return pos + count;
 	}
 
 	private void writeReader( Reader reader ) throws IOException
@@ -344,6 +450,142 @@ public class JSONWriter
 		}
 	}
 
+	/**
+	 * Starts an array whose elements are written one by one with the writeElement methods. Nothing is collected in
+	 * between, the elements go straight to the output.
+	 */
+	public void writeArrayStart()
+	{
+		this.format = false;
+		this.first = true;
+		try
+		{
+			this.out.write( '[' );
+		}
+		catch( IOException e )
+		{
+			throw new SystemException( e );
+		}
+	}
+
+	/**
+	 * Ends an array started with {@link #writeArrayStart()}.
+	 */
+	public void writeArrayEnd()
+	{
+		try
+		{
+			this.out.write( ']' );
+		}
+		catch( IOException e )
+		{
+			throw new SystemException( e );
+		}
+	}
+
+	private void writeElementSeparator() throws IOException
+	{
+		if( this.first )
+			this.first = false;
+		else
+			this.out.write( ',' );
+	}
+
+	/**
+	 * Writes an element of the current array.
+	 *
+	 * @param value The value to write. Can be any value that {@link #write(Object)} accepts.
+	 */
+	public void writeElement( Object value )
+	{
+		try
+		{
+			writeElementSeparator();
+		}
+		catch( IOException e )
+		{
+			throw new SystemException( e );
+		}
+		writeInternal( value );
+	}
+
+	/**
+	 * Writes a string element of the current array. The string is escaped while writing.
+	 *
+	 * @param value The string to write, can be null.
+	 */
+	public void writeElement( String value )
+	{
+		try
+		{
+			writeElementSeparator();
+			if( value == null )
+				writeNotString( "null" );
+			else
+				writeString( value );
+		}
+		catch( IOException e )
+		{
+			throw new SystemException( e );
+		}
+	}
+
+	/**
+	 * Writes a number element of the current array.
+	 *
+	 * @param value The number to write.
+	 */
+	public void writeElement( long value )
+	{
+		try
+		{
+			writeElementSeparator();
+			writeLong( value );
+		}
+		catch( IOException e )
+		{
+			throw new SystemException( e );
+		}
+	}
+
+	/**
+	 * Writes a date, time or timestamp element of the current array. It is written as a string in the format of its
+	 * toString().
+	 *
+	 * @param value The date, time or timestamp to write, can be null.
+	 */
+	public void writeElement( java.util.Date value )
+	{
+		try
+		{
+			writeElementSeparator();
+			if( value == null )
+				writeNotString( "null" );
+			else
+				writeDate( value );
+		}
+		catch( IOException e )
+		{
+			throw new SystemException( e );
+		}
+	}
+
+	/**
+	 * Writes a null element of the current array.
+	 */
+	public void writeNullElement()
+	{
+		try
+		{
+			writeElementSeparator();
+			writeNotString( "null" );
+		}
+		catch( IOException e )
+		{
+			throw new SystemException( e );
+		}
+	}
+
 	private void writeValuesInternal( JSONArray array, boolean breakup ) throws IOException
 	{
 		Writer out = this.out;
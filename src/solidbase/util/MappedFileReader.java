@@ -0,0 +1,250 @@
+/*--
+ * Copyright 2010 Ren M. de Bloois
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package solidbase.util;
+
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.io.Reader;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.CharacterCodingException;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CodingErrorAction;
+
+import solidbase.core.SystemException;
+
+
+/**
+ * Reads characters from a memory mapped file. The file is mapped in windows of {@link #WINDOW_SIZE} bytes, and the
+ * characters are decoded straight from the mapped bytes. ISO-8859-1 is decoded without a {@link CharsetDecoder}. A
+ * UTF-8 byte order mark at the start of the file is skipped.
+ *
+ * @author Ren M. de Bloois
+ */
+public class MappedFileReader extends Reader
+{
+	/** The size of the windows that are mapped. */
+	static public final int WINDOW_SIZE = 32 * 1024 * 1024;
+
+	private RandomAccessFile file;
+	private FileChannel channel;
+	private long size;
+
+	private long position; // The position of the window in the file
+	private ByteBuffer window;
+
+	private CharsetDecoder decoder; // Null for ISO-8859-1
+	private boolean utf8;
+
+	// Characters that are decoded but not returned yet, when less than 2 characters were asked for
+	private char[] pending = new char[ 2 ];
+	private int pendingStart;
+	private int pendingEnd;
+
+
+	/**
+	 * Constructor.
+	 *
+	 * @param file The file to read.
+	 * @param encoding The character encoding of the file.
+	 * @throws FileNotFoundException When the file does not exist.
+	 */
+	public MappedFileReader( File file, String encoding ) throws FileNotFoundException
+	{
+		Charset charset = Charset.forName( encoding );
+		this.utf8 = charset.name().equals( "UTF-8" );
+		if( !charset.name().equals( "ISO-8859-1" ) )
+			this.decoder = charset.newDecoder().onMalformedInput( CodingErrorAction.REPLACE ).onUnmappableCharacter( CodingErrorAction.REPLACE );
+
+		this.file = new RandomAccessFile( file, "r" );
+		try
+		{
+			this.channel = this.file.getChannel();
+			this.size = this.channel.size();
+			map( 0 );
+		}
+		catch( IOException e )
+		{
+			try
+			{
+				close();
+			}
+			catch( IOException ignore )
+			{
+				// Ignore, the first exception is more important
+			}
+			throw new SystemException( e );
+		}
+
+		// Skip the byte order mark
+		ByteBuffer window = this.window;
+		if( this.utf8 && window.remaining() >= 3 )
+			if( window.get( 0 ) == (byte)0xEF && window.get( 1 ) == (byte)0xBB && window.get( 2 ) == (byte)0xBF )
+				window.position( 3 );
+	}
+
+	private void map( long position ) throws IOException
+	{
+		this.position = position;
+		this.window = this.channel.map( FileChannel.MapMode.READ_ONLY, position, Math.min( WINDOW_SIZE, this.size - position ) );
+	}
+
+	@Override
+	public int read( char[] cbuf, int off, int len ) throws IOException
+	{
+		if( len == 0 )
+			return 0;
+		if( this.window == null )
+			throw new IOException( "Reader is closed" );
+
+		if( this.pendingStart < this.pendingEnd )
+		{
+			cbuf[ off ] = this.pending[ this.pendingStart++ ];
+			return 1;
+		}
+
+		while( true )
+		{
+			ByteBuffer window = this.window;
+			boolean last = this.position + window.limit() >= this.size;
+
+			if( this.decoder == null )
+			{
+				int count = Math.min( len, window.remaining() );
+				if( count > 0 )
+				{
+					for( int i = 0; i < count; i++ )
+						cbuf[ off + i ] = (char)( window.get() & 0xFF );
+					return count;
+				}
+			}
+			else if( len < 2 )
+			{
+				// The decoder needs room for 2 characters, for surrogate pairs
+				CharBuffer out = CharBuffer.wrap( this.pending );
+				this.decoder.decode( window, out, last );
+				if( out.position() > 0 )
+				{
+					this.pendingStart = 1;
+					this.pendingEnd = out.position();
+					cbuf[ off ] = this.pending[ 0 ];
+					return 1;
+				}
+			}
+			else
+			{
+				CharBuffer out = CharBuffer.wrap( cbuf, off, len );
+				this.decoder.decode( window, out, last );
+				int count = out.position() - off;
+				if( count > 0 )
+					return count;
+			}
+
+			if( last )
+				return -1;
+
+			// Slide the window, the bytes of an incomplete character at the end of the window are mapped again
+			map( this.position + window.position() );
+		}
+	}
+
+	/**
+	 * Returns the position in the file of the next byte to decode. The second character of a surrogate pair that is
+	 * read one character at a time counts as decoded after the first is read.
+	 *
+	 * @return The position in the file of the next byte to decode.
+	 */
+	public long getPosition()
+	{
+		return this.position + this.window.position();
+	}
+
+	/**
+	 * Continues reading at the given position in the file. The position must be at the start of a character.
+	 *
+	 * @param position The position in the file.
+	 * @throws IOException Whenever mapping the file throws it.
+	 */
+	public void seek( long position ) throws IOException
+	{
+		if( position < 0 || position > this.size )
+			throw new IOException( "Position " + position + " is outside of the file" );
+		if( this.decoder != null )
+			this.decoder.reset();
+		this.pendingStart = this.pendingEnd = 0;
+		map( position );
+	}
+
+	/**
+	 * Returns the number of bytes that the given characters were decoded from. This is exact when the file does not
+	 * contain malformed input.
+	 *
+	 * @param chars The characters.
+	 * @param offset The offset of the characters.
+	 * @param length The number of characters.
+	 * @return The number of bytes that the given characters were decoded from.
+	 */
+	public long getByteCount( char[] chars, int offset, int length )
+	{
+		if( this.decoder == null )
+			return length;
+
+		if( this.utf8 )
+		{
+			long result = 0;
+			int end = offset + length;
+			for( int i = offset; i < end; i++ )
+			{
+				char ch = chars[ i ];
+				if( ch < 0x80 )
+					result++;
+				else if( ch < 0x800 )
+					result += 2;
+				else if( Character.isHighSurrogate( ch ) && i + 1 < end && Character.isLowSurrogate( chars[ i + 1 ] ) )
+				{
+					result += 4;
+					i++;
+				}
+				else
+					result += 3;
+			}
+			return result;
+		}
+
+		try
+		{
+			return this.decoder.charset().newEncoder().encode( CharBuffer.wrap( chars, offset, length ) ).remaining();
+		}
+		catch( CharacterCodingException e )
+		{
+			throw new SystemException( e );
+		}
+	}
+
+	@Override
+	public void close() throws IOException
+	{
+		this.window = null; // The mapping is released when the buffer is garbage collected
+		if( this.channel != null )
+			this.channel.close();
+		this.file.close();
+	}
+}
@@ -0,0 +1,217 @@
+/*--
+ * Copyright 2012 Ren M. de Bloois
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package solidbase.util;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.LinkedList;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.zip.GZIPOutputStream;
+
+import solidstack.lang.ThreadInterrupted;
+
+
+/**
+ * Compresses to GZIP format with multiple threads. The bytes are collected in blocks, and each block is compressed
+ * into a separate GZIP member by a pool of threads. The members are written to the output stream in order. A file
+ * with multiple members is a valid GZIP file, any GZIP reader decompresses it as the concatenation of the blocks.
+ *
+ * <p>Because the blocks are compressed independently, the compression ratio is slightly worse than that of a single
+ * {@link GZIPOutputStream}.</p>
+ *
+ * @author Ren M. de Bloois
+ */
+public class ParallelGZIPOutputStream extends OutputStream
+{
+	/** The default number of bytes in a block. */
+	static public final int BLOCK_SIZE = 512 * 1024;
+
+	private OutputStream out;
+	private ExecutorService executor;
+	private int maxPending;
+	private LinkedList< Future< ByteArrayOutputStream > > pending = new LinkedList< Future< ByteArrayOutputStream > >();
+	private BlockingQueue< byte[] > pool;
+	private int blockSize;
+
+	private byte[] block;
+	private int size;
+	private boolean written;
+	private boolean closed;
+
+
+	/**
+	 * Constructor.
+	 *
+	 * @param out The output stream to write the compressed bytes to.
+	 * @param threads The number of compressing threads.
+	 * @param blockSize The number of bytes in a block.
+	 */
+	public ParallelGZIPOutputStream( OutputStream out, int threads, int blockSize )
+	{
+		Assert.isTrue( threads > 0 );
+		this.out = out;
+		this.blockSize = blockSize;
+		this.maxPending = threads * 2; // Keep the threads busy while the first member is being written
+		this.pool = new ArrayBlockingQueue< byte[] >( this.maxPending + 1 );
+		this.block = new byte[ blockSize ];
+		this.executor = Executors.newFixedThreadPool( threads, new ThreadFactory()
+		{
+			private int count;
+
+			//@Override
+			public Thread newThread( Runnable runnable )
+			{
+				Thread thread = new Thread( runnable, "GZIP-" + ++this.count );
+				thread.setDaemon( true );
+				return thread;
+			}
+		} );
+	}
+
+	/**
+	 * Constructor.
+	 *
+	 * @param out The output stream to write the compressed bytes to.
+	 * @param threads The number of compressing threads.
+	 */
+	public ParallelGZIPOutputStream( OutputStream out, int threads )
+	{
+		this( out, threads, BLOCK_SIZE );
+	}
+
+	@Override
+	public void write( int b ) throws IOException
+	{
+		if( this.size >= this.block.length )
+			submit();
+		this.block[ this.size++ ] = (byte)b;
+	}
+
+	@Override
+	public void write( byte[] b, int off, int len ) throws IOException
+	{
+		while( len > 0 )
+		{
+			if( this.size >= this.block.length )
+				submit();
+			int count = Math.min( len, this.block.length - this.size );
+			System.arraycopy( b, off, this.block, this.size, count );
+			this.size += count;
+			off += count;
+			len -= count;
+		}
+	}
+
+	/**
+	 * Flushes the output stream. The bytes in the current block are not flushed, because that would create a small
+	 * GZIP member.
+	 */
+	@Override
+	public void flush() throws IOException
+	{
+		this.out.flush();
+	}
+
+	/**
+	 * Compresses the last block, writes all remaining members and closes the output stream.
+	 */
+	@Override
+	public void close() throws IOException
+	{
+		if( this.closed )
+			return;
+		this.closed = true;
+		try
+		{
+			if( this.size > 0 || !this.written ) // An empty file is not a valid GZIP file
+				submit();
+			while( !this.pending.isEmpty() )
+				writeMember();
+		}
+		finally
+		{
+			try
+			{
+				this.out.close();
+			}
+			finally
+			{
+				this.executor.shutdownNow();
+			}
+		}
+	}
+
+	private void submit() throws IOException
+	{
+		final byte[] block = this.block;
+		final int size = this.size;
+		final BlockingQueue< byte[] > pool = this.pool;
+		this.pending.add( this.executor.submit( new Callable< ByteArrayOutputStream >()
+		{
+			//@Override
+			public ByteArrayOutputStream call() throws IOException
+			{
+				ByteArrayOutputStream result = new ByteArrayOutputStream( size / 2 + 64 );
+				GZIPOutputStream gzip = new GZIPOutputStream( result, 65536 );
+				gzip.write( block, 0, size );
+				gzip.close();
+				pool.offer( block );
+				return result;
+			}
+		} ) );
+		this.written = true;
+
+		while( this.pending.size() >= this.maxPending )
+			writeMember();
+
+		byte[] next = this.pool.poll();
+		this.block = next != null ? next : new byte[ this.blockSize ];
+		this.size = 0;
+	}
+
+	private void writeMember() throws IOException
+	{
+		Future< ByteArrayOutputStream > future = this.pending.removeFirst();
+		try
+		{
+			future.get().writeTo( this.out );
+		}
+		catch( InterruptedException e )
+		{
+			throw new ThreadInterrupted();
+		}
+		catch( ExecutionException e )
+		{
+			Throwable cause = e.getCause();
+			if( cause instanceof IOException )
+				throw (IOException)cause;
+			if( cause instanceof RuntimeException )
+				throw (RuntimeException)cause;
+			if( cause instanceof Error )
+				throw (Error)cause;
+			throw new IOException( cause.toString() );
+		}
+	}
+}
@@ -0,0 +1,379 @@
+/*--
+ * Copyright 2012 Ren M. de Bloois
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package solidbase.util;
+
+import java.math.BigDecimal;
+import java.sql.Connection;
+import java.sql.DatabaseMetaData;
+import java.sql.Date;
+import java.sql.ParameterMetaData;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Time;
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+
+/**
+ * Binds the values of CSV records to the parameters of a prepared statement with the setter that matches the type of
+ * the parameter. Integers, decimals, dates, times and timestamps are parsed here, so the database does not need to cast
+ * strings for every record. Values that can't be parsed are bound as strings, leaving the conversion to the database
+ * like before. The parameter types are determined once with {@link #getParameterTypes(PreparedStatement, int)} or
+ * {@link #getColumnTypes(Connection, String, String[])}.
+ *
+ * <p>A binder keeps state between records, so every thread needs its own binder.</p>
+ *
+ * @author Ren M. de Bloois
+ */
+public class ParameterBinder
+{
+	private int[] types;
+
+	// The last parsed date, time or timestamp per parameter, dates tend to repeat
+	private char[][] cachedChars;
+	private int[] cachedLengths;
+	private Object[] cachedValues;
+
+	private long longValue;
+
+
+	/**
+	 * Constructor.
+	 *
+	 * @param types The JDBC types of the parameters, may be null when unknown. Unknown parameters are bound as strings.
+	 */
+	public ParameterBinder( int[] types )
+	{
+		this.types = types;
+		if( types != null )
+		{
+			this.cachedChars = new char[ types.length ][];
+			this.cachedLengths = new int[ types.length ];
+			this.cachedValues = new Object[ types.length ];
+		}
+	}
+
+	/**
+	 * Determines the types of the parameters of the given statement with {@link ParameterMetaData}.
+	 *
+	 * @param statement The statement.
+	 * @param count The number of parameters.
+	 * @return The JDBC types of the parameters, null if the driver does not support it.
+	 */
+	static public int[] getParameterTypes( PreparedStatement statement, int count )
+	{
+		try
+		{
+			ParameterMetaData metaData = statement.getParameterMetaData();
+			if( metaData == null || metaData.getParameterCount() != count )
+				return null;
+			int[] result = new int[ count ];
+			boolean known = false;
+			for( int i = 0; i < count; i++ )
+			{
+				result[ i ] = metaData.getParameterType( i + 1 );
+				if( isParsed( result[ i ] ) )
+					known = true;
+			}
+			return known ? result : null; // Some drivers only return VARCHAR
+		}
+		catch( SQLException e )
+		{
+			return null;
+		}
+		catch( RuntimeException e )
+		{
+			return null; // Some drivers throw an UnsupportedOperationException or worse
+		}
+	}
+
+	/**
+	 * Determines the types of the given columns with {@link DatabaseMetaData#getColumns(String, String, String, String)}.
+	 *
+	 * @param connection The connection.
+	 * @param tableName The name of the table, optionally prefixed with the schema.
+	 * @param columns The names of the columns, or null for all columns in the order of the table.
+	 * @return The JDBC types of the columns, null if the table or one of the columns is not found.
+	 * @throws SQLException Whenever JDBC throws it.
+	 */
+	static public int[] getColumnTypes( Connection connection, String tableName, String[] columns ) throws SQLException
+	{
+		DatabaseMetaData metaData = connection.getMetaData();
+
+		String schema = null;
+		int dot = tableName.lastIndexOf( '.' );
+		if( dot >= 0 )
+		{
+			schema = toIdentifier( metaData, tableName.substring( 0, dot ) );
+			tableName = tableName.substring( dot + 1 );
+		}
+		tableName = toIdentifier( metaData, tableName );
+
+		// Escape the pattern characters
+		String escape = metaData.getSearchStringEscape();
+		String tablePattern = tableName;
+		if( escape != null )
+			tablePattern = tableName.replace( escape, escape + escape ).replace( "_", escape + "_" ).replace( "%", escape + "%" );
+
+		List< Integer > types = new ArrayList< Integer >();
+		Map< String, Integer > byName = new HashMap< String, Integer >();
+		ResultSet result = metaData.getColumns( null, schema, tablePattern, null );
+		try
+		{
+			String foundSchema = null;
+			while( result.next() )
+			{
+				if( !tableName.equals( result.getString( "TABLE_NAME" ) ) )
+					continue;
+				String columnSchema = result.getString( "TABLE_SCHEM" );
+				if( types.isEmpty() )
+					foundSchema = columnSchema;
+				else if( foundSchema == null ? columnSchema != null : !foundSchema.equals( columnSchema ) )
+					continue; // The same table in another schema
+				int type = result.getInt( "DATA_TYPE" );
+				types.add( type );
+				byName.put( result.getString( "COLUMN_NAME" ), type );
+			}
+		}
+		finally
+		{
+			result.close();
+		}
+
+		if( types.isEmpty() )
+			return null;
+
+		if( columns == null )
+		{
+			int[] array = new int[ types.size() ];
+			for( int i = 0; i < array.length; i++ )
+				array[ i ] = types.get( i );
+			return array;
+		}
+
+		int[] array = new int[ columns.length ];
+		for( int i = 0; i < columns.length; i++ )
+		{
+			Integer type = byName.get( toIdentifier( metaData, columns[ i ] ) );
+			if( type == null )
+				return null;
+			array[ i ] = type;
+		}
+		return array;
+	}
+
+	/**
+	 * Converts the given identifier to the case that the database stores it in.
+	 */
+	static private String toIdentifier( DatabaseMetaData metaData, String identifier ) throws SQLException
+	{
+		identifier = identifier.trim();
+		if( identifier.length() > 1 && identifier.charAt( 0 ) == '"' && identifier.charAt( identifier.length() - 1 ) == '"' )
+			return identifier.substring( 1, identifier.length() - 1 );
+		if( metaData.storesUpperCaseIdentifiers() )
+			return identifier.toUpperCase();
+		if( metaData.storesLowerCaseIdentifiers() )
+			return identifier.toLowerCase();
+		return identifier;
+	}
+
+	/**
+	 * Is the given type parsed by the binder?
+	 */
+	static private boolean isParsed( int type )
+	{
+		switch( type )
+		{
+			case Types.TINYINT:
+			case Types.SMALLINT:
+			case Types.INTEGER:
+			case Types.BIGINT:
+			case Types.DECIMAL:
+			case Types.NUMERIC:
+			case Types.REAL:
+			case Types.FLOAT:
+			case Types.DOUBLE:
+			case Types.DATE:
+			case Types.TIME:
+			case Types.TIMESTAMP:
+				return true;
+		}
+		return false;
+	}
+
+	/**
+	 * Binds a value of the given record to a parameter of the statement. An empty value is bound as null.
+	 *
+	 * @param statement The statement.
+	 * @param position The position of the parameter, starting at 1.
+	 * @param record The record.
+	 * @param index The index of the value in the record.
+	 * @throws SQLException Whenever JDBC throws it.
+	 * @throws ArrayIndexOutOfBoundsException When the record does not have a value with the given index.
+	 */
+	public void bind( PreparedStatement statement, int position, CSVRecord record, int index ) throws SQLException
+	{
+		int length = record.getLength( index );
+		int type = this.types != null && position <= this.types.length ? this.types[ position - 1 ] : Types.VARCHAR;
+
+		if( length == 0 )
+		{
+			if( isParsed( type ) )
+				statement.setNull( position, type );
+			else
+				statement.setString( position, null );
+			return;
+		}
+
+		char[] chars = record.getChars();
+		int offset = record.getOffset( index );
+		switch( type )
+		{
+			case Types.TINYINT:
+			case Types.SMALLINT:
+			case Types.INTEGER:
+			case Types.BIGINT:
+				if( parseLong( chars, offset, length ) )
+				{
+					statement.setLong( position, this.longValue );
+					return;
+				}
+				break;
+
+			case Types.DECIMAL:
+			case Types.NUMERIC:
+			case Types.REAL:
+			case Types.FLOAT:
+			case Types.DOUBLE:
+				BigDecimal decimal = parseDecimal( chars, offset, length );
+				if( decimal != null )
+				{
+					if( type == Types.DECIMAL || type == Types.NUMERIC )
+						statement.setBigDecimal( position, decimal );
+					else
+						statement.setDouble( position, decimal.doubleValue() );
+					return;
+				}
+				break;
+
+			case Types.DATE:
+			case Types.TIME:
+			case Types.TIMESTAMP:
+				Object value = parseTemporal( position - 1, type, chars, offset, length );
+				if( value != null )
+				{
+					if( type == Types.DATE )
+						statement.setDate( position, (Date)value );
+					else if( type == Types.TIME )
+						statement.setTime( position, (Time)value );
+					else
+						statement.setTimestamp( position, (Timestamp)value );
+					return;
+				}
+				break;
+		}
+
+		statement.setString( position, new String( chars, offset, length ) );
+	}
+
+	/**
+	 * Parses an integer without creating objects. Only an optional sign followed by at most 18 digits is accepted.
+	 *
+	 * @return True if the value is an integer, it is stored in {@link #longValue}.
+	 */
+	private boolean parseLong( char[] chars, int offset, int length )
+	{
+		int end = offset + length;
+		boolean negative = false;
+		char ch = chars[ offset ];
+		if( ch == '-' || ch == '+' )
+		{
+			negative = ch == '-';
+			offset++;
+		}
+		if( offset >= end || end - offset > 18 )
+			return false;
+		long result = 0;
+		while( offset < end )
+		{
+			ch = chars[ offset++ ];
+			if( ch < '0' || ch > '9' )
+				return false;
+			result = result * 10 + ( ch - '0' );
+		}
+		this.longValue = negative ? -result : result;
+		return true;
+	}
+
+	static private BigDecimal parseDecimal( char[] chars, int offset, int length )
+	{
+		try
+		{
+			return new BigDecimal( chars, offset, length );
+		}
+		catch( NumberFormatException e )
+		{
+			return null;
+		}
+	}
+
+	/**
+	 * Parses a date, time or timestamp in JDBC escape format. The last value of each parameter is cached.
+	 *
+	 * @return The parsed value, or null if the value is not in JDBC escape format.
+	 */
+	private Object parseTemporal( int parameter, int type, char[] chars, int offset, int length )
+	{
+		char[] cached = this.cachedChars[ parameter ];
+		if( cached != null && this.cachedLengths[ parameter ] == length )
+		{
+			int i = 0;
+			while( i < length && cached[ i ] == chars[ offset + i ] )
+				i++;
+			if( i == length )
+				return this.cachedValues[ parameter ];
+		}
+
+		String text = new String( chars, offset, length );
+		Object value;
+		try
+		{
+			if( type == Types.DATE )
+				value = Date.valueOf( text );
+			else if( type == Types.TIME )
+				value = Time.valueOf( text );
+			else
+				value = Timestamp.valueOf( text );
+		}
+		catch( IllegalArgumentException e )
+		{
+			return null;
+		}
+
+		if( cached == null || cached.length < length )
+			this.cachedChars[ parameter ] = cached = new char[ Math.max( length, 32 ) ];
+		System.arraycopy( chars, offset, cached, 0, length );
+		this.cachedLengths[ parameter ] = length;
+		this.cachedValues[ parameter ] = value;
+		return value;
+	}
+}
@@ -0,0 +1,243 @@
+/*--
+ * Copyright 2012 Ren M. de Bloois
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package solidbase.util;
+
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.math.BigDecimal;
+
+import solidbase.core.SystemException;
+import solidstack.io.FileResource;
+import solidstack.io.Resource;
+
+
+/**
+ * The index of a JSON dump file, written next to the file as a sidecar. It holds the byte position of every n-th
+ * record, so that a load can start at any record without reading the records before it. Each record of a JSON dump is
+ * on its own line, so the line number of a record follows from the line number of the first record.
+ *
+ * <p>The index also holds the size of the file. An index that does not match the size of the file is ignored.</p>
+ *
+ * @author Ren M. de Bloois
+ */
+public class RecordIndex
+{
+	private long every;
+	private int line;
+	private long records;
+	private long bytes;
+
+	private long[] positions = new long[ 64 ];
+	private int size;
+
+
+	/**
+	 * Constructor.
+	 *
+	 * @param every The number of records between the entries of the index.
+	 * @param line The line number of the first record.
+	 */
+	public RecordIndex( long every, int line )
+	{
+		Assert.isTrue( every > 0 );
+		this.every = every;
+		this.line = line;
+	}
+
+	/**
+	 * Returns the name of the index file of a dump file. The extensions of the file name are replaced by .index.json.
+	 *
+	 * @param fileName The name of the dump file.
+	 * @return The name of the index file.
+	 */
+	static public String getFileName( String fileName )
+	{
+		return FileParts.stripExtensions( fileName ) + ".index.json";
+	}
+
+	/**
+	 * Reads the index of the given dump file.
+	 *
+	 * @param resource The dump file.
+	 * @return The index, null if the dump file has no index, or if the index does not match the size of the file.
+	 */
+	static public RecordIndex forResource( Resource resource )
+	{
+		if( !resource.supportsFile() )
+			return null;
+		File file = resource.getFile();
+		File indexFile = new File( getFileName( file.getPath() ) );
+		if( !indexFile.exists() )
+			return null;
+
+		JSONReader reader;
+		try
+		{
+			reader = new JSONReader( SourceBuffer.forResource( new FileResource( indexFile ), "UTF-8", false ) );
+		}
+		catch( FileNotFoundException e )
+		{
+			throw new SystemException( e );
+		}
+
+		JSONObject properties;
+		try
+		{
+			properties = (JSONObject)reader.read();
+		}
+		finally
+		{
+			reader.close();
+		}
+
+		if( properties.getNumber( "bytes" ).longValue() != file.length() )
+			return null; // The file has changed since the index was written
+
+		RecordIndex result = new RecordIndex( properties.getNumber( "every" ).longValue(), properties.getNumber( "line" ).intValue() );
+		for( Object position : properties.getArray( "positions" ) )
+			result.add( ( (BigDecimal)position ).longValue() );
+		result.end( properties.getNumber( "records" ).longValue(), file.length() );
+		return result;
+	}
+
+	/**
+	 * @return The number of records between the entries of the index.
+	 */
+	public long getEvery()
+	{
+		return this.every;
+	}
+
+	/**
+	 * @return The number of records in the dump file.
+	 */
+	public long getRecords()
+	{
+		return this.records;
+	}
+
+	/**
+	 * @return The number of entries.
+	 */
+	public int size()
+	{
+		return this.size;
+	}
+
+	/**
+	 * Adds the position of the next entry. The records with a number that is a multiple of {@link #getEvery()}, counting
+	 * from 0, have an entry.
+	 *
+	 * @param position The byte position of the record in the file.
+	 */
+	public void add( long position )
+	{
+		if( this.size >= this.positions.length )
+		{
+			long[] positions = new long[ this.size * 2 ];
+			System.arraycopy( this.positions, 0, positions, 0, this.size );
+			this.positions = positions;
+		}
+		this.positions[ this.size++ ] = position;
+	}
+
+	/**
+	 * Completes the index.
+	 *
+	 * @param records The number of records in the dump file.
+	 * @param bytes The size of the dump file.
+	 */
+	public void end( long records, long bytes )
+	{
+		this.records = records;
+		this.bytes = bytes;
+	}
+
+	/**
+	 * Finds the last entry at or before the given record.
+	 *
+	 * @param record The number of the record, counting from 0.
+	 * @return The entry, -1 if the index has no entries.
+	 */
+	public int find( long record )
+	{
+		return (int)Math.min( record / this.every, this.size - 1 );
+	}
+
+	/**
+	 * @param entry The entry.
+	 * @return The number of the record of the entry, counting from 0.
+	 */
+	public long getRecord( int entry )
+	{
+		return entry * this.every;
+	}
+
+	/**
+	 * @param entry The entry.
+	 * @return The byte position of the record of the entry.
+	 */
+	public long getPosition( int entry )
+	{
+		return this.positions[ entry ];
+	}
+
+	/**
+	 * @param entry The entry.
+	 * @return The line number of the record of the entry.
+	 */
+	public int getLineNumber( int entry )
+	{
+		return (int)( this.line + getRecord( entry ) );
+	}
+
+	/**
+	 * Writes the index next to the dump file.
+	 *
+	 * @param fileName The name of the dump file.
+	 * @return The name of the index file.
+	 */
+	public String write( String fileName )
+	{
+		JSONArray positions = new JSONArray();
+		for( int i = 0; i < this.size; i++ )
+			positions.add( BigDecimal.valueOf( this.positions[ i ] ) );
+
+		JSONObject index = new JSONObject();
+		index.set( "version", "1.0" );
+		index.set( "format", "record-index" );
+		index.set( "description", "SolidBase JSON Data Dump Index" );
+		index.set( "file", new File( fileName ).getName() );
+		index.set( "bytes", BigDecimal.valueOf( this.bytes ) );
+		index.set( "records", BigDecimal.valueOf( this.records ) );
+		index.set( "every", BigDecimal.valueOf( this.every ) );
+		index.set( "line", BigDecimal.valueOf( this.line ) );
+		index.set( "positions", positions );
+
+		String indexName = getFileName( fileName );
+		JSONWriter writer = new JSONWriter( new FileResource( new File( indexName ) ) );
+		try
+		{
+			writer.writeFormatted( index, 120 );
+		}
+		finally
+		{
+			writer.close();
+		}
+		return indexName;
+	}
+}
@@ -0,0 +1,252 @@
+/*--
+ * Copyright 2012 Ren M. de Bloois
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package solidbase.util;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+import solidstack.lang.ThreadInterrupted;
+
+
+/**
+ * Reads records from a {@link RecordSource} in a separate thread, so that reading and parsing the records overlaps with
+ * processing them. The reader thread fills chunks of records and hands them over through a bounded queue. The chunks
+ * are taken from a fixed pool and are returned to it when all their records have been read, so no new buffers are
+ * allocated while reading.
+ *
+ * <p>The line number of each record is kept with the record, so {@link #getLineNumber()} returns the exact line
+ * number of the record last returned by {@link #read()}, even though the reader thread is ahead. An exception thrown
+ * by the source is rethrown by {@link #read()} after the records that were read before it.</p>
+ *
+ * @author Ren M. de Bloois
+ * @param <T> The type of the records.
+ */
+public class RecordPipeline< T > implements RecordSource< T >
+{
+	/** The default number of records in a chunk. */
+	static public final int CHUNK_SIZE = 1000;
+
+	/** The default number of filled chunks that can be waiting in the queue. */
+	static public final int DEPTH = 4;
+
+	private BlockingQueue< Chunk > pool;
+	private BlockingQueue< Chunk > queue;
+	private Reader reader;
+
+	private Chunk chunk;
+	private int index;
+	private int lineNumber;
+
+
+	/**
+	 * Constructor. Starts the reader thread.
+	 *
+	 * @param name The name of the reader thread.
+	 * @param source The source of the records.
+	 * @param chunkSize The number of records in a chunk.
+	 * @param depth The number of filled chunks that can be waiting in the queue.
+	 */
+	public RecordPipeline( String name, RecordSource< T > source, int chunkSize, int depth )
+	{
+		// One chunk being filled and one being read, besides the ones in the queue
+		int count = depth + 2;
+		this.pool = new ArrayBlockingQueue< Chunk >( count );
+		for( int i = 0; i < count; i++ )
+			this.pool.add( new Chunk( chunkSize ) );
+		this.queue = new ArrayBlockingQueue< Chunk >( depth );
+
+		this.reader = new Reader( name, source );
+		this.reader.start();
+	}
+
+	/**
+	 * Constructor. Starts the reader thread.
+	 *
+	 * @param name The name of the reader thread.
+	 * @param source The source of the records.
+	 */
+	public RecordPipeline( String name, RecordSource< T > source )
+	{
+		this( name, source, CHUNK_SIZE, DEPTH );
+	}
+
+	//@Override
+	@SuppressWarnings( "unchecked" )
+	public T read()
+	{
+		Chunk chunk = this.chunk;
+		while( chunk == null || this.index >= chunk.size )
+		{
+			if( chunk != null )
+			{
+				if( chunk.last )
+				{
+					Throwable failure = chunk.failure;
+					chunk.failure = null;
+					if( failure instanceof RuntimeException )
+						throw (RuntimeException)failure;
+					if( failure instanceof Error )
+						throw (Error)failure;
+					return null;
+				}
+				this.pool.add( chunk );
+			}
+			try
+			{
+				this.chunk = chunk = this.queue.take();
+			}
+			catch( InterruptedException e )
+			{
+				throw new ThreadInterrupted();
+			}
+			this.index = 0;
+		}
+
+		int index = this.index++;
+		this.lineNumber = chunk.lineNumbers[ index ];
+		T result = (T)chunk.records[ index ];
+		chunk.records[ index ] = null;
+		return result;
+	}
+
+	//@Override
+	public int getLineNumber()
+	{
+		return this.lineNumber;
+	}
+
+	/**
+	 * Stops the reader thread, if it is still running, and waits for it to end.
+	 */
+	public void close()
+	{
+		this.reader.interrupt();
+		try
+		{
+			this.reader.join();
+		}
+		catch( InterruptedException e )
+		{
+			Thread.currentThread().interrupt();
+		}
+	}
+
+
+	/**
+	 * A chunk of records with their line numbers.
+	 *
+	 * @author Ren M. de Bloois
+	 */
+	static protected class Chunk
+	{
+		/** The records. */
+		protected Object[] records;
+
+		/** The line numbers of the records. */
+		protected int[] lineNumbers;
+
+		/** The number of records in this chunk. */
+		protected int size;
+
+		/** This is the last chunk. */
+		protected boolean last;
+
+		/** The exception that ended the reading, only in the last chunk. */
+		protected Throwable failure;
+
+		/**
+		 * Constructor.
+		 *
+		 * @param capacity The maximum number of records in this chunk.
+		 */
+		protected Chunk( int capacity )
+		{
+			this.records = new Object[ capacity ];
+			this.lineNumbers = new int[ capacity ];
+		}
+	}
+
+
+	/**
+	 * The thread that reads the records from the source.
+	 *
+	 * @author Ren M. de Bloois
+	 */
+	protected class Reader extends Thread
+	{
+		private RecordSource< T > source;
+
+		/**
+		 * Constructor.
+		 *
+		 * @param name The name of the thread.
+		 * @param source The source of the records.
+		 */
+		protected Reader( String name, RecordSource< T > source )
+		{
+			super( name );
+			this.source = source;
+		}
+
+		@Override
+		public void run()
+		{
+			BlockingQueue< Chunk > pool = RecordPipeline.this.pool;
+			BlockingQueue< Chunk > queue = RecordPipeline.this.queue;
+			try
+			{
+				while( true )
+				{
+					Chunk chunk = pool.take();
+					chunk.size = 0;
+					try
+					{
+						int capacity = chunk.records.length;
+						while( chunk.size < capacity )
+						{
+							T record = this.source.read();
+							if( record == null )
+							{
+								chunk.last = true;
+								break;
+							}
+							chunk.records[ chunk.size ] = record;
+							chunk.lineNumbers[ chunk.size ] = this.source.getLineNumber();
+							chunk.size++;
+						}
+					}
+					catch( ThreadInterrupted e )
+					{
+						return;
+					}
+					catch( Throwable t )
+					{
+						chunk.last = true;
+						chunk.failure = t;
+					}
+					queue.put( chunk );
+					if( chunk.last )
+						return;
+				}
+			}
+			catch( InterruptedException e )
+			{
+				// Stopped by close()
+			}
+		}
+	}
+}
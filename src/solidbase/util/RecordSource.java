@@ -0,0 +1,41 @@
+/*--
+ * Copyright 2012 Ren M. de Bloois
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package solidbase.util;
+
+
+/**
+ * A source of records that are read one by one, like CSV lines or JSON arrays.
+ *
+ * @author Ren M. de Bloois
+ * @param <T> The type of the records.
+ */
+public interface RecordSource< T >
+{
+	/**
+	 * Reads the next record.
+	 *
+	 * @return The next record, or null when there are no more records.
+	 */
+	T read();
+
+	/**
+	 * Returns the line number of the record that was last returned by {@link #read()}.
+	 *
+	 * @return The line number of the record that was last read.
+	 */
+	int getLineNumber();
+}
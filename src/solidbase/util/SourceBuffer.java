@@ -0,0 +1,365 @@
+/*--
+ * Copyright 2010 Ren M. de Bloois
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package solidbase.util;
+
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.Reader;
+
+import solidbase.core.SystemException;
+import solidstack.io.Resource;
+import solidstack.io.SourceLocation;
+import solidstack.io.SourceReader;
+import solidstack.io.SourceReaders;
+
+
+/**
+ * A character buffer for the tokenizers. It maintains the current line number, and it allows the tokenizers to scan the
+ * characters in the buffer directly. Line endings are normalized to a single newline character.
+ *
+ * <p>The buffer is filled from a {@link SourceReader} a line at a time. This never reads beyond the line that is being
+ * tokenized, so the reader can be used again by others when the tokenizer is done. This is needed for data that is
+ * embedded in the upgrade or SQL file. Files that are read from start to end are filled from a {@link Reader} in large
+ * blocks, see {@link #forResource(Resource, String, boolean)}.</p>
+ *
+ * @author Ren M. de Bloois
+ */
+public class SourceBuffer
+{
+	/** The size of the blocks read from a {@link Reader}. */
+	static public final int BLOCK_SIZE = 65536;
+
+	/** The source of lines, if filled a line at a time. */
+	protected SourceReader source;
+
+	/** The source of blocks, if filled a block at a time. */
+	protected Reader reader;
+
+	/** The resource being read. */
+	protected Resource resource;
+
+	/** The characters. */
+	protected char[] buffer;
+
+	/** The position of the next character in the buffer. */
+	protected int pos;
+
+	/** The end of the characters in the buffer. */
+	protected int limit;
+
+	/** The line number of the next character. */
+	protected int lineNumber;
+
+	/** The end of the input has been reached. */
+	protected boolean endOfInput;
+
+	/** The last block ended with a carriage return, a line feed at the start of the next block must be skipped. */
+	private boolean skipLineFeed;
+
+	// The characters of the current block before the line endings were normalized, to calculate byte positions
+	private char[] raw;
+	private int rawStart;
+	private int rawLimit;
+	private long blockPosition = -1; // The byte position of the current block in the file, -1 if none
+
+
+	/**
+	 * Creates a buffer that is filled a line at a time from the given reader.
+	 *
+	 * @param source The source of the lines.
+	 */
+	public SourceBuffer( SourceReader source )
+	{
+		this.source = source;
+		this.lineNumber = source.getLineNumber();
+		this.buffer = new char[ 4096 ];
+	}
+
+	/**
+	 * Creates a buffer that is filled a block at a time from the given reader. The reader is read from the start.
+	 *
+	 * @param reader The source of the characters.
+	 * @param resource The resource being read, used in locations.
+	 */
+	public SourceBuffer( Reader reader, Resource resource )
+	{
+		this.reader = reader;
+		this.resource = resource;
+		this.lineNumber = 1;
+		this.buffer = new char[ BLOCK_SIZE ];
+		this.raw = new char[ BLOCK_SIZE ];
+	}
+
+	/**
+	 * Creates a buffer for the given resource. Uncompressed local files are memory mapped and read in blocks with a
+	 * {@link MappedFileReader}. Other resources are read through {@link SourceReaders#forResource(Resource, String)}.
+	 *
+	 * @param resource The resource.
+	 * @param encoding The character encoding of the resource.
+	 * @param gzip The resource is compressed with gzip.
+	 * @return The buffer.
+	 * @throws FileNotFoundException When the resource does not exist.
+	 */
+	static public SourceBuffer forResource( Resource resource, String encoding, boolean gzip ) throws FileNotFoundException
+	{
+		if( !gzip && resource.supportsFile() )
+			return new SourceBuffer( new MappedFileReader( resource.getFile(), encoding ), resource );
+		return new SourceBuffer( SourceReaders.forResource( resource, encoding ) );
+	}
+
+	/**
+	 * Fills the buffer. The characters in the buffer must all have been read.
+	 *
+	 * @return False if the end of the input has been reached, true otherwise.
+	 */
+	protected boolean fill()
+	{
+		if( this.endOfInput )
+			return false;
+
+		if( this.source != null )
+		{
+			String line = this.source.readLine();
+			if( line == null )
+			{
+				this.endOfInput = true;
+				return false;
+			}
+
+			int length = line.length();
+			if( length >= this.buffer.length )
+				this.buffer = new char[ Math.max( length + 1, this.buffer.length * 2 ) ];
+			line.getChars( 0, length, this.buffer, 0 );
+			this.buffer[ length ] = '\n';
+			this.pos = 0;
+			this.limit = length + 1;
+			return true;
+		}
+
+		char[] buffer = this.buffer;
+		char[] raw = this.raw;
+		while( true )
+		{
+			long blockPosition = isSeekable() ? ( (MappedFileReader)this.reader ).getPosition() : -1;
+			int read;
+			try
+			{
+				read = this.reader.read( raw, 0, raw.length );
+			}
+			catch( IOException e )
+			{
+				throw new SystemException( e );
+			}
+			if( read < 0 )
+			{
+				this.endOfInput = true;
+				return false;
+			}
+
+			// Normalize CR LF and CR to LF
+			int i = 0;
+			if( this.skipLineFeed && read > 0 )
+			{
+				this.skipLineFeed = false;
+				if( raw[ 0 ] == '\n' )
+					i++;
+			}
+			this.rawStart = i;
+			int j = 0;
+			for( ; i < read; i++ )
+			{
+				char ch = raw[ i ];
+				if( ch == '\r' )
+				{
+					if( i + 1 >= read )
+						this.skipLineFeed = true;
+					else if( raw[ i + 1 ] == '\n' )
+						i++;
+					ch = '\n';
+				}
+				buffer[ j++ ] = ch;
+			}
+
+			if( j > 0 )
+			{
+				this.pos = 0;
+				this.limit = j;
+				this.rawLimit = read;
+				this.blockPosition = blockPosition;
+				return true;
+			}
+		}
+	}
+
+	/**
+	 * Reads a character.
+	 *
+	 * @return The character read, -1 if the end of the input has been reached.
+	 */
+	public int read()
+	{
+		if( this.pos >= this.limit && !fill() )
+			return -1;
+		char ch = this.buffer[ this.pos++ ];
+		if( ch == '\n' )
+			this.lineNumber++;
+		return ch;
+	}
+
+	/**
+	 * Pushes back the character that was read last.
+	 *
+	 * @param ch The character that was read last.
+	 */
+	public void push( int ch )
+	{
+		if( ch == -1 )
+			return;
+		this.pos--;
+		if( ch == '\n' )
+			this.lineNumber--;
+	}
+
+	/**
+	 * Returns the current line number.
+	 *
+	 * @return The current line number.
+	 */
+	public int getLineNumber()
+	{
+		return this.lineNumber;
+	}
+
+	/**
+	 * Returns the current location.
+	 *
+	 * @return The current location.
+	 */
+	public SourceLocation getLocation()
+	{
+		if( this.source != null )
+			return this.source.getLocation().lineNumber( this.lineNumber );
+		return new SourceLocation( this.resource, this.lineNumber );
+	}
+
+	/**
+	 * @return The resource being read.
+	 */
+	public Resource getResource()
+	{
+		if( this.source != null )
+			return this.source.getResource();
+		return this.resource;
+	}
+
+	/**
+	 * Is it possible to get the byte position and to seek? This is the case when reading from a
+	 * {@link MappedFileReader}.
+	 *
+	 * @return True if it is possible to get the byte position and to seek, false otherwise.
+	 */
+	public boolean isSeekable()
+	{
+		return this.reader instanceof MappedFileReader;
+	}
+
+	/**
+	 * Returns the position in the file of the next character to be read.
+	 *
+	 * @return The position in the file of the next character to be read.
+	 * @see #isSeekable()
+	 */
+	public long getBytePosition()
+	{
+		if( !isSeekable() )
+			throw new IllegalStateException( "Not seekable" );
+		MappedFileReader reader = (MappedFileReader)this.reader;
+
+		// The line feed of a carriage return line feed may be waiting in the next block
+		if( this.pos >= this.limit && this.skipLineFeed )
+			fill();
+		if( this.blockPosition < 0 )
+			return reader.getPosition();
+
+		// Walk the characters before they were normalized until the current position
+		char[] raw = this.raw;
+		int r = this.rawStart;
+		for( int i = 0; i < this.pos; i++ )
+			if( raw[ r ] == '\r' && r + 1 < this.rawLimit && raw[ r + 1 ] == '\n' )
+				r += 2;
+			else
+				r++;
+		return this.blockPosition + reader.getByteCount( raw, 0, r );
+	}
+
+	/**
+	 * Continues reading at the given position in the file. The position must be at the start of a line.
+	 *
+	 * @param bytePosition The position in the file, as returned by {@link #getBytePosition()}.
+	 * @param lineNumber The line number at the given position.
+	 * @see #isSeekable()
+	 */
+	public void seek( long bytePosition, int lineNumber )
+	{
+		if( !isSeekable() )
+			throw new IllegalStateException( "Not seekable" );
+		try
+		{
+			( (MappedFileReader)this.reader ).seek( bytePosition );
+		}
+		catch( IOException e )
+		{
+			throw new SystemException( e );
+		}
+		this.pos = 0;
+		this.limit = 0;
+		this.blockPosition = -1;
+		this.skipLineFeed = false;
+		this.endOfInput = false;
+		this.lineNumber = lineNumber;
+	}
+
+	/**
+	 * Returns the underlying reader. But only if the buffer is empty, otherwise an IllegalStateException is thrown.
+	 *
+	 * @return The underlying reader, null if the buffer is filled in blocks.
+	 */
+	public SourceReader getReader()
+	{
+		if( this.pos < this.limit )
+			throw new IllegalStateException( "There are still characters in the buffer" );
+		return this.source;
+	}
+
+	/**
+	 * Closes the underlying reader.
+	 */
+	public void close()
+	{
+		if( this.source != null )
+			this.source.close();
+		else
+			try
+			{
+				this.reader.close();
+			}
+			catch( IOException e )
+			{
+				throw new SystemException( e );
+			}
+	}
+}
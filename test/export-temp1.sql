@@ -0,0 +1,31 @@
+--* // Copyright 2012 Ren M. de Bloois
+
+--* // Licensed under the Apache License, Version 2.0 (the "License");
+--* // you may not use this file except in compliance with the License.
+--* // You may obtain a copy of the License at
+
+--* //     http://www.apache.org/licenses/LICENSE-2.0
+
+--* // Unless required by applicable law or agreed to in writing, software
+--* // distributed under the License is distributed on an "AS IS" BASIS,
+--* // WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+--* // See the License for the specific language governing permissions and
+--* // limitations under the License.
+
+--* // ========================================================================
+
+--* // The table that the export tests export: 10 numbered records and one without ID
+
+CREATE TABLE TEMP1 ( ID INTEGER, NAME VARCHAR(40) );
+
+INSERT INTO TEMP1 VALUES ( 1, 'one' );
+INSERT INTO TEMP1 VALUES ( 2, 'two' );
+INSERT INTO TEMP1 VALUES ( 3, 'three' );
+INSERT INTO TEMP1 VALUES ( 4, 'four' );
+INSERT INTO TEMP1 VALUES ( 5, 'five' );
+INSERT INTO TEMP1 VALUES ( 6, 'six' );
+INSERT INTO TEMP1 VALUES ( 7, 'seven' );
+INSERT INTO TEMP1 VALUES ( 8, 'eight' );
+INSERT INTO TEMP1 VALUES ( 9, 'nine' );
+INSERT INTO TEMP1 VALUES ( 10, 'ten' );
+INSERT INTO TEMP1 VALUES ( NULL, 'null' );
@@ -1,13 +1,24 @@
 package solidbase.core;
 
 import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.RandomAccessFile;
 import java.io.UnsupportedEncodingException;
 import java.sql.PreparedStatement;
 import java.sql.SQLException;
 import java.sql.Timestamp;
+import java.util.zip.DataFormatException;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.Inflater;
+
+import mockit.Mockit;
 
 import org.testng.annotations.Test;
 
+import solidbase.test.mocks.FetchSizeStatement;
 import solidstack.io.Resources;
 
 public class Export
@@ -51,6 +62,257 @@ public class Export
 		processor.end();
 	}
 
+	@Test
+	public void testExportPartitioned() throws SQLException
+	{
+		String db = "jdbc:hsqldb:mem:testExportPartitioned";
+		TestUtil.dropHSQLDBSchema( db, "sa", null );
+		UpgradeProcessor processor = Setup.setupUpgradeProcessor( "testpatch-export2.sql", db );
+		processor.upgrade( "1" );
+
+		TestUtil.assertRecordCount( processor.getCurrentDatabase(), "TEMP2", 11 );
+		TestUtil.assertQueryResultEquals( processor, "SELECT COUNT( * ) FROM TEMP2 WHERE ID = LINENUMBER - 2", 10L );
+		TestUtil.assertQueryResultEquals( processor, "SELECT LINENUMBER FROM TEMP2 WHERE ID IS NULL", 2 );
+		TestUtil.assertRecordCount( processor.getCurrentDatabase(), "TEMP3", 11 );
+		TestUtil.assertQueryResultEquals( processor, "SELECT SUM( ID ) FROM TEMP3", 55L );
+		assert !new File( "export-partitioned.range-1.csv" ).exists();
+		assert !new File( "export-partitioned-4.csv" ).exists();
+
+		processor.end();
+	}
+
+	@Test
+	public void testExportFetchSize() throws SQLException
+	{
+		String db = "jdbc:hsqldb:mem:testExportFetchSize";
+		TestUtil.dropHSQLDBSchema( db, "sa", null );
+		UpgradeProcessor processor = Setup.setupUpgradeProcessor( "testpatch-export3.sql", db );
+
+		// The fetch sizes reach the statements
+		FetchSizeStatement.fetchSizes.clear();
+		Mockit.setUpMocks( FetchSizeStatement.class );
+		try
+		{
+			processor.upgrade( "1" );
+		}
+		finally
+		{
+			Mockit.tearDownMocks();
+		}
+		assert FetchSizeStatement.fetchSizes.contains( 2 ) : FetchSizeStatement.fetchSizes;
+		assert FetchSizeStatement.fetchSizes.contains( 3 ) : FetchSizeStatement.fetchSizes;
+
+		TestUtil.assertRecordCount( processor.getCurrentDatabase(), "TEMP2", 11 );
+		TestUtil.assertRecordCount( processor.getCurrentDatabase(), "TEMP3", 11 );
+
+		processor.end();
+	}
+
+	@Test
+	public void testExportAsync() throws SQLException
+	{
+		String db = "jdbc:hsqldb:mem:testExportAsync";
+		TestUtil.dropHSQLDBSchema( db, "sa", null );
+		UpgradeProcessor processor = Setup.setupUpgradeProcessor( "testpatch-export4.sql", db );
+		processor.upgrade( "1" );
+
+		TestUtil.assertRecordCount( processor.getCurrentDatabase(), "TEMP2", 11 );
+		TestUtil.assertRecordCount( processor.getCurrentDatabase(), "TEMP3", 11 );
+		TestUtil.assertRecordCount( processor.getCurrentDatabase(), "TEMP4", 11 );
+
+		processor.end();
+	}
+
+	@Test
+	public void testExportGZipParallel() throws SQLException, IOException
+	{
+		String db = "jdbc:hsqldb:mem:testExportGZipParallel";
+		TestUtil.dropHSQLDBSchema( db, "sa", null );
+		UpgradeProcessor processor = Setup.setupUpgradeProcessor( "testpatch-export5.sql", db );
+		processor.upgrade( "1" );
+
+		TestUtil.assertRecordCount( processor.getCurrentDatabase(), "TEMP2", 11 );
+		TestUtil.assertRecordCount( processor.getCurrentDatabase(), "TEMP3", 11 );
+
+		// Every block of 512 KB is compressed into its own GZIP member
+		long[] lines = new long[ 1 ];
+		int members = countGZIPMembers( new File( "export-gzip-members.csv.gz" ), lines );
+		assert members > 1 : members;
+		assert lines[ 0 ] == 161051 : lines[ 0 ];
+
+		processor.end();
+	}
+
+	// Reads the members of a GZIP file one by one, and counts the lines in the uncompressed data
+	static private int countGZIPMembers( File file, long[] lines ) throws IOException
+	{
+		byte[] data = new byte[ (int)file.length() ];
+		RandomAccessFile in = new RandomAccessFile( file, "r" );
+		try
+		{
+			in.readFully( data );
+		}
+		finally
+		{
+			in.close();
+		}
+
+		int members = 0;
+		int pos = 0;
+		Inflater inflater = new Inflater( true );
+		byte[] buffer = new byte[ 4096 ];
+		while( pos < data.length )
+		{
+			// A header of 10 bytes without optional fields, like GZIPOutputStream writes
+			assert data[ pos ] == 0x1f && data[ pos + 1 ] == (byte)0x8b && data[ pos + 3 ] == 0 : "No GZIP member at " + pos;
+			members++;
+			inflater.reset();
+			inflater.setInput( data, pos + 10, data.length - pos - 10 );
+			try
+			{
+				while( !inflater.finished() )
+				{
+					int count = inflater.inflate( buffer );
+					assert count > 0 || !inflater.needsInput() : "Truncated GZIP member at " + pos;
+					for( int i = 0; i < count; i++ )
+						if( buffer[ i ] == '\n' )
+							lines[ 0 ]++;
+				}
+			}
+			catch( DataFormatException e )
+			{
+				throw new IOException( e.toString() );
+			}
+			pos = data.length - inflater.getRemaining() + 8; // Skip the CRC and size trailer
+		}
+		inflater.end();
+		return members;
+	}
+
+	@Test
+	public void testExportRolling() throws SQLException, IOException
+	{
+		String db = "jdbc:hsqldb:mem:testExportRolling";
+		TestUtil.dropHSQLDBSchema( db, "sa", null );
+		UpgradeProcessor processor = Setup.setupUpgradeProcessor( "testpatch-export6.sql", db );
+		processor.upgrade( "1" );
+
+		TestUtil.assertRecordCount( processor.getCurrentDatabase(), "TEMP2", 11 );
+		TestUtil.assertRecordCount( processor.getCurrentDatabase(), "TEMP3", 11 );
+		assert !new File( "export-rolling-4.csv" ).exists();
+		assert new File( "export-rolling.manifest.json" ).exists();
+
+		int parts = 0;
+		File part;
+		while( ( part = new File( "export-size-" + ( parts + 1 ) + ".json" ) ).exists() )
+		{
+			parts++;
+			assert part.length() < 8192 : part.length();
+			long bytes = 0;
+			InputStream in = new GZIPInputStream( new FileInputStream( part ) );
+			try
+			{
+				byte[] buffer = new byte[ 4096 ];
+				int read;
+				while( ( read = in.read( buffer ) ) >= 0 )
+					bytes += read;
+			}
+			finally
+			{
+				in.close();
+			}
+			assert bytes <= 16384 + 100 : bytes;
+		}
+		assert parts >= 3 : parts;
+
+		processor.end();
+	}
+
+	@Test
+	public void testDumpTables() throws SQLException
+	{
+		String db = "jdbc:hsqldb:mem:testDumpTables";
+		TestUtil.dropHSQLDBSchema( db, "sa", null );
+		UpgradeProcessor processor = Setup.setupUpgradeProcessor( "testpatch-export7.sql", db );
+		processor.upgrade( "1" );
+
+		TestUtil.assertRecordCount( processor.getCurrentDatabase(), "TEMP2", 11 );
+		assert new File( "export-schema/TEMP1.json.gz" ).exists();
+		assert new File( "export-schema/DBVERSION.json.gz" ).exists(); // Every table of the schema
+		assert new File( "export-tables/TEMP_3.json" ).exists();
+
+		try
+		{
+			processor.upgrade( "2" );
+			assert false : "Expected a SourceException";
+		}
+		catch( SourceException e )
+		{
+			assert e.getMessage().contains( "TABLES contains more than one table named TEMP1" ) : e.getMessage();
+		}
+
+		processor.end();
+	}
+
+	@Test
+	public void testDumpDeduplicate() throws SQLException
+	{
+		String db = "jdbc:hsqldb:mem:testDumpDeduplicate";
+		TestUtil.dropHSQLDBSchema( db, "sa", null );
+		UpgradeProcessor processor = Setup.setupUpgradeProcessor( "testpatch-export8.sql", db );
+		processor.upgrade( "1" );
+
+		assert new File( "export-dedup.bin" ).length() == 4;
+		TestUtil.assertQueryResultEquals( processor, "SELECT COUNT( * ) FROM TEMP2 JOIN TEMP3 ON TEMP3.ID = TEMP2.ID AND TEMP3.PICTURE = TEMP2.PICTURE", 4L );
+
+		processor.end();
+	}
+
+	@Test
+	public void testDumpBinary() throws SQLException
+	{
+		String db = "jdbc:hsqldb:mem:testDumpBinary";
+		TestUtil.dropHSQLDBSchema( db, "sa", null );
+		UpgradeProcessor processor = Setup.setupUpgradeProcessor( "testpatch-export9.sql", db );
+		processor.upgrade( "1" );
+
+		TestUtil.assertRecordCount( processor.getCurrentDatabase(), "TEMP2", 11 );
+		TestUtil.assertQueryResultEquals( processor, "SELECT COUNT( * ) FROM TEMP1 JOIN TEMP2 ON TEMP2.ID = TEMP1.ID AND TEMP2.NAME = TEMP1.NAME", 10L );
+
+		processor.end();
+	}
+
+	@Test
+	public void testDumpIndex() throws SQLException
+	{
+		String db = "jdbc:hsqldb:mem:testDumpIndex";
+		TestUtil.dropHSQLDBSchema( db, "sa", null );
+		UpgradeProcessor processor = Setup.setupUpgradeProcessor( "testpatch-export10.sql", db );
+		processor.upgrade( "1" );
+
+		assert new File( "export-index.index.json" ).exists();
+		TestUtil.assertRecordCount( processor.getCurrentDatabase(), "TEMP2", 4 );
+		TestUtil.assertQueryResultEquals( processor, "SELECT COUNT( * ) FROM TEMP2 WHERE ID BETWEEN 6 AND 9", 4L );
+
+		processor.end();
+	}
+
+	@Test
+	public void testLoadParallel() throws SQLException
+	{
+		String db = "jdbc:hsqldb:mem:testLoadParallel";
+		TestUtil.dropHSQLDBSchema( db, "sa", null );
+		UpgradeProcessor processor = Setup.setupUpgradeProcessor( "testpatch-export11.sql", db );
+		processor.upgrade( "1" );
+
+		TestUtil.assertRecordCount( processor.getCurrentDatabase(), "TEMP2", 11 );
+		TestUtil.assertQueryResultEquals( processor, "SELECT COUNT( * ) FROM TEMP1 JOIN TEMP2 ON TEMP2.ID = TEMP1.ID AND TEMP2.NAME = TEMP1.NAME", 10L );
+		TestUtil.assertRecordCount( processor.getCurrentDatabase(), "TEMP3", 11 );
+		TestUtil.assertQueryResultEquals( processor, "SELECT COUNT( * ) FROM TEMP1 JOIN TEMP3 ON TEMP3.ID = TEMP1.ID AND TEMP3.NAME = TEMP1.NAME", 10L );
+
+		processor.end();
+	}
+
 	@Test(enabled=false)
 	public void testExportOracle() throws SQLException, UnsupportedEncodingException
 	{
@@ -16,10 +16,16 @@
 
 package solidbase.core;
 
+import java.io.Reader;
+import java.sql.Connection;
 import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
 
 import org.testng.annotations.Test;
 
+import solidbase.core.plugins.DerbyBulkLoader;
+
 public class Import
 {
 	static private final String db = "jdbc:hsqldb:mem:testImport";
@@ -122,6 +128,259 @@ public class Import
 		patcher.end();
 	}
 
+	@Test
+	public void testImportParallel() throws SQLException
+	{
+		String db = "jdbc:hsqldb:mem:testImportParallel";
+		TestUtil.dropHSQLDBSchema( db, "sa", null );
+		UpgradeProcessor patcher = Setup.setupUpgradeProcessor( "testpatch-import4.sql", db );
+
+		patcher.upgrade( "1" );
+		TestUtil.assertRecordCount( patcher.getCurrentDatabase(), "TEMP2", 3072 );
+		TestUtil.assertRecordCount( patcher.getCurrentDatabase(), "TEMP3", 3072 );
+		TestUtil.assertQueryResultEquals( patcher, "SELECT COUNT( DISTINCT LINENUMBER ) FROM TEMP3", 3072L );
+
+		try
+		{
+			patcher.upgrade( "2" );
+			assert false : "Expected an SQLExecutionException";
+		}
+		catch( SQLExecutionException e )
+		{
+			assert e.getMessage().contains( "integrity constraint violation" ) : e.getMessage();
+		}
+
+		// All workers should have rolled back
+		TestUtil.assertRecordCount( patcher.getCurrentDatabase(), "TEMP2", 3072 );
+
+		patcher.end();
+	}
+
+	@Test
+	public void testImportBatchSizeAndPipelined() throws SQLException
+	{
+		String db = "jdbc:hsqldb:mem:testImportBatchSize";
+		TestUtil.dropHSQLDBSchema( db, "sa", null );
+		UpgradeProcessor patcher = Setup.setupUpgradeProcessor( "testpatch-import5.sql", db );
+
+		patcher.upgrade( "1" );
+		TestUtil.assertRecordCount( patcher.getCurrentDatabase(), "TEMP2", 768 * 7 );
+
+		try
+		{
+			patcher.upgrade( "2" );
+			assert false : "Expected an SQLExecutionException";
+		}
+		catch( SQLExecutionException e )
+		{
+			// The reader thread is ahead, but the line number must still be the one of the failing record
+			assert e.getMessage().contains( "integrity constraint violation" ) : e.getMessage();
+			assert e.getMessage().contains( "executing line 101" ) : e.getMessage();
+		}
+
+		patcher.end();
+	}
+
+	@Test
+	public void testImportTyped() throws SQLException
+	{
+		String db = "jdbc:hsqldb:mem:testImportTyped";
+		TestUtil.dropHSQLDBSchema( db, "sa", null );
+		UpgradeProcessor patcher = Setup.setupUpgradeProcessor( "testpatch-import6.sql", db );
+
+		patcher.upgrade( "1" );
+		TestUtil.assertRecordCount( patcher.getCurrentDatabase(), "TYPED", 4 );
+		TestUtil.assertQueryResultEquals( patcher, "SELECT SUM( ID ) FROM TYPED", 6L );
+		TestUtil.assertQueryResultEquals( patcher, "SELECT COUNT( * ) FROM TYPED WHERE AMOUNT = 12.5 AND PRICE = 1000 AND DAY = DATE '2012-01-02' AND STAMP = TIMESTAMP '2012-01-02 10:11:12.5'", 1L );
+		TestUtil.assertQueryResultEquals( patcher, "SELECT COUNT( * ) FROM TYPED WHERE AMOUNT IS NULL AND PRICE IS NULL AND DAY IS NULL AND STAMP IS NULL AND NAME IS NULL", 1L );
+		TestUtil.assertQueryResultEquals( patcher, "SELECT ID FROM TYPED2 WHERE LINENUMBER = 40", 1234567890123L );
+		TestUtil.assertQueryResultEquals( patcher, "SELECT COUNT( * ) FROM TYPED2 WHERE ID IS NULL", 1L );
+
+		patcher.end();
+	}
+
+	@Test
+	public void testImportBulk() throws SQLException
+	{
+		// Count the loads of the bulk loaders
+		List< BulkLoader > loaders = PluginManager.bulkLoaders;
+		List< BulkLoader > original = new ArrayList< BulkLoader >( loaders );
+		CountingBulkLoader derby = null;
+		for( int i = 0; i < loaders.size(); i++ )
+		{
+			CountingBulkLoader loader = new CountingBulkLoader( loaders.get( i ) );
+			if( loader.loader instanceof DerbyBulkLoader )
+				derby = loader;
+			loaders.set( i, loader );
+		}
+		assert derby != null : "DerbyBulkLoader is not registered";
+
+		try
+		{
+			TestUtil.dropDerbyDatabase( "jdbc:derby:memory:test" );
+			UpgradeProcessor patcher = Setup.setupDerbyUpgradeProcessor( "testpatch-import7.sql" );
+			patcher.upgrade( "1" );
+			assertBulkImported( patcher );
+			patcher.end();
+			assert derby.loads == 2 : "Expected 2 bulk loads by Derby, not " + derby.loads;
+
+			// No bulk loader for HSQLDB, falls back to batches
+			String db = "jdbc:hsqldb:mem:testImportBulk";
+			TestUtil.dropHSQLDBSchema( db, "sa", null );
+			patcher = Setup.setupUpgradeProcessor( "testpatch-import7.sql", db );
+			patcher.upgrade( "1" );
+			assertBulkImported( patcher );
+			patcher.end();
+			for( BulkLoader loader : loaders )
+				assert loader == derby || ( (CountingBulkLoader)loader ).loads == 0 : "Unexpected bulk load by " + ( (CountingBulkLoader)loader ).loader.getClass().getName();
+			assert derby.loads == 2 : "Unexpected bulk load by Derby";
+		}
+		finally
+		{
+			loaders.clear();
+			loaders.addAll( original );
+		}
+	}
+
+	static private void assertBulkImported( UpgradeProcessor patcher ) throws SQLException
+	{
+		TestUtil.assertRecordCount( patcher.getCurrentDatabase(), "TEMP", 4 );
+		TestUtil.assertQueryResultEquals( patcher, "SELECT TEMP2 FROM TEMP WHERE TEMP1 = '4'", "5, and \"6\"" );
+		TestUtil.assertQueryResultEquals( patcher, "SELECT TEMP3 FROM TEMP WHERE TEMP1 = '4'", null );
+		TestUtil.assertQueryResultEquals( patcher, "SELECT TEMP2 FROM TEMP WHERE TEMP1 = '7'", null );
+		TestUtil.assertQueryResultEquals( patcher, "SELECT TEMP3 FROM TEMP WHERE TEMP1 = 'b'", "a" );
+	}
+
+	// Counts the loads of a bulk loader
+	static private class CountingBulkLoader implements BulkLoader
+	{
+		BulkLoader loader;
+		int loads;
+
+		CountingBulkLoader( BulkLoader loader )
+		{
+			this.loader = loader;
+		}
+
+		public boolean supports( Connection connection ) throws SQLException
+		{
+			return this.loader.supports( connection );
+		}
+
+		public void load( Connection connection, String tableName, String[] columns, Reader data ) throws SQLException
+		{
+			this.loads++;
+			this.loader.load( connection, tableName, columns, data );
+		}
+	}
+
+	@Test
+	public void testImportCommitEvery() throws SQLException
+	{
+		String db = "jdbc:hsqldb:mem:testImportCommitEvery";
+		TestUtil.dropHSQLDBSchema( db, "sa", null );
+		assertResumed( db, "1", "TEMP8" ); // Data in the upgrade file, the committed records are skipped
+		assertResumed( db, "2", "TEMP9" ); // Data in a file, the file is positioned at the checkpoint
+	}
+
+	static private void assertResumed( String db, String target, String table ) throws SQLException
+	{
+		UpgradeProcessor patcher = Setup.setupUpgradeProcessor( "testpatch-import8.sql", db );
+		try
+		{
+			patcher.upgrade( target );
+			assert false : "Expected an SQLExecutionException";
+		}
+		catch( SQLExecutionException e )
+		{
+			assert e.getMessage().contains( "integrity constraint violation" ) : e.getMessage();
+		}
+		TestUtil.assertRecordCount( patcher.getCurrentDatabase(), table, 5 );
+		TestUtil.assertQueryResultEquals( patcher, "SELECT COUNT( * ) FROM DBCHECKPOINT WHERE TARGET = '" + table + "' AND RECORDS = 4", 1L );
+
+		Connection connection = TestUtil.getConnection( patcher.getCurrentDatabase() );
+		connection.createStatement().executeUpdate( "DELETE FROM " + table + " WHERE ID = 5" );
+		connection.commit();
+		patcher.end();
+
+		// Run again, continues after record 4
+		patcher = Setup.setupUpgradeProcessor( "testpatch-import8.sql", db );
+		patcher.upgrade( target );
+		TestUtil.assertRecordCount( patcher.getCurrentDatabase(), table, 7 );
+		TestUtil.assertQueryResultEquals( patcher, "SELECT NAME FROM " + table + " WHERE ID = 5", "five" );
+		TestUtil.assertQueryResultEquals( patcher, "SELECT COUNT( * ) FROM DBCHECKPOINT", 0L );
+		patcher.end();
+	}
+
+	@Test
+	public void testImportRowsPerStatement() throws SQLException
+	{
+		String db = "jdbc:hsqldb:mem:testImportRowsPerStatement";
+		TestUtil.dropHSQLDBSchema( db, "sa", null );
+		UpgradeProcessor patcher = Setup.setupUpgradeProcessor( "testpatch-import9.sql", db );
+
+		patcher.upgrade( "1" );
+		TestUtil.assertRecordCount( patcher.getCurrentDatabase(), "TEMP", 9 );
+		TestUtil.assertQueryResultEquals( patcher, "SELECT SUM( ID ) FROM TEMP", 51L );
+		TestUtil.assertQueryResultEquals( patcher, "SELECT NAME FROM TEMP WHERE ID = 12", "twelve" );
+		TestUtil.assertRecordCount( patcher.getCurrentDatabase(), "TEMP2", 5 );
+		TestUtil.assertQueryResultEquals( patcher, "SELECT COUNT( * ) FROM TEMP2 WHERE LINENUMBER = ID + 46", 5L );
+		TestUtil.assertQueryResultEquals( patcher, "SELECT COUNT( * ) FROM DBCHECKPOINT", 0L );
+
+		patcher.end();
+	}
+
+	@Test
+	public void testImportMaxErrors() throws SQLException
+	{
+		String db = "jdbc:hsqldb:mem:testImportMaxErrors";
+		TestUtil.dropHSQLDBSchema( db, "sa", null );
+		UpgradeProcessor patcher = Setup.setupUpgradeProcessor( "testpatch-import10.sql", db );
+
+		patcher.upgrade( "1" );
+		TestUtil.assertRecordCount( patcher.getCurrentDatabase(), "TEMP", 5 );
+		TestUtil.assertQueryResultEquals( patcher, "SELECT NAME FROM TEMP WHERE ID = 2", "two" );
+		TestUtil.assertQueryResultEquals( patcher, "SELECT COUNT( * ) FROM TEMP WHERE ID = 6", 1L );
+		TestUtil.assertRecordCount( patcher.getCurrentDatabase(), "REJECTS", 2 );
+		TestUtil.assertQueryResultEquals( patcher, "SELECT NAME FROM REJECTS WHERE LINENUMBER = 36", "duplicate" );
+		TestUtil.assertQueryResultEquals( patcher, "SELECT NAME FROM REJECTS WHERE LINENUMBER = 39", "much too long" );
+		TestUtil.assertQueryResultEquals( patcher, "SELECT COUNT( * ) FROM REJECTS WHERE ERROR LIKE '%integrity constraint violation%'", 1L );
+
+		try
+		{
+			patcher.upgrade( "2" );
+			assert false : "Expected an SQLExecutionException";
+		}
+		catch( SQLExecutionException e )
+		{
+			assert e.getMessage().contains( "integrity constraint violation" ) : e.getMessage();
+		}
+		TestUtil.assertRecordCount( patcher.getCurrentDatabase(), "TEMP", 5 );
+
+		patcher.end();
+	}
+
+	@Test
+	public void testImportMaxErrorsCommitEvery() throws SQLException
+	{
+		String db = "jdbc:hsqldb:mem:testImportMaxErrorsCommitEvery";
+		TestUtil.dropHSQLDBSchema( db, "sa", null );
+		UpgradeProcessor patcher = Setup.setupUpgradeProcessor( "testpatch-import10.sql", db );
+
+		patcher.upgrade( "1" );
+		try
+		{
+			patcher.upgrade( "3" );
+			assert false : "Expected a SourceException";
+		}
+		catch( SourceException e )
+		{
+			assert e.getMessage().contains( "MAX ERRORS can't be combined with COMMIT EVERY" ) : e.getMessage();
+		}
+
+		patcher.end();
+	}
+
 	@Test
 	static public void testProgress() throws SQLException
 	{
@@ -48,6 +48,16 @@ public class Print
 
 		processor.upgrade( "2" );
 
+		try
+		{
+			processor.upgrade( "3" );
+			assert false : "Expected a SourceException";
+		}
+		catch( SourceException e )
+		{
+			assert e.getMessage().contains( "FETCH SIZE 99999999999 is too large" ) : e.getMessage();
+		}
+
 		processor.end();
 	}
 }
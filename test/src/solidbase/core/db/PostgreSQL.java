@@ -16,6 +16,11 @@
 
 package solidbase.core.db;
 
+import java.io.IOException;
+import java.io.Reader;
+import java.io.StringReader;
+import java.sql.Connection;
+import java.sql.DriverManager;
 import java.sql.SQLException;
 import java.util.Set;
 
@@ -26,6 +31,7 @@ import org.testng.annotations.Test;
 import solidbase.core.Setup;
 import solidbase.core.TestUtil;
 import solidbase.core.UpgradeProcessor;
+import solidbase.core.plugins.PostgreSQLBulkLoader;
 import solidbase.test.mocks.PostgreSQLDriverManager;
 
 public class PostgreSQL
@@ -50,4 +56,79 @@ public class PostgreSQL
 
 		patcher.end();
 	}
+
+	@Test
+	public void testBulkLoader() throws SQLException
+	{
+		StubCopyManager copyManager = new StubCopyManager();
+		PostgreSQLBulkLoader loader = new StubBulkLoader( copyManager );
+
+		loader.load( null, "SCHEMA1.TEMP", new String[] { "TEMP1", "TEMP3" }, new StringReader( "1,\"2\"\n3,\n" ) );
+		assert copyManager.sql.equals( "COPY SCHEMA1.TEMP (TEMP1,TEMP3) FROM STDIN WITH CSV" ) : copyManager.sql;
+		assert copyManager.data.equals( "1,\"2\"\n3,\n" ) : copyManager.data;
+
+		loader.load( null, "TEMP", null, new StringReader( "" ) );
+		assert copyManager.sql.equals( "COPY TEMP FROM STDIN WITH CSV" ) : copyManager.sql;
+
+		// The SQLException of copyIn is not wrapped in the InvocationTargetException of the reflection
+		copyManager.fail = true;
+		try
+		{
+			loader.load( null, "TEMP", null, new StringReader( "" ) );
+			assert false : "Expected an SQLException";
+		}
+		catch( SQLException e )
+		{
+			assert e.getMessage().equals( "COPY failed" ) : e.getMessage();
+		}
+
+		// Not a PostgreSQL connection
+		Connection connection = DriverManager.getConnection( db, "sa", null );
+		try
+		{
+			assert !loader.supports( connection );
+		}
+		finally
+		{
+			connection.close();
+		}
+	}
+
+	// A PostgreSQLBulkLoader that copies into the given CopyManager instead of the one of the PostgreSQL JDBC driver
+	static private class StubBulkLoader extends PostgreSQLBulkLoader
+	{
+		private StubCopyManager copyManager;
+
+		StubBulkLoader( StubCopyManager copyManager )
+		{
+			this.copyManager = copyManager;
+		}
+
+		@Override
+		protected Object getCopyManager( Connection connection )
+		{
+			return this.copyManager;
+		}
+	}
+
+	// Has the copyIn method of org.postgresql.copy.CopyManager that is called with reflection, records what it is called with
+	static public class StubCopyManager
+	{
+		String sql;
+		String data;
+		boolean fail;
+
+		public long copyIn( String sql, Reader data ) throws SQLException, IOException
+		{
+			if( this.fail )
+				throw new SQLException( "COPY failed" );
+			this.sql = sql;
+			StringBuilder result = new StringBuilder();
+			int ch;
+			while( ( ch = data.read() ) >= 0 )
+				result.append( (char)ch );
+			this.data = result.toString();
+			return 0;
+		}
+	}
 }
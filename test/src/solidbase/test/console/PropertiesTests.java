@@ -16,11 +16,14 @@
 
 package solidbase.test.console;
 
+import mockit.Mockit;
+
 import org.testng.Assert;
 import org.testng.annotations.Test;
 
 import solidbase.Main;
 import solidbase.core.TestUtil;
+import solidbase.test.mocks.FetchSizeStatement;
 import solidbase.test.mocks.MockConsole;
 
 
@@ -98,7 +101,18 @@ public class PropertiesTests
 		MockConsole console = new MockConsole();
 		Main.console = console;
 
-		Main.pass2( "-verbose", "-config", "solidbase2.properties", "-upgradefile", "testpatch-print1.sql", "-password", "" );
+		// connection.fetchsize in solidbase2.properties reaches the PRINT statement
+		FetchSizeStatement.fetchSizes.clear();
+		Mockit.setUpMocks( FetchSizeStatement.class );
+		try
+		{
+			Main.pass2( "-verbose", "-config", "solidbase2.properties", "-upgradefile", "testpatch-print1.sql", "-password", "" );
+		}
+		finally
+		{
+			Mockit.tearDownMocks();
+		}
+		assert FetchSizeStatement.fetchSizes.contains( 100 ) : FetchSizeStatement.fetchSizes;
 
 		String output = TestUtil.generalizeOutput( console.getOutput() );
 //		System.out.println( "[[[" + output + "]]]" );
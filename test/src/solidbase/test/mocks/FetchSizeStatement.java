@@ -0,0 +1,39 @@
+/*--
+ * Copyright 2012 Ren M. de Bloois
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package solidbase.test.mocks;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import mockit.Mock;
+import mockit.MockClass;
+
+import org.hsqldb.jdbc.JDBCStatement;
+
+// Records the fetch sizes that are set on the HSQLDB statements, HSQLDB itself ignores them
+@MockClass(realClass=JDBCStatement.class)
+public class FetchSizeStatement
+{
+	static public List< Integer > fetchSizes = Collections.synchronizedList( new ArrayList< Integer >() );
+
+	@Mock
+	public void setFetchSize( int rows )
+	{
+		fetchSizes.add( rows );
+	}
+}
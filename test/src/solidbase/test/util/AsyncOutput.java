@@ -0,0 +1,48 @@
+package solidbase.test.util;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.HashSet;
+import java.util.Set;
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import solidbase.util.AsyncOutputStream;
+
+public class AsyncOutput
+{
+	@Test
+	public void testWriterThread() throws IOException
+	{
+		final Set< Thread > writers = new HashSet< Thread >();
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream()
+		{
+			@Override
+			public synchronized void write( byte[] b, int off, int len )
+			{
+				writers.add( Thread.currentThread() );
+				super.write( b, off, len );
+			}
+		};
+
+		// Small blocks, so that the writer thread writes more than one
+		AsyncOutputStream out = new AsyncOutputStream( "test-writer", bytes, 16, 2 );
+		byte[] data = new byte[ 100 ];
+		for( int i = 0; i < data.length; i++ )
+			data[ i ] = (byte)i;
+		out.write( data, 0, 50 );
+		for( int i = 50; i < data.length; i++ )
+			out.write( data[ i ] );
+		out.close();
+
+		Assert.assertEquals( bytes.toByteArray(), data );
+
+		// The bytes are written by the daemon writer thread, not by the thread that writes to the stream
+		Assert.assertEquals( writers.size(), 1 );
+		Thread writer = writers.iterator().next();
+		Assert.assertNotSame( writer, Thread.currentThread() );
+		Assert.assertEquals( writer.getName(), "test-writer" );
+		Assert.assertTrue( writer.isDaemon() );
+	}
+}
@@ -0,0 +1,53 @@
+package solidbase.test.util;
+
+import java.io.ByteArrayInputStream;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.math.BigDecimal;
+import java.sql.Timestamp;
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import solidbase.util.CSVWriter;
+
+public class CSV
+{
+	@Test
+	public void testCSVWriter()
+	{
+		StringWriter out = new StringWriter();
+		CSVWriter writer = new CSVWriter( out, ',', false );
+		writer.writeValue( "plain" );
+		writer.writeValue( "with,separator" );
+		writer.writeValue( "with \"quotes\"" );
+		writer.writeValue( (String)null );
+		writer.writeValue( "line\nbreak" );
+		writer.nextRecord();
+		writer.writeValue( -1234567890123L );
+		writer.writeValue( Long.MIN_VALUE );
+		writer.writeValue( new BigDecimal( "12.50" ) );
+		writer.writeValue( Timestamp.valueOf( "2012-03-04 05:06:07.08" ) );
+		writer.writeValue( Timestamp.valueOf( "2012-03-04 05:06:07" ) );
+		writer.nextRecord();
+		writer.writeValue( new StringReader( "a\"b" ) );
+		writer.writeValue( new byte[] { 0, 15, -1, -128 } );
+		writer.writeValue( new ByteArrayInputStream( new byte[] { 1, 127 } ) );
+		writer.nextRecord();
+		writer.close();
+
+		Assert.assertEquals( out.toString(),
+				"plain,\"with,separator\",\"with \"\"quotes\"\"\",,\"line\nbreak\"\n" +
+				"-1234567890123,-9223372036854775808,12.50,2012-03-04 05:06:07.08,2012-03-04 05:06:07.0\n" +
+				"\"a\"\"b\",000FFF80,017F\n" );
+
+		// Timestamps contain a space
+		out = new StringWriter();
+		writer = new CSVWriter( out, ' ', false );
+		writer.writeValue( Timestamp.valueOf( "2012-03-04 05:06:07.123456789" ) );
+		writer.writeValue( 1 );
+		writer.nextRecord();
+		writer.close();
+		Assert.assertEquals( out.toString(), "\"2012-03-04 05:06:07.123456789\" 1\n" );
+	}
+}
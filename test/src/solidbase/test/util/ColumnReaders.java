@@ -0,0 +1,60 @@
+package solidbase.test.util;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Types;
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import solidbase.util.JDBCSupport;
+import solidbase.util.JDBCSupport.ColumnReader;
+
+public class ColumnReaders
+{
+	@Test
+	public void testIntegerReaders() throws SQLException
+	{
+		// An unsigned INTEGER, like INT UNSIGNED of MySQL, can hold values above Integer.MAX_VALUE
+		Assert.assertSame( JDBCSupport.getReader( Types.INTEGER, true ), ColumnReader.INTEGER );
+		Assert.assertSame( JDBCSupport.getReader( Types.INTEGER, false ), ColumnReader.BIGINT );
+		Assert.assertSame( JDBCSupport.getReader( Types.INTEGER ), ColumnReader.BIGINT );
+		Assert.assertSame( JDBCSupport.getReader( Types.SMALLINT, false ), ColumnReader.INTEGER );
+
+		Connection connection = DriverManager.getConnection( "jdbc:hsqldb:mem:testIntegerReaders", "sa", null );
+		try
+		{
+			Statement statement = connection.createStatement();
+			statement.executeUpdate( "CREATE TABLE TEMP ( ID INTEGER, BIG BIGINT )" );
+			statement.executeUpdate( "INSERT INTO TEMP VALUES ( 1, 2 )" );
+			statement.executeUpdate( "INSERT INTO TEMP VALUES ( NULL, NULL )" );
+
+			ResultSet result = statement.executeQuery( "SELECT ID, BIG FROM TEMP ORDER BY ID" );
+			int[] types = { Types.INTEGER, Types.BIGINT };
+			ColumnReader[] readers = JDBCSupport.getReaders( result.getMetaData(), types );
+			Assert.assertSame( readers[ 0 ], ColumnReader.INTEGER );
+			Assert.assertSame( readers[ 1 ], ColumnReader.BIGINT );
+
+			// The flagged column is read into the long array
+			Object[] values = new Object[ 2 ];
+			boolean[] asLong = { false, true };
+			long[] longs = new long[ 2 ];
+			Assert.assertTrue( result.next() );
+			JDBCSupport.getValues( result, readers, values, asLong, longs );
+			Assert.assertNull( values[ 0 ] );
+			Assert.assertNull( values[ 1 ] );
+			Assert.assertTrue( result.next() );
+			JDBCSupport.getValues( result, readers, values, asLong, longs );
+			Assert.assertEquals( values[ 0 ], Integer.valueOf( 1 ) );
+			Assert.assertNotNull( values[ 1 ] );
+			Assert.assertEquals( longs[ 1 ], 2L );
+		}
+		finally
+		{
+			connection.close();
+		}
+	}
+}
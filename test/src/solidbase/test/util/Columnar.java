@@ -0,0 +1,88 @@
+package solidbase.test.util;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.math.BigDecimal;
+import java.sql.Date;
+import java.sql.SQLException;
+import java.sql.Time;
+import java.sql.Timestamp;
+import java.sql.Types;
+
+import javax.sql.rowset.serial.SerialBlob;
+import javax.sql.rowset.serial.SerialClob;
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import solidbase.util.ColumnarReader;
+import solidbase.util.ColumnarWriter;
+import solidbase.util.JDBCSupport;
+import solidbase.util.JSONArray;
+import solidbase.util.JSONObject;
+
+public class Columnar
+{
+	static private final int[] TYPES = { Types.INTEGER, Types.DECIMAL, Types.DOUBLE, Types.BOOLEAN, Types.VARCHAR, Types.VARCHAR, Types.CLOB, Types.DATE, Types.TIME, Types.TIMESTAMP, Types.VARBINARY, Types.BLOB };
+
+	@Test
+	@SuppressWarnings( "deprecation" )
+	public void testRoundTrip() throws SQLException
+	{
+		int rows = 10;
+		Object[][] records = new Object[ rows ][];
+		for( int i = 0; i < rows; i++ )
+		{
+			Timestamp timestamp = new Timestamp( 112, 1, 29, 23, 59, 58, 0 );
+			timestamp.setNanos( 123456789 + i );
+			records[ i ] = new Object[] {
+				i == 3 ? null : Long.valueOf( i * 1000000000000L - 5 ),
+				i % 2 == 0 ? new BigDecimal( "-12.5" ).add( BigDecimal.valueOf( i ) ) : new BigDecimal( "123456789012345678901234567890.12345" ).negate(), // The long and the byte path
+				i == 4 ? null : Double.valueOf( i / 3.0 ),
+				Boolean.valueOf( i % 3 == 0 ),
+				i == 5 ? null : "value" + i % 2, // Dictionary layout
+				"distinct\u00e9\u4e2d" + i, // Plain layout
+				new SerialClob( ( "clob" + i ).toCharArray() ),
+				new Date( 70 + i, 0, 1 + i ),
+				new Time( i, 30, 59 ),
+				i == 6 ? null : timestamp,
+				new byte[] { (byte)i, -1, 0, 127 },
+				new SerialBlob( new byte[ i + 1 ] )
+			};
+		}
+
+		JSONArray fields = new JSONArray();
+		for( int i = 0; i < TYPES.length; i++ )
+			fields.add( new JSONObject( "name", "FIELD" + i, "type", JDBCSupport.toTypeName( TYPES[ i ] ) ) );
+		JSONObject header = new JSONObject( "fields", fields );
+
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		ColumnarWriter writer = new ColumnarWriter( out, header, TYPES, 4 ); // More than one row group, and a partial one
+		for( Object[] record : records )
+			writer.write( record );
+		writer.close();
+
+		ColumnarReader reader = new ColumnarReader( new ByteArrayInputStream( out.toByteArray() ) );
+		Assert.assertEquals( reader.getTypes(), TYPES );
+		for( int i = 0; i < rows; i++ )
+		{
+			Assert.assertTrue( reader.next() );
+			Object[] record = records[ i ];
+
+			Assert.assertEquals( reader.isNull( 0 ), record[ 0 ] == null );
+			if( record[ 0 ] != null )
+				Assert.assertEquals( reader.getLong( 0 ), ( (Long)record[ 0 ] ).longValue() );
+			Assert.assertEquals( reader.getObject( 0 ), record[ 0 ] );
+			for( int j = 1; j <= 5; j++ )
+				Assert.assertEquals( reader.getObject( j ), record[ j ] );
+			Assert.assertEquals( reader.getObject( 6 ), "clob" + i );
+			Assert.assertEquals( reader.getObject( 7 ).toString(), record[ 7 ].toString() );
+			Assert.assertEquals( reader.getObject( 8 ).toString(), record[ 8 ].toString() );
+			Assert.assertEquals( reader.getObject( 9 ), record[ 9 ] );
+			Assert.assertEquals( (byte[])reader.getObject( 10 ), (byte[])record[ 10 ] );
+			Assert.assertEquals( (byte[])reader.getObject( 11 ), new byte[ i + 1 ] );
+		}
+		Assert.assertFalse( reader.next() );
+		reader.close();
+	}
+}
@@ -1,11 +1,22 @@
 package solidbase.test.util;
 
+import java.io.ByteArrayOutputStream;
 import java.io.FileNotFoundException;
+import java.io.StringReader;
+import java.io.UnsupportedEncodingException;
+import java.math.BigDecimal;
+import java.sql.Time;
+import java.sql.Timestamp;
+import java.sql.Types;
 
+import org.testng.Assert;
 import org.testng.annotations.Test;
 
+import solidbase.util.JSONObject;
 import solidbase.util.JSONReader;
+import solidbase.util.JSONRecordCursor;
 import solidbase.util.JSONWriter;
+import solidbase.util.SourceBuffer;
 import solidstack.io.FileResource;
 import solidstack.io.Resource;
 import solidstack.io.SourceReader;
@@ -41,4 +52,59 @@ public class JSON
 		writer.writeFormatted( object, 80 );
 		writer.close();
 	}
+
+	@Test
+	public void testJSONElements() throws UnsupportedEncodingException
+	{
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		JSONWriter writer = new JSONWriter( out );
+		writer.writeArrayStart();
+		writer.writeElement( "a\"b\\c\n\u0001\u2028" );
+		writer.writeElement( Long.MIN_VALUE );
+		writer.writeElement( -12345L );
+		writer.writeElement( new BigDecimal( "12.50" ) );
+		writer.writeElement( Timestamp.valueOf( "2012-03-04 05:06:07.08" ) );
+		writer.writeElement( java.sql.Date.valueOf( "2012-03-04" ) );
+		writer.writeElement( Time.valueOf( "05:06:07" ) );
+		writer.writeElement( (Object)Boolean.TRUE );
+		writer.writeElement( (Object)new StringReader( "\t" ) );
+		writer.writeNullElement();
+		writer.writeArrayEnd();
+		writer.close();
+
+		Assert.assertEquals( out.toString( "UTF-8" ),
+				"[\"a\\\"b\\\\c\\n\\u0001\\u2028\",-9223372036854775808,-12345,12.50,\"2012-03-04 05:06:07.08\",\"2012-03-04\",\"05:06:07\",true,\"\\t\",null]" );
+	}
+
+	@Test
+	public void testRecordCursor()
+	{
+		int[] types = { Types.INTEGER, Types.BIGINT, Types.DOUBLE, Types.DECIMAL, Types.TIMESTAMP, Types.DATE, Types.VARCHAR, Types.BLOB };
+		JSONRecordCursor cursor = new JSONRecordCursor( new SourceBuffer( SourceReaders.forString(
+				"[1,-9223372036854775808,1.5e2,12.50,\"2012-03-04 05:06:07.08\",\"2012-03-04\",\"a\\\"b\",{\"index\":0,\"length\":3}]\n" +
+				"[null,12,null,null,null,null,true]\n" ) ), types );
+
+		Assert.assertTrue( cursor.next() );
+		Assert.assertEquals( cursor.size(), 8 );
+		Assert.assertEquals( cursor.getKind( 0 ), JSONRecordCursor.LONG );
+		Assert.assertEquals( cursor.getLong( 0 ), 1 );
+		Assert.assertEquals( cursor.getKind( 1 ), JSONRecordCursor.OBJECT ); // Does not fit in 18 digits
+		Assert.assertEquals( cursor.getObject( 1 ), new BigDecimal( Long.MIN_VALUE ) );
+		Assert.assertEquals( cursor.getKind( 2 ), JSONRecordCursor.DOUBLE );
+		Assert.assertEquals( cursor.getDouble( 2 ), 150.0 );
+		Assert.assertEquals( cursor.getObject( 3 ), new BigDecimal( "12.50" ) );
+		Assert.assertEquals( cursor.getObject( 4 ), Timestamp.valueOf( "2012-03-04 05:06:07.08" ) );
+		Assert.assertEquals( cursor.getObject( 5 ), java.sql.Date.valueOf( "2012-03-04" ) );
+		Assert.assertEquals( cursor.getObject( 6 ), "a\"b" );
+		Assert.assertEquals( ( (JSONObject)cursor.getObject( 7 ) ).getNumber( "length" ), new BigDecimal( 3 ) );
+
+		Assert.assertTrue( cursor.next() );
+		Assert.assertEquals( cursor.size(), 7 );
+		Assert.assertEquals( cursor.getKind( 0 ), JSONRecordCursor.NULL );
+		Assert.assertNull( cursor.getObject( 0 ) );
+		Assert.assertEquals( cursor.getLong( 1 ), 12 );
+		Assert.assertEquals( cursor.getObject( 6 ), Boolean.TRUE );
+
+		Assert.assertFalse( cursor.next() );
+	}
 }
@@ -0,0 +1,38 @@
+
+--* // Copyright 2011 Ren M. de Bloois
+
+--* // Licensed under the Apache License, Version 2.0 (the "License");
+--* // you may not use this file except in compliance with the License.
+--* // You may obtain a copy of the License at
+
+--* //     http://www.apache.org/licenses/LICENSE-2.0
+
+--* // Unless required by applicable law or agreed to in writing, software
+--* // distributed under the License is distributed on an "AS IS" BASIS,
+--* // WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+--* // See the License for the specific language governing permissions and
+--* // limitations under the License.
+
+--* // ========================================================================
+
+--*	DEFINITION
+--*		SETUP "" --> "1.1"
+--*		UPGRADE "" --> "1"
+--*	/DEFINITION
+
+--* SETUP "" --> "1.1"
+RUN "setup-1.1.sql";
+--* /SETUP
+
+--* UPGRADE "" --> "1"
+
+RUN "export-temp1.sql";
+
+--* // The load seeks through the index to record 5, and skips one record from there
+DUMP JSON FILE "export-index.json" INDEX EVERY 2 RECORDS
+SELECT * FROM TEMP1 WHERE ID IS NOT NULL ORDER BY ID;
+
+CREATE TABLE TEMP2 ( ID INTEGER, NAME VARCHAR(40) );
+LOAD JSON INTO TEMP2 FILE "export-index.json" FROM RECORD 6 TO RECORD 9;
+
+--* /UPGRADE
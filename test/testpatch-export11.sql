@@ -0,0 +1,48 @@
+
+--* // Copyright 2011 Ren M. de Bloois
+
+--* // Licensed under the Apache License, Version 2.0 (the "License");
+--* // you may not use this file except in compliance with the License.
+--* // You may obtain a copy of the License at
+
+--* //     http://www.apache.org/licenses/LICENSE-2.0
+
+--* // Unless required by applicable law or agreed to in writing, software
+--* // distributed under the License is distributed on an "AS IS" BASIS,
+--* // WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+--* // See the License for the specific language governing permissions and
+--* // limitations under the License.
+
+--* // ========================================================================
+
+--*	DEFINITION
+--*		SETUP "" --> "1.1"
+--*		UPGRADE "" --> "1"
+--*	/DEFINITION
+
+--* SETUP "" --> "1.1"
+RUN "setup-1.1.sql";
+--* /SETUP
+
+--* UPGRADE "" --> "1"
+
+--* // The workers of LOAD JSON PARALLEL insert concurrently into the same table, this needs row level locking
+SET DATABASE TRANSACTION CONTROL MVCC;
+
+RUN "export-temp1.sql";
+
+--* // Split with the index
+DUMP JSON FILE "export-parallel-index.json" INDEX EVERY 2 RECORDS
+SELECT * FROM TEMP1;
+
+CREATE TABLE TEMP2 ( ID INTEGER, NAME VARCHAR(40) );
+LOAD JSON PARALLEL 2 INTO TEMP2 FILE "export-parallel-index.json";
+
+--* // Split by scanning the file for line ends
+DUMP JSON FILE "export-parallel.json"
+SELECT * FROM TEMP1;
+
+CREATE TABLE TEMP3 ( ID INTEGER, NAME VARCHAR(40) );
+LOAD JSON PARALLEL 3 INTO TEMP3 FILE "export-parallel.json";
+
+--* /UPGRADE
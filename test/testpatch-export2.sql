@@ -0,0 +1,54 @@
+
+--* // Copyright 2011 Ren M. de Bloois
+
+--* // Licensed under the Apache License, Version 2.0 (the "License");
+--* // you may not use this file except in compliance with the License.
+--* // You may obtain a copy of the License at
+
+--* //     http://www.apache.org/licenses/LICENSE-2.0
+
+--* // Unless required by applicable law or agreed to in writing, software
+--* // distributed under the License is distributed on an "AS IS" BASIS,
+--* // WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+--* // See the License for the specific language governing permissions and
+--* // limitations under the License.
+
+--* // ========================================================================
+
+--*	DEFINITION
+--*		SETUP "" --> "1.1"
+--*		UPGRADE "" --> "1"
+--*	/DEFINITION
+
+--* SETUP "" --> "1.1"
+RUN "setup-1.1.sql";
+--* /SETUP
+
+--* UPGRADE "" --> "1"
+
+RUN "export-temp1.sql";
+
+--* // HSQLDB has no NTILE, the boundaries are found by reading the keys in order
+EXPORT CSV
+	WITH HEADER
+	PARTITION BY ID INTO 3
+	FILE "export-partitioned.csv" ENCODING "UTF-8"
+SELECT * FROM TEMP1;
+
+--* // The partitions share the logging counter
+EXPORT CSV
+	PARTITION BY ID INTO 3 FILES
+	LOG EVERY 2 RECORDS
+	FILE "export-partitioned.csv" ENCODING "UTF-8"
+SELECT * FROM TEMP1;
+
+--* // The merged file is ordered by the partition column
+CREATE TABLE TEMP2 ( LINENUMBER INTEGER, ID INTEGER, NAME VARCHAR(40) );
+IMPORT CSV SKIP HEADER PREPEND LINENUMBER INTO TEMP2 FILE "export-partitioned.csv" ENCODING "UTF-8";
+
+CREATE TABLE TEMP3 ( ID INTEGER, NAME VARCHAR(40) );
+IMPORT CSV INTO TEMP3 FILE "export-partitioned-1.csv" ENCODING "UTF-8";
+IMPORT CSV INTO TEMP3 FILE "export-partitioned-2.csv" ENCODING "UTF-8";
+IMPORT CSV INTO TEMP3 FILE "export-partitioned-3.csv" ENCODING "UTF-8";
+
+--* /UPGRADE
@@ -0,0 +1,51 @@
+
+--* // Copyright 2011 Ren M. de Bloois
+
+--* // Licensed under the Apache License, Version 2.0 (the "License");
+--* // you may not use this file except in compliance with the License.
+--* // You may obtain a copy of the License at
+
+--* //     http://www.apache.org/licenses/LICENSE-2.0
+
+--* // Unless required by applicable law or agreed to in writing, software
+--* // distributed under the License is distributed on an "AS IS" BASIS,
+--* // WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+--* // See the License for the specific language governing permissions and
+--* // limitations under the License.
+
+--* // ========================================================================
+
+--*	DEFINITION
+--*		SETUP "" --> "1.1"
+--*		UPGRADE "" --> "1"
+--*	/DEFINITION
+
+--* SETUP "" --> "1.1"
+RUN "setup-1.1.sql";
+--* /SETUP
+
+--* UPGRADE "" --> "1"
+
+RUN "export-temp1.sql";
+
+--* // Fetch sizes smaller than the number of records
+EXPORT CSV
+	FETCH SIZE 2
+	FILE "export-fetchsize.csv" ENCODING "UTF-8"
+SELECT * FROM TEMP1;
+
+DUMP JSON
+	FETCH SIZE 3
+	FILE "export-fetchsize.json"
+SELECT * FROM TEMP1;
+
+ASSERT EXISTS MESSAGE 'Expecting records' SELECT * FROM TEMP1;
+ASSERT EMPTY MESSAGE 'Expecting no records' SELECT * FROM TEMP1 WHERE ID > 10;
+
+CREATE TABLE TEMP2 ( ID INTEGER, NAME VARCHAR(40) );
+IMPORT CSV INTO TEMP2 FILE "export-fetchsize.csv" ENCODING "UTF-8";
+
+CREATE TABLE TEMP3 ( ID INTEGER, NAME VARCHAR(40) );
+LOAD JSON INTO TEMP3 FILE "export-fetchsize.json";
+
+--* /UPGRADE
@@ -0,0 +1,56 @@
+
+--* // Copyright 2011 Ren M. de Bloois
+
+--* // Licensed under the Apache License, Version 2.0 (the "License");
+--* // you may not use this file except in compliance with the License.
+--* // You may obtain a copy of the License at
+
+--* //     http://www.apache.org/licenses/LICENSE-2.0
+
+--* // Unless required by applicable law or agreed to in writing, software
+--* // distributed under the License is distributed on an "AS IS" BASIS,
+--* // WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+--* // See the License for the specific language governing permissions and
+--* // limitations under the License.
+
+--* // ========================================================================
+
+--*	DEFINITION
+--*		SETUP "" --> "1.1"
+--*		UPGRADE "" --> "1"
+--*	/DEFINITION
+
+--* SETUP "" --> "1.1"
+RUN "setup-1.1.sql";
+--* /SETUP
+
+--* UPGRADE "" --> "1"
+
+RUN "export-temp1.sql";
+
+--* // The files are written by their own writer threads
+EXPORT CSV
+	FILE "export-async.csv" ENCODING "UTF-8" ASYNC
+SELECT * FROM TEMP1;
+
+EXPORT CSV
+	PARTITION BY ID INTO 3 FILES
+	FILE "export-async-partitioned.csv" ENCODING "UTF-8" ASYNC
+SELECT * FROM TEMP1;
+
+DUMP JSON
+	FILE "export-async.json" GZIP ASYNC
+SELECT * FROM TEMP1;
+
+CREATE TABLE TEMP2 ( ID INTEGER, NAME VARCHAR(40) );
+IMPORT CSV INTO TEMP2 FILE "export-async.csv" ENCODING "UTF-8";
+
+CREATE TABLE TEMP3 ( ID INTEGER, NAME VARCHAR(40) );
+IMPORT CSV INTO TEMP3 FILE "export-async-partitioned-1.csv" ENCODING "UTF-8";
+IMPORT CSV INTO TEMP3 FILE "export-async-partitioned-2.csv" ENCODING "UTF-8";
+IMPORT CSV INTO TEMP3 FILE "export-async-partitioned-3.csv" ENCODING "UTF-8";
+
+CREATE TABLE TEMP4 ( ID INTEGER, NAME VARCHAR(40) );
+LOAD JSON INTO TEMP4 FILE "export-async.json" GZIP;
+
+--* /UPGRADE
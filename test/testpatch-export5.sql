@@ -0,0 +1,51 @@
+
+--* // Copyright 2011 Ren M. de Bloois
+
+--* // Licensed under the Apache License, Version 2.0 (the "License");
+--* // you may not use this file except in compliance with the License.
+--* // You may obtain a copy of the License at
+
+--* //     http://www.apache.org/licenses/LICENSE-2.0
+
+--* // Unless required by applicable law or agreed to in writing, software
+--* // distributed under the License is distributed on an "AS IS" BASIS,
+--* // WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+--* // See the License for the specific language governing permissions and
+--* // limitations under the License.
+
+--* // ========================================================================
+
+--*	DEFINITION
+--*		SETUP "" --> "1.1"
+--*		UPGRADE "" --> "1"
+--*	/DEFINITION
+
+--* SETUP "" --> "1.1"
+RUN "setup-1.1.sql";
+--* /SETUP
+
+--* UPGRADE "" --> "1"
+
+RUN "export-temp1.sql";
+
+--* // Blocks are compressed by 2 threads into a multi-member GZIP file
+EXPORT CSV
+	FILE "export-gzip.csv.gz" ENCODING "UTF-8" GZIP PARALLEL 2
+SELECT * FROM TEMP1;
+
+DUMP JSON
+	FILE "export-gzip.json" GZIP PARALLEL 2 ASYNC
+SELECT * FROM TEMP1;
+
+--* // 161051 records, more than 512 KB, the size of a block
+EXPORT CSV
+	FILE "export-gzip-members.csv.gz" ENCODING "UTF-8" GZIP PARALLEL 2
+SELECT A.ID, A.NAME, B.NAME NAME2, C.NAME NAME3, D.NAME NAME4, E.NAME NAME5 FROM TEMP1 A, TEMP1 B, TEMP1 C, TEMP1 D, TEMP1 E;
+
+CREATE TABLE TEMP2 ( ID INTEGER, NAME VARCHAR(40) );
+IMPORT CSV INTO TEMP2 FILE "export-gzip.csv.gz" ENCODING "UTF-8" GZIP;
+
+CREATE TABLE TEMP3 ( ID INTEGER, NAME VARCHAR(40) );
+LOAD JSON INTO TEMP3 FILE "export-gzip.json" GZIP;
+
+--* /UPGRADE
@@ -0,0 +1,57 @@
+
+--* // Copyright 2011 Ren M. de Bloois
+
+--* // Licensed under the Apache License, Version 2.0 (the "License");
+--* // you may not use this file except in compliance with the License.
+--* // You may obtain a copy of the License at
+
+--* //     http://www.apache.org/licenses/LICENSE-2.0
+
+--* // Unless required by applicable law or agreed to in writing, software
+--* // distributed under the License is distributed on an "AS IS" BASIS,
+--* // WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+--* // See the License for the specific language governing permissions and
+--* // limitations under the License.
+
+--* // ========================================================================
+
+--*	DEFINITION
+--*		SETUP "" --> "1.1"
+--*		UPGRADE "" --> "1"
+--*	/DEFINITION
+
+--* SETUP "" --> "1.1"
+RUN "setup-1.1.sql";
+--* /SETUP
+
+--* UPGRADE "" --> "1"
+
+RUN "export-temp1.sql";
+
+--* // Rolls over to export-rolling-1.csv, -2 and -3
+EXPORT CSV
+	WITH HEADER
+	FILE "export-rolling.csv" ENCODING "UTF-8" MAX RECORDS 4
+SELECT * FROM TEMP1;
+
+--* // Rolls over to export-rolling-1.json and -2, with export-rolling.manifest.json
+DUMP JSON
+	FILE "export-rolling.json" MAX RECORDS 6 MAX FILE SIZE 1 MB
+SELECT * FROM TEMP1;
+
+CREATE TABLE TEMP2 ( ID INTEGER, NAME VARCHAR(40) );
+IMPORT CSV SKIP HEADER INTO TEMP2 FILE "export-rolling-1.csv" ENCODING "UTF-8";
+IMPORT CSV SKIP HEADER INTO TEMP2 FILE "export-rolling-2.csv" ENCODING "UTF-8";
+IMPORT CSV SKIP HEADER INTO TEMP2 FILE "export-rolling-3.csv" ENCODING "UTF-8";
+
+CREATE TABLE TEMP3 ( ID INTEGER, NAME VARCHAR(40) );
+LOAD JSON INTO TEMP3 FILE "export-rolling-1.json";
+LOAD JSON INTO TEMP3 FILE "export-rolling-2.json";
+
+--* // Rolls over on size. The bytes are counted before they are compressed, so the compressed parts are much smaller
+--* // than 8 KB, and the uncompressed parts at most 8 KB larger, the buffer of the character encoder
+DUMP JSON
+	FILE "export-size.json" GZIP MAX FILE SIZE 8 KB
+SELECT A.ID, A.NAME, B.NAME NAME2, C.NAME NAME3 FROM TEMP1 A, TEMP1 B, TEMP1 C;
+
+--* /UPGRADE
@@ -0,0 +1,53 @@
+
+--* // Copyright 2011 Ren M. de Bloois
+
+--* // Licensed under the Apache License, Version 2.0 (the "License");
+--* // you may not use this file except in compliance with the License.
+--* // You may obtain a copy of the License at
+
+--* //     http://www.apache.org/licenses/LICENSE-2.0
+
+--* // Unless required by applicable law or agreed to in writing, software
+--* // distributed under the License is distributed on an "AS IS" BASIS,
+--* // WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+--* // See the License for the specific language governing permissions and
+--* // limitations under the License.
+
+--* // ========================================================================
+
+--*	DEFINITION
+--*		SETUP "" --> "1.1"
+--*		UPGRADE "" --> "1"
+--*		UPGRADE "1" --> "2"
+--*	/DEFINITION
+
+--* SETUP "" --> "1.1"
+RUN "setup-1.1.sql";
+--* /SETUP
+
+--* UPGRADE "" --> "1"
+
+RUN "export-temp1.sql";
+
+--* // Every table in its own file in the folder: export-tables/TEMP1.json
+DUMP JSON TABLES ( TEMP1 ) INTO FOLDER "export-tables";
+DUMP JSON LOG EVERY 5 RECORDS SCHEMA PUBLIC INTO FOLDER "export-schema" PARALLEL 2 GZIP;
+
+CREATE TABLE TEMP2 ( ID INTEGER, NAME VARCHAR(40) );
+LOAD JSON INTO TEMP2 FILE "export-tables/TEMP1.json";
+
+--* // A dot in a quoted table name is not taken for the schema separator: export-tables/TEMP_3.json
+CREATE TABLE "TEMP.3" ( ID INTEGER, NAME VARCHAR(40) );
+INSERT INTO "TEMP.3" VALUES ( 1, 'one' );
+DUMP JSON TABLES ( PUBLIC."TEMP.3" ) INTO FOLDER "export-tables";
+
+--* /UPGRADE
+
+--* UPGRADE "1" --> "2"
+
+--* // Both tables would be dumped into export-tables/TEMP1.json
+CREATE SCHEMA OTHER AUTHORIZATION DBA;
+CREATE TABLE OTHER.TEMP1 ( ID INTEGER, NAME VARCHAR(40) );
+DUMP JSON TABLES ( PUBLIC.TEMP1, OTHER.TEMP1 ) INTO FOLDER "export-tables";
+
+--* /UPGRADE
@@ -0,0 +1,41 @@
+
+--* // Copyright 2011 Ren M. de Bloois
+
+--* // Licensed under the Apache License, Version 2.0 (the "License");
+--* // you may not use this file except in compliance with the License.
+--* // You may obtain a copy of the License at
+
+--* //     http://www.apache.org/licenses/LICENSE-2.0
+
+--* // Unless required by applicable law or agreed to in writing, software
+--* // distributed under the License is distributed on an "AS IS" BASIS,
+--* // WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+--* // See the License for the specific language governing permissions and
+--* // limitations under the License.
+
+--* // ========================================================================
+
+--*	DEFINITION
+--*		SETUP "" --> "1.1"
+--*		UPGRADE "" --> "1"
+--*	/DEFINITION
+
+--* SETUP "" --> "1.1"
+RUN "setup-1.1.sql";
+--* /SETUP
+
+--* UPGRADE "" --> "1"
+
+--* // Identical binary values are stored once, the references of the duplicates point back in the binary file
+CREATE TABLE TEMP2 ( ID INTEGER, PICTURE VARBINARY(100) );
+INSERT INTO TEMP2 VALUES ( 1, X'0102' );
+INSERT INTO TEMP2 VALUES ( 2, X'0304' );
+INSERT INTO TEMP2 VALUES ( 3, X'0102' );
+INSERT INTO TEMP2 VALUES ( 4, X'0304' );
+DUMP JSON FILE "export-dedup.json" BINARY FILE "export-dedup.bin" DEDUPLICATE
+SELECT * FROM TEMP2;
+
+CREATE TABLE TEMP3 ( ID INTEGER, PICTURE VARBINARY(100) );
+LOAD JSON INTO TEMP3 FILE "export-dedup.json";
+
+--* /UPGRADE
@@ -0,0 +1,63 @@
+--* // Copyright 2012 Ren M. de Bloois
+
+--* // Licensed under the Apache License, Version 2.0 (the "License");
+--* // you may not use this file except in compliance with the License.
+--* // You may obtain a copy of the License at
+
+--* //     http://www.apache.org/licenses/LICENSE-2.0
+
+--* // Unless required by applicable law or agreed to in writing, software
+--* // distributed under the License is distributed on an "AS IS" BASIS,
+--* // WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+--* // See the License for the specific language governing permissions and
+--* // limitations under the License.
+
+--* // ========================================================================
+
+--*	DEFINITION
+--*		SETUP "" --> "1.1"
+--*		UPGRADE "" --> "1"
+--*		UPGRADE "1" --> "2"
+--*		UPGRADE "1" --> "3"
+--*	/DEFINITION
+
+--* SETUP "" --> "1.1"
+RUN "setup-1.1.sql";
+--* /SETUP
+
+--* UPGRADE "" --> "1"
+
+CREATE TABLE TEMP ( ID INTEGER NOT NULL PRIMARY KEY, NAME VARCHAR(10) );
+CREATE TABLE REJECTS ( LINENUMBER INTEGER, ERROR VARCHAR(1000), ID INTEGER, NAME VARCHAR(40) );
+
+--* // The failing records are isolated, the other records are inserted
+IMPORT CSV BATCH SIZE 4 MAX ERRORS 2 REJECT FILE "import10-rejects.csv" INTO TEMP;
+1,one
+2,two
+2,duplicate
+3,three
+4,four
+5,much too long
+6,six
+
+IMPORT CSV INTO REJECTS FILE "import10-rejects.csv" ENCODING "UTF-8";
+
+--* /UPGRADE
+
+--* UPGRADE "1" --> "2"
+
+--* // Too many errors
+IMPORT CSV MAX ERRORS 1 REJECT FILE "import10-rejects.csv" INTO TEMP;
+7,seven
+1,one
+2,two
+
+--* /UPGRADE
+
+--* UPGRADE "1" --> "3"
+
+--* // A continued import would overwrite the reject file
+IMPORT CSV COMMIT EVERY 2 RECORDS MAX ERRORS 1 REJECT FILE "import10-rejects.csv" INTO TEMP;
+7,seven
+
+--* /UPGRADE
@@ -0,0 +1,104 @@
+--* // Copyright 2012 Ren M. de Bloois
+
+--* // Licensed under the Apache License, Version 2.0 (the "License");
+--* // you may not use this file except in compliance with the License.
+--* // You may obtain a copy of the License at
+
+--* //     http://www.apache.org/licenses/LICENSE-2.0
+
+--* // Unless required by applicable law or agreed to in writing, software
+--* // distributed under the License is distributed on an "AS IS" BASIS,
+--* // WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+--* // See the License for the specific language governing permissions and
+--* // limitations under the License.
+
+--* // ========================================================================
+
+--*	DEFINITION
+--*		SETUP "" --> "1.1"
+--*		UPGRADE "" --> "1"
+--*		UPGRADE "1" --> "2"
+--*	/DEFINITION
+
+--* SETUP "" --> "1.1"
+RUN "setup-1.1.sql";
+--* /SETUP
+
+--* UPGRADE "" --> "1"
+
+SET DATABASE TRANSACTION CONTROL MVCC;
+
+CREATE TABLE TEMP ( TEMP1 VARCHAR(40) NOT NULL, TEMP2 VARCHAR(40), TEMP3 VARCHAR(40) );
+CREATE TABLE TEMP2 ( TEMP1 VARCHAR(40) NOT NULL, TEMP2 VARCHAR(40), TEMP3 VARCHAR(40) );
+
+IMPORT CSV INTO TEMP;
+1,2,3
+4,5,6
+7,8,9
+
+INSERT INTO TEMP SELECT * FROM TEMP; -- 6
+INSERT INTO TEMP SELECT * FROM TEMP; -- 12
+INSERT INTO TEMP SELECT * FROM TEMP; -- 24
+INSERT INTO TEMP SELECT * FROM TEMP; -- 48
+INSERT INTO TEMP SELECT * FROM TEMP; -- 96
+INSERT INTO TEMP SELECT * FROM TEMP; -- 192
+INSERT INTO TEMP SELECT * FROM TEMP; -- 384
+INSERT INTO TEMP SELECT * FROM TEMP; -- 768
+
+EXPORT CSV
+FILE "export5.csv" ENCODING "UTF-8"
+SELECT * FROM TEMP;
+
+DUMP JSON
+FILE "export5.json"
+SELECT * FROM TEMP;
+
+IMPORT CSV
+BATCH SIZE 7
+INTO TEMP2
+FILE "export5.csv" ENCODING "UTF-8";
+
+IMPORT CSV
+BATCH SIZE AUTO MAX 1 MB
+INTO TEMP2
+FILE "export5.csv" ENCODING "UTF-8";
+
+IMPORT CSV
+BATCH SIZE 100
+PARALLEL 2
+INTO TEMP2
+FILE "export5.csv" ENCODING "UTF-8";
+
+LOAD JSON
+BATCH SIZE 7
+INTO TEMP2
+FILE "export5.json";
+
+LOAD JSON
+BATCH SIZE AUTO
+LOG EVERY 100 RECORDS
+INTO TEMP2
+FILE "export5.json";
+
+IMPORT CSV
+BATCH SIZE 100
+PIPELINED
+INTO TEMP2
+FILE "export5.csv" ENCODING "UTF-8";
+
+LOAD JSON
+PIPELINED
+INTO TEMP2
+FILE "export5.json";
+
+--* /UPGRADE
+
+--* UPGRADE "1" --> "2"
+
+IMPORT CSV NOBATCH PIPELINED INTO TEMP2;
+1,2,3
+4,5,6
+,8,9
+10,11,12
+
+--* /UPGRADE
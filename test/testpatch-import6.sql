@@ -0,0 +1,43 @@
+--* // Copyright 2012 Ren M. de Bloois
+
+--* // Licensed under the Apache License, Version 2.0 (the "License");
+--* // you may not use this file except in compliance with the License.
+--* // You may obtain a copy of the License at
+
+--* //     http://www.apache.org/licenses/LICENSE-2.0
+
+--* // Unless required by applicable law or agreed to in writing, software
+--* // distributed under the License is distributed on an "AS IS" BASIS,
+--* // WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+--* // See the License for the specific language governing permissions and
+--* // limitations under the License.
+
+--* // ========================================================================
+
+--*	DEFINITION
+--*		SETUP "" --> "1.1"
+--*		UPGRADE "" --> "1"
+--*	/DEFINITION
+
+--* SETUP "" --> "1.1"
+RUN "setup-1.1.sql";
+--* /SETUP
+
+--* UPGRADE "" --> "1"
+
+CREATE TABLE TYPED ( ID INTEGER, AMOUNT DECIMAL(10,2), PRICE DOUBLE, DAY DATE, STAMP TIMESTAMP, NAME VARCHAR(40) );
+CREATE TABLE TYPED2 ( LINENUMBER INTEGER, ID BIGINT, NAME VARCHAR(40) );
+
+--* // Types from the parameter metadata, the value that is not a plain integer is cast by the database
+IMPORT CSV INTO TYPED;
+1,12.50,1e3,2012-01-02,2012-01-02 10:11:12.5,abc
+-2,-3,0.5,2012-01-02,2012-01-02 10:11:12.5,def
+ 3 ,,,,,
+4,1,2,2012-01-03,2012-01-03 00:00:00,
+
+--* // With the line number
+IMPORT CSV PREPEND LINENUMBER INTO TYPED2;
+1234567890123,abc
+,def
+
+--* /UPGRADE
@@ -0,0 +1,52 @@
+--* // Copyright 2012 Ren M. de Bloois
+
+--* // Licensed under the Apache License, Version 2.0 (the "License");
+--* // you may not use this file except in compliance with the License.
+--* // You may obtain a copy of the License at
+
+--* //     http://www.apache.org/licenses/LICENSE-2.0
+
+--* // Unless required by applicable law or agreed to in writing, software
+--* // distributed under the License is distributed on an "AS IS" BASIS,
+--* // WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+--* // See the License for the specific language governing permissions and
+--* // limitations under the License.
+
+--* // ========================================================================
+
+--*	DEFINITION
+--*		SETUP "" --> "1.1"
+--*		UPGRADE "" --> "1"
+--*		UPGRADE "1" --> "2"
+--*	/DEFINITION
+
+--* SETUP "" --> "1.1"
+RUN "setup-1.1.sql";
+--* /SETUP
+
+--* UPGRADE "" --> "1"
+
+CREATE TABLE TEMP8 ( ID INTEGER NOT NULL PRIMARY KEY, NAME VARCHAR(40) );
+INSERT INTO TEMP8 VALUES ( 5, 'existing' );
+
+--* // Record 5 fails the first time, records 1 to 4 stay committed
+IMPORT CSV COMMIT EVERY 2 RECORDS INTO TEMP8;
+1,one
+2,two
+3,three
+4,four
+5,five
+6,six
+7,seven
+
+--* /UPGRADE
+
+--* UPGRADE "1" --> "2"
+
+CREATE TABLE TEMP9 ( ID INTEGER NOT NULL PRIMARY KEY, NAME VARCHAR(40) );
+INSERT INTO TEMP9 VALUES ( 5, 'existing' );
+
+--* // Same as above, but the file can be positioned at the checkpoint
+IMPORT CSV SKIP HEADER COMMIT EVERY 2 RECORDS INTO TEMP9 FILE "import8.csv" ENCODING "UTF-8";
+
+--* /UPGRADE
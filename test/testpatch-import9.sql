@@ -0,0 +1,53 @@
+--* // Copyright 2012 Ren M. de Bloois
+
+--* // Licensed under the Apache License, Version 2.0 (the "License");
+--* // you may not use this file except in compliance with the License.
+--* // You may obtain a copy of the License at
+
+--* //     http://www.apache.org/licenses/LICENSE-2.0
+
+--* // Unless required by applicable law or agreed to in writing, software
+--* // distributed under the License is distributed on an "AS IS" BASIS,
+--* // WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+--* // See the License for the specific language governing permissions and
+--* // limitations under the License.
+
+--* // ========================================================================
+
+--*	DEFINITION
+--*		SETUP "" --> "1.1"
+--*		UPGRADE "" --> "1"
+--*	/DEFINITION
+
+--* SETUP "" --> "1.1"
+RUN "setup-1.1.sql";
+--* /SETUP
+
+--* UPGRADE "" --> "1"
+
+CREATE TABLE TEMP ( ID INTEGER NOT NULL, NAME VARCHAR(40) );
+CREATE TABLE TEMP2 ( LINENUMBER INTEGER, ID INTEGER NOT NULL, NAME VARCHAR(40) );
+
+--* // 2 statements of 3 rows and a tail of 1 row
+IMPORT CSV ROWS PER STATEMENT 3 INTO TEMP;
+1,one
+2,two
+3,three
+4,four
+5,five
+6,six
+7,seven
+
+IMPORT CSV ROWS PER STATEMENT 3 INTO TEMP ( NAME, ID ) VALUES ( :2, :1 );
+11,eleven
+12,twelve
+
+--* // The tail is inserted at every commit
+IMPORT CSV PREPEND LINENUMBER BATCH SIZE 1 ROWS PER STATEMENT 3 COMMIT EVERY 4 RECORDS INTO TEMP2;
+1,one
+2,two
+3,three
+4,four
+5,five
+
+--* /UPGRADE
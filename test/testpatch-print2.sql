@@ -19,6 +19,7 @@
 --*		SETUP "" --> "1.1"
 --*		UPGRADE "" --> "1"
 --*		UPGRADE "1" --> "2"
+--*		UPGRADE "2" --> "3"
 --*	/DEFINITION
 
 --* SETUP "" --> "1.1"
@@ -36,3 +37,9 @@ Between these two upgrade segments, records are inserted by the unit test.
  PRINT SELECT TEXT FROM TEMP1;
 
 --* /UPGRADE
+
+--* UPGRADE "2" --> "3"
+
+PRINT FETCH SIZE 99999999999 SELECT TEXT FROM TEMP1;
+
+--* /UPGRADE